@@ -7,6 +7,7 @@ plugins {
   `maven-publish`
   signing
   id("com.diffplug.spotless") version "6.25.0"
+  id("me.champeau.jmh") version "0.7.2"
 }
 
 ///////////////////////////////////////////////////////////////////////////////
@@ -31,6 +32,20 @@ dependencies {
   testImplementation("org.mockito:mockito-core:5.11.0")
 }
 
+///////////////////////////////////////////////////////////////////////////////
+//  BENCHMARK CONFIGURATION
+///////////////////////////////////////////////////////////////////////////////
+
+// Run with: ./gradlew jmh (results in build/results/jmh)
+jmh {
+  jmhVersion.set("1.37")
+  profilers.add("gc")
+  resultFormat.set("JSON")
+  if (project.hasProperty("jmhIncludes")) {
+    includes.add(project.property("jmhIncludes") as String)
+  }
+}
+
 ///////////////////////////////////////////////////////////////////////////////
 //  STANDARD CONFIGURATION FOR JAVA PROJECTS
 ///////////////////////////////////////////////////////////////////////////////
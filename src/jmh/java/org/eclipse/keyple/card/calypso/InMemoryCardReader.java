@@ -0,0 +1,285 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.keypop.card.ApduResponseApi;
+import org.eclipse.keypop.card.CardResponseApi;
+import org.eclipse.keypop.card.ChannelControl;
+import org.eclipse.keypop.card.ProxyReaderApi;
+import org.eclipse.keypop.card.spi.ApduRequestSpi;
+import org.eclipse.keypop.card.spi.CardRequestSpi;
+import org.eclipse.keypop.reader.CardReader;
+
+/**
+ * In-memory contactless reader stand-in used by the benchmarks.
+ *
+ * <p>The responses are computed from the incoming APDUs and from a static file image (records
+ * indexed by SFI), without any state change, so that every benchmark invocation sees exactly the
+ * same card behaviour. Only the commands involved in the benchmarked scenarios are emulated (Open
+ * Secure Session in regular and extended modes, Read Records in "one record" and "multiple
+ * records" modes, Increase/Decrease, Manage Secure Session, Close Secure Session and
+ * Ratification), all the other commands are acknowledged with SW 9000.
+ *
+ * @since 3.2.1
+ */
+final class InMemoryCardReader implements CardReader, ProxyReaderApi {
+
+  private static final byte INS_OPEN_SECURE_SESSION = (byte) 0x8A;
+  private static final byte INS_CLOSE_SECURE_SESSION = (byte) 0x8E;
+  private static final byte INS_MANAGE_SECURE_SESSION = (byte) 0x82;
+  private static final byte INS_READ_RECORDS = (byte) 0xB2;
+  private static final byte INS_INCREASE = (byte) 0x32;
+  private static final byte INS_DECREASE = (byte) 0x30;
+
+  private static final byte[] SW_9000 = {(byte) 0x90, (byte) 0x00};
+  private static final byte[] SW_6B00 = {(byte) 0x6B, (byte) 0x00};
+
+  private static final byte[] REGULAR_SESSION_HEADER = {
+    0x03, 0x04, (byte) 0x90, (byte) 0x98, 0x00, 0x30, 0x79
+  };
+  private static final byte[] EXTENDED_SESSION_HEADER = {
+    (byte) 0xC8,
+    (byte) 0xC7,
+    (byte) 0xC6,
+    (byte) 0xC5,
+    (byte) 0xC4,
+    (byte) 0xC3,
+    (byte) 0xC2,
+    (byte) 0xC1,
+    0x02,
+    0x30,
+    0x79
+  };
+
+  private final byte[][][] records = new byte[32][256][];
+
+  /**
+   * Sets the content of a record of the file image.
+   *
+   * @param sfi The SFI of the file.
+   * @param recordNumber The record number.
+   * @param content The record content.
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  InMemoryCardReader setRecord(byte sfi, int recordNumber, byte[] content) {
+    records[sfi][recordNumber] = content;
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public String getName() {
+    return "IN_MEMORY_READER";
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public boolean isContactless() {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public boolean isCardPresent() {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public CardResponseApi transmitCardRequest(
+      CardRequestSpi cardRequest, ChannelControl channelControl) {
+    List<ApduRequestSpi> apduRequests = cardRequest.getApduRequests();
+    List<ApduResponseApi> apduResponses = new ArrayList<>(apduRequests.size());
+    for (ApduRequestSpi apduRequest : apduRequests) {
+      apduResponses.add(new ApduResponseAdapter(processApdu(apduRequest.getApdu())));
+    }
+    return new CardResponseAdapter(apduResponses, channelControl == ChannelControl.KEEP_OPEN);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public void releaseChannel() {
+    // NOP
+  }
+
+  /**
+   * Computes the response to the provided APDU.
+   *
+   * @param apdu The command APDU.
+   * @return The response APDU including the status word.
+   */
+  private byte[] processApdu(byte[] apdu) {
+    int p1 = apdu[2] & 0xFF;
+    int p2 = apdu[3] & 0xFF;
+    switch (apdu[1]) {
+      case INS_OPEN_SECURE_SESSION:
+        return openSecureSession(apdu, p1, p2);
+      case INS_READ_RECORDS:
+        return readRecords(apdu, p1, p2);
+      case INS_INCREASE:
+      case INS_DECREASE:
+        return increaseOrDecrease(apdu, p1, p2);
+      case INS_MANAGE_SECURE_SESSION:
+      case INS_CLOSE_SECURE_SESSION:
+        // Returns a signature having the length of the provided one (if any).
+        return apdu.length > 5 ? buildResponse(new byte[apdu[4]], 0, apdu[4]) : SW_9000;
+      default:
+        return SW_9000;
+    }
+  }
+
+  private byte[] openSecureSession(byte[] apdu, int p1, int p2) {
+    byte[] header = apdu[4] == 9 ? EXTENDED_SESSION_HEADER : REGULAR_SESSION_HEADER;
+    byte[] data = (p2 >> 3) != 0 ? records[p2 >> 3][p1 >> 3] : null;
+    int dataLength = data != null ? data.length : 0;
+    byte[] response = new byte[header.length + 1 + dataLength + 2];
+    System.arraycopy(header, 0, response, 0, header.length);
+    response[header.length] = (byte) dataLength;
+    if (data != null) {
+      System.arraycopy(data, 0, response, header.length + 1, dataLength);
+    }
+    setSw9000(response);
+    return response;
+  }
+
+  private byte[] readRecords(byte[] apdu, int p1, int p2) {
+    byte[][] fileRecords = records[p2 >> 3];
+    if (p1 == 0 || fileRecords[p1] == null) {
+      // Ratification command or missing record
+      return SW_6B00;
+    }
+    if ((p2 & 0x07) == 0x04) {
+      return buildResponse(fileRecords[p1], 0, fileRecords[p1].length);
+    }
+    int le = apdu[4] & 0xFF;
+    byte[] data = new byte[le];
+    int offset = 0;
+    for (int i = p1; i < fileRecords.length && fileRecords[i] != null; i++) {
+      int length = fileRecords[i].length;
+      if (offset + 2 + length > le) {
+        break;
+      }
+      data[offset] = (byte) i;
+      data[offset + 1] = (byte) length;
+      System.arraycopy(fileRecords[i], 0, data, offset + 2, length);
+      offset += 2 + length;
+    }
+    return buildResponse(data, 0, offset);
+  }
+
+  private byte[] increaseOrDecrease(byte[] apdu, int p1, int p2) {
+    byte[] counters = records[p2 >> 3][1];
+    int offset = ((p1 != 0 ? p1 : 1) - 1) * 3;
+    int value =
+        ((counters[offset] & 0xFF) << 16)
+            + ((counters[offset + 1] & 0xFF) << 8)
+            + (counters[offset + 2] & 0xFF);
+    int delta = ((apdu[5] & 0xFF) << 16) + ((apdu[6] & 0xFF) << 8) + (apdu[7] & 0xFF);
+    value = apdu[1] == INS_INCREASE ? value + delta : value - delta;
+    return new byte[] {
+      (byte) (value >> 16), (byte) (value >> 8), (byte) value, (byte) 0x90, (byte) 0x00
+    };
+  }
+
+  private static byte[] buildResponse(byte[] data, int offset, int length) {
+    byte[] response = new byte[length + 2];
+    System.arraycopy(data, offset, response, 0, length);
+    setSw9000(response);
+    return response;
+  }
+
+  private static void setSw9000(byte[] response) {
+    response[response.length - 2] = SW_9000[0];
+    response[response.length - 1] = SW_9000[1];
+  }
+
+  /**
+   * Implementation of {@link ApduResponseApi}.
+   *
+   * @since 3.2.1
+   */
+  static final class ApduResponseAdapter implements ApduResponseApi {
+
+    private final byte[] apdu;
+    private final int statusWord;
+
+    ApduResponseAdapter(byte[] apdu) {
+      this.apdu = apdu;
+      statusWord = ((apdu[apdu.length - 2] & 0xFF) << 8) + (apdu[apdu.length - 1] & 0xFF);
+    }
+
+    @Override
+    public byte[] getApdu() {
+      return apdu;
+    }
+
+    @Override
+    public byte[] getDataOut() {
+      return Arrays.copyOfRange(apdu, 0, apdu.length - 2);
+    }
+
+    @Override
+    public int getStatusWord() {
+      return statusWord;
+    }
+  }
+
+  /**
+   * Implementation of {@link CardResponseApi}.
+   *
+   * @since 3.2.1
+   */
+  static final class CardResponseAdapter implements CardResponseApi {
+
+    private final List<ApduResponseApi> apduResponses;
+    private final boolean isLogicalChannelOpen;
+
+    CardResponseAdapter(List<ApduResponseApi> apduResponses, boolean isLogicalChannelOpen) {
+      this.apduResponses = apduResponses;
+      this.isLogicalChannelOpen = isLogicalChannelOpen;
+    }
+
+    @Override
+    public List<ApduResponseApi> getApduResponses() {
+      return apduResponses;
+    }
+
+    @Override
+    public boolean isLogicalChannelOpen() {
+      return isLogicalChannelOpen;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import org.eclipse.keypop.calypso.card.transaction.spi.CardTransactionCryptoExtension;
+import org.eclipse.keypop.calypso.card.transaction.spi.SymmetricCryptoCardTransactionManagerFactory;
+import org.eclipse.keypop.calypso.crypto.symmetric.spi.SymmetricCryptoCardTransactionManagerFactorySpi;
+import org.eclipse.keypop.calypso.crypto.symmetric.spi.SymmetricCryptoCardTransactionManagerSpi;
+
+/**
+ * Stub of the symmetric crypto service used by the benchmarks.
+ *
+ * <p>The factory and the card transaction managers are dynamic proxies returning constant
+ * challenges and signatures and accepting any card MAC, so that the benchmarks only measure the
+ * processing of the library.
+ *
+ * @since 3.2.1
+ */
+final class StubSymmetricCryptoFactory {
+
+  private static final byte[] CHALLENGE = {1, 2, 3, 4};
+  private static final byte[] CHALLENGE_EXTENDED = {1, 2, 3, 4, 5, 6, 7, 8};
+
+  private StubSymmetricCryptoFactory() {}
+
+  /**
+   * Creates a new factory stub.
+   *
+   * @return A new instance implementing both the API and the SPI factory interfaces.
+   * @since 3.2.1
+   */
+  static SymmetricCryptoCardTransactionManagerFactory newInstance() {
+    return (SymmetricCryptoCardTransactionManagerFactory)
+        Proxy.newProxyInstance(
+            StubSymmetricCryptoFactory.class.getClassLoader(),
+            new Class<?>[] {
+              SymmetricCryptoCardTransactionManagerFactory.class,
+              SymmetricCryptoCardTransactionManagerFactorySpi.class
+            },
+            new FactoryHandler());
+  }
+
+  /** Handles the factory calls. */
+  private static final class FactoryHandler implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      String name = method.getName();
+      if (name.equals("isExtendedModeSupported")) {
+        return true;
+      }
+      if (name.equals("getMaxCardApduLengthSupported")) {
+        return 250;
+      }
+      if (name.equals("createCardTransactionManager")) {
+        return Proxy.newProxyInstance(
+            StubSymmetricCryptoFactory.class.getClassLoader(),
+            new Class<?>[] {
+              SymmetricCryptoCardTransactionManagerSpi.class, CardTransactionCryptoExtension.class
+            },
+            new CardTransactionManagerHandler((Boolean) args[1]));
+      }
+      return defaultValue(proxy, method, args);
+    }
+  }
+
+  /** Handles the card transaction manager calls. */
+  private static final class CardTransactionManagerHandler implements InvocationHandler {
+
+    private final byte[] challenge;
+
+    private CardTransactionManagerHandler(boolean isExtendedMode) {
+      challenge = isExtendedMode ? CHALLENGE_EXTENDED : CHALLENGE;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      String name = method.getName();
+      if (name.equals("initTerminalSecureSessionContext")
+          || name.equals("finalizeTerminalSessionMac")) {
+        return challenge;
+      }
+      if (name.equals("generateTerminalSessionMac")) {
+        return CHALLENGE_EXTENDED;
+      }
+      if (name.startsWith("isCard") && name.endsWith("Valid")) {
+        return true;
+      }
+      return defaultValue(proxy, method, args);
+    }
+  }
+
+  /**
+   * Returns the default value of the method return type, or handles the {@link Object} methods.
+   */
+  private static Object defaultValue(Object proxy, Method method, Object[] args) {
+    String name = method.getName();
+    if (name.equals("equals")) {
+      return proxy == args[0];
+    }
+    if (name.equals("hashCode")) {
+      return System.identityHashCode(proxy);
+    }
+    if (name.equals("toString")) {
+      return "STUB_SYMMETRIC_CRYPTO";
+    }
+    Class<?> returnType = method.getReturnType();
+    if (returnType == boolean.class) {
+      return false;
+    }
+    if (returnType == int.class) {
+      return 0;
+    }
+    if (returnType == byte[].class) {
+      return CHALLENGE_EXTENDED;
+    }
+    return null;
+  }
+}
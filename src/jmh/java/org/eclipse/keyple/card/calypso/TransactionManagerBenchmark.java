@@ -0,0 +1,167 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.calypso.card.CalypsoCardApiFactory;
+import org.eclipse.keypop.calypso.card.WriteAccessLevel;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.calypso.card.transaction.SymmetricCryptoSecuritySetting;
+import org.eclipse.keypop.card.ApduResponseApi;
+import org.eclipse.keypop.card.CardResponseApi;
+import org.eclipse.keypop.card.CardSelectionResponseApi;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmarks of the transaction managers.
+ *
+ * <p>Each invocation emulates a complete validation: the card image is built from the FCI returned
+ * at selection, then the transaction manager reads the environment, contract and counter records,
+ * increments the counter and processes the commands against an {@link InMemoryCardReader}. The
+ * secure variants open and close a secure session with a {@link StubSymmetricCryptoFactory}.
+ *
+ * <p>Run with {@code ./gradlew jmh}; the "gc" profiler is enabled by default in the build so that
+ * {@code gc.alloc.rate.norm} is reported alongside the throughput.
+ *
+ * @since 3.2.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionManagerBenchmark {
+
+  private static final String FCI_PRIME_REVISION_3 =
+      "6F238409315449432E49434131A516BF0C13C708000000001122334453070A3C20051410019000";
+  private static final String FCI_PRIME_REVISION_3_EXTENDED =
+      "6F238409315449432E49434131A516BF0C13C708000000001122334453070A3C28051410019000";
+
+  private static final byte SFI_ENVIRONMENT = 0x07;
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final byte SFI_COUNTERS = 0x19;
+  private static final int RECORD_SIZE = 29;
+
+  private CalypsoCardApiFactory calypsoCardApiFactory;
+  private SymmetricCryptoSecuritySetting securitySetting;
+  private InMemoryCardReader cardReader;
+  private CardSelectionResponseApi regularCardSelectionResponse;
+  private CardSelectionResponseApi extendedCardSelectionResponse;
+
+  @Setup
+  public void setUp() {
+    calypsoCardApiFactory = CalypsoExtensionService.getInstance().getCalypsoCardApiFactory();
+    securitySetting =
+        calypsoCardApiFactory.createSymmetricCryptoSecuritySetting(
+            StubSymmetricCryptoFactory.newInstance());
+    cardReader =
+        new InMemoryCardReader()
+            .setRecord(SFI_ENVIRONMENT, 1, buildRecord(0x11))
+            .setRecord(SFI_CONTRACTS, 1, buildRecord(0x22))
+            .setRecord(SFI_COUNTERS, 1, new byte[RECORD_SIZE]);
+    regularCardSelectionResponse = new CardSelectionResponseAdapter(FCI_PRIME_REVISION_3);
+    extendedCardSelectionResponse = new CardSelectionResponseAdapter(FCI_PRIME_REVISION_3_EXTENDED);
+  }
+
+  @Benchmark
+  public CalypsoCard freeMode() throws Exception {
+    CalypsoCardAdapter card = new CalypsoCardAdapter(regularCardSelectionResponse);
+    calypsoCardApiFactory
+        .createFreeTransactionManager(cardReader, card)
+        .prepareReadRecords(SFI_ENVIRONMENT, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_COUNTERS, 1, 1, RECORD_SIZE)
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 1)
+        .processCommands(ChannelControl.CLOSE_AFTER);
+    return card;
+  }
+
+  @Benchmark
+  public CalypsoCard secureRegularMode() throws Exception {
+    CalypsoCardAdapter card = new CalypsoCardAdapter(regularCardSelectionResponse);
+    calypsoCardApiFactory
+        .createSecureRegularModeTransactionManager(cardReader, card, securitySetting)
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareReadRecords(SFI_ENVIRONMENT, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_COUNTERS, 1, 1, RECORD_SIZE)
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 1)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+    return card;
+  }
+
+  @Benchmark
+  public CalypsoCard secureExtendedMode() throws Exception {
+    CalypsoCardAdapter card = new CalypsoCardAdapter(extendedCardSelectionResponse);
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(cardReader, card, securitySetting)
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareReadRecords(SFI_ENVIRONMENT, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_COUNTERS, 1, 1, RECORD_SIZE)
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 1)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+    return card;
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  /** Selection response built from a constant FCI. */
+  private static final class CardSelectionResponseAdapter implements CardSelectionResponseApi {
+
+    private final ApduResponseApi selectApplicationResponse;
+
+    private CardSelectionResponseAdapter(String fci) {
+      selectApplicationResponse =
+          new InMemoryCardReader.ApduResponseAdapter(HexUtil.toByteArray(fci));
+    }
+
+    @Override
+    public String getPowerOnData() {
+      return null;
+    }
+
+    @Override
+    public ApduResponseApi getSelectApplicationResponse() {
+      return selectApplicationResponse;
+    }
+
+    @Override
+    public boolean hasMatched() {
+      return true;
+    }
+
+    @Override
+    public CardResponseApi getCardResponse() {
+      return null;
+    }
+  }
+}
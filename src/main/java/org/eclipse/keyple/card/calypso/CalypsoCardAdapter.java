@@ -82,9 +82,17 @@ final class CalypsoCardAdapter implements CalypsoCard, SmartCardSpi {
   private boolean isModificationCounterInBytes = true;
   private DirectoryHeader directoryHeader;
   private final Set<ElementaryFile> files = Collections.newSetFromMap(new ConcurrentHashMap<>());
-  private final Set<ElementaryFile> filesBackup =
-      Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final transient Map<ElementaryFileAdapter, FileJournal> filesJournal = // NOSONAR
+      new IdentityHashMap<>();
+  private transient boolean isFilesJournalEnabled; // NOSONAR
+  private final transient ElementaryFileAdapter[] filesBySfi = // NOSONAR
+      new ElementaryFileAdapter[CalypsoCardConstant.SFI_MAX + 1];
+  private final transient Map<Short, ElementaryFileAdapter> filesByLid = // NOSONAR
+      new HashMap<>();
   private ElementaryFileAdapter currentEf;
+  private final transient Map<Byte, Set<Integer>> recordsReadFromCard = // NOSONAR
+      new HashMap<>();
+  private final transient Map<Byte, BitSet> binaryBytesReadFromCard = new HashMap<>(); // NOSONAR
   private Boolean isDfRatified;
   private Integer transactionCounter;
   private Integer pinAttemptCounter;
@@ -102,6 +110,7 @@ final class CalypsoCardAdapter implements CalypsoCard, SmartCardSpi {
   private byte svKvc;
   private byte[] svGetHeader;
   private byte[] svGetData;
+  private boolean isSvGetDataFromSelection;
   private byte[] svOperationSignature;
   private byte applicationSubType;
   private byte applicationType;
@@ -125,6 +134,9 @@ final class CalypsoCardAdapter implements CalypsoCard, SmartCardSpi {
     patchesRev12.add(new PatchRev12("03080304000200", "FFFFFFFFFFFFFF").setLegacyCase1());
   }
 
+  /** Constructor used to restore a card image. */
+  private CalypsoCardAdapter() {}
+
   /**
    * Constructor.
    *
@@ -213,14 +225,35 @@ private void initializeWithFci(ApduResponseApi selectApplicationResponse)
    * @since 2.2.3
    */
   void initializeWithFci(CommandGetDataFci cmdCardGetDataFci) {
+    initializeWithFci(
+        cmdCardGetDataFci.isDfInvalidated(),
+        cmdCardGetDataFci.getDfName(),
+        cmdCardGetDataFci.getApplicationSerialNumber(),
+        cmdCardGetDataFci.getDiscretionaryData());
+  }
+
+  /**
+   * Initializes or post-initializes the object with the application FCI data.
+   *
+   * @param isDfInvalidated The DF invalidation status.
+   * @param dfName The DF name.
+   * @param applicationSerialNumber The full application serial number.
+   * @param discretionaryData The startup information.
+   * @throws IllegalArgumentException If the FCI is inconsistent.
+   */
+  private void initializeWithFci(
+      boolean isDfInvalidated,
+      byte[] dfName,
+      byte[] applicationSerialNumber,
+      byte[] discretionaryData) {
 
-    isDfInvalidated = cmdCardGetDataFci.isDfInvalidated();
+    this.isDfInvalidated = isDfInvalidated;
 
     // CL-SEL-DATA.1
-    dfName = cmdCardGetDataFci.getDfName();
-    calypsoSerialNumber = cmdCardGetDataFci.getApplicationSerialNumber();
+    this.dfName = dfName;
+    calypsoSerialNumber = applicationSerialNumber;
     // CL-SI-OTHER.1
-    startupInfo = cmdCardGetDataFci.getDiscretionaryData();
+    startupInfo = discretionaryData;
 
     // CL-SI-ATRFU.1
     // CL-SI-ATPRIME.1
@@ -318,8 +351,10 @@ private void applyPatchIfNeededForRevision(List<? extends Patch> patches, long s
    *
    * @param applicationType The application type (field of startup info).
    * @return The product type.
+   * @throws IllegalArgumentException If the application type is 00h.
+   * @since 3.3.0
    */
-  private ProductType computeProductType(int applicationType) {
+  static ProductType computeProductType(int applicationType) {
     if (applicationType == 0) {
       throw new IllegalArgumentException("Invalid application type 00h");
     }
@@ -655,6 +690,7 @@ void setSvData(byte svKvc, byte[] svGetHeader, byte[] svGetData, int svBalance,
     this.svGetData = svGetData;
     this.svBalance = svBalance;
     this.svLastTNum = svLastTNum;
+    isSvGetDataFromSelection = false;
   }
 
   /**
@@ -810,13 +846,11 @@ public ElementaryFile getFileBySfi(byte sfi) {
     if (sfi == 0) {
       return null;
     }
-    for (ElementaryFile ef : files) {
-      if (ef.getSfi() == sfi) {
-        return ef;
-      }
+    ElementaryFile ef = findFile(sfi);
+    if (ef == null) {
+      logger.warn("EF not found (sfi {}h)", HexUtil.toHex(sfi));
     }
-    logger.warn("EF not found (sfi {}h)", HexUtil.toHex(sfi));
-    return null;
+    return ef;
   }
 
   /**
@@ -826,13 +860,11 @@ public ElementaryFile getFileBySfi(byte sfi) {
    */
   @Override
   public ElementaryFile getFileByLid(short lid) {
-    for (ElementaryFile ef : files) {
-      if (ef.getHeader() != null && ef.getHeader().getLid() == lid) {
-        return ef;
-      }
+    ElementaryFile ef = filesByLid.get(lid);
+    if (ef == null) {
+      logger.warn("EF not found (lid {}h)", HexUtil.toHex(lid));
     }
-    logger.warn("EF not found (lid {}h)", HexUtil.toHex(lid));
-    return null;
+    return ef;
   }
 
   /**
@@ -859,29 +891,72 @@ private ElementaryFileAdapter getOrCreateFile(byte sfi, short lid) {
     if (sfi == 0 && lid == 0 && currentEf != null) {
       return currentEf;
     }
+    ElementaryFileAdapter ef = null;
     if (sfi != 0) {
       // Search by SFI
-      for (ElementaryFile ef : files) {
-        if (ef.getSfi() == sfi) {
-          currentEf = (ElementaryFileAdapter) ef;
-          return currentEf;
-        }
-      }
+      ef = findFile(sfi);
     } else if (lid != 0) {
       // Search by LID
-      for (ElementaryFile ef : files) {
-        if (ef.getHeader() != null && ef.getHeader().getLid() == lid) {
-          currentEf = (ElementaryFileAdapter) ef;
-          return currentEf;
-        }
+      ef = filesByLid.get(lid);
+    }
+    if (ef == null) {
+      // Create a new EF with the provided SFI
+      ef = new ElementaryFileAdapter(sfi);
+      if (files.add(ef) && isFilesJournalEnabled) {
+        filesJournal.put(ef, new FileJournal(true));
       }
+      indexFile(ef);
     }
-    // Create a new EF with the provided SFI
-    currentEf = new ElementaryFileAdapter(sfi);
-    files.add(currentEf);
+    currentEf = ef;
     return currentEf;
   }
 
+  /**
+   * Returns the file having the provided non-zero SFI without logging anything if absent.
+   *
+   * <p>The files having an SFI in the range allowed by the commands are retrieved from the SFI
+   * index; the other values, which can only come from a card response, fall back to a scan of the
+   * files.
+   *
+   * @param sfi the SFI.
+   * @return null if the file is not available.
+   */
+  private ElementaryFileAdapter findFile(byte sfi) {
+    if (sfi > 0 && sfi < filesBySfi.length) {
+      return filesBySfi[sfi];
+    }
+    for (ElementaryFile ef : files) {
+      if (ef.getSfi() == sfi) {
+        return (ElementaryFileAdapter) ef;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds the provided file to the SFI and LID indexes.
+   *
+   * @param ef the file.
+   */
+  private void indexFile(ElementaryFileAdapter ef) {
+    byte sfi = ef.getSfi();
+    if (sfi > 0 && sfi < filesBySfi.length) {
+      filesBySfi[sfi] = ef;
+    }
+    if (ef.getHeader() != null) {
+      filesByLid.put(ef.getHeader().getLid(), ef);
+    }
+  }
+
+  /** Rebuilds the SFI and LID indexes from the current set of files. */
+  private void reindexFiles() {
+    Arrays.fill(filesBySfi, null);
+    filesByLid.clear();
+    for (ElementaryFile ef : files) {
+      indexFile((ElementaryFileAdapter) ef);
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -927,8 +1002,10 @@ void setPinAttemptRemaining(int pinAttemptCounter) {
    */
   void setFileHeader(byte sfi, FileHeaderAdapter header) {
     ElementaryFileAdapter ef = getOrCreateFile(sfi, header.getLid());
+    journalHeader(ef);
     if (ef.getHeader() == null) {
       ef.setHeader(header);
+      filesByLid.put(header.getLid(), ef);
     } else {
       ef.getHeader().updateMissingInfoFrom(header);
     }
@@ -946,6 +1023,8 @@ void setFileHeader(byte sfi, FileHeaderAdapter header) {
    */
   void setContent(byte sfi, int numRecord, byte[] content) {
     ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
+    clearReadFromCard(ef.getSfi());
+    journalRecord(ef, numRecord);
     ef.getData().setContent(numRecord, content);
   }
 
@@ -960,6 +1039,8 @@ void setContent(byte sfi, int numRecord, byte[] content) {
    */
   void setCounter(byte sfi, int numCounter, byte[] content) {
     ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
+    clearReadFromCard(ef.getSfi());
+    journalRecord(ef, 1);
     ef.getData().setCounter(numCounter, content);
   }
 
@@ -978,6 +1059,8 @@ void setCounter(byte sfi, int numCounter, byte[] content) {
    */
   void setContent(byte sfi, int numRecord, byte[] content, int offset) {
     ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
+    clearReadFromCard(ef.getSfi());
+    journalRecord(ef, numRecord);
     ef.getData().setContent(numRecord, content, offset);
   }
 
@@ -995,13 +1078,16 @@ void setContent(byte sfi, int numRecord, byte[] content, int offset) {
    */
   void fillContent(byte sfi, int numRecord, byte[] content, int offset) {
     ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
+    clearReadFromCard(ef.getSfi());
+    journalRecord(ef, numRecord);
     ef.getData().fillContent(numRecord, content, offset);
   }
 
   /**
    * Add cyclic content at record #1 by rolling previously all actual records contents (record #1 ->
    * record #2, record #2 -> record #3,...) of the current selected file.<br>
-   * This is useful for cyclic files. Note that records are infinitely shifted.<br>
+   * This is useful for cyclic files. Note that records are infinitely shifted if the file header
+   * is not known, otherwise the last record is lost.<br>
    * <br>
    * If EF does not exist, then it is created.
    *
@@ -1011,44 +1097,350 @@ void fillContent(byte sfi, int numRecord, byte[] content, int offset) {
    */
   void addCyclicContent(byte sfi, byte[] content) {
     ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
-    ef.getData().addCyclicContent(content);
+    clearReadFromCard(ef.getSfi());
+    journalAllRecords(ef);
+    FileHeaderAdapter header = ef.getHeader();
+    ef.getData().addCyclicContent(content, header != null ? header.getRecordsNumber() : 0);
+  }
+
+  /**
+   * Same as {@link #setContent(byte, int, byte[])}, but also records that the provided content has
+   * just been read from the card, so that it can be used to avoid reading it again.
+   *
+   * @param sfi the SFI.
+   * @param numRecord the record number (should be {@code >=} 1).
+   * @param content the content (should be not empty).
+   * @since 3.3.0
+   */
+  void setContentReadFromCard(byte sfi, int numRecord, byte[] content) {
+    ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
+    journalRecord(ef, numRecord);
+    ef.getData().setContent(numRecord, content);
+    if (ef.getSfi() != 0) {
+      Set<Integer> records = recordsReadFromCard.get(ef.getSfi());
+      if (records == null) {
+        records = new HashSet<>();
+        recordsReadFromCard.put(ef.getSfi(), records);
+      }
+      records.add(numRecord);
+    }
+  }
+
+  /**
+   * Same as {@link #setContent(byte, int, byte[], int)} for record #1, but also records that the
+   * provided binary content has just been read from the card, so that it can be used to avoid
+   * reading it again.
+   *
+   * @param sfi the SFI.
+   * @param content the content (should be not empty).
+   * @param offset the offset (should be {@code >=} 0).
+   * @since 3.3.0
+   */
+  void setBinaryContentReadFromCard(byte sfi, byte[] content, int offset) {
+    ElementaryFileAdapter ef = getOrCreateFile(sfi, (short) 0);
+    journalRecord(ef, 1);
+    ef.getData().setContent(1, content, offset);
+    if (ef.getSfi() != 0) {
+      BitSet bytes = binaryBytesReadFromCard.get(ef.getSfi());
+      if (bytes == null) {
+        bytes = new BitSet();
+        binaryBytesReadFromCard.put(ef.getSfi(), bytes);
+      }
+      bytes.set(offset, offset + content.length);
+    }
+  }
+
+  /**
+   * Indicates if the content of the specified record has been read from the card and not modified
+   * since, with at least the provided length.
+   *
+   * @param sfi the SFI (should be not 0).
+   * @param numRecord the record number (should be {@code >=} 1).
+   * @param length the minimum expected length, 0 if the whole record is expected (in this case the
+   *     record size must be known from the file header).
+   * @return false if the record content cannot be guaranteed to be up-to-date.
+   * @since 3.3.0
+   */
+  boolean isRecordReadFromCard(byte sfi, int numRecord, int length) {
+    Set<Integer> records = recordsReadFromCard.get(sfi);
+    if (records == null || !records.contains(numRecord)) {
+      return false;
+    }
+    ElementaryFile ef = findFile(sfi);
+    if (ef == null) {
+      return false;
+    }
+    int expectedLength = length;
+    if (expectedLength == 0) {
+      if (ef.getHeader() == null || ef.getHeader().getRecordSize() == 0) {
+        return false;
+      }
+      expectedLength = ef.getHeader().getRecordSize();
+    }
+    byte[] content = ef.getData().getAllRecordsContent().get(numRecord);
+    return content != null && content.length >= expectedLength;
+  }
+
+  /**
+   * Indicates if the specified range of the binary file has been read from the card and not
+   * modified since.
+   *
+   * @param sfi the SFI (should be not 0).
+   * @param offset the offset (should be {@code >=} 0).
+   * @param length the number of bytes (should be {@code >=} 1).
+   * @return false if the binary content cannot be guaranteed to be up-to-date.
+   * @since 3.3.0
+   */
+  boolean isBinaryReadFromCard(byte sfi, int offset, int length) {
+    BitSet bytes = binaryBytesReadFromCard.get(sfi);
+    if (bytes == null || bytes.nextClearBit(offset) < offset + length) {
+      return false;
+    }
+    ElementaryFile ef = findFile(sfi);
+    if (ef == null) {
+      return false;
+    }
+    byte[] content = ef.getData().getAllRecordsContent().get(1);
+    return content != null && content.length >= offset + length;
+  }
+
+  /**
+   * Forgets that the content of the file having the provided SFI has been read from the card.
+   *
+   * @param sfi the SFI.
+   */
+  private void clearReadFromCard(byte sfi) {
+    recordsReadFromCard.remove(sfi);
+    binaryBytesReadFromCard.remove(sfi);
+  }
+
+  /**
+   * Indicates if the transaction counter and the ratification status are known, i.e. if a secure
+   * session has been opened, possibly during the card selection.
+   *
+   * @return true if {@link #getTransactionCounter()} and {@link #isDfRatified()} can be invoked.
+   * @since 3.3.0
+   */
+  boolean isSessionOpeningDataAvailable() {
+    return transactionCounter != null && isDfRatified != null;
+  }
+
+  /**
+   * Adds copies of the provided files, known to be up-to-date, to the card image.
+   *
+   * <p>The files without SFI or already present in the card image are ignored. The content of the
+   * added files is considered as read from the card, so that it is not read again.
+   *
+   * <p>This method should only be used outside a secure session.
+   *
+   * @param cachedFiles The files to add.
+   * @return The number of files added.
+   * @since 3.3.0
+   */
+  int addUpToDateFiles(Collection<ElementaryFileAdapter> cachedFiles) {
+    int nbFilesAdded = 0;
+    for (ElementaryFileAdapter cachedFile : cachedFiles) {
+      byte sfi = cachedFile.getSfi();
+      if (sfi <= 0
+          || sfi >= filesBySfi.length
+          || findFile(sfi) != null
+          || (cachedFile.getHeader() != null
+              && filesByLid.containsKey(cachedFile.getHeader().getLid()))) {
+        continue;
+      }
+      ElementaryFileAdapter ef = new ElementaryFileAdapter(cachedFile);
+      files.add(ef);
+      indexFile(ef);
+      SortedMap<Integer, byte[]> records = ef.getData().getAllRecordsContent();
+      if (ef.getHeader() != null && ef.getHeader().getEfType() == ElementaryFile.Type.BINARY) {
+        byte[] content = records.get(1);
+        if (content != null) {
+          BitSet bytes = new BitSet();
+          bytes.set(0, content.length);
+          binaryBytesReadFromCard.put(sfi, bytes);
+        }
+      } else if (!records.isEmpty()) {
+        recordsReadFromCard.put(sfi, new HashSet<>(records.keySet()));
+      }
+      nbFilesAdded++;
+    }
+    return nbFilesAdded;
   }
 
   /**
    * Make a backup of the Elementary Files.<br>
    * This method should be used before starting a card secure session.
    *
+   * <p>No copy is made at this stage: from now on, the initial state of each file header and record
+   * is saved in a journal just before it is modified for the first time.
+   *
    * @since 2.0.0
    */
   void backupFiles() {
-    copyFiles(files, filesBackup);
+    filesJournal.clear();
+    isFilesJournalEnabled = true;
+    recordsReadFromCard.clear();
+    binaryBytesReadFromCard.clear();
     svBalanceBackup = svBalance;
     svLastTNumBackup = svLastTNum;
   }
 
+  /**
+   * Discards the last backup of Elementary Files.<br>
+   * This method should be used when the card secure session is successfully closed.
+   *
+   * <p>The journal is cleared and the modifications are no longer journaled until the next backup.
+   *
+   * @since 3.3.0
+   */
+  void discardFilesBackup() {
+    filesJournal.clear();
+    isFilesJournalEnabled = false;
+  }
+
   /**
    * Restore the last backup of Elementary Files.<br>
    * This method should be used when SW of the card close secure session command is unsuccessful or
    * if secure session is aborted.
    *
+   * <p>Only the file headers and records saved in the journal are restored, the files created since
+   * the backup are removed.
+   *
    * @since 2.0.0
    */
   void restoreFiles() {
-    copyFiles(filesBackup, files);
+    for (Map.Entry<ElementaryFileAdapter, FileJournal> entry : filesJournal.entrySet()) {
+      entry.getValue().restore(entry.getKey(), files);
+    }
+    filesJournal.clear();
+    reindexFiles();
+    recordsReadFromCard.clear();
+    binaryBytesReadFromCard.clear();
     svBalance = svBalanceBackup;
     svLastTNum = svLastTNumBackup;
   }
 
   /**
-   * Copy a set of ElementaryFile to another one by cloning each element.
+   * Saves the header of the provided file in the journal if not already done since the last
+   * backup.
+   *
+   * @param ef the file.
+   */
+  private void journalHeader(ElementaryFileAdapter ef) {
+    if (isFilesJournalEnabled) {
+      getFileJournal(ef).saveHeader(ef);
+    }
+  }
+
+  /**
+   * Saves the content of the specified record of the provided file in the journal if not already
+   * done since the last backup.
+   *
+   * @param ef the file.
+   * @param numRecord the record number.
+   */
+  private void journalRecord(ElementaryFileAdapter ef, int numRecord) {
+    if (isFilesJournalEnabled) {
+      getFileJournal(ef).saveRecord(ef, numRecord);
+    }
+  }
+
+  /**
+   * Saves the content of all the records of the provided file in the journal if not already done
+   * since the last backup.
+   *
+   * @param ef the file.
+   */
+  private void journalAllRecords(ElementaryFileAdapter ef) {
+    if (isFilesJournalEnabled) {
+      getFileJournal(ef).saveAllRecords(ef);
+    }
+  }
+
+  /**
+   * Returns the journal of the provided existing file, creating it if needed.
+   *
+   * @param ef the file.
+   * @return A not null reference.
+   */
+  private FileJournal getFileJournal(ElementaryFileAdapter ef) {
+    FileJournal fileJournal = filesJournal.get(ef);
+    if (fileJournal == null) {
+      fileJournal = new FileJournal(false);
+      filesJournal.put(ef, fileJournal);
+    }
+    return fileJournal;
+  }
+
+  /**
+   * Initial state of a file modified since the last backup.
    *
-   * @param src the source (should be not null).
-   * @param dest the destination (should be not null).
+   * <p>A null record content means that the record did not exist.
    */
-  private static void copyFiles(Set<ElementaryFile> src, Set<ElementaryFile> dest) {
-    dest.clear();
-    for (ElementaryFile file : src) {
-      dest.add(new ElementaryFileAdapter(file));
+  private static final class FileJournal {
+
+    private final boolean isCreated;
+    private boolean isHeaderSaved;
+    private FileHeaderAdapter header;
+    private boolean isAllRecordsSaved;
+    private final Map<Integer, byte[]> records = new HashMap<>();
+
+    private FileJournal(boolean isCreated) {
+      this.isCreated = isCreated;
+    }
+
+    private void saveHeader(ElementaryFileAdapter ef) {
+      if (isCreated || isHeaderSaved) {
+        return;
+      }
+      FileHeaderAdapter currentHeader = ef.getHeader();
+      header = currentHeader != null ? new FileHeaderAdapter(currentHeader) : null;
+      isHeaderSaved = true;
+    }
+
+    private void saveRecord(ElementaryFileAdapter ef, int numRecord) {
+      if (isCreated || isAllRecordsSaved || records.containsKey(numRecord)) {
+        return;
+      }
+      byte[] content = ef.getData().getAllRecordsContent().get(numRecord);
+      records.put(numRecord, content != null ? Arrays.copyOf(content, content.length) : null);
+    }
+
+    private void saveAllRecords(ElementaryFileAdapter ef) {
+      if (isCreated || isAllRecordsSaved) {
+        return;
+      }
+      for (Map.Entry<Integer, byte[]> entry : ef.getData().getAllRecordsContent().entrySet()) {
+        if (!records.containsKey(entry.getKey())) {
+          records.put(entry.getKey(), Arrays.copyOf(entry.getValue(), entry.getValue().length));
+        }
+      }
+      isAllRecordsSaved = true;
+    }
+
+    private void restore(ElementaryFileAdapter ef, Set<ElementaryFile> files) {
+      if (isCreated) {
+        files.remove(ef);
+        return;
+      }
+      if (isHeaderSaved) {
+        ef.setHeader(header);
+      }
+      FileDataAdapter data = ef.getData();
+      if (isAllRecordsSaved) {
+        for (Integer numRecord : new ArrayList<>(data.getAllRecordsContent().keySet())) {
+          if (!records.containsKey(numRecord)) {
+            data.removeContent(numRecord);
+          }
+        }
+      }
+      for (Map.Entry<Integer, byte[]> entry : records.entrySet()) {
+        if (entry.getValue() != null) {
+          data.setContent(entry.getKey(), entry.getValue());
+        } else {
+          data.removeContent(entry.getKey());
+        }
+      }
     }
   }
 
@@ -1229,6 +1621,29 @@ byte[] getSvGetData() {
     return svGetData;
   }
 
+  /**
+   * Indicates if the SV Get data has been obtained during the card selection and can still be used
+   * by an SV operation, the card having received no command other than "Open Secure Session"
+   * since.
+   *
+   * @return true if the SV Get data comes from the card selection.
+   * @since 3.3.0
+   */
+  boolean isSvGetDataFromSelection() {
+    return isSvGetDataFromSelection;
+  }
+
+  /**
+   * Sets whether the SV Get data has been obtained during the card selection and can still be used
+   * by an SV operation.
+   *
+   * @param isSvGetDataFromSelection true if the SV Get data comes from the card selection.
+   * @since 3.3.0
+   */
+  void setSvGetDataFromSelection(boolean isSvGetDataFromSelection) {
+    this.isSvGetDataFromSelection = isSvGetDataFromSelection;
+  }
+
   /**
    * Gets the last SV Operation signature (SV Reload, Debit, or Undebit)
    *
@@ -1301,6 +1716,107 @@ CalypsoCardAdapter setPreOpenDataOut(byte[] preOpenDataOut) {
     return this;
   }
 
+  /**
+   * Writes the persistent data of the card image.
+   *
+   * <p>The selection data is written first, so that the characteristics derived from it are
+   * recomputed when reading the image, followed by the data collected from the card since its
+   * selection. The data related to an ongoing transaction (challenge, session backups, SV operation
+   * signature, card public key SPI) is not written.
+   *
+   * @param writer The image writer.
+   * @since 3.3.0
+   */
+  void writeImage(CardImageCodec.Writer writer) {
+    // Selection data
+    writer.writeString(powerOnData);
+    writer.writeBytes(
+        selectApplicationResponse != null ? selectApplicationResponse.getApdu() : null);
+    writer.writeBytes(dfName);
+    writer.writeBytes(calypsoSerialNumber);
+    writer.writeBytes(startupInfo);
+    // Characteristics updated since the selection
+    writer.writeBoolean(isDfInvalidated);
+    writer.writeBoolean(isExtendedModeSupported);
+    writer.writeNullableBoolean(isCounterValuePostponed);
+    // Card content
+    writer.writeDirectoryHeader(directoryHeader);
+    writer.writeFiles(files);
+    writer.writeNullableBoolean(isDfRatified);
+    writer.writeNullableInt(transactionCounter);
+    writer.writeNullableInt(pinAttemptCounter);
+    writer.writeNullableInt(svBalance);
+    if (svBalance != null) {
+      writer.writeByte(svKvc);
+      writer.writeBytes(svGetHeader);
+      writer.writeBytes(svGetData);
+      writer.writeInt(svLastTNum);
+    }
+    writer.writeBytes(traceabilityInformation);
+    writer.writeBytes(cardPublicKey);
+    writer.writeBytes(cardCertificate != null ? cardCertificate.array() : null);
+    writer.writeBytes(caCertificate != null ? caCertificate.array() : null);
+  }
+
+  /**
+   * Reads a card image written by {@link #writeImage(CardImageCodec.Writer)}.
+   *
+   * @param reader The image reader.
+   * @return A new instance.
+   * @throws IllegalArgumentException If the image is malformed.
+   * @since 3.3.0
+   */
+  static CalypsoCardAdapter readImage(CardImageCodec.Reader reader) {
+    CalypsoCardAdapter card = new CalypsoCardAdapter();
+    String powerOnData = reader.readString();
+    byte[] selectApplicationResponse = reader.readBytes();
+    byte[] dfName = reader.readBytes();
+    byte[] calypsoSerialNumber = reader.readBytes();
+    byte[] startupInfo = reader.readBytes();
+    boolean isDfInvalidated = reader.readBoolean();
+    try {
+      if (powerOnData != null && selectApplicationResponse == null) {
+        card.initializeWithPowerOnData(powerOnData);
+      } else if (startupInfo != null) {
+        card.initializeWithFci(isDfInvalidated, dfName, calypsoSerialNumber, startupInfo);
+      }
+      if (selectApplicationResponse != null) {
+        card.selectApplicationResponse = new ApduResponseAdapter(selectApplicationResponse);
+      }
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException(
+          "Malformed card image: inconsistent selection data (" + e.getMessage() + ")", e);
+    }
+    card.powerOnData = powerOnData;
+    card.isDfInvalidated = isDfInvalidated;
+    card.isExtendedModeSupported = reader.readBoolean();
+    card.isCounterValuePostponed = reader.readNullableBoolean();
+    card.directoryHeader = reader.readDirectoryHeader();
+    card.files.addAll(reader.readFiles());
+    card.reindexFiles();
+    card.isDfRatified = reader.readNullableBoolean();
+    card.transactionCounter = reader.readNullableInt();
+    card.pinAttemptCounter = reader.readNullableInt();
+    card.svBalance = reader.readNullableInt();
+    if (card.svBalance != null) {
+      card.svKvc = reader.readByte();
+      card.svGetHeader = reader.readBytes();
+      card.svGetData = reader.readBytes();
+      card.svLastTNum = reader.readInt();
+    }
+    card.traceabilityInformation = reader.readBytes();
+    card.cardPublicKey = reader.readBytes();
+    byte[] certificate = reader.readBytes();
+    if (certificate != null) {
+      card.cardCertificate = ByteBuffer.wrap(certificate);
+    }
+    certificate = reader.readBytes();
+    if (certificate != null) {
+      card.caCertificate = ByteBuffer.wrap(certificate);
+    }
+    return card;
+  }
+
   /**
    * Gets the object content as a Json string.
    *
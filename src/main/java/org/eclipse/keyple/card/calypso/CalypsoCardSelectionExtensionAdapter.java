@@ -24,6 +24,7 @@
 import org.eclipse.keypop.calypso.card.card.CalypsoCardSelectionExtension;
 import org.eclipse.keypop.calypso.card.transaction.InconsistentDataException;
 import org.eclipse.keypop.calypso.card.transaction.SelectFileException;
+import org.eclipse.keypop.calypso.card.transaction.SvOperation;
 import org.eclipse.keypop.card.ApduResponseApi;
 import org.eclipse.keypop.card.CardResponseApi;
 import org.eclipse.keypop.card.CardSelectionResponseApi;
@@ -34,6 +35,13 @@
 /**
  * Implementation of {@link CalypsoCardSelectionExtension}.
  *
+ * <p>Once prepared, the extension is compiled into an immutable selection plan on the first call
+ * to {@link #getCardSelectionRequest()} or {@link #parse(CardSelectionResponseApi)}: the card
+ * selection request is built only once, and each parsing works on its own copies of the prepared
+ * commands, sharing their APDU bytes. A prepared extension can therefore be reused for any number
+ * of cards and used concurrently to parse the selection responses of several readers. Preparing a
+ * new command discards the current plan; this must not be done while the extension is in use.
+ *
  * @since 2.0.0
  */
 final class CalypsoCardSelectionExtensionAdapter
@@ -45,8 +53,12 @@
   private final List<Command> commands;
   private final TransactionContextDto transactionContext;
   private final CommandContextDto commandContext;
+  private CardSelectionFilter cardSelectionFilter;
+  private CardImageCache cardImageCache;
   private boolean isPreOpenPrepared;
+  private boolean isSvGetPrepared;
   private boolean isInvalidatedCardAccepted;
+  private volatile SelectionPlan selectionPlan; // NOSONAR
 
   /**
    * Creates an instance of {@link CalypsoCardSelectionExtension}.
@@ -68,6 +80,7 @@
   @Override
   public CalypsoCardSelectionExtension acceptInvalidatedCard() {
     isInvalidatedCardAccepted = true;
+    selectionPlan = null;
     return this;
   }
 
@@ -85,7 +98,7 @@ public CalypsoCardSelectionExtension prepareReadRecord(byte sfi, int recordNumbe
             CalypsoCardConstant.NB_REC_MIN,
             CalypsoCardConstant.NB_REC_MAX,
             "recordNumber");
-    commands.add(
+    addCommand(
         new CommandReadRecords(
             transactionContext,
             commandContext,
@@ -111,7 +124,7 @@ public CalypsoCardSelectionExtension prepareReadBinary(byte sfi, int offset, int
         .greaterOrEqual(nbBytesToRead, 1, "nbBytesToRead");
     if (sfi > 0 && offset > 255) { // FFh
       // Tips to select the file: add a "Read Binary" command (read one byte at offset 0).
-      commands.add(new CommandReadBinary(transactionContext, commandContext, sfi, 0, 1));
+      addCommand(new CommandReadBinary(transactionContext, commandContext, sfi, 0, 1));
     }
     int currentLength;
     int currentOffset = offset;
@@ -119,7 +132,7 @@ public CalypsoCardSelectionExtension prepareReadBinary(byte sfi, int offset, int
     do {
       currentLength =
           Math.min(nbBytesRemainingToRead, CalypsoCardConstant.DEFAULT_PAYLOAD_CAPACITY);
-      commands.add(
+      addCommand(
           new CommandReadBinary(
               transactionContext, commandContext, sfi, currentOffset, currentLength));
       currentOffset += currentLength;
@@ -142,7 +155,7 @@ public CalypsoCardSelectionExtension prepareReadCounter(byte sfi, int nbCounters
             0,
             CalypsoCardConstant.DEFAULT_PAYLOAD_CAPACITY / 3,
             "nbCountersToRead");
-    commands.add(
+    addCommand(
         new CommandReadRecords(
             transactionContext,
             commandContext,
@@ -166,12 +179,66 @@ public CalypsoCardSelectionExtension preparePreOpenSecureSession(
       throw new IllegalStateException("'Pre-Open Secure Session' command already prepared");
     }
     Assert.getInstance().notNull(writeAccessLevel, "writeAccessLevel");
-    commands.add(
+    addCommand(
         new CommandOpenSecureSession(transactionContext, commandContext, writeAccessLevel));
     isPreOpenPrepared = true;
     return this;
   }
 
+  /**
+   * Prepares an "SV Get" command in extended mode for the provided SV operation.
+   *
+   * <p>The SV data returned by the card is stored in the card image and is used by the first SV
+   * operation of a secure symmetric crypto transaction in extended mode, which then no longer needs
+   * an "SV Get" command. The response is ignored if the card does not support the command, and the
+   * data is not used if a command other than "Open Secure Session" is prepared after it.
+   *
+   * @param svOperation The SV operation.
+   * @return The current instance.
+   * @throws IllegalArgumentException If the SV operation is null.
+   * @throws IllegalStateException If an "SV Get" command is already prepared.
+   * @see CalypsoExtensionService#prepareSvGet(CalypsoCardSelectionExtension, SvOperation)
+   * @since 3.3.0
+   */
+  CalypsoCardSelectionExtension prepareSvGet(SvOperation svOperation) {
+    if (isSvGetPrepared) {
+      throw new IllegalStateException("'SV Get' command already prepared");
+    }
+    Assert.getInstance().notNull(svOperation, "svOperation");
+    addCommand(new CommandSvGet(transactionContext, commandContext, svOperation));
+    isSvGetPrepared = true;
+    return this;
+  }
+
+  /**
+   * Sets the filter evaluated on the FCI of the cards, and discards the current selection plan.
+   *
+   * @param cardSelectionFilter The filter, null to remove the current one.
+   * @return The current instance.
+   * @see CalypsoExtensionService#setCardSelectionFilter(CalypsoCardSelectionExtension,
+   *     CardSelectionFilter)
+   * @since 3.3.0
+   */
+  CalypsoCardSelectionExtension setCardSelectionFilter(CardSelectionFilter cardSelectionFilter) {
+    this.cardSelectionFilter = cardSelectionFilter;
+    selectionPlan = null;
+    return this;
+  }
+
+  /**
+   * Sets the cache of the card images, and discards the current selection plan.
+   *
+   * @param cardImageCache The cache, null to remove the current one.
+   * @return The current instance.
+   * @see CalypsoExtensionService#setCardImageCache(CalypsoCardSelectionExtension, CardImageCache)
+   * @since 3.3.0
+   */
+  CalypsoCardSelectionExtension setCardImageCache(CardImageCache cardImageCache) {
+    this.cardImageCache = cardImageCache;
+    selectionPlan = null;
+    return this;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -182,16 +249,16 @@ public CalypsoCardSelectionExtension prepareGetData(GetDataTag tag) {
     Assert.getInstance().notNull(tag, "tag");
     switch (tag) {
       case FCI_FOR_CURRENT_DF:
-        commands.add(new CommandGetDataFci(transactionContext, commandContext));
+        addCommand(new CommandGetDataFci(transactionContext, commandContext));
         break;
       case FCP_FOR_CURRENT_FILE:
-        commands.add(new CommandGetDataFcp(transactionContext, commandContext));
+        addCommand(new CommandGetDataFcp(transactionContext, commandContext));
         break;
       case EF_LIST:
-        commands.add(new CommandGetDataEfList(transactionContext, commandContext));
+        addCommand(new CommandGetDataEfList(transactionContext, commandContext));
         break;
       case TRACEABILITY_INFORMATION:
-        commands.add(new CommandGetDataTraceabilityInformation(transactionContext, commandContext));
+        addCommand(new CommandGetDataTraceabilityInformation(transactionContext, commandContext));
         break;
       default:
         throw new UnsupportedOperationException("Unsupported Get Data tag: " + tag.name());
@@ -206,7 +273,7 @@ public CalypsoCardSelectionExtension prepareGetData(GetDataTag tag) {
    */
   @Override
   public CalypsoCardSelectionExtension prepareSelectFile(short lid) {
-    commands.add(new CommandSelectFile(transactionContext, commandContext, lid));
+    addCommand(new CommandSelectFile(transactionContext, commandContext, lid));
     return this;
   }
 
@@ -218,41 +285,112 @@ public CalypsoCardSelectionExtension prepareSelectFile(short lid) {
   @Override
   public CalypsoCardSelectionExtension prepareSelectFile(SelectFileControl selectControl) {
     Assert.getInstance().notNull(selectControl, "selectControl");
-    commands.add(new CommandSelectFile(transactionContext, commandContext, selectControl));
+    addCommand(new CommandSelectFile(transactionContext, commandContext, selectControl));
     return this;
   }
 
+  /**
+   * Adds a prepared command and discards the current selection plan.
+   *
+   * @param command The command.
+   */
+  private void addCommand(Command command) {
+    commands.add(command);
+    selectionPlan = null;
+  }
+
+  /**
+   * Returns the selection plan, compiling it from the prepared commands if needed.
+   *
+   * @return A not null reference.
+   */
+  private SelectionPlan getSelectionPlan() {
+    SelectionPlan plan = selectionPlan;
+    if (plan == null) {
+      synchronized (this) {
+        plan = selectionPlan;
+        if (plan == null) {
+          plan =
+              new SelectionPlan(
+                  commands, isInvalidatedCardAccepted, cardSelectionFilter, cardImageCache);
+          selectionPlan = plan;
+        }
+      }
+    }
+    return plan;
+  }
+
   /**
    * {@inheritDoc}
    *
+   * <p>The same instance is returned as long as no new command is prepared.
+   *
    * @since 2.0.0
    */
   @Override
   public CardSelectionRequestSpi getCardSelectionRequest() {
-    List<ApduRequestSpi> cardSelectionApduRequests = new ArrayList<>();
-    CardSelectionRequestAdapter cardSelectionRequest;
-    if (commands.isEmpty()) {
-      cardSelectionRequest = new CardSelectionRequestAdapter(null);
-    } else {
-      for (Command command : commands) {
-        cardSelectionApduRequests.add(command.getApduRequest());
-      }
-      cardSelectionRequest =
-          new CardSelectionRequestAdapter(new CardRequestAdapter(cardSelectionApduRequests, false));
-    }
-    if (isInvalidatedCardAccepted) {
-      cardSelectionRequest.addSuccessfulSelectionStatusWord(SW_CARD_INVALIDATED);
-    }
-    return cardSelectionRequest;
+    return getSelectionPlan().cardSelectionRequest;
   }
 
   /**
    * {@inheritDoc}
    *
+   * <p>This method is thread-safe.
+   *
    * @since 2.0.0
    */
   @Override
   public SmartCardSpi parse(CardSelectionResponseApi cardSelectionResponse) throws ParseException {
+    SelectionPlan plan = getSelectionPlan();
+    if (plan.cardSelectionFilter != null) {
+      checkCardSelectionFilter(plan.cardSelectionFilter, cardSelectionResponse);
+    }
+    Object event = FlightRecorderEvents.beginCardSelectionParsing(plan.commands.length);
+    try {
+      return parseCardSelectionResponse(
+          plan.copyCommands(commandContext), cardSelectionResponse, plan.cardImageCache);
+    } finally {
+      FlightRecorderEvents.endCardSelectionParsing(event);
+    }
+  }
+
+  /**
+   * Evaluates the card selection filter on the FCI returned by the card.
+   *
+   * @param cardSelectionFilter The card selection filter.
+   * @param cardSelectionResponse The card selection response.
+   * @throws ParseException If the card is rejected by the filter.
+   */
+  private static void checkCardSelectionFilter(
+      CardSelectionFilter cardSelectionFilter, CardSelectionResponseApi cardSelectionResponse)
+      throws ParseException {
+    ApduResponseApi selectApplicationResponse =
+        cardSelectionResponse != null ? cardSelectionResponse.getSelectApplicationResponse() : null;
+    if (selectApplicationResponse == null) {
+      return;
+    }
+    String rejectionReason =
+        cardSelectionFilter.getRejectionReason(selectApplicationResponse.getDataOut());
+    if (rejectionReason != null) {
+      throw new ParseException("Card rejected by the card selection filter: " + rejectionReason);
+    }
+  }
+
+  /**
+   * Creates the Calypso card image from the card selection response and the responses to the
+   * prepared commands.
+   *
+   * @param commands The copies of the prepared commands dedicated to this parsing.
+   * @param cardSelectionResponse The card selection response.
+   * @param cardImageCache The cache of the card images, null if none.
+   * @return A not null reference.
+   * @throws ParseException If the response cannot be parsed.
+   */
+  private static CalypsoCardAdapter parseCardSelectionResponse(
+      List<Command> commands,
+      CardSelectionResponseApi cardSelectionResponse,
+      CardImageCache cardImageCache)
+      throws ParseException {
     CardResponseApi cardResponse = cardSelectionResponse.getCardResponse();
     List<ApduResponseApi> apduResponses =
         cardResponse != null
@@ -276,6 +414,9 @@ public SmartCardSpi parse(CardSelectionResponseApi cardSelectionResponse) throws
       throw new ParseException(
           "Unable to create a CalypsoCard: no power-on data and no FCI provided");
     }
+    if (cardImageCache != null) {
+      cardImageCache.restoreFiles(calypsoCard);
+    }
     return calypsoCard;
   }
 
@@ -304,13 +445,19 @@ private static void parseApduResponses(
     // case of an error that occurred in strict mode. In this case the last response will raise an
     // exception.
     for (int i = 0; i < apduResponses.size(); i++) {
+      if (commands.get(i).getCommandRef() != CardCommandRef.OPEN_SECURE_SESSION) {
+        // Only an "Open Secure Session" command may follow the "SV Get" command used by the SV
+        // operation (CL-SV-GETDEBIT.1, CL-SV-GETRLOAD.1)
+        calypsoCard.setSvGetDataFromSelection(false);
+      }
       try {
         commands.get(i).parseResponseForSelection(apduResponses.get(i), calypsoCard);
       } catch (CardCommandException e) {
         CardCommandRef commandRef = commands.get(i).getCommandRef();
         if (commandRef == CardCommandRef.READ_RECORDS
             || commandRef == CardCommandRef.READ_BINARY
-            || commandRef == CardCommandRef.OPEN_SECURE_SESSION) {
+            || commandRef == CardCommandRef.OPEN_SECURE_SESSION
+            || commandRef == CardCommandRef.SV_GET) {
           continue;
         }
         if (e instanceof CardDataAccessException && commandRef == CardCommandRef.SELECT_FILE) {
@@ -321,6 +468,9 @@ private static void parseApduResponses(
               e);
         }
       }
+      if (commands.get(i).getCommandRef() == CardCommandRef.SV_GET) {
+        calypsoCard.setSvGetDataFromSelection(true);
+      }
     }
     // Finally, if no error has occurred and there are fewer responses than requests, then we
     // throw a desynchronized exception.
@@ -332,4 +482,58 @@ private static void parseApduResponses(
               + apduResponses.size());
     }
   }
+
+  /**
+   * Immutable result of the compilation of the prepared commands and settings: the card selection
+   * request, the commands to copy for each parsing, the card selection filter and the card image
+   * cache.
+   */
+  private static final class SelectionPlan {
+
+    private final Command[] commands;
+    private final CardSelectionRequestSpi cardSelectionRequest;
+    private final CardSelectionFilter cardSelectionFilter;
+    private final CardImageCache cardImageCache;
+
+    private SelectionPlan(
+        List<Command> preparedCommands,
+        boolean isInvalidatedCardAccepted,
+        CardSelectionFilter cardSelectionFilter,
+        CardImageCache cardImageCache) {
+      this.cardSelectionFilter = cardSelectionFilter;
+      this.cardImageCache = cardImageCache;
+      commands = preparedCommands.toArray(new Command[0]);
+      CardSelectionRequestAdapter request;
+      if (commands.length == 0) {
+        request = new CardSelectionRequestAdapter(null);
+      } else {
+        List<ApduRequestSpi> cardSelectionApduRequests = new ArrayList<>(commands.length);
+        for (Command command : commands) {
+          cardSelectionApduRequests.add(command.getApduRequest());
+        }
+        request =
+            new CardSelectionRequestAdapter(
+                new CardRequestAdapter(cardSelectionApduRequests, false));
+      }
+      if (isInvalidatedCardAccepted) {
+        request.addSuccessfulSelectionStatusWord(SW_CARD_INVALIDATED);
+      }
+      cardSelectionRequest = request;
+    }
+
+    /**
+     * Creates not yet processed copies of the commands, sharing a new transaction context.
+     *
+     * @param commandContext The command context.
+     * @return A new list.
+     */
+    private List<Command> copyCommands(CommandContextDto commandContext) {
+      TransactionContextDto transactionContext = new TransactionContextDto();
+      List<Command> copies = new ArrayList<>(commands.length);
+      for (Command command : commands) {
+        copies.add(command.copy(transactionContext, commandContext));
+      }
+      return copies;
+    }
+  }
 }
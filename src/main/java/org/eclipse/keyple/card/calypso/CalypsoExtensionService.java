@@ -13,12 +13,20 @@
 
 import static org.eclipse.keyple.card.calypso.JsonAdapters.*;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.eclipse.keyple.core.common.CommonApiProperties;
 import org.eclipse.keyple.core.common.KeypleCardExtension;
+import org.eclipse.keyple.core.util.Assert;
 import org.eclipse.keyple.core.util.json.JsonUtil;
 import org.eclipse.keypop.calypso.card.CalypsoCardApiFactory;
 import org.eclipse.keypop.calypso.card.card.*;
+import org.eclipse.keypop.calypso.card.transaction.SvOperation;
+import org.eclipse.keypop.calypso.card.transaction.TransactionManager;
 import org.eclipse.keypop.card.CardApiProperties;
+import org.eclipse.keypop.reader.ChannelControl;
 import org.eclipse.keypop.reader.ReaderApiProperties;
 
 /**
@@ -36,6 +44,7 @@ public final class CalypsoExtensionService implements KeypleCardExtension { // N
     JsonUtil.registerTypeAdapter(DirectoryHeader.class, new DirectoryHeaderJsonAdapter(), false);
     JsonUtil.registerTypeAdapter(ElementaryFile.class, new ElementaryFileJsonAdapter(), false);
     JsonUtil.registerTypeAdapter(FileHeader.class, new FileHeaderJsonAdapter(), false);
+    JsonUtil.registerTypeAdapter(FileDataAdapter.class, new FileDataJsonAdapter(), false);
     JsonUtil.registerTypeAdapter(SvLoadLogRecord.class, new SvLoadLogRecordJsonAdapter(), false);
     JsonUtil.registerTypeAdapter(SvDebitLogRecord.class, new SvDebitLogRecordJsonAdapter(), false);
     JsonUtil.registerTypeAdapter(Command.class, new AbstractCardCommandJsonAdapter(), false);
@@ -61,6 +70,265 @@ public CalypsoCardApiFactory getCalypsoCardApiFactory() {
     return new CalypsoCardApiFactoryAdapter();
   }
 
+  /**
+   * Applies the provided options to the provided transaction manager, replacing the ones previously
+   * applied, if any.
+   *
+   * <p>The options are taken into account from the next command preparation or processing. They
+   * must not be applied while the transaction manager is processing commands.
+   *
+   * <p>The content of the current transaction audit data is kept, the oldest APDUs being discarded
+   * if the new capacity is lower than the number of APDUs.
+   *
+   * @param transactionManager A transaction manager created by this extension.
+   * @param options The options.
+   * @param <T> The type of the transaction manager.
+   * @return The provided transaction manager.
+   * @throws IllegalArgumentException If an argument is null or if the transaction manager was not
+   *     created by this extension.
+   * @since 3.3.0
+   */
+  public <T extends TransactionManager<T>> T setTransactionOptions(
+      T transactionManager, TransactionOptions options) {
+    Assert.getInstance()
+        .notNull(transactionManager, "transactionManager")
+        .notNull(options, "options");
+    if (!(transactionManager instanceof TransactionManagerAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'transactionManager' must be an instance of 'TransactionManagerAdapter'");
+    }
+    ((TransactionManagerAdapter<?>) transactionManager).setOptions(options);
+    return transactionManager;
+  }
+
+  /**
+   * Sets the filter evaluated on the FCI of the cards by the provided card selection extension, in
+   * order to reject the unwanted cards before their card image is created.
+   *
+   * <p>The filter must be set before the card selection extension is used.
+   *
+   * @param cardSelectionExtension A card selection extension created by this extension.
+   * @param cardSelectionFilter The filter, null to remove the current one.
+   * @return The provided card selection extension.
+   * @throws IllegalArgumentException If the card selection extension is null or was not created by
+   *     this extension.
+   * @since 3.3.0
+   */
+  public CalypsoCardSelectionExtension setCardSelectionFilter(
+      CalypsoCardSelectionExtension cardSelectionExtension,
+      CardSelectionFilter cardSelectionFilter) {
+    return getCardSelectionExtensionAdapter(cardSelectionExtension)
+        .setCardSelectionFilter(cardSelectionFilter);
+  }
+
+  /**
+   * Sets the cache of the card images used by the provided card selection extension to restore the
+   * files read during a previous tap with the same card.
+   *
+   * <p>The cached files are only restored when a secure session is pre-opened during the card
+   * selection (see {@link CardImageCache}). The cache must be set before the card selection
+   * extension is used, and may be shared by several card selection extensions.
+   *
+   * @param cardSelectionExtension A card selection extension created by this extension.
+   * @param cardImageCache The cache, null to remove the current one.
+   * @return The provided card selection extension.
+   * @throws IllegalArgumentException If the card selection extension is null or was not created by
+   *     this extension.
+   * @since 3.3.0
+   */
+  public CalypsoCardSelectionExtension setCardImageCache(
+      CalypsoCardSelectionExtension cardSelectionExtension, CardImageCache cardImageCache) {
+    return getCardSelectionExtensionAdapter(cardSelectionExtension)
+        .setCardImageCache(cardImageCache);
+  }
+
+  /**
+   * Prepares an "SV Get" command in the card selection request of the provided card selection
+   * extension, in order to save the "SV Get" command of the subsequent SV operation.
+   *
+   * <p>The command is sent in extended mode. The returned SV data is available in the card image
+   * and is used by the first SV operation of a secure symmetric crypto transaction in extended
+   * mode: the {@code prepareSvGet} method of the transaction manager must still be invoked but no
+   * longer adds a command.
+   *
+   * <p>Since the Calypso specification requires the "SV Get" command to immediately precede the
+   * "SV Reload" or "SV Debit" command, the only command allowed in between being "Open Secure
+   * Session", the data is only used if no other command is sent to the card after it, neither in
+   * the card selection request (the "SV Get" command must be the last one, possibly followed by the
+   * pre-opening of the secure session) nor by the transaction managers. In the other cases, or if
+   * the card does not support the command in extended mode, a new "SV Get" command is prepared as
+   * usual.
+   *
+   * @param cardSelectionExtension A card selection extension created by this extension.
+   * @param svOperation The SV operation to prepare (RELOAD or DEBIT).
+   * @return The provided card selection extension.
+   * @throws IllegalArgumentException If an argument is null or if the card selection extension
+   *     was not created by this extension.
+   * @throws IllegalStateException If an "SV Get" command is already prepared.
+   * @since 3.3.0
+   */
+  public CalypsoCardSelectionExtension prepareSvGet(
+      CalypsoCardSelectionExtension cardSelectionExtension, SvOperation svOperation) {
+    return getCardSelectionExtensionAdapter(cardSelectionExtension).prepareSvGet(svOperation);
+  }
+
+  /**
+   * Returns a read-only view of a subset of the specified record of the provided file data, without
+   * copying the data.
+   *
+   * <p>This is the copy-free counterpart of {@link FileData#getContent(int, int, int)}: only a
+   * buffer object is allocated at each call, the record content is not copied. The returned buffer
+   * is positioned at 0 with a limit equal to the requested length. It reflects the record content
+   * as long as the record is not replaced by a subsequent card command.
+   *
+   * @param fileData The file data of a file of a {@link CalypsoCard} managed by this extension.
+   * @param numRecord The record number.
+   * @param dataOffset The offset index (should be {@code >=} 0).
+   * @param dataLength The data length (should be {@code >=} 1).
+   * @return An empty buffer if the record is not set.
+   * @throws IllegalArgumentException If the file data is not managed by this extension, or if
+   *     dataOffset {@code <} 0 or dataLength {@code <} 1.
+   * @throws IndexOutOfBoundsException If dataOffset {@code >=} content length or (dataOffset +
+   *     dataLength) {@code >} content length.
+   * @since 3.3.0
+   */
+  public ByteBuffer getContentView(
+      FileData fileData, int numRecord, int dataOffset, int dataLength) {
+    return getFileDataAdapter(fileData).getContentView(numRecord, dataOffset, dataLength);
+  }
+
+  /**
+   * Returns a read-only view of the values of all the counters of the provided file data, decoded
+   * once and cached until the counters change.
+   *
+   * <p>This is the copy-free counterpart of {@link FileData#getAllCountersValue()}: only a buffer
+   * object is allocated at each call, the cached values are neither copied nor boxed. The value of
+   * counter #n is at index n-1 of the returned buffer, which is positioned at 0 with a limit equal
+   * to the number of counters.
+   *
+   * @param fileData The file data of a file of a {@link CalypsoCard} managed by this extension.
+   * @return An empty buffer if record #1 is not set.
+   * @throws IllegalArgumentException If the file data is not managed by this extension.
+   * @since 3.3.0
+   */
+  public IntBuffer getCountersValueView(FileData fileData) {
+    return getFileDataAdapter(fileData).getCountersValueView();
+  }
+
+  /**
+   * Encodes the image of the provided card into a compact binary form, for persisting or
+   * replicating a card snapshot.
+   *
+   * <p>The image contains the selection data, the DF and EF headers, the records and counters, the
+   * SV data and the other data collected from the card, but no data related to an ongoing
+   * transaction. It is much smaller and faster to produce than the JSON representation returned by
+   * {@code toString()}.
+   *
+   * <p>The image starts with a format version: images produced by a given version of this library
+   * can be decoded by the later versions.
+   *
+   * @param calypsoCard The card, as returned by the card selection or by {@link
+   *     #decodeCardImage(byte[])}.
+   * @return A not empty array.
+   * @throws IllegalArgumentException If the card is null or not managed by this extension.
+   * @since 3.3.0
+   */
+  public byte[] encodeCardImage(CalypsoCard calypsoCard) {
+    if (!(calypsoCard instanceof CalypsoCardAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'calypsoCard' must be an instance of 'CalypsoCardAdapter'");
+    }
+    return CardImageCodec.encode((CalypsoCardAdapter) calypsoCard);
+  }
+
+  /**
+   * Decodes a card image produced by {@link #encodeCardImage(CalypsoCard)}.
+   *
+   * <p>The returned card can be used as the result of a card selection, e.g. to create a
+   * transaction manager or to access the card data.
+   *
+   * @param image The card image.
+   * @return A new {@link CalypsoCard} instance.
+   * @throws IllegalArgumentException If the image is null, malformed or has an unsupported format
+   *     version.
+   * @since 3.3.0
+   */
+  public CalypsoCard decodeCardImage(byte[] image) {
+    Assert.getInstance().notNull(image, "image");
+    return CardImageCodec.decode(image);
+  }
+
+  /**
+   * Processes the commands prepared in the provided transaction manager asynchronously, by invoking
+   * its {@code processCommands(ChannelControl)} method on a thread of the provided executor.
+   *
+   * <p>The semantics are those of the synchronous method: on failure, the transaction is reset and
+   * the transaction audit data is attached to the exception, with which the returned future is
+   * completed exceptionally.
+   *
+   * <p>Any executor may be used, including a virtual-thread-per-task executor, the library never
+   * blocking while holding a monitor. The transaction manager must not be used until the returned
+   * future is completed: in the meantime, the preparation or the processing of commands throws an
+   * {@link IllegalStateException}. The completion happens-before the actions of the dependent
+   * stages, which may therefore prepare and process new commands.
+   *
+   * @param transactionManager A transaction manager created by this extension.
+   * @param channelControl Policy for managing the physical channel after the card request is
+   *     executed.
+   * @param executor The executor.
+   * @param <T> The type of the transaction manager.
+   * @return A new future completed with the transaction manager.
+   * @throws IllegalArgumentException If an argument is null or if the transaction manager was not
+   *     created by this extension.
+   * @throws IllegalStateException If an asynchronous processing of the transaction manager is
+   *     already pending.
+   * @throws java.util.concurrent.RejectedExecutionException If the executor rejects the task.
+   * @since 3.3.0
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends TransactionManager<T>> CompletableFuture<T> processCommandsAsync(
+      T transactionManager, ChannelControl channelControl, Executor executor) {
+    Assert.getInstance()
+        .notNull(transactionManager, "transactionManager")
+        .notNull(channelControl, "channelControl")
+        .notNull(executor, "executor");
+    if (!(transactionManager instanceof TransactionManagerAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'transactionManager' must be an instance of 'TransactionManagerAdapter'");
+    }
+    return ((TransactionManagerAdapter<T>) transactionManager)
+        .processCommandsAsync(channelControl, executor);
+  }
+
+  /**
+   * Casts the provided card selection extension to its implementation.
+   *
+   * @throws IllegalArgumentException If the card selection extension is not managed by this
+   *     extension.
+   */
+  private static CalypsoCardSelectionExtensionAdapter getCardSelectionExtensionAdapter(
+      CalypsoCardSelectionExtension cardSelectionExtension) {
+    if (!(cardSelectionExtension instanceof CalypsoCardSelectionExtensionAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'cardSelectionExtension' must be an instance of"
+              + " 'CalypsoCardSelectionExtensionAdapter'");
+    }
+    return (CalypsoCardSelectionExtensionAdapter) cardSelectionExtension;
+  }
+
+  /**
+   * Casts the provided file data to its implementation.
+   *
+   * @throws IllegalArgumentException If the file data is not managed by this extension.
+   */
+  private static FileDataAdapter getFileDataAdapter(FileData fileData) {
+    if (!(fileData instanceof FileDataAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'fileData' must be an instance of 'FileDataAdapter'");
+    }
+    return (FileDataAdapter) fileData;
+  }
+
   /**
    * {@inheritDoc}
    *
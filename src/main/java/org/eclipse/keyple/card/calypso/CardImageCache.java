@@ -0,0 +1,214 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.keyple.core.util.Assert;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.calypso.card.card.ElementaryFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the file images of the cards already processed, allowing the files read during a
+ * previous tap to be reused without reading them again.
+ *
+ * <p>The entries are identified by the full Calypso serial number of the cards. Each entry holds a
+ * copy of the files of the card image and the value expected for the transaction counter at the
+ * next session opening, i.e. the last value reported by the card decremented by one.
+ *
+ * <p>When the cache is set on a card selection extension with {@link
+ * CalypsoExtensionService#setCardImageCache}, the parsing of its card selection responses validates
+ * the entry of the selected card: if a secure session was pre-opened during the selection, the DF
+ * is ratified and the transaction counter is the expected one, the cached files not read during
+ * the selection are added to the card image; otherwise the entry is discarded. No validation is
+ * possible without a session opening during the selection, the entry is then left unused. A cache
+ * can be shared by several card selection extensions.
+ *
+ * <p>The validation relies on the fact that the files are only modified within secure sessions:
+ * the modifications made outside a secure session by another terminal are not detected.
+ *
+ * <p>When the maximum number of entries is reached, adding an entry discards the least recently
+ * used one. The methods are thread-safe.
+ *
+ * @since 3.3.0
+ */
+public final class CardImageCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(CardImageCache.class);
+
+  private final Map<ByteBuffer, Entry> entries;
+
+  /**
+   * Constructor.
+   *
+   * @param maxEntries The maximum number of cards kept (should be {@code >=} 1).
+   * @throws IllegalArgumentException If the maximum number of entries is out of range.
+   * @since 3.3.0
+   */
+  public CardImageCache(final int maxEntries) {
+    Assert.getInstance().greaterOrEqual(maxEntries, 1, "maxEntries");
+    entries =
+        new LinkedHashMap<ByteBuffer, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Stores a copy of the files of the provided card image, replacing the previous entry of the
+   * card.
+   *
+   * <p>This method should be invoked once the transaction with the card is successfully completed,
+   * after its last secure session. It has no effect if the serial number of the card is unknown.
+   *
+   * @param calypsoCard The Calypso card.
+   * @throws IllegalArgumentException If the card is null or not an instance of a card provided by
+   *     this library.
+   * @throws IllegalStateException If no secure session has been opened with the card.
+   * @since 3.3.0
+   */
+  public void put(CalypsoCard calypsoCard) {
+    ByteBuffer key = getKey(calypsoCard);
+    if (key == null) {
+      return;
+    }
+    int expectedTransactionCounter = calypsoCard.getTransactionCounter() - 1;
+    List<ElementaryFileAdapter> files = new ArrayList<>(calypsoCard.getFiles().size());
+    for (ElementaryFile ef : calypsoCard.getFiles()) {
+      files.add(new ElementaryFileAdapter(ef));
+    }
+    Entry entry = new Entry(expectedTransactionCounter, files);
+    synchronized (entries) {
+      entries.put(key, entry);
+    }
+  }
+
+  /**
+   * Removes the entry of the provided card, if any.
+   *
+   * @param calypsoCard The Calypso card.
+   * @throws IllegalArgumentException If the card is null or not an instance of a card provided by
+   *     this library.
+   * @since 3.3.0
+   */
+  public void remove(CalypsoCard calypsoCard) {
+    ByteBuffer key = getKey(calypsoCard);
+    if (key == null) {
+      return;
+    }
+    synchronized (entries) {
+      entries.remove(key);
+    }
+  }
+
+  /**
+   * Removes all the entries.
+   *
+   * @since 3.3.0
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * Returns the number of cards kept.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Validates the entry of the provided card just selected and, if valid, adds the cached files to
+   * its image.
+   *
+   * <p>The entry is discarded if the DF is not ratified or if the transaction counter differs from
+   * the expected one.
+   *
+   * @param calypsoCard The Calypso card.
+   * @return false if the files could not be restored.
+   * @since 3.3.0
+   */
+  boolean restoreFiles(CalypsoCardAdapter calypsoCard) {
+    ByteBuffer key = getKey(calypsoCard);
+    if (key == null || !calypsoCard.isSessionOpeningDataAvailable()) {
+      return false;
+    }
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry == null) {
+        return false;
+      }
+      if (!calypsoCard.isDfRatified()
+          || calypsoCard.getTransactionCounter() != entry.expectedTransactionCounter) {
+        entries.remove(key);
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "Cached card image discarded: ratified = {}, transaction counter = {}, expected = {}",
+              calypsoCard.isDfRatified(),
+              calypsoCard.getTransactionCounter(),
+              entry.expectedTransactionCounter);
+        }
+        return false;
+      }
+    }
+    int nbFilesAdded = calypsoCard.addUpToDateFiles(entry.files);
+    if (logger.isDebugEnabled()) {
+      logger.debug("{} file(s) restored from the cached card image", nbFilesAdded);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the key identifying the provided card.
+   *
+   * @param calypsoCard The Calypso card.
+   * @return null if the serial number of the card is unknown.
+   * @throws IllegalArgumentException If the card is null or not an instance of a card provided by
+   *     this library.
+   */
+  private static ByteBuffer getKey(CalypsoCard calypsoCard) {
+    Assert.getInstance().notNull(calypsoCard, "calypsoCard");
+    if (!(calypsoCard instanceof CalypsoCardAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'calypsoCard' must be an instance of 'CalypsoCardAdapter'");
+    }
+    byte[] serialNumber = ((CalypsoCardAdapter) calypsoCard).getCalypsoSerialNumberFull();
+    return serialNumber != null ? ByteBuffer.wrap(serialNumber.clone()) : null;
+  }
+
+  /** The cached files of a card. */
+  private static final class Entry {
+
+    private final int expectedTransactionCounter;
+    private final List<ElementaryFileAdapter> files;
+
+    private Entry(int expectedTransactionCounter, List<ElementaryFileAdapter> files) {
+      this.expectedTransactionCounter = expectedTransactionCounter;
+      this.files = files;
+    }
+  }
+}
@@ -0,0 +1,555 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.eclipse.keypop.calypso.card.WriteAccessLevel;
+import org.eclipse.keypop.calypso.card.card.DirectoryHeader;
+import org.eclipse.keypop.calypso.card.card.ElementaryFile;
+import org.eclipse.keypop.calypso.card.card.FileHeader;
+
+/**
+ * Compact binary codec of the {@link CalypsoCardAdapter} images.
+ *
+ * <p>An image starts with a magic byte and a format version byte, followed by the card data
+ * written by {@link CalypsoCardAdapter#writeImage(Writer)}. Integers are encoded as unsigned
+ * variable-length quantities (7 bits per byte, least significant group first) unless they may be
+ * negative, byte arrays and strings are prefixed with their length plus one, 0 meaning null.
+ *
+ * <p>The format version must be incremented whenever the layout changes. Images having an unknown
+ * version are rejected.
+ *
+ * @since 3.3.0
+ */
+final class CardImageCodec {
+
+  private static final byte MAGIC = (byte) 0xCA;
+  private static final byte VERSION = 1;
+  private static final int INITIAL_CAPACITY = 512;
+
+  /* The EF types indexed by their code in the image, independently of the enum ordinals */
+  private static final ElementaryFile.Type[] EF_TYPES = {
+    ElementaryFile.Type.LINEAR,
+    ElementaryFile.Type.BINARY,
+    ElementaryFile.Type.CYCLIC,
+    ElementaryFile.Type.COUNTERS,
+    ElementaryFile.Type.SIMULATED_COUNTERS
+  };
+
+  /* The write access levels in the order of their KIF and KVC in the image */
+  private static final WriteAccessLevel[] WRITE_ACCESS_LEVELS = {
+    WriteAccessLevel.PERSONALIZATION, WriteAccessLevel.LOAD, WriteAccessLevel.DEBIT
+  };
+
+  /** Private constructor */
+  private CardImageCodec() {}
+
+  /**
+   * Encodes the image of the provided card.
+   *
+   * @param card The card.
+   * @return A not empty array.
+   * @since 3.3.0
+   */
+  static byte[] encode(CalypsoCardAdapter card) {
+    Writer writer = new Writer();
+    writer.writeByte(MAGIC);
+    writer.writeByte(VERSION);
+    card.writeImage(writer);
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes a card image produced by {@link #encode(CalypsoCardAdapter)}.
+   *
+   * @param image The image.
+   * @return A new card instance.
+   * @throws IllegalArgumentException If the image is malformed or has an unsupported version.
+   * @since 3.3.0
+   */
+  static CalypsoCardAdapter decode(byte[] image) {
+    Reader reader = new Reader(image);
+    if (reader.readByte() != MAGIC) {
+      throw new IllegalArgumentException("Not a card image");
+    }
+    byte version = reader.readByte();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported card image version: " + version);
+    }
+    CalypsoCardAdapter card;
+    try {
+      card = CalypsoCardAdapter.readImage(reader);
+    } catch (IllegalArgumentException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Malformed card image: " + e.getMessage(), e);
+    }
+    if (reader.position != image.length) {
+      throw new IllegalArgumentException(
+          "Malformed card image: " + (image.length - reader.position) + " unexpected bytes");
+    }
+    return card;
+  }
+
+  /**
+   * Writes the data of a card image into a growing buffer.
+   *
+   * @since 3.3.0
+   */
+  static final class Writer {
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int position;
+
+    /** Private constructor */
+    private Writer() {}
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(position + length, buffer.length << 1));
+      }
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeByte(byte value) {
+      ensureCapacity(1);
+      buffer[position++] = value;
+    }
+
+    /**
+     * Writes a boolean on one byte.
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeBoolean(boolean value) {
+      writeByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Writes a nullable boolean on one byte.
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeNullableBoolean(Boolean value) {
+      writeByte(value == null ? (byte) 0 : value ? (byte) 2 : (byte) 1);
+    }
+
+    /**
+     * Writes a non-negative integer as a variable-length quantity.
+     *
+     * @param value The value (should be {@code >=} 0).
+     * @since 3.3.0
+     */
+    void writeVarInt(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes an integer on 4 bytes (big-endian).
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeInt(int value) {
+      ensureCapacity(4);
+      buffer[position++] = (byte) (value >> 24);
+      buffer[position++] = (byte) (value >> 16);
+      buffer[position++] = (byte) (value >> 8);
+      buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes a nullable integer as a presence flag followed by the value on 4 bytes.
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeNullableInt(Integer value) {
+      writeBoolean(value != null);
+      if (value != null) {
+        writeInt(value);
+      }
+    }
+
+    /**
+     * Writes a short on 2 bytes (big-endian).
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeShort(short value) {
+      ensureCapacity(2);
+      buffer[position++] = (byte) (value >> 8);
+      buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes a nullable byte array prefixed with its length plus one.
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeBytes(byte[] value) {
+      if (value == null) {
+        writeVarInt(0);
+        return;
+      }
+      writeVarInt(value.length + 1);
+      ensureCapacity(value.length);
+      System.arraycopy(value, 0, buffer, position, value.length);
+      position += value.length;
+    }
+
+    /**
+     * Writes a nullable string encoded in UTF-8.
+     *
+     * @param value The value.
+     * @since 3.3.0
+     */
+    void writeString(String value) {
+      writeBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    /**
+     * Writes a nullable DF header.
+     *
+     * @param directoryHeader The header.
+     * @since 3.3.0
+     */
+    void writeDirectoryHeader(DirectoryHeader directoryHeader) {
+      writeBoolean(directoryHeader != null);
+      if (directoryHeader == null) {
+        return;
+      }
+      writeShort(directoryHeader.getLid());
+      writeBytes(directoryHeader.getAccessConditions());
+      writeBytes(directoryHeader.getKeyIndexes());
+      writeByte(directoryHeader.getDfStatus());
+      for (WriteAccessLevel level : WRITE_ACCESS_LEVELS) {
+        writeByte(directoryHeader.getKif(level));
+        writeByte(directoryHeader.getKvc(level));
+      }
+    }
+
+    /**
+     * Writes the EFs with their header and records.
+     *
+     * @param files The files.
+     * @since 3.3.0
+     */
+    void writeFiles(Collection<ElementaryFile> files) {
+      writeVarInt(files.size());
+      for (ElementaryFile ef : files) {
+        writeByte(ef.getSfi());
+        writeFileHeader(ef.getHeader());
+        SortedMap<Integer, byte[]> records = ef.getData().getAllRecordsContent();
+        writeVarInt(records.size());
+        for (Map.Entry<Integer, byte[]> entry : records.entrySet()) {
+          writeVarInt(entry.getKey());
+          writeBytes(entry.getValue());
+        }
+      }
+    }
+
+    private void writeFileHeader(FileHeader header) {
+      writeBoolean(header != null);
+      if (header == null) {
+        return;
+      }
+      writeShort(header.getLid());
+      writeVarInt(header.getRecordsNumber());
+      writeVarInt(header.getRecordSize());
+      writeByte(getEfTypeCode(header.getEfType()));
+      writeBytes(header.getAccessConditions());
+      writeBytes(header.getKeyIndexes());
+      writeBoolean(header.getDfStatus() != null);
+      if (header.getDfStatus() != null) {
+        writeByte(header.getDfStatus());
+      }
+      writeBoolean(header.getSharedReference() != null);
+      if (header.getSharedReference() != null) {
+        writeShort(header.getSharedReference());
+      }
+    }
+
+    private static byte getEfTypeCode(ElementaryFile.Type type) {
+      for (int i = 0; i < EF_TYPES.length; i++) {
+        if (EF_TYPES[i] == type) {
+          return (byte) i;
+        }
+      }
+      throw new IllegalStateException("Unsupported EF type: " + type);
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+  }
+
+  /**
+   * Reads the data of a card image.
+   *
+   * <p>All methods throw an {@link IllegalArgumentException} if the image is malformed.
+   *
+   * @since 3.3.0
+   */
+  static final class Reader {
+
+    private final byte[] buffer;
+    private int position;
+
+    /** Private constructor */
+    private Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Reads a number of items written by {@link Writer#writeVarInt(int)} and checks that it does
+     * not exceed the provided maximum nor the number of items the remaining data can hold.
+     *
+     * @param minItemLength The minimum length of an item in bytes.
+     * @param max The maximum number of items.
+     * @return The number of items.
+     */
+    private int readCount(int minItemLength, int max) {
+      int count = readVarInt();
+      if (count < 0 || count > max || count > (buffer.length - position) / minItemLength) {
+        throw new IllegalArgumentException("Malformed card image: invalid count " + count);
+      }
+      return count;
+    }
+
+    private void checkAvailable(int length) {
+      if (length < 0 || length > buffer.length - position) {
+        throw new IllegalArgumentException("Malformed card image: unexpected end of data");
+      }
+    }
+
+    /**
+     * Reads a byte.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    byte readByte() {
+      checkAvailable(1);
+      return buffer[position++];
+    }
+
+    /**
+     * Reads a boolean written by {@link Writer#writeBoolean(boolean)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    boolean readBoolean() {
+      return readByte() != 0;
+    }
+
+    /**
+     * Reads a nullable boolean written by {@link Writer#writeNullableBoolean(Boolean)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    Boolean readNullableBoolean() {
+      byte value = readByte();
+      return value == 0 ? null : value == 2;
+    }
+
+    /**
+     * Reads a non-negative integer written by {@link Writer#writeVarInt(int)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    int readVarInt() {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        byte b = readByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Malformed card image: invalid integer");
+    }
+
+    /**
+     * Reads an integer written by {@link Writer#writeInt(int)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    int readInt() {
+      checkAvailable(4);
+      int value =
+          ((buffer[position] & 0xFF) << 24)
+              | ((buffer[position + 1] & 0xFF) << 16)
+              | ((buffer[position + 2] & 0xFF) << 8)
+              | (buffer[position + 3] & 0xFF);
+      position += 4;
+      return value;
+    }
+
+    /**
+     * Reads a nullable integer written by {@link Writer#writeNullableInt(Integer)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    Integer readNullableInt() {
+      return readBoolean() ? readInt() : null;
+    }
+
+    /**
+     * Reads a short written by {@link Writer#writeShort(short)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    short readShort() {
+      checkAvailable(2);
+      short value = (short) (((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF));
+      position += 2;
+      return value;
+    }
+
+    /**
+     * Reads a nullable byte array written by {@link Writer#writeBytes(byte[])}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    byte[] readBytes() {
+      int length = readVarInt() - 1;
+      if (length < 0) {
+        return null;
+      }
+      checkAvailable(length);
+      byte[] value = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return value;
+    }
+
+    /**
+     * Reads a nullable string written by {@link Writer#writeString(String)}.
+     *
+     * @return The value.
+     * @since 3.3.0
+     */
+    String readString() {
+      byte[] value = readBytes();
+      return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Reads a nullable DF header written by {@link Writer#writeDirectoryHeader(DirectoryHeader)}.
+     *
+     * @return The header.
+     * @since 3.3.0
+     */
+    DirectoryHeader readDirectoryHeader() {
+      if (!readBoolean()) {
+        return null;
+      }
+      DirectoryHeaderAdapter.DirectoryHeaderBuilder builder =
+          DirectoryHeaderAdapter.builder()
+              .lid(readShort())
+              .accessConditions(readBytes())
+              .keyIndexes(readBytes())
+              .dfStatus(readByte());
+      for (WriteAccessLevel level : WRITE_ACCESS_LEVELS) {
+        builder.kif(level, readByte()).kvc(level, readByte());
+      }
+      return builder.build();
+    }
+
+    /**
+     * Reads the EFs written by {@link Writer#writeFiles(Collection)}.
+     *
+     * @return A not null list.
+     * @since 3.3.0
+     */
+    List<ElementaryFileAdapter> readFiles() {
+      // an EF takes at least 3 bytes: SFI, header presence and number of records
+      int nbFiles = readCount(3, Integer.MAX_VALUE);
+      List<ElementaryFileAdapter> files = new ArrayList<>(Math.min(nbFiles, INITIAL_CAPACITY));
+      for (int i = 0; i < nbFiles; i++) {
+        ElementaryFileAdapter ef = new ElementaryFileAdapter(readByte());
+        FileHeaderAdapter header = readFileHeader();
+        if (header != null) {
+          ef.setHeader(header);
+        }
+        // a record takes at least 2 bytes: record number and content length
+        int nbRecords = readCount(2, CalypsoCardConstant.NB_REC_MAX);
+        for (int j = 0; j < nbRecords; j++) {
+          int numRecord = readVarInt();
+          if (numRecord < CalypsoCardConstant.NB_REC_MIN
+              || numRecord > CalypsoCardConstant.NB_REC_MAX) {
+            throw new IllegalArgumentException(
+                "Malformed card image: invalid record number " + numRecord);
+          }
+          byte[] content = readBytes();
+          if (content == null) {
+            throw new IllegalArgumentException("Malformed card image: null record content");
+          }
+          ef.getData().setContent(numRecord, content);
+        }
+        files.add(ef);
+      }
+      return files;
+    }
+
+    private FileHeaderAdapter readFileHeader() {
+      if (!readBoolean()) {
+        return null;
+      }
+      FileHeaderAdapter.FileHeaderBuilder builder =
+          FileHeaderAdapter.builder()
+              .lid(readShort())
+              .recordsNumber(readVarInt())
+              .recordSize(readVarInt())
+              .type(readEfType())
+              .accessConditions(readBytes())
+              .keyIndexes(readBytes());
+      if (readBoolean()) {
+        builder.dfStatus(readByte());
+      }
+      if (readBoolean()) {
+        builder.sharedReference(readShort());
+      }
+      return builder.build();
+    }
+
+    private ElementaryFile.Type readEfType() {
+      int code = readByte();
+      if (code < 0 || code >= EF_TYPES.length) {
+        throw new IllegalArgumentException("Malformed card image: unknown EF type " + code);
+      }
+      return EF_TYPES[code];
+    }
+  }
+}
@@ -0,0 +1,311 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.keyple.core.util.Assert;
+import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+
+/**
+ * Criteria evaluated on the raw FCI returned by the card to the selection of the application,
+ * allowing the cards to be rejected before the card image is created and the responses to the
+ * commands prepared for the selection are parsed.
+ *
+ * <p>The filter is set on a card selection extension with {@link
+ * CalypsoExtensionService#setCardSelectionFilter}, and can be shared by several extensions: a
+ * rejected card makes the parsing of the card selection response fail with a {@link
+ * org.eclipse.keypop.card.ParseException}.
+ *
+ * <p>A card is accepted when it satisfies all the defined criteria. A criterion that cannot be
+ * evaluated, e.g. when no FCI is available or when the FCI does not contain the expected data, does
+ * not reject the card: the consistency of the FCI is checked later by the usual parsing.
+ *
+ * <p>A filter is immutable, except for the content of its deny list, and can be used concurrently.
+ *
+ * @since 3.3.0
+ */
+public final class CardSelectionFilter {
+
+  private static final int TAG_APPLICATION_SERIAL_NUMBER = 0xC7;
+  private static final int TAG_DISCRETIONARY_DATA = 0x53;
+  private static final int SERIAL_NUMBER_LENGTH = 8;
+  private static final int STARTUP_INFO_MIN_LENGTH = 7;
+  private static final int SI_APPLICATION_TYPE = 2;
+  private static final int SI_APPLICATION_SUBTYPE = 3;
+
+  private final Set<CalypsoCard.ProductType> productTypes;
+  private final boolean[] applicationSubtypes;
+  private final List<byte[][]> startupInfoPatterns;
+  private final SerialNumberDenyList denyList;
+
+  private CardSelectionFilter(Builder builder) {
+    productTypes = builder.productTypes != null ? EnumSet.copyOf(builder.productTypes) : null;
+    applicationSubtypes =
+        builder.applicationSubtypes != null ? builder.applicationSubtypes.clone() : null;
+    startupInfoPatterns =
+        builder.startupInfoPatterns.isEmpty()
+            ? null
+            : new ArrayList<>(builder.startupInfoPatterns);
+    denyList = builder.denyList;
+  }
+
+  /**
+   * Returns a new builder of filter.
+   *
+   * @return A not null reference.
+   * @since 3.3.0
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Evaluates the criteria on the provided FCI.
+   *
+   * <p>The FCI is scanned in place, without parsing it into TLV objects.
+   *
+   * @param fci The FCI (may be null or empty).
+   * @return The reason of the rejection, null if the card is accepted.
+   * @since 3.3.0
+   */
+  String getRejectionReason(byte[] fci) {
+    if (fci == null || fci.length == 0) {
+      return null;
+    }
+    int serialNumberOffset = -1;
+    int startupInfoOffset = -1;
+    int startupInfoLength = 0;
+    int index = 0;
+    scan:
+    while (index < fci.length) {
+      // Tag
+      int tag = fci[index++] & 0xFF;
+      boolean isConstructed = (tag & 0x20) != 0;
+      if ((tag & 0x1F) == 0x1F) {
+        do {
+          if (index >= fci.length) {
+            break scan;
+          }
+          tag = (tag << 8) | (fci[index] & 0xFF);
+        } while ((fci[index++] & 0x80) != 0);
+      }
+      // Length
+      if (index >= fci.length) {
+        break;
+      }
+      int length = fci[index++] & 0xFF;
+      if (length > 0x80) {
+        int nbLengthBytes = length & 0x7F;
+        if (nbLengthBytes > 3 || index + nbLengthBytes > fci.length) {
+          break;
+        }
+        length = 0;
+        for (int i = 0; i < nbLengthBytes; i++) {
+          length = (length << 8) | (fci[index++] & 0xFF);
+        }
+      } else if (length == 0x80) {
+        break; // indefinite length not supported
+      }
+      if (index + length > fci.length) {
+        break;
+      }
+      // Value: the content of the constructed data objects is scanned
+      if (!isConstructed) {
+        if (tag == TAG_APPLICATION_SERIAL_NUMBER && length == SERIAL_NUMBER_LENGTH) {
+          serialNumberOffset = index;
+        } else if (tag == TAG_DISCRETIONARY_DATA && length >= STARTUP_INFO_MIN_LENGTH) {
+          startupInfoOffset = index;
+          startupInfoLength = length;
+        }
+        index += length;
+      }
+    }
+    return checkCriteria(fci, serialNumberOffset, startupInfoOffset, startupInfoLength);
+  }
+
+  /**
+   * Checks the criteria on the located data.
+   *
+   * @param fci The FCI.
+   * @param serialNumberOffset The offset of the serial number, -1 if not found.
+   * @param startupInfoOffset The offset of the startup information, -1 if not found.
+   * @param startupInfoLength The length of the startup information.
+   * @return The reason of the rejection, null if the card is accepted.
+   */
+  private String checkCriteria(
+      byte[] fci, int serialNumberOffset, int startupInfoOffset, int startupInfoLength) {
+    if (denyList != null && serialNumberOffset >= 0 && denyList.contains(fci, serialNumberOffset)) {
+      return "serial number denied";
+    }
+    if (startupInfoOffset < 0) {
+      return null;
+    }
+    int applicationType = fci[startupInfoOffset + SI_APPLICATION_TYPE] & 0xFF;
+    if (productTypes != null
+        && applicationType != 0
+        && !productTypes.contains(CalypsoCardAdapter.computeProductType(applicationType))) {
+      return "product type not accepted (application type "
+          + HexUtil.toHex((byte) applicationType)
+          + "h)";
+    }
+    int applicationSubtype = fci[startupInfoOffset + SI_APPLICATION_SUBTYPE] & 0xFF;
+    if (applicationSubtypes != null && !applicationSubtypes[applicationSubtype]) {
+      return "application subtype not accepted (" + HexUtil.toHex((byte) applicationSubtype) + "h)";
+    }
+    if (startupInfoPatterns != null
+        && !matchesAnyPattern(fci, startupInfoOffset, startupInfoLength)) {
+      return "startup information not accepted";
+    }
+    return null;
+  }
+
+  /**
+   * Indicates if the startup information matches at least one of the patterns.
+   *
+   * @param fci The FCI.
+   * @param offset The offset of the startup information.
+   * @param length The length of the startup information.
+   * @return true if a pattern matches.
+   */
+  private boolean matchesAnyPattern(byte[] fci, int offset, int length) {
+    for (byte[][] pattern : startupInfoPatterns) {
+      byte[] mask = pattern[0];
+      byte[] value = pattern[1];
+      if (mask.length > length) {
+        continue;
+      }
+      boolean isMatching = true;
+      for (int i = 0; i < mask.length && isMatching; i++) {
+        isMatching = (fci[offset + i] & mask[i]) == value[i];
+      }
+      if (isMatching) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builder of {@link CardSelectionFilter}.
+   *
+   * @since 3.3.0
+   */
+  public static final class Builder {
+
+    private Set<CalypsoCard.ProductType> productTypes;
+    private boolean[] applicationSubtypes;
+    private final List<byte[][]> startupInfoPatterns = new ArrayList<>();
+    private SerialNumberDenyList denyList;
+
+    private Builder() {}
+
+    /**
+     * Adds product types to the accepted ones.
+     *
+     * <p>By default, all the product types are accepted.
+     *
+     * @param productTypes The product types.
+     * @return The current instance.
+     * @throws IllegalArgumentException If the argument is null or contains null.
+     * @since 3.3.0
+     */
+    public Builder acceptProductTypes(CalypsoCard.ProductType... productTypes) {
+      Assert.getInstance().notNull(productTypes, "productTypes");
+      if (this.productTypes == null) {
+        this.productTypes = EnumSet.noneOf(CalypsoCard.ProductType.class);
+      }
+      for (CalypsoCard.ProductType productType : productTypes) {
+        Assert.getInstance().notNull(productType, "productType");
+        this.productTypes.add(productType);
+      }
+      return this;
+    }
+
+    /**
+     * Adds application subtypes to the accepted ones.
+     *
+     * <p>By default, all the application subtypes are accepted.
+     *
+     * @param applicationSubtypes The application subtypes.
+     * @return The current instance.
+     * @throws IllegalArgumentException If the argument is null.
+     * @since 3.3.0
+     */
+    public Builder acceptApplicationSubtypes(byte... applicationSubtypes) {
+      Assert.getInstance().notNull(applicationSubtypes, "applicationSubtypes");
+      if (this.applicationSubtypes == null) {
+        this.applicationSubtypes = new boolean[256];
+      }
+      for (byte applicationSubtype : applicationSubtypes) {
+        this.applicationSubtypes[applicationSubtype & 0xFF] = true;
+      }
+      return this;
+    }
+
+    /**
+     * Adds a pattern of accepted startup information: the card is accepted if, for each byte of
+     * the mask, the corresponding byte of its startup information masked with it equals the
+     * corresponding byte of the value.
+     *
+     * <p>By default, all the startup information are accepted. When several patterns are added,
+     * the card is accepted if it matches at least one of them.
+     *
+     * @param mask The mask to apply to the first bytes of the startup information (1 to 7 bytes).
+     * @param value The expected masked value (same length as the mask).
+     * @return The current instance.
+     * @throws IllegalArgumentException If an argument is null or has a wrong length.
+     * @since 3.3.0
+     */
+    public Builder acceptStartupInfo(byte[] mask, byte[] value) {
+      Assert.getInstance()
+          .notNull(mask, "mask")
+          .notNull(value, "value")
+          .isInRange(mask.length, 1, STARTUP_INFO_MIN_LENGTH, "mask length")
+          .isEqual(value.length, mask.length, "value length");
+      byte[] maskedValue = new byte[value.length];
+      for (int i = 0; i < value.length; i++) {
+        maskedValue[i] = (byte) (value[i] & mask[i]);
+      }
+      startupInfoPatterns.add(new byte[][] {mask.clone(), maskedValue});
+      return this;
+    }
+
+    /**
+     * Sets the list of the denied serial numbers.
+     *
+     * <p>The list is referenced, not copied: the serial numbers added to it afterwards are also
+     * denied.
+     *
+     * @param denyList The deny list, null to deny no serial number.
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder denySerialNumbers(SerialNumberDenyList denyList) {
+      this.denyList = denyList;
+      return this;
+    }
+
+    /**
+     * Builds the filter.
+     *
+     * @return A new instance.
+     * @since 3.3.0
+     */
+    public CardSelectionFilter build() {
+      return new CardSelectionFilter(this);
+    }
+  }
+}
@@ -19,11 +19,8 @@
 import java.util.Map;
 import org.eclipse.keypop.calypso.card.transaction.CryptoException;
 import org.eclipse.keypop.calypso.card.transaction.CryptoIOException;
-import org.eclipse.keypop.calypso.crypto.asymmetric.AsymmetricCryptoException;
-import org.eclipse.keypop.calypso.crypto.asymmetric.transaction.spi.AsymmetricCryptoCardTransactionManagerSpi;
 import org.eclipse.keypop.calypso.crypto.symmetric.SymmetricCryptoException;
 import org.eclipse.keypop.calypso.crypto.symmetric.SymmetricCryptoIOException;
-import org.eclipse.keypop.calypso.crypto.symmetric.spi.SymmetricCryptoCardTransactionManagerSpi;
 import org.eclipse.keypop.card.ApduResponseApi;
 
 /**
@@ -159,6 +156,41 @@ final ApduRequestAdapter getApduRequest() {
     return apduRequest;
   }
 
+  /**
+   * Sets the command {@link ApduRequestAdapter} from the one of the provided command, sharing its
+   * APDU bytes, and takes its name.
+   *
+   * <p>The request of the provided command must have the default successful status words.
+   *
+   * @param command The command to copy the request from.
+   * @since 3.3.0
+   */
+  final void copyApduRequest(Command command) {
+    name = command.name;
+    setApduRequest(new ApduRequestAdapter(command.apduRequest.getApdu()));
+  }
+
+  /**
+   * Creates a not yet processed copy of this command for the provided contexts, reusing the bytes
+   * of its APDU request.
+   *
+   * <p>Only commands prepared outside a secure session and whose request depends only on the card
+   * characteristics and on the preparation parameters can be copied. The default implementation
+   * does not support the copy.
+   *
+   * <p>The contexts may be null to create a context-free model of the command, only made of its
+   * APDU bytes and of its parameters, which is not intended to be processed but to be copied in its
+   * turn for the contexts of another transaction.
+   *
+   * @param transactionContext The global transaction context common to all commands or null.
+   * @param commandContext The local command context specific to each command or null.
+   * @return Null if the command cannot be copied.
+   * @since 3.3.0
+   */
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return null;
+  }
+
   /**
    * Gets {@link ApduResponseApi}
    *
@@ -294,6 +326,9 @@ final void updateTerminalSessionIfNeeded() {
   /**
    * Updates the terminal session MAC using the provided APDU response when needed.
    *
+   * <p>The update is postponed until the next access to the crypto service if the latter supports
+   * the batch update.
+   *
    * @param apduResponse The APDU response to use.
    * @since 2.3.2
    */
@@ -304,29 +339,7 @@ final void updateTerminalSessionIfNeeded(byte[] apduResponse) {
     }
 
     if (commandContext.isSecureSessionOpen()) {
-      if (transactionContext.isPkiMode()) {
-        // asymmetric crypto mode
-        AsymmetricCryptoCardTransactionManagerSpi asymmetricCryptoCardTransactionManagerSpi =
-            transactionContext.getAsymmetricCryptoCardTransactionManagerSpi();
-        try {
-          asymmetricCryptoCardTransactionManagerSpi.updateTerminalPkiSession(apduRequest.getApdu());
-          asymmetricCryptoCardTransactionManagerSpi.updateTerminalPkiSession(apduResponse);
-        } catch (AsymmetricCryptoException e) {
-          throw new CryptoException(e.getMessage(), e);
-        }
-      } else {
-        // symmetric crypto mode
-        SymmetricCryptoCardTransactionManagerSpi symmetricCryptoCardTransactionManager =
-            transactionContext.getSymmetricCryptoCardTransactionManagerSpi();
-        try {
-          symmetricCryptoCardTransactionManager.updateTerminalSessionMac(apduRequest.getApdu());
-          symmetricCryptoCardTransactionManager.updateTerminalSessionMac(apduResponse);
-        } catch (SymmetricCryptoException e) {
-          throw new CryptoException(e.getMessage(), e);
-        } catch (SymmetricCryptoIOException e) {
-          throw new CryptoIOException(e.getMessage(), e);
-        }
-      }
+      transactionContext.updateTerminalSession(apduRequest.getApdu(), apduResponse);
     }
 
     isCryptoServiceSynchronized = true;
@@ -101,6 +101,14 @@ final class CommandAppendRecord extends Command {
     }
   }
 
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -203,6 +203,8 @@ boolean synchronizeCryptoServiceBeforeCardProcessing() {
    */
   @Override
   void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
+    // The card no longer accepts an SV operation based on an SV Get performed at selection
+    getTransactionContext().getCard().setSvGetDataFromSelection(false);
     if (isAbortSecureSession) {
       processAbort(apduResponse);
       return;
@@ -215,6 +217,8 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
     } else {
       parseResponseInSymmetricMode(responseData);
     }
+    // The modifications are now committed by the card
+    getTransactionContext().getCard().discardFilesBackup();
   }
 
   /**
@@ -223,6 +227,7 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
    * @param apduResponse The response from the APDU command.
    */
   private void processAbort(ApduResponseApi apduResponse) {
+    getTransactionContext().discardPendingSessionApdus();
     getTransactionContext().setSecureSessionOpen(false);
     try {
       super.setApduResponseAndCheckStatus(apduResponse);
@@ -249,6 +254,7 @@ private void parseResponseInSymmetricMode(byte[] responseData) {
     }
     // Check the card session MAC (CL-CSS-MACVERIF.1)
     byte[] cardSessionMac = Arrays.copyOfRange(responseData, i, responseData.length);
+    Object event = FlightRecorderEvents.beginCryptoServiceCall("isCardSessionMacValid");
     try {
       if (!getTransactionContext()
           .getSymmetricCryptoCardTransactionManagerSpi()
@@ -259,6 +265,8 @@ private void parseResponseInSymmetricMode(byte[] responseData) {
       throw new CardSignatureNotVerifiableException(MSG_CARD_SESSION_MAC_NOT_VERIFIABLE, e);
     } catch (SymmetricCryptoException e) {
       throw new CryptoException(e.getMessage(), e);
+    } finally {
+      FlightRecorderEvents.endCryptoServiceCall(event);
     }
     if (svPostponedDataIndex != -1) {
       // CL-SV-POSTPON.1
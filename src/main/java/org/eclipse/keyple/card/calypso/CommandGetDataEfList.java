@@ -76,6 +76,31 @@ final class CommandGetDataEfList extends Command {
     addSubName("EF_LIST");
   }
 
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandGetDataEfList(
+      CommandGetDataEfList command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(CardCommandRef.GET_DATA, null, transactionContext, commandContext);
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return new CommandGetDataEfList(this, transactionContext, commandContext);
+  }
+
   /**
    * {@inheritDoc}
    *
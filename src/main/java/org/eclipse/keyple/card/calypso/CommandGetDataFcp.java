@@ -73,6 +73,31 @@ final class CommandGetDataFcp extends Command {
     addSubName("FCP_FOR_CURRENT_FILE");
   }
 
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandGetDataFcp(
+      CommandGetDataFcp command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(CardCommandRef.GET_DATA, null, transactionContext, commandContext);
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return new CommandGetDataFcp(this, transactionContext, commandContext);
+  }
+
   /**
    * {@inheritDoc}
    *
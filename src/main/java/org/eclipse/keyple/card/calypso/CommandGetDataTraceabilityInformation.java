@@ -70,6 +70,31 @@ final class CommandGetDataTraceabilityInformation extends Command {
     addSubName("TRACEABILITY_INFORMATION");
   }
 
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandGetDataTraceabilityInformation(
+      CommandGetDataTraceabilityInformation command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(CardCommandRef.GET_DATA, null, transactionContext, commandContext);
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return new CommandGetDataTraceabilityInformation(this, transactionContext, commandContext);
+  }
+
   /**
    * {@inheritDoc}
    *
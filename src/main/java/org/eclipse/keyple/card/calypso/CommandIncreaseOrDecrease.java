@@ -162,6 +162,30 @@ final class CommandIncreaseOrDecrease extends Command {
     }
   }
 
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
+  /**
+   * @return The counter number (00h for a simulated counter).
+   * @since 3.3.0
+   */
+  int getCounterNumber() {
+    return counterNumber;
+  }
+
+  /**
+   * @return The value to subtract or add to the counter.
+   * @since 3.3.0
+   */
+  int getIncDecValue() {
+    return incDecValue;
+  }
+
   /**
    * Builds the anticipated APDU response with the SW.
    *
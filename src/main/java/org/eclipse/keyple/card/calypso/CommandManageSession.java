@@ -185,6 +185,7 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
     }
     byte[] cardSessionMac = getApduResponse().getDataOut();
     if (isMutualAuthenticationRequested) {
+      Object event = FlightRecorderEvents.beginCryptoServiceCall("isCardSessionMacValid");
       try {
         if (!getTransactionContext()
             .getSymmetricCryptoCardTransactionManagerSpi()
@@ -195,6 +196,8 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
         throw new CryptoException(e.getMessage(), e);
       } catch (SymmetricCryptoIOException e) {
         throw new CryptoIOException(e.getMessage(), e);
+      } finally {
+        FlightRecorderEvents.endCryptoServiceCall(event);
       }
     }
     if (!isCryptoServiceSynchronized()) {
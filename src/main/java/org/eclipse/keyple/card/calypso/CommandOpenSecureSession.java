@@ -128,6 +128,38 @@ final class CommandOpenSecureSession extends Command {
     }
   }
 
+  /**
+   * Instantiates a copy of the provided "pre-open" variant for another card selection.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandOpenSecureSession(
+      CommandOpenSecureSession command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(CardCommandRef.OPEN_SECURE_SESSION, null, transactionContext, commandContext);
+    isPreOpenModeOnSelection = true;
+    isExtendedModeAllowed = true;
+    writeAccessLevel = command.writeAccessLevel;
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Only the "pre-open" variant can be copied.
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return isPreOpenModeOnSelection
+        ? new CommandOpenSecureSession(this, transactionContext, commandContext)
+        : null;
+  }
+
   /**
    * Partial constructor.
    *
@@ -431,6 +463,7 @@ private void synchronizeCryptoService(byte[] dataOut) {
                 computedKif != null ? String.format(PATTERN_1_BYTE_HEX, computedKif) : null,
                 computedKvc != null ? String.format(PATTERN_1_BYTE_HEX, computedKvc) : null));
       }
+      Object event = FlightRecorderEvents.beginCryptoServiceCall("initTerminalSessionMac");
       try {
         getTransactionContext()
             .getSymmetricCryptoCardTransactionManagerSpi()
@@ -439,6 +472,8 @@ private void synchronizeCryptoService(byte[] dataOut) {
         throw new CryptoException(e.getMessage(), e);
       } catch (SymmetricCryptoIOException e) {
         throw new CryptoIOException(e.getMessage(), e);
+      } finally {
+        FlightRecorderEvents.endCryptoServiceCall(event);
       }
     }
     confirmCryptoServiceSuccessfullySynchronized();
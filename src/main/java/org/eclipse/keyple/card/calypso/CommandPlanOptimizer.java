@@ -0,0 +1,267 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.calypso.card.card.ElementaryFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reduces the number of APDUs of a list of prepared card commands before their finalization.
+ *
+ * <p>The following transformations are applied, only on adjacent commands sharing the same command
+ * context (secure session and encryption status):
+ *
+ * <ul>
+ *   <li>"Read Records" commands in "one record" mode targeting consecutive records of the same SFI
+ *       are merged into a "Read Records" command in "multiple records" mode, within the limit of
+ *       the payload capacity and of the number of records of the file known from its header in the
+ *       card image (Calypso Prime revision 3 and Light cards only),
+ *   <li>a "Select File" command selecting the same LID as the previous command is removed,
+ *   <li>"Increase" (resp. "Decrease") commands targeting distinct counters of the same SFI are
+ *       folded into an "Increase Multiple" (resp. "Decrease Multiple") command, within the limit of
+ *       the payload capacity (Calypso Prime revision 2 and 3 cards only, as for {@code
+ *       prepareIncreaseCounters} and {@code prepareDecreaseCounters}).
+ * </ul>
+ *
+ * <p>Only the existing records are merged, so that a missing record can never make the card reject
+ * the whole merged command, nor be silently omitted from its response: the reading of a record
+ * beyond the number of records of the file, or of a file whose header is unknown, is left as is.
+ *
+ * <p>The session buffer usage computed when the commands were prepared is left unchanged: the
+ * folded commands consume less space in the card modifications buffer than the original ones, so
+ * that the computed usage remains an upper bound and the session splitting decided at preparation
+ * time remains valid.
+ *
+ * @since 3.3.0
+ */
+final class CommandPlanOptimizer {
+
+  private static final Logger logger = LoggerFactory.getLogger(CommandPlanOptimizer.class);
+
+  /** Size of the record number and record length fields in "multiple records" mode. */
+  private static final int RECORD_HEADER_SIZE = 2;
+
+  /** Size of a counter entry in the data field of the "Increase/Decrease Multiple" commands. */
+  private static final int COUNTER_ENTRY_SIZE = 4;
+
+  /** Private constructor */
+  private CommandPlanOptimizer() {}
+
+  /**
+   * Optimizes the provided list of commands in place.
+   *
+   * <p>The commands must not have been finalized yet.
+   *
+   * @param commands The prepared commands.
+   * @param card The Calypso card.
+   * @param payloadCapacity The payload capacity of the card.
+   * @since 3.3.0
+   */
+  static void optimize(List<Command> commands, CalypsoCardAdapter card, int payloadCapacity) {
+    if (commands.size() < 2) {
+      return;
+    }
+    boolean isReadRecordsMergingAllowed =
+        card.getProductType() == CalypsoCard.ProductType.PRIME_REVISION_3
+            || card.getProductType() == CalypsoCard.ProductType.LIGHT;
+    boolean isCountersFoldingAllowed =
+        card.getProductType() == CalypsoCard.ProductType.PRIME_REVISION_3
+            || card.getProductType() == CalypsoCard.ProductType.PRIME_REVISION_2;
+    List<Command> optimizedCommands = new ArrayList<>(commands.size());
+    int index = 0;
+    while (index < commands.size()) {
+      Command command = commands.get(index);
+      if (command instanceof CommandSelectFile) {
+        index = addSelectFile(commands, index, optimizedCommands);
+      } else if (isReadRecordsMergingAllowed && command instanceof CommandReadRecords) {
+        index = addMergedReadRecords(commands, index, card, payloadCapacity, optimizedCommands);
+      } else if (isCountersFoldingAllowed && command instanceof CommandIncreaseOrDecrease) {
+        index = addFoldedIncreaseOrDecrease(commands, index, payloadCapacity, optimizedCommands);
+      } else {
+        optimizedCommands.add(command);
+        index++;
+      }
+    }
+    if (optimizedCommands.size() != commands.size()) {
+      if (logger.isDebugEnabled()) {
+        logger.debug(
+            "Prepared commands optimized: {} APDUs instead of {}",
+            optimizedCommands.size(),
+            commands.size());
+      }
+      commands.clear();
+      commands.addAll(optimizedCommands);
+    }
+  }
+
+  /**
+   * Adds the "Select File" command at the provided index, and skips the following commands
+   * selecting the same LID.
+   *
+   * @return The index of the next command to process.
+   */
+  private static int addSelectFile(
+      List<Command> commands, int index, List<Command> optimizedCommands) {
+    CommandSelectFile selectFile = (CommandSelectFile) commands.get(index);
+    optimizedCommands.add(selectFile);
+    int nextIndex = index + 1;
+    if (selectFile.getLid() == null) {
+      return nextIndex;
+    }
+    while (nextIndex < commands.size()
+        && commands.get(nextIndex) instanceof CommandSelectFile
+        && selectFile.getLid().equals(((CommandSelectFile) commands.get(nextIndex)).getLid())
+        && hasSameContext(selectFile, commands.get(nextIndex))) {
+      nextIndex++;
+    }
+    return nextIndex;
+  }
+
+  /**
+   * Adds the "Read Records" command at the provided index, merged with the following mergeable
+   * ones if any.
+   *
+   * <p>The merged records are limited to the records known to exist from the file header.
+   *
+   * @return The index of the next command to process.
+   */
+  private static int addMergedReadRecords(
+      List<Command> commands,
+      int index,
+      CalypsoCardAdapter card,
+      int payloadCapacity,
+      List<Command> optimizedCommands) {
+    CommandReadRecords first = (CommandReadRecords) commands.get(index);
+    int nextIndex = index + 1;
+    if (isMergeableReadRecords(first)) {
+      int lastRecordNumber = getKnownRecordsNumber(card, first.getSfi());
+      int nbBytesPerRecord = first.getRecordSize() + RECORD_HEADER_SIZE;
+      int nbRecords = 1;
+      while (nextIndex < commands.size()
+          && first.getFirstRecordNumber() + nbRecords <= lastRecordNumber
+          && (nbRecords + 1) * nbBytesPerRecord <= payloadCapacity
+          && commands.get(nextIndex) instanceof CommandReadRecords) {
+        CommandReadRecords next = (CommandReadRecords) commands.get(nextIndex);
+        if (!isMergeableReadRecords(next)
+            || next.getSfi() != first.getSfi()
+            || next.getRecordSize() != first.getRecordSize()
+            || next.getFirstRecordNumber() != first.getFirstRecordNumber() + nbRecords
+            || !hasSameContext(first, next)) {
+          break;
+        }
+        nbRecords++;
+        nextIndex++;
+      }
+      if (nbRecords > 1) {
+        optimizedCommands.add(
+            new CommandReadRecords(
+                first.getTransactionContext(),
+                first.getCommandContext(),
+                first.getSfi(),
+                first.getFirstRecordNumber(),
+                CommandReadRecords.ReadMode.MULTIPLE_RECORD,
+                nbRecords * nbBytesPerRecord,
+                first.getRecordSize()));
+        return nextIndex;
+      }
+    }
+    optimizedCommands.add(first);
+    return nextIndex;
+  }
+
+  /**
+   * Returns the number of records of the file known from its header in the card image.
+   *
+   * @return 0 if the file or its header is unknown.
+   */
+  private static int getKnownRecordsNumber(CalypsoCardAdapter card, int sfi) {
+    ElementaryFile ef = card.getFileBySfi((byte) sfi);
+    if (ef == null || ef.getHeader() == null) {
+      return 0;
+    }
+    return ef.getHeader().getRecordsNumber();
+  }
+
+  /**
+   * Indicates if the "Read Records" command reads one record of a known size.
+   *
+   * @return True if the command can be merged.
+   */
+  private static boolean isMergeableReadRecords(CommandReadRecords command) {
+    return command.getReadMode() == CommandReadRecords.ReadMode.ONE_RECORD
+        && command.getSfi() != 0
+        && command.getRecordSize() > 0
+        && command.getExpectedResponseLength() != null
+        && command.getExpectedResponseLength() == command.getRecordSize();
+  }
+
+  /**
+   * Adds the "Increase/Decrease" command at the provided index, folded with the following foldable
+   * ones into an "Increase/Decrease Multiple" command if any.
+   *
+   * @return The index of the next command to process.
+   */
+  private static int addFoldedIncreaseOrDecrease(
+      List<Command> commands, int index, int payloadCapacity, List<Command> optimizedCommands) {
+    CommandIncreaseOrDecrease first = (CommandIncreaseOrDecrease) commands.get(index);
+    int nextIndex = index + 1;
+    if (first.getCounterNumber() != 0) {
+      SortedMap<Integer, Integer> counterNumberToIncDecValueMap = new TreeMap<>();
+      counterNumberToIncDecValueMap.put(first.getCounterNumber(), first.getIncDecValue());
+      int nbCountersMax = payloadCapacity / COUNTER_ENTRY_SIZE;
+      while (nextIndex < commands.size()
+          && counterNumberToIncDecValueMap.size() < nbCountersMax
+          && commands.get(nextIndex) instanceof CommandIncreaseOrDecrease) {
+        CommandIncreaseOrDecrease next = (CommandIncreaseOrDecrease) commands.get(nextIndex);
+        if (next.getCommandRef() != first.getCommandRef()
+            || next.getSfi() != first.getSfi()
+            || next.getCounterNumber() == 0
+            || counterNumberToIncDecValueMap.containsKey(next.getCounterNumber())
+            || !hasSameContext(first, next)) {
+          break;
+        }
+        counterNumberToIncDecValueMap.put(next.getCounterNumber(), next.getIncDecValue());
+        nextIndex++;
+      }
+      if (counterNumberToIncDecValueMap.size() > 1) {
+        optimizedCommands.add(
+            new CommandIncreaseOrDecreaseMultiple(
+                first.getCommandRef() == CardCommandRef.DECREASE,
+                first.getTransactionContext(),
+                first.getCommandContext(),
+                (byte) first.getSfi(),
+                counterNumberToIncDecValueMap));
+        return nextIndex;
+      }
+    }
+    optimizedCommands.add(first);
+    return nextIndex;
+  }
+
+  /**
+   * Indicates if both commands have been prepared in the same command context.
+   *
+   * @return True if the secure session and encryption statuses are identical.
+   */
+  private static boolean hasSameContext(Command command1, Command command2) {
+    return command1.getCommandContext().isSecureSessionOpen()
+            == command2.getCommandContext().isSecureSessionOpen()
+        && command1.getCommandContext().isEncryptionActive()
+            == command2.getCommandContext().isEncryptionActive();
+  }
+}
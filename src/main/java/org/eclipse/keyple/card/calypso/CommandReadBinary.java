@@ -116,6 +116,49 @@ final class CommandReadBinary extends Command {
     }
   }
 
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandReadBinary(
+      CommandReadBinary command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(
+        CardCommandRef.READ_BINARY,
+        command.getExpectedResponseLength(),
+        transactionContext,
+        commandContext);
+    isPreOpenMode =
+        transactionContext != null
+            && transactionContext.getCard() != null
+            && transactionContext.getCard().getPreOpenWriteAccessLevel() != null;
+    sfi = command.sfi;
+    offset = command.offset;
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return new CommandReadBinary(this, transactionContext, commandContext);
+  }
+
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -206,7 +249,9 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
     if (!setApduResponseAndCheckStatusInBestEffortMode(apduResponse)) {
       return;
     }
-    getTransactionContext().getCard().setContent(sfi, 1, apduResponse.getDataOut(), offset);
+    getTransactionContext()
+        .getCard()
+        .setBinaryContentReadFromCard(sfi, apduResponse.getDataOut(), offset);
     if (!isCryptoServiceSynchronized()) {
       updateTerminalSessionIfNeeded();
     } else if (getCommandContext().isSecureSessionOpen()
@@ -18,6 +18,7 @@
 import java.util.Map;
 import org.eclipse.keyple.core.util.ApduUtil;
 import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.calypso.card.card.ElementaryFile;
 import org.eclipse.keypop.card.ApduResponseApi;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,6 +84,8 @@ final class CommandReadRecordMultiple extends Command {
   private final byte recordNumber;
   private final byte offset;
   private final byte length;
+  private final transient boolean isPreOpenMode; // NOSONAR
+  private transient byte[] anticipatedApduResponse; // NOSONAR
 
   /**
    * Constructor.
@@ -109,11 +112,12 @@ final class CommandReadRecordMultiple extends Command {
     this.recordNumber = recordNumber;
     this.offset = offset;
     this.length = length;
+    isPreOpenMode = transactionContext.getCard().getPreOpenWriteAccessLevel() != null;
 
     byte p2 = (byte) (sfi * 8 + 5);
     byte[] dataIn = {0x54, 0x02, offset, length};
 
-    // APDU Case 4 - always outside secure session
+    // APDU Case 4
     setApduRequestInBestEffortMode(
         new ApduRequestAdapter(
             ApduUtil.build(
@@ -144,7 +148,7 @@ final class CommandReadRecordMultiple extends Command {
    */
   @Override
   void finalizeRequest() {
-    // NOP
+    encryptRequestAndUpdateTerminalSessionMacIfNeeded();
   }
 
   /**
@@ -154,7 +158,7 @@ void finalizeRequest() {
    */
   @Override
   boolean isCryptoServiceRequiredToFinalizeRequest() {
-    return false;
+    return getCommandContext().isEncryptionActive();
   }
 
   /**
@@ -164,9 +168,79 @@ boolean isCryptoServiceRequiredToFinalizeRequest() {
    */
   @Override
   boolean synchronizeCryptoServiceBeforeCardProcessing() {
+    if (!getCommandContext().isSecureSessionOpen()) {
+      return true; // Nothing to synchronize
+    }
+    if (getCommandContext().isEncryptionActive()) {
+      return false;
+    }
+    if (!isPreOpenMode) {
+      return false;
+    }
+    // Pre-open mode without encryption in secure session
+    if (!isCryptoServiceSynchronized()) {
+      anticipatedApduResponse = buildAnticipatedResponse();
+      if (anticipatedApduResponse == null) {
+        String sfiHex = HexUtil.toHex(sfi);
+        logger.warn(
+            "Unable to determine anticipated APDU response for command [{}] (sfi {}h, record {})"
+                + " because the file header or some records have not been read beforehand",
+            getName(),
+            sfiHex,
+            recordNumber & 0xFF);
+        return false;
+      }
+      updateTerminalSessionIfNeeded(anticipatedApduResponse);
+    }
     return true;
   }
 
+  /**
+   * Builds the anticipated APDU response with the SW.
+   *
+   * <p>The card returns the requested part of the records from the first record number up to the
+   * last record of the file, as long as the response fits in its payload capacity, and indicates
+   * with the SW 6200h that the last record has not been reached.
+   *
+   * @return Null if the number of records of the file is unknown or if some records have not been
+   *     read beforehand.
+   */
+  private byte[] buildAnticipatedResponse() {
+    CalypsoCardAdapter card = getTransactionContext().getCard();
+    ElementaryFile ef = card.getFileBySfi(sfi);
+    if (ef == null || ef.getHeader() == null) {
+      return null; // NOSONAR
+    }
+    int firstRecordNumber = recordNumber & 0xFF;
+    int lastRecordNumber = ef.getHeader().getRecordsNumber();
+    int nbBytesPerRecord = length & 0xFF;
+    int nbRecords =
+        Math.min(
+            lastRecordNumber - firstRecordNumber + 1,
+            card.getPayloadCapacity() / nbBytesPerRecord);
+    if (nbRecords <= 0) {
+      return null; // NOSONAR
+    }
+    byte[] apdu = new byte[nbRecords * nbBytesPerRecord + 2];
+    try {
+      for (int i = 0; i < nbRecords; i++) {
+        byte[] content = ef.getData().getContent(firstRecordNumber + i, offset, nbBytesPerRecord);
+        if (content.length == 0) {
+          return null; // NOSONAR
+        }
+        System.arraycopy(content, 0, apdu, i * nbBytesPerRecord, nbBytesPerRecord);
+      }
+    } catch (IndexOutOfBoundsException e) {
+      return null; // NOSONAR
+    }
+    if (firstRecordNumber + nbRecords - 1 < lastRecordNumber) {
+      apdu[apdu.length - 2] = (byte) 0x62; // SW 6200 (partial read)
+    } else {
+      apdu[apdu.length - 2] = (byte) 0x90; // SW 9000
+    }
+    return apdu;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -174,6 +248,7 @@ boolean synchronizeCryptoServiceBeforeCardProcessing() {
    */
   @Override
   void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
+    decryptResponseAndUpdateTerminalSessionMacIfNeeded(apduResponse);
     if (!setApduResponseAndCheckStatusInBestEffortMode(apduResponse)) {
       return;
     }
@@ -188,6 +263,15 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
               Arrays.copyOfRange(dataOut, i * length, (i + 1) * length),
               offset);
     }
+    if (!isCryptoServiceSynchronized()) {
+      updateTerminalSessionIfNeeded();
+    } else if (getCommandContext().isSecureSessionOpen()
+        && isPreOpenMode
+        && !Arrays.equals(apduResponse.getApdu(), anticipatedApduResponse)) {
+      throw new CardSecurityContextException(
+          "APDU response does not match the anticipated APDU response",
+          CardCommandRef.READ_RECORD_MULTIPLE);
+    }
   }
 
   /**
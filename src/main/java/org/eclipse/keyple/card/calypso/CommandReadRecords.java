@@ -146,6 +146,75 @@ enum ReadMode {
     }
   }
 
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandReadRecords(
+      CommandReadRecords command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(
+        CardCommandRef.READ_RECORDS,
+        command.getExpectedResponseLength(),
+        transactionContext,
+        commandContext);
+    isPreOpenMode =
+        transactionContext != null
+            && transactionContext.getCard() != null
+            && transactionContext.getCard().getPreOpenWriteAccessLevel() != null;
+    sfi = command.sfi;
+    firstRecordNumber = command.firstRecordNumber;
+    recordSize = command.recordSize;
+    readMode = command.readMode;
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return new CommandReadRecords(this, transactionContext, commandContext);
+  }
+
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
+  /**
+   * @return The record number to read (or first record to read in case of several records).
+   * @since 3.3.0
+   */
+  int getFirstRecordNumber() {
+    return firstRecordNumber;
+  }
+
+  /**
+   * @return The size of one record.
+   * @since 3.3.0
+   */
+  int getRecordSize() {
+    return recordSize;
+  }
+
+  /**
+   * @return The read mode.
+   * @since 3.3.0
+   */
+  ReadMode getReadMode() {
+    return readMode;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -215,7 +284,9 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
     }
     byte[] dataOut = apduResponse.getDataOut();
     if (readMode == CommandReadRecords.ReadMode.ONE_RECORD) {
-      getTransactionContext().getCard().setContent((byte) sfi, firstRecordNumber, dataOut);
+      getTransactionContext()
+          .getCard()
+          .setContentReadFromCard((byte) sfi, firstRecordNumber, dataOut);
     } else {
       int apduLen = dataOut.length;
       int index = 0;
@@ -224,7 +295,8 @@ void parseResponse(ApduResponseApi apduResponse) throws CardCommandException {
         byte len = dataOut[index++];
         getTransactionContext()
             .getCard()
-            .setContent((byte) sfi, recordNb, Arrays.copyOfRange(dataOut, index, index + len));
+            .setContentReadFromCard(
+                (byte) sfi, recordNb, Arrays.copyOfRange(dataOut, index, index + len));
         index = index + len;
         apduLen = apduLen - 2 - len;
       }
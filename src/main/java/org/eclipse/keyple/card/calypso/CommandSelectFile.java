@@ -82,6 +82,8 @@ final class CommandSelectFile extends Command {
 
   private static final int TAG_PROPRIETARY_INFORMATION = 0x85;
 
+  private final Short lid;
+
   /**
    * Instantiates a new CommandSelectFile to select the first, next or current file in the current
    * DF.
@@ -98,6 +100,8 @@ final class CommandSelectFile extends Command {
 
     super(commandRef, 25, transactionContext, commandContext);
 
+    lid = null;
+
     byte cardClass =
         transactionContext.getCard() != null
             ? transactionContext.getCard().getCardClass().getValue()
@@ -149,6 +153,8 @@ final class CommandSelectFile extends Command {
       TransactionContextDto transactionContext, CommandContextDto commandContext, short lid) {
     super(commandRef, 25, transactionContext, commandContext);
 
+    this.lid = lid;
+
     CalypsoCardClass calypsoCardClass;
     CalypsoCard.ProductType productType;
     boolean forceRevision1Settings;
@@ -196,6 +202,41 @@ final class CommandSelectFile extends Command {
     }
   }
 
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandSelectFile(
+      CommandSelectFile command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(commandRef, 25, transactionContext, commandContext);
+    lid = command.lid;
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return new CommandSelectFile(this, transactionContext, commandContext);
+  }
+
+  /**
+   * @return The LID of the file to select or null if the selection is done with a {@link
+   *     SelectFileControl}.
+   * @since 3.3.0
+   */
+  Short getLid() {
+    return lid;
+  }
+
   /**
    * {@inheritDoc}
    *
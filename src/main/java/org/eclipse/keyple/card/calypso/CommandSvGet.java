@@ -56,6 +56,7 @@ final class CommandSvGet extends Command {
   }
 
   private final byte[] header;
+  private transient boolean isPreparedOnSelection; // NOSONAR
 
   /**
    * Instantiates a new CommandSvGet.
@@ -80,7 +81,8 @@ final class CommandSvGet extends Command {
         commandContext);
 
     byte cla =
-        transactionContext.getCard().getCardClass() == CalypsoCardClass.LEGACY
+        transactionContext.getCard() != null
+                && transactionContext.getCard().getCardClass() == CalypsoCardClass.LEGACY
             ? CalypsoCardClass.LEGACY_STORED_VALUE.getValue()
             : CalypsoCardClass.ISO.getValue();
 
@@ -109,6 +111,55 @@ final class CommandSvGet extends Command {
     header[3] = getExpectedResponseLength().byteValue();
   }
 
+  /**
+   * Instantiates a new CommandSvGet in extended mode for the card selection.
+   *
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   * @param svOperation the desired SV operation.
+   * @since 3.3.0
+   */
+  CommandSvGet(
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext,
+      SvOperation svOperation) {
+    this(transactionContext, commandContext, svOperation, true);
+    isPreparedOnSelection = true;
+  }
+
+  /**
+   * Instantiates a copy of the provided command for another transaction.
+   *
+   * @param command The command to copy.
+   * @param transactionContext The global transaction context common to all commands.
+   * @param commandContext The local command context specific to each command.
+   */
+  private CommandSvGet(
+      CommandSvGet command,
+      TransactionContextDto transactionContext,
+      CommandContextDto commandContext) {
+    super(
+        CardCommandRef.SV_GET,
+        command.getExpectedResponseLength(),
+        transactionContext,
+        commandContext);
+    header = command.header;
+    isPreparedOnSelection = true;
+    copyApduRequest(command);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  Command copy(TransactionContextDto transactionContext, CommandContextDto commandContext) {
+    return isPreparedOnSelection
+        ? new CommandSvGet(this, transactionContext, commandContext)
+        : null;
+  }
+
   private static int computeExpectedResponseLength(
       SvOperation svOperation, boolean useExtendedMode) {
     if (useExtendedMode) {
@@ -145,6 +196,7 @@ boolean isCryptoServiceRequiredToFinalizeRequest() {
    */
   @Override
   boolean synchronizeCryptoServiceBeforeCardProcessing() {
+    // The response contains a new card challenge and cannot be anticipated, even in pre-open mode.
     return false;
   }
 
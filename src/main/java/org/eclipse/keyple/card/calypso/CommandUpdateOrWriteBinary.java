@@ -127,6 +127,14 @@ final class CommandUpdateOrWriteBinary extends Command {
     }
   }
 
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
   /**
    * {@inheritDoc}
    *
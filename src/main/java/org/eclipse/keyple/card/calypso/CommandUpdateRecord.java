@@ -117,6 +117,14 @@ final class CommandUpdateRecord extends Command {
     }
   }
 
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -117,6 +117,14 @@ final class CommandWriteRecord extends Command {
     }
   }
 
+  /**
+   * @return The SFI.
+   * @since 3.3.0
+   */
+  int getSfi() {
+    return sfi;
+  }
+
   /**
    * {@inheritDoc}
    *
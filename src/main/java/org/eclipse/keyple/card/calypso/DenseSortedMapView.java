@@ -0,0 +1,389 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.*;
+
+/**
+ * {@link SortedMap} view of values stored in a structure directly indexed by a non-negative integer
+ * key (e.g. an array of records indexed by the record number).
+ *
+ * <p>The view is backed by the underlying structure: its content reflects the changes made to the
+ * structure and the changes made through the view are written to the structure, including for the
+ * views returned by {@link #subMap}, {@link #headMap} and {@link #tailMap}. A null value means that
+ * there is no mapping for the key, null values are therefore not supported.
+ *
+ * @param <V> The type of the values.
+ * @since 3.3.0
+ */
+abstract class DenseSortedMapView<V> extends AbstractMap<Integer, V>
+    implements SortedMap<Integer, V> {
+
+  private final int fromKey; // inclusive
+  private final int toKey; // exclusive
+
+  /**
+   * Creates a view of all the keys.
+   *
+   * @since 3.3.0
+   */
+  DenseSortedMapView() {
+    this(0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a view restricted to the provided range of keys.
+   *
+   * @param fromKey The low endpoint (inclusive).
+   * @param toKey The high endpoint (exclusive).
+   * @since 3.3.0
+   */
+  DenseSortedMapView(int fromKey, int toKey) {
+    this.fromKey = fromKey;
+    this.toKey = toKey;
+  }
+
+  /**
+   * Returns the value associated to the provided key in the underlying structure.
+   *
+   * @param key The key ({@code >=} 0 and {@code <} {@link #getKeyLimit()}).
+   * @return Null if there is no mapping for the key.
+   * @since 3.3.0
+   */
+  abstract V getValue(int key);
+
+  /**
+   * Returns the exclusive upper bound of the keys that may have a value in the underlying
+   * structure.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  abstract int getKeyLimit();
+
+  /**
+   * Sets or removes the value associated to the provided key in the underlying structure.
+   *
+   * @param key The key ({@code >=} 0).
+   * @param value The value, null to remove the mapping.
+   * @return The previous value, null if there was no mapping for the key.
+   * @since 3.3.0
+   */
+  abstract V setValue(int key, V value);
+
+  /**
+   * Returns the number of values of the underlying structure, whatever their key.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  abstract int getValueCount();
+
+  /**
+   * Indicates if this view covers all the keys of the underlying structure.
+   *
+   * @return True if the view is not restricted to a range of keys.
+   */
+  private boolean isFullRange() {
+    return fromKey == 0 && toKey >= getKeyLimit();
+  }
+
+  /**
+   * Checks that the provided key is in the range of this view.
+   *
+   * @param key The key.
+   * @throws IllegalArgumentException If the key is out of range.
+   */
+  private void checkKeyInRange(int key) {
+    if (key < fromKey || key >= toKey) {
+      throw new IllegalArgumentException("key out of range: " + key);
+    }
+  }
+
+  /**
+   * Returns the first key {@code >=} the provided one having a value in this view.
+   *
+   * @param key The key to start from.
+   * @return -1 if none.
+   */
+  private int nextKey(int key) {
+    int limit = Math.min(toKey, getKeyLimit());
+    for (int k = Math.max(key, fromKey); k < limit; k++) {
+      if (getValue(k) != null) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public V get(Object key) {
+    if (!(key instanceof Integer)) {
+      return null;
+    }
+    int k = (Integer) key;
+    if (k < fromKey || k >= toKey || k >= getKeyLimit()) {
+      return null;
+    }
+    return getValue(k);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public V put(Integer key, V value) {
+    if (value == null) {
+      throw new NullPointerException("value");
+    }
+    checkKeyInRange(key);
+    return setValue(key, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public V remove(Object key) {
+    if (!containsKey(key)) {
+      return null;
+    }
+    return setValue((Integer) key, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The number of values is not computed for the view covering all the keys.
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public int size() {
+    if (isFullRange()) {
+      return getValueCount();
+    }
+    int size = 0;
+    for (int k = nextKey(fromKey); k >= 0; k = nextKey(k + 1)) {
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public boolean isEmpty() {
+    if (isFullRange()) {
+      return getValueCount() == 0;
+    }
+    return nextKey(fromKey) < 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public Set<Entry<Integer, V>> entrySet() {
+    return new AbstractSet<Entry<Integer, V>>() {
+      @Override
+      public Iterator<Entry<Integer, V>> iterator() {
+        return new Iterator<Entry<Integer, V>>() {
+          private int next = nextKey(fromKey);
+          private int last = -1;
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Entry<Integer, V> next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            last = next;
+            next = nextKey(next + 1);
+            return new ViewEntry(last, getValue(last));
+          }
+
+          @Override
+          public void remove() {
+            if (last < 0) {
+              throw new IllegalStateException();
+            }
+            setValue(last, null);
+            last = -1;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return DenseSortedMapView.this.size();
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The keys are sorted according to their natural ordering.
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public Comparator<? super Integer> comparator() {
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public SortedMap<Integer, V> subMap(Integer fromKey, Integer toKey) {
+    if (fromKey > toKey) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+    return new SubMapView<>(
+        this, Math.max(fromKey, this.fromKey), Math.max(Math.min(toKey, this.toKey), 0));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public SortedMap<Integer, V> headMap(Integer toKey) {
+    return new SubMapView<>(this, fromKey, Math.max(Math.min(toKey, this.toKey), 0));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public SortedMap<Integer, V> tailMap(Integer fromKey) {
+    return new SubMapView<>(this, Math.max(fromKey, this.fromKey), toKey);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public Integer firstKey() {
+    int key = nextKey(fromKey);
+    if (key < 0) {
+      throw new NoSuchElementException();
+    }
+    return key;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public Integer lastKey() {
+    for (int k = Math.min(toKey, getKeyLimit()) - 1; k >= fromKey; k--) {
+      if (getValue(k) != null) {
+        return k;
+      }
+    }
+    throw new NoSuchElementException();
+  }
+
+  /**
+   * Entry of this view, writing its value changes to the underlying structure.
+   */
+  private final class ViewEntry extends SimpleEntry<Integer, V> {
+
+    private ViewEntry(int key, V value) {
+      super(key, value);
+    }
+
+    @Override
+    public V setValue(V value) {
+      if (value == null) {
+        throw new NullPointerException("value");
+      }
+      super.setValue(value);
+      return DenseSortedMapView.this.setValue(getKey(), value);
+    }
+  }
+
+  /**
+   * View of a range of keys of another view.
+   *
+   * @param <V> The type of the values.
+   */
+  private static final class SubMapView<V> extends DenseSortedMapView<V> {
+
+    private final DenseSortedMapView<V> parent;
+
+    private SubMapView(DenseSortedMapView<V> parent, int fromKey, int toKey) {
+      super(fromKey, toKey);
+      this.parent = parent;
+    }
+
+    @Override
+    V getValue(int key) {
+      return parent.getValue(key);
+    }
+
+    @Override
+    int getKeyLimit() {
+      return parent.getKeyLimit();
+    }
+
+    @Override
+    V setValue(int key, V value) {
+      return parent.setValue(key, value);
+    }
+
+    @Override
+    int getValueCount() {
+      return parent.getValueCount();
+    }
+  }
+}
@@ -12,15 +12,23 @@
 package org.eclipse.keyple.card.calypso;
 
 import java.util.*;
+import org.eclipse.keyple.card.calypso.spi.PkiSessionBatchUpdateSpi;
+import org.eclipse.keyple.card.calypso.spi.SessionMacBatchUpdateSpi;
 import org.eclipse.keyple.core.util.ByteArrayUtil;
 import org.eclipse.keyple.core.util.HexUtil;
 import org.eclipse.keyple.core.util.json.JsonUtil;
 import org.eclipse.keypop.calypso.card.card.SvDebitLogRecord;
 import org.eclipse.keypop.calypso.card.card.SvLoadLogRecord;
+import org.eclipse.keypop.calypso.card.transaction.CryptoException;
+import org.eclipse.keypop.calypso.card.transaction.CryptoIOException;
 import org.eclipse.keypop.calypso.card.transaction.SearchCommandData;
+import org.eclipse.keypop.calypso.crypto.asymmetric.AsymmetricCryptoException;
 import org.eclipse.keypop.calypso.crypto.asymmetric.transaction.spi.AsymmetricCryptoCardTransactionManagerSpi;
 import org.eclipse.keypop.calypso.crypto.symmetric.SvCommandSecurityDataApi;
+import org.eclipse.keypop.calypso.crypto.symmetric.SymmetricCryptoException;
+import org.eclipse.keypop.calypso.crypto.symmetric.SymmetricCryptoIOException;
 import org.eclipse.keypop.calypso.crypto.symmetric.spi.SymmetricCryptoCardTransactionManagerSpi;
+import org.eclipse.keypop.card.ApduResponseApi;
 import org.eclipse.keypop.card.spi.ApduRequestSpi;
 import org.eclipse.keypop.card.spi.CardRequestSpi;
 import org.eclipse.keypop.card.spi.CardSelectionRequestSpi;
@@ -146,6 +154,71 @@ public String toString() {
     }
   }
 
+  /**
+   * This POJO contains a raw ISO-7816 APDU response, used to restore the selection data of a card
+   * image.
+   *
+   * @since 3.3.0
+   */
+  static final class ApduResponseAdapter implements ApduResponseApi {
+
+    private final byte[] apdu;
+
+    /**
+     * Builds an APDU response from its raw bytes.
+     *
+     * @param apdu The bytes of the response, including the status word.
+     * @since 3.3.0
+     */
+    ApduResponseAdapter(byte[] apdu) {
+      this.apdu = apdu;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 3.3.0
+     */
+    @Override
+    public byte[] getApdu() {
+      return apdu;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 3.3.0
+     */
+    @Override
+    public byte[] getDataOut() {
+      return Arrays.copyOfRange(apdu, 0, Math.max(apdu.length - 2, 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 3.3.0
+     */
+    @Override
+    public int getStatusWord() {
+      if (apdu.length < 2) {
+        return 0;
+      }
+      return ((apdu[apdu.length - 2] & 0xFF) << 8) | (apdu[apdu.length - 1] & 0xFF);
+    }
+
+    /**
+     * Converts the APDU response into a string where the data is encoded in a json format.
+     *
+     * @return A not empty String
+     * @since 3.3.0
+     */
+    @Override
+    public String toString() {
+      return "APDU_RESPONSE = " + JsonUtil.toJson(this);
+    }
+  }
+
   /**
    * This POJO contains an ordered list of {@link ApduRequestSpi} and the associated status code
    * check policy.
@@ -919,6 +992,9 @@ static final class TransactionContextDto {
     private final SymmetricCryptoCardTransactionManagerSpi symmetricCryptoCardTransactionManagerSpi;
     private final AsymmetricCryptoCardTransactionManagerSpi
         asymmetricCryptoCardTransactionManagerSpi;
+    private final SessionMacBatchUpdateSpi sessionMacBatchUpdateSpi;
+    private final PkiSessionBatchUpdateSpi pkiSessionBatchUpdateSpi;
+    private final List<byte[]> pendingSessionApdus = new ArrayList<>();
     private boolean isSecureSessionOpen;
 
     /**
@@ -934,6 +1010,11 @@ static final class TransactionContextDto {
       this.card = card;
       this.symmetricCryptoCardTransactionManagerSpi = symmetricCryptoCardTransactionManagerSpi;
       this.asymmetricCryptoCardTransactionManagerSpi = null;
+      this.sessionMacBatchUpdateSpi =
+          symmetricCryptoCardTransactionManagerSpi instanceof SessionMacBatchUpdateSpi
+              ? (SessionMacBatchUpdateSpi) symmetricCryptoCardTransactionManagerSpi
+              : null;
+      this.pkiSessionBatchUpdateSpi = null;
       isSecureSessionOpen = false;
     }
 
@@ -950,6 +1031,11 @@ static final class TransactionContextDto {
       this.card = card;
       this.symmetricCryptoCardTransactionManagerSpi = null;
       this.asymmetricCryptoCardTransactionManagerSpi = asymmetricCryptoCardTransactionManagerSpi;
+      this.sessionMacBatchUpdateSpi = null;
+      this.pkiSessionBatchUpdateSpi =
+          asymmetricCryptoCardTransactionManagerSpi instanceof PkiSessionBatchUpdateSpi
+              ? (PkiSessionBatchUpdateSpi) asymmetricCryptoCardTransactionManagerSpi
+              : null;
       isSecureSessionOpen = false;
     }
 
@@ -963,6 +1049,8 @@ static final class TransactionContextDto {
       this.card = card;
       this.symmetricCryptoCardTransactionManagerSpi = null;
       this.asymmetricCryptoCardTransactionManagerSpi = null;
+      this.sessionMacBatchUpdateSpi = null;
+      this.pkiSessionBatchUpdateSpi = null;
       isSecureSessionOpen = false;
     }
 
@@ -975,6 +1063,8 @@ static final class TransactionContextDto {
       this.card = null;
       this.symmetricCryptoCardTransactionManagerSpi = null;
       this.asymmetricCryptoCardTransactionManagerSpi = null;
+      this.sessionMacBatchUpdateSpi = null;
+      this.pkiSessionBatchUpdateSpi = null;
       isSecureSessionOpen = false;
     }
 
@@ -987,21 +1077,110 @@ CalypsoCardAdapter getCard() {
     }
 
     /**
+     * Returns the symmetric crypto service, after having provided it with the pending session
+     * APDUs, if any.
+     *
      * @return The symmetric crypto service or "null" if not set.
+     * @throws CryptoException If the crypto service failed.
+     * @throws CryptoIOException If the communication with the crypto service failed.
      * @since 2.3.2
      */
     SymmetricCryptoCardTransactionManagerSpi getSymmetricCryptoCardTransactionManagerSpi() {
+      flushPendingSessionApdus();
       return symmetricCryptoCardTransactionManagerSpi;
     }
 
     /**
+     * Returns the asymmetric crypto service, after having provided it with the pending session
+     * APDUs, if any.
+     *
      * @return The asymmetric crypto service or "null" if not set.
+     * @throws CryptoException If the crypto service failed.
      * @since 3.1.0
      */
     AsymmetricCryptoCardTransactionManagerSpi getAsymmetricCryptoCardTransactionManagerSpi() {
+      flushPendingSessionApdus();
       return asymmetricCryptoCardTransactionManagerSpi;
     }
 
+    /**
+     * Updates the terminal session MAC (symmetric mode) or PKI session (asymmetric mode) with the
+     * provided command/response pair.
+     *
+     * <p>If the crypto service supports the batch update, the APDUs are only added to the pending
+     * session APDUs, provided to the crypto service by {@link #flushPendingSessionApdus()}.
+     *
+     * @param apduRequest The command APDU.
+     * @param apduResponse The response APDU.
+     * @throws CryptoException If the crypto service failed.
+     * @throws CryptoIOException If the communication with the crypto service failed.
+     * @since 3.3.0
+     */
+    void updateTerminalSession(byte[] apduRequest, byte[] apduResponse) {
+      if (sessionMacBatchUpdateSpi != null || pkiSessionBatchUpdateSpi != null) {
+        pendingSessionApdus.add(apduRequest);
+        pendingSessionApdus.add(apduResponse);
+        return;
+      }
+      flushPendingSessionApdus();
+      if (isPkiMode()) {
+        try {
+          asymmetricCryptoCardTransactionManagerSpi.updateTerminalPkiSession(apduRequest);
+          asymmetricCryptoCardTransactionManagerSpi.updateTerminalPkiSession(apduResponse);
+        } catch (AsymmetricCryptoException e) {
+          throw new CryptoException(e.getMessage(), e);
+        }
+      } else {
+        try {
+          symmetricCryptoCardTransactionManagerSpi.updateTerminalSessionMac(apduRequest);
+          symmetricCryptoCardTransactionManagerSpi.updateTerminalSessionMac(apduResponse);
+        } catch (SymmetricCryptoException e) {
+          throw new CryptoException(e.getMessage(), e);
+        } catch (SymmetricCryptoIOException e) {
+          throw new CryptoIOException(e.getMessage(), e);
+        }
+      }
+    }
+
+    /**
+     * Provides the pending session APDUs to the crypto service in a single call, if any.
+     *
+     * <p>The pending APDUs are discarded even if the crypto service fails.
+     *
+     * @throws CryptoException If the crypto service failed.
+     * @throws CryptoIOException If the communication with the crypto service failed.
+     * @since 3.3.0
+     */
+    void flushPendingSessionApdus() {
+      if (pendingSessionApdus.isEmpty()) {
+        return;
+      }
+      Object event = FlightRecorderEvents.beginCryptoServiceCall("updateTerminalSession");
+      try {
+        if (pkiSessionBatchUpdateSpi != null) {
+          pkiSessionBatchUpdateSpi.updateTerminalPkiSession(pendingSessionApdus);
+        } else {
+          sessionMacBatchUpdateSpi.updateTerminalSessionMac(pendingSessionApdus);
+        }
+      } catch (AsymmetricCryptoException | SymmetricCryptoException e) {
+        throw new CryptoException(e.getMessage(), e);
+      } catch (SymmetricCryptoIOException e) {
+        throw new CryptoIOException(e.getMessage(), e);
+      } finally {
+        pendingSessionApdus.clear();
+        FlightRecorderEvents.endCryptoServiceCall(event);
+      }
+    }
+
+    /**
+     * Discards the pending session APDUs, e.g. when the secure session is aborted.
+     *
+     * @since 3.3.0
+     */
+    void discardPendingSessionApdus() {
+      pendingSessionApdus.clear();
+    }
+
     /**
      * @return "true" if the secure session is open.
      * @since 2.3.2
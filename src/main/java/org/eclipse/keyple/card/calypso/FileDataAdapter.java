@@ -11,6 +11,8 @@
  ************************************************************************************** */
 package org.eclipse.keyple.card.calypso;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.*;
 import org.eclipse.keyple.core.util.Assert;
 import org.eclipse.keyple.core.util.ByteArrayUtil;
@@ -28,7 +30,20 @@ class FileDataAdapter implements FileData {
 
   private static final Logger logger = LoggerFactory.getLogger(FileDataAdapter.class);
 
-  private final TreeMap<Integer, byte[]> records = new TreeMap<>();
+  private static final byte[][] NO_RECORDS = new byte[0][];
+  private static final int MIN_CYCLIC_HEADROOM = 4;
+
+  /* Records content indexed by the record number plus the offset, null if not set */
+  private byte[][] records = NO_RECORDS;
+  /* Index of record #0 in the records array, decremented when a cyclic record is added */
+  private int offset;
+  /* True if the records array is a ring holding the records #0 to #(records.length - 1) */
+  private boolean isRing;
+  /* Number of records set */
+  private int nbRecords;
+  private transient SortedMap<Integer, byte[]> recordsView; // NOSONAR
+  /* Decoded values of the counters of record #1, reset when record #1 changes */
+  private transient int[] countersValue; // NOSONAR
 
   /**
    * Constructor
@@ -45,19 +60,117 @@ class FileDataAdapter implements FileData {
    */
   FileDataAdapter(FileData source) {
     SortedMap<Integer, byte[]> sourceContent = source.getAllRecordsContent();
-    for (Map.Entry<Integer, byte[]> entry : sourceContent.entrySet()) {
-      records.put(entry.getKey(), Arrays.copyOf(entry.getValue(), entry.getValue().length));
+    if (!sourceContent.isEmpty()) {
+      records = new byte[sourceContent.lastKey() + 1][];
+      for (Map.Entry<Integer, byte[]> entry : sourceContent.entrySet()) {
+        records[entry.getKey()] = Arrays.copyOf(entry.getValue(), entry.getValue().length);
+        nbRecords++;
+      }
     }
   }
 
+  /**
+   * Returns the content of the specified record.
+   *
+   * @param numRecord the record number.
+   * @return null if the record is not set.
+   */
+  private byte[] getRecord(int numRecord) {
+    return numRecord >= 0 && numRecord < getKeyLimit() ? records[getIndex(numRecord)] : null;
+  }
+
+  /**
+   * Returns the exclusive upper bound of the record numbers that may be stored in the records
+   * array.
+   *
+   * @return A positive or zero value.
+   */
+  private int getKeyLimit() {
+    return isRing ? records.length : records.length - offset;
+  }
+
+  /**
+   * Returns the index of the specified record in the records array.
+   *
+   * @param numRecord the record number ({@code >=} 0 and {@code <} {@link #getKeyLimit()}).
+   * @return The index.
+   */
+  private int getIndex(int numRecord) {
+    int index = offset + numRecord;
+    return isRing && index >= records.length ? index - records.length : index;
+  }
+
+  /**
+   * Sets the content of the specified record, growing the records array if needed.
+   *
+   * @param numRecord the record number (should be {@code >=} 0).
+   * @param content the content, null to remove the record.
+   * @return The previous content, null if the record was not set.
+   */
+  private byte[] putRecord(int numRecord, byte[] content) {
+    if (numRecord == 1) {
+      countersValue = null;
+    }
+    if (numRecord >= getKeyLimit()) {
+      if (content == null) {
+        return null;
+      }
+      if (isRing) {
+        unroll();
+      }
+      records =
+          Arrays.copyOf(
+              records, Math.max(offset + numRecord + 1, records.length + (records.length >> 1)));
+    }
+    int index = getIndex(numRecord);
+    byte[] previousContent = records[index];
+    records[index] = content;
+    if (previousContent == null && content != null) {
+      nbRecords++;
+    } else if (previousContent != null && content == null) {
+      nbRecords--;
+    }
+    return previousContent;
+  }
+
   /**
    * {@inheritDoc}
    *
+   * <p>As before version 3.3.0, the same map is returned at each call and reflects the subsequent
+   * changes of the records. Since version 3.3.0, this map is a view of the records: its changes
+   * are written to the records, null values not being supported. Its size is not computed but
+   * kept up to date with the records. A snapshot can be obtained by copying the map, e.g. with
+   * {@code new TreeMap<>(getAllRecordsContent())}.
+   *
    * @since 2.0.0
    */
   @Override
   public SortedMap<Integer, byte[]> getAllRecordsContent() {
-    return records;
+    if (recordsView == null) {
+      recordsView =
+          new DenseSortedMapView<byte[]>() {
+            @Override
+            byte[] getValue(int key) {
+              return records[getIndex(key)];
+            }
+
+            @Override
+            int getKeyLimit() {
+              return FileDataAdapter.this.getKeyLimit();
+            }
+
+            @Override
+            byte[] setValue(int key, byte[] value) {
+              return putRecord(key, value);
+            }
+
+            @Override
+            int getValueCount() {
+              return nbRecords;
+            }
+          };
+    }
+    return recordsView;
   }
 
   /**
@@ -77,7 +190,7 @@ public byte[] getContent() {
    */
   @Override
   public byte[] getContent(int numRecord) {
-    byte[] content = records.get(numRecord);
+    byte[] content = getRecord(numRecord);
     if (content == null) {
       logger.warn("Record not set (#{})", numRecord);
       content = new byte[0];
@@ -92,15 +205,51 @@ public byte[] getContent(int numRecord) {
    */
   @Override
   public byte[] getContent(int numRecord, int dataOffset, int dataLength) {
+    byte[] content = getCheckedRecord(numRecord, dataOffset, dataLength);
+    if (content == null) {
+      return new byte[0];
+    }
+    return Arrays.copyOfRange(content, dataOffset, dataOffset + dataLength);
+  }
+
+  /**
+   * Returns a read-only view of a subset of the specified record, without copying the data.
+   *
+   * <p>The view is backed by the record content as long as the record is not replaced.
+   *
+   * @param numRecord The record number.
+   * @param dataOffset The offset index (should be {@code >=} 0).
+   * @param dataLength The data length (should be {@code >=} 1).
+   * @return An empty buffer if the record is not set.
+   * @throws IllegalArgumentException If dataOffset {@code <} 0 or dataLength {@code <} 1.
+   * @throws IndexOutOfBoundsException If dataOffset {@code >=} content length or (dataOffset +
+   *     dataLength) {@code >} content length.
+   * @since 3.3.0
+   */
+  ByteBuffer getContentView(int numRecord, int dataOffset, int dataLength) {
+    byte[] content = getCheckedRecord(numRecord, dataOffset, dataLength);
+    if (content == null) {
+      return ByteBuffer.allocate(0).asReadOnlyBuffer();
+    }
+    return ByteBuffer.wrap(content, dataOffset, dataLength).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the content of the specified record after having checked that it contains the
+   * requested range.
+   *
+   * @return null if the record is not set.
+   */
+  private byte[] getCheckedRecord(int numRecord, int dataOffset, int dataLength) {
 
     Assert.getInstance()
         .greaterOrEqual(dataOffset, 0, "dataOffset")
         .greaterOrEqual(dataLength, 1, "dataLength");
 
-    byte[] content = records.get(numRecord);
+    byte[] content = getRecord(numRecord);
     if (content == null) {
       logger.warn("Record not set (#{})", numRecord);
-      return new byte[0];
+      return null;
     }
     if (dataOffset >= content.length) {
       throw new IndexOutOfBoundsException(
@@ -119,7 +268,7 @@ public byte[] getContent(int numRecord, int dataOffset, int dataLength) {
               + content.length
               + "]");
     }
-    return Arrays.copyOfRange(content, dataOffset, toIndex);
+    return content;
   }
 
   /**
@@ -132,7 +281,7 @@ public Integer getContentAsCounterValue(int numCounter) {
 
     Assert.getInstance().greaterOrEqual(numCounter, 1, "numCounter");
 
-    byte[] rec1 = records.get(1);
+    byte[] rec1 = getRecord(1);
     if (rec1 == null) {
       logger.warn("Record not set (#1)");
       return null;
@@ -156,23 +305,60 @@ public Integer getContentAsCounterValue(int numCounter) {
   /**
    * {@inheritDoc}
    *
+   * <p>A new map is returned at each call, it does not reflect the subsequent changes of the
+   * counters.
+   *
    * @since 2.0.0
    */
   @Override
   public SortedMap<Integer, Integer> getAllCountersValue() {
     SortedMap<Integer, Integer> result = new TreeMap<>();
-    byte[] rec1 = records.get(1);
-    if (rec1 == null) {
-      logger.warn("Record not set (#1)");
-      return result;
-    }
-    int length = rec1.length - (rec1.length % 3);
-    for (int i = 0, c = 1; i < length; i += 3, c++) {
-      result.put(c, ByteArrayUtil.extractInt(rec1, i, 3, false));
+    int[] values = getCountersValue();
+    for (int i = 0; i < values.length; i++) {
+      result.put(i + 1, values[i]);
     }
     return result;
   }
 
+  /**
+   * Returns the values of all the counters of record #1, decoded once and cached until record #1
+   * changes.
+   *
+   * <p>Only the non-truncated counters are returned, the value of counter #n being at index n-1.
+   * The returned array is shared and must not be modified.
+   *
+   * @return An empty array if record #1 is not set.
+   * @since 3.3.0
+   */
+  int[] getCountersValue() {
+    if (countersValue == null) {
+      byte[] rec1 = getRecord(1);
+      if (rec1 == null) {
+        logger.warn("Record not set (#1)");
+        return new int[0];
+      }
+      int[] values = new int[rec1.length / 3];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = ByteArrayUtil.extractInt(rec1, i * 3, 3, false);
+      }
+      countersValue = values;
+    }
+    return countersValue;
+  }
+
+  /**
+   * Returns a read-only view of the values of all the counters of record #1, backed by the values
+   * decoded once and cached until record #1 changes.
+   *
+   * <p>Only the non-truncated counters are returned, the value of counter #n being at index n-1.
+   *
+   * @return An empty buffer if record #1 is not set.
+   * @since 3.3.0
+   */
+  IntBuffer getCountersValueView() {
+    return IntBuffer.wrap(getCountersValue()).asReadOnlyBuffer();
+  }
+
   /**
    * Sets or replaces the entire content of the specified record #numRecord by the provided content.
    *
@@ -181,7 +367,17 @@ public SortedMap<Integer, Integer> getAllCountersValue() {
    * @since 2.0.0
    */
   void setContent(int numRecord, byte[] content) {
-    records.put(numRecord, content);
+    putRecord(numRecord, content);
+  }
+
+  /**
+   * Removes the specified record, if any.
+   *
+   * @param numRecord the record number (should be {@code >=} 1).
+   * @since 3.3.0
+   */
+  void removeContent(int numRecord) {
+    putRecord(numRecord, null);
   }
 
   /**
@@ -209,7 +405,7 @@ void setCounter(int numCounter, byte[] content) {
   void setContent(int numRecord, byte[] content, int offset) {
     byte[] newContent;
     int newLength = offset + content.length;
-    byte[] oldContent = records.get(numRecord);
+    byte[] oldContent = getRecord(numRecord);
     if (oldContent == null) {
       newContent = new byte[newLength];
     } else if (oldContent.length <= offset) {
@@ -222,7 +418,7 @@ void setContent(int numRecord, byte[] content, int offset) {
       newContent = oldContent;
     }
     System.arraycopy(content, 0, newContent, offset, content.length);
-    records.put(numRecord, newContent);
+    putRecord(numRecord, newContent);
   }
 
   /**
@@ -242,18 +438,21 @@ void fillContent(int numRecord, byte[] content, int offset) {
       contentLeftPadded = new byte[offset + content.length];
       System.arraycopy(content, 0, contentLeftPadded, offset, content.length);
     }
-    byte[] actualContent = records.get(numRecord);
+    byte[] actualContent = getRecord(numRecord);
     if (actualContent == null) {
-      records.put(numRecord, contentLeftPadded);
+      putRecord(numRecord, contentLeftPadded);
     } else if (actualContent.length < contentLeftPadded.length) {
       for (int i = 0; i < actualContent.length; i++) {
         contentLeftPadded[i] |= actualContent[i];
       }
-      records.put(numRecord, contentLeftPadded);
+      putRecord(numRecord, contentLeftPadded);
     } else {
       for (int i = 0; i < contentLeftPadded.length; i++) {
         actualContent[i] |= contentLeftPadded[i];
       }
+      if (numRecord == 1) {
+        countersValue = null;
+      }
     }
   }
 
@@ -267,11 +466,84 @@ void fillContent(int numRecord, byte[] content, int offset) {
    * @since 2.0.0
    */
   void addCyclicContent(byte[] content) {
-    ArrayList<Integer> descendingKeys = new ArrayList<>(records.descendingKeySet());
-    for (Integer i : descendingKeys) {
-      records.put(i + 1, records.get(i));
+    addCyclicContent(content, 0);
+  }
+
+  /**
+   * Adds cyclic content at record #1 by rolling previously all actual records contents (record #1
+   * -> record #2, record #2 -> record #3,...).<br>
+   * This is useful for cyclic files.<br>
+   * When the number of records of the file is known, the last record is lost, as done by the card,
+   * otherwise the records are infinitely shifted.
+   *
+   * <p>The records are not moved. When the number of records of the file is known, the records
+   * are stored in a ring whose head is moved back at each addition, so that an addition takes a
+   * constant time and does not allocate memory once the ring is created. Otherwise, the numbering
+   * is shifted by decrementing the index of record #0 in the records array and, when no room is
+   * left in front of the records, they are copied once into a larger array reserving in front of
+   * them a room of half the current length, so that the cost of an addition is amortized O(1).
+   *
+   * @param content the content (should be not empty).
+   * @param recordsNumber the number of records of the file, 0 if unknown (a value outside the
+   *     range of the record numbers is considered unknown).
+   * @since 3.3.0
+   */
+  void addCyclicContent(byte[] content, int recordsNumber) {
+    if (recordsNumber >= CalypsoCardConstant.NB_REC_MIN
+        && recordsNumber <= CalypsoCardConstant.NB_REC_MAX) {
+      if (!isRing || records.length != recordsNumber + 1) {
+        toRing(recordsNumber + 1);
+      }
+      // the last record becomes the record #0 and is lost
+      offset = offset == 0 ? records.length - 1 : offset - 1;
+      putRecord(0, null);
+    } else {
+      if (isRing) {
+        unroll();
+      }
+      if (offset == 0) {
+        int headroom = Math.max(MIN_CYCLIC_HEADROOM, records.length >> 1);
+        byte[][] newRecords = new byte[headroom + records.length][];
+        System.arraycopy(records, 0, newRecords, headroom, records.length);
+        records = newRecords;
+        offset = headroom;
+      }
+      offset--;
+    }
+    putRecord(1, content);
+  }
+
+  /**
+   * Moves the records into a ring of the provided length, the records whose number is greater than
+   * or equal to this length being lost.
+   *
+   * @param length the length of the ring (should be {@code >=} 2).
+   */
+  private void toRing(int length) {
+    byte[][] newRecords = new byte[length][];
+    int nbNewRecords = 0;
+    int limit = Math.min(length, getKeyLimit());
+    for (int numRecord = 0; numRecord < limit; numRecord++) {
+      newRecords[numRecord] = records[getIndex(numRecord)];
+      if (newRecords[numRecord] != null) {
+        nbNewRecords++;
+      }
+    }
+    records = newRecords;
+    offset = 0;
+    isRing = true;
+    nbRecords = nbNewRecords;
+  }
+
+  /** Moves the records of the ring into a linear array, record #0 being at index 0. */
+  private void unroll() {
+    byte[][] newRecords = new byte[records.length][];
+    for (int numRecord = 0; numRecord < records.length; numRecord++) {
+      newRecords[numRecord] = records[getIndex(numRecord)];
     }
-    records.put(1, content);
+    records = newRecords;
+    offset = 0;
+    isRing = false;
   }
 
   /**
@@ -271,9 +271,15 @@ static FileHeaderBuilder builder() {
     recordsNumber = source.getRecordsNumber();
     recordSize = source.getRecordSize();
     type = source.getEfType();
+    // Headers built from the EF list have no access conditions nor key indexes.
     accessConditions =
-        Arrays.copyOf(source.getAccessConditions(), source.getAccessConditions().length);
-    keyIndexes = Arrays.copyOf(source.getKeyIndexes(), source.getKeyIndexes().length);
+        source.getAccessConditions() != null
+            ? Arrays.copyOf(source.getAccessConditions(), source.getAccessConditions().length)
+            : null;
+    keyIndexes =
+        source.getKeyIndexes() != null
+            ? Arrays.copyOf(source.getKeyIndexes(), source.getKeyIndexes().length)
+            : null;
     dfStatus = source.getDfStatus();
     sharedReference = source.getSharedReference();
   }
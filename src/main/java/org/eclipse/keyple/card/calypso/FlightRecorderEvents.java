@@ -0,0 +1,282 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitter of the Java Flight Recorder events of the library.
+ *
+ * <p>The events are emitted only when JFR is available in the runtime (Java 11+, or Java 8 from
+ * update 262) and the corresponding event type is enabled in a recording. Otherwise, the begin
+ * methods return null without allocating any event and the end methods have no effect. The classes
+ * referencing the JFR API are only loaded in the first case, so that the library still runs
+ * without JFR.
+ *
+ * <p>The events are returned as opaque objects to be passed to the matching end method, on the
+ * same thread.
+ *
+ * @since 3.3.0
+ */
+final class FlightRecorderEvents {
+
+  private static final boolean IS_JFR_AVAILABLE = isJfrAvailable();
+
+  /** Constructor. */
+  private FlightRecorderEvents() {}
+
+  /**
+   * Indicates if the JFR API is available in the runtime.
+   *
+   * @return True if available.
+   */
+  private static boolean isJfrAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Begins the event of a call to {@code processCommands}.
+   *
+   * @param transactionManagerClass The class of the transaction manager.
+   * @param commandCount The number of prepared commands.
+   * @return null if the event is not recorded.
+   * @since 3.3.0
+   */
+  static Object beginProcessCommands(Class<?> transactionManagerClass, int commandCount) {
+    return IS_JFR_AVAILABLE
+        ? JfrEvents.beginProcessCommands(transactionManagerClass, commandCount)
+        : null;
+  }
+
+  /**
+   * Ends the event of a call to {@code processCommands}.
+   *
+   * @param event The event returned by {@link #beginProcessCommands(Class, int)}, may be null.
+   * @param cardRequestCount The number of card requests exchanged with the card reader.
+   * @since 3.3.0
+   */
+  static void endProcessCommands(Object event, int cardRequestCount) {
+    if (event != null) {
+      JfrEvents.endProcessCommands(event, cardRequestCount);
+    }
+  }
+
+  /**
+   * Begins the event of the exchange of a card request with the card reader.
+   *
+   * @param apduCount The number of APDUs of the card request.
+   * @return null if the event is not recorded.
+   * @since 3.3.0
+   */
+  static Object beginCardRequest(int apduCount) {
+    return IS_JFR_AVAILABLE ? JfrEvents.beginCardRequest(apduCount) : null;
+  }
+
+  /**
+   * Ends the event of the exchange of a card request with the card reader.
+   *
+   * @param event The event returned by {@link #beginCardRequest(int)}, may be null.
+   * @param responseCount The number of APDU responses received.
+   * @since 3.3.0
+   */
+  static void endCardRequest(Object event, int responseCount) {
+    if (event != null) {
+      JfrEvents.endCardRequest(event, responseCount);
+    }
+  }
+
+  /**
+   * Begins the event of a synchronous call to the crypto service.
+   *
+   * @param operation The name of the called method of the crypto service.
+   * @return null if the event is not recorded.
+   * @since 3.3.0
+   */
+  static Object beginCryptoServiceCall(String operation) {
+    return IS_JFR_AVAILABLE ? JfrEvents.beginCryptoServiceCall(operation) : null;
+  }
+
+  /**
+   * Ends the event of a synchronous call to the crypto service.
+   *
+   * @param event The event returned by {@link #beginCryptoServiceCall(String)}, may be null.
+   * @since 3.3.0
+   */
+  static void endCryptoServiceCall(Object event) {
+    if (event != null) {
+      JfrEvents.commit(event);
+    }
+  }
+
+  /**
+   * Begins the event of the parsing of a card selection response.
+   *
+   * @param commandCount The number of commands prepared for the selection.
+   * @return null if the event is not recorded.
+   * @since 3.3.0
+   */
+  static Object beginCardSelectionParsing(int commandCount) {
+    return IS_JFR_AVAILABLE ? JfrEvents.beginCardSelectionParsing(commandCount) : null;
+  }
+
+  /**
+   * Ends the event of the parsing of a card selection response.
+   *
+   * @param event The event returned by {@link #beginCardSelectionParsing(int)}, may be null.
+   * @since 3.3.0
+   */
+  static void endCardSelectionParsing(Object event) {
+    if (event != null) {
+      JfrEvents.commit(event);
+    }
+  }
+
+  /** Holder of the JFR event types, only loaded when JFR is available. */
+  private static final class JfrEvents {
+
+    private static final String CATEGORY_KEYPLE = "Keyple";
+    private static final String CATEGORY_CALYPSO_CARD = "Calypso Card";
+
+    /* Event types, whose enabling is checked before allocating an event */
+    private static final EventType PROCESS_COMMANDS =
+        EventType.getEventType(ProcessCommandsEvent.class);
+    private static final EventType CARD_REQUEST = EventType.getEventType(CardRequestEvent.class);
+    private static final EventType CRYPTO_SERVICE_CALL =
+        EventType.getEventType(CryptoServiceCallEvent.class);
+    private static final EventType CARD_SELECTION_PARSING =
+        EventType.getEventType(CardSelectionParsingEvent.class);
+
+    /** Constructor. */
+    private JfrEvents() {}
+
+    private static Object beginProcessCommands(Class<?> transactionManagerClass, int commandCount) {
+      if (!PROCESS_COMMANDS.isEnabled()) {
+        return null;
+      }
+      ProcessCommandsEvent event = new ProcessCommandsEvent();
+      event.begin();
+      event.transactionManager = transactionManagerClass.getSimpleName();
+      event.commandCount = commandCount;
+      return event;
+    }
+
+    private static void endProcessCommands(Object event, int cardRequestCount) {
+      ProcessCommandsEvent processCommandsEvent = (ProcessCommandsEvent) event;
+      processCommandsEvent.cardRequestCount = cardRequestCount;
+      processCommandsEvent.commit();
+    }
+
+    private static Object beginCardRequest(int apduCount) {
+      if (!CARD_REQUEST.isEnabled()) {
+        return null;
+      }
+      CardRequestEvent event = new CardRequestEvent();
+      event.begin();
+      event.apduCount = apduCount;
+      return event;
+    }
+
+    private static void endCardRequest(Object event, int responseCount) {
+      CardRequestEvent cardRequestEvent = (CardRequestEvent) event;
+      cardRequestEvent.responseCount = responseCount;
+      cardRequestEvent.commit();
+    }
+
+    private static Object beginCryptoServiceCall(String operation) {
+      if (!CRYPTO_SERVICE_CALL.isEnabled()) {
+        return null;
+      }
+      CryptoServiceCallEvent event = new CryptoServiceCallEvent();
+      event.begin();
+      event.operation = operation;
+      return event;
+    }
+
+    private static Object beginCardSelectionParsing(int commandCount) {
+      if (!CARD_SELECTION_PARSING.isEnabled()) {
+        return null;
+      }
+      CardSelectionParsingEvent event = new CardSelectionParsingEvent();
+      event.begin();
+      event.commandCount = commandCount;
+      return event;
+    }
+
+    private static void commit(Object event) {
+      ((Event) event).commit();
+    }
+  }
+
+  @Name("org.eclipse.keyple.card.calypso.ProcessCommands")
+  @Label("Process Commands")
+  @Category({JfrEvents.CATEGORY_KEYPLE, JfrEvents.CATEGORY_CALYPSO_CARD})
+  @Description("Processing of the prepared card commands by a transaction manager")
+  @StackTrace(false)
+  static final class ProcessCommandsEvent extends Event {
+
+    @Label("Transaction Manager")
+    String transactionManager;
+
+    @Label("Commands")
+    int commandCount;
+
+    @Label("Card Requests")
+    int cardRequestCount;
+  }
+
+  @Name("org.eclipse.keyple.card.calypso.CardRequest")
+  @Label("Card Request")
+  @Category({JfrEvents.CATEGORY_KEYPLE, JfrEvents.CATEGORY_CALYPSO_CARD})
+  @Description("Exchange of a card request with the card reader")
+  @StackTrace(false)
+  static final class CardRequestEvent extends Event {
+
+    @Label("APDUs")
+    int apduCount;
+
+    @Label("Responses")
+    int responseCount;
+  }
+
+  @Name("org.eclipse.keyple.card.calypso.CryptoServiceCall")
+  @Label("Crypto Service Call")
+  @Category({JfrEvents.CATEGORY_KEYPLE, JfrEvents.CATEGORY_CALYPSO_CARD})
+  @Description("Synchronous call to the symmetric crypto service")
+  @StackTrace(false)
+  static final class CryptoServiceCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+  }
+
+  @Name("org.eclipse.keyple.card.calypso.CardSelectionParsing")
+  @Label("Card Selection Parsing")
+  @Category({JfrEvents.CATEGORY_KEYPLE, JfrEvents.CATEGORY_CALYPSO_CARD})
+  @Description("Parsing of a card selection response into a Calypso card image")
+  @StackTrace(false)
+  static final class CardSelectionParsingEvent extends Event {
+
+    @Label("Commands")
+    int commandCount;
+  }
+}
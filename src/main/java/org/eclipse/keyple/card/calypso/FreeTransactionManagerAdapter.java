@@ -141,21 +141,27 @@ public FreeTransactionManager processCommands(
    */
   @Override
   public FreeTransactionManager processCommands(ChannelControl channelControl) {
+    checkNoAsyncProcessingPending();
     if (commands.isEmpty()) {
       return this;
     }
+    startCommandsProcessing();
     try {
+      optimizeCommandsIfEnabled();
       List<Command> cardRequestCommands = new ArrayList<>();
       for (Command command : commands) {
-        command.finalizeRequest();
+        finalizeCommandRequest(command);
         cardRequestCommands.add(command);
       }
       executeCardCommands(cardRequestCommands, channelControl);
     } catch (RuntimeException e) {
-      resetTransaction();
+      if (!isRecoveryPossible(e)) {
+        resetTransaction();
+      }
       throw e;
     } finally {
-      commands.clear();
+      removeProcessedCommands();
+      endCommandsProcessing();
     }
     return currentInstance;
   }
@@ -167,6 +173,7 @@ public FreeTransactionManager processCommands(ChannelControl channelControl) {
    */
   @Override
   public FreeTransactionManager prepareVerifyPin(byte[] pin) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .notNull(pin, "pin")
@@ -189,6 +196,7 @@ public FreeTransactionManager prepareVerifyPin(byte[] pin) {
    */
   @Override
   public FreeTransactionManager prepareChangePin(byte[] newPin) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .notNull(newPin, "newPin")
@@ -20,7 +20,10 @@
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.SortedMap;
 import org.eclipse.keypop.calypso.card.card.*;
 
 /**
@@ -133,6 +136,54 @@ public FileHeaderAdapter deserialize(
     }
   }
 
+  /**
+   * JSON serializer/deserializer of a {@link FileDataAdapter}.
+   *
+   * <p>Keeps the format of the records map used before the introduction of the array based storage.
+   *
+   * @since 3.3.0
+   */
+  static final class FileDataJsonAdapter
+      implements JsonSerializer<FileDataAdapter>, JsonDeserializer<FileDataAdapter> {
+
+    private static final String RECORDS = "records";
+    private static final Type RECORDS_TYPE =
+        new TypeToken<SortedMap<Integer, byte[]>>() {}.getType();
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 3.3.0
+     */
+    @Override
+    public JsonElement serialize(
+        FileDataAdapter src, Type typeOfSrc, JsonSerializationContext context) {
+      JsonObject jsonObject = new JsonObject();
+      jsonObject.add(RECORDS, context.serialize(src.getAllRecordsContent(), RECORDS_TYPE));
+      return jsonObject;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 3.3.0
+     */
+    @Override
+    public FileDataAdapter deserialize(
+        JsonElement json, Type typeOfT, JsonDeserializationContext context)
+        throws JsonParseException {
+      FileDataAdapter fileData = new FileDataAdapter();
+      JsonElement records = json.getAsJsonObject().get(RECORDS);
+      if (records != null) {
+        SortedMap<Integer, byte[]> content = context.deserialize(records, RECORDS_TYPE);
+        for (Map.Entry<Integer, byte[]> entry : content.entrySet()) {
+          fileData.setContent(entry.getKey(), entry.getValue());
+        }
+      }
+      return fileData;
+    }
+  }
+
   /**
    * JSON serializer/deserializer of a {@link SvLoadLogRecord}.
    *
@@ -0,0 +1,347 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.keyple.card.calypso.spi.AuditSinkSpi;
+import org.eclipse.keyple.core.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AuditSinkSpi} appending the exchanged APDUs to a memory-mapped file, from a background
+ * writer thread.
+ *
+ * <p>The APDUs are queued without being copied by the thread processing the card commands, and
+ * written by a dedicated daemon thread. The calling thread only waits when the queue is full, i.e.
+ * when the writer thread cannot keep up with the exchanges, and for at most 100 milliseconds: the
+ * exchange is then dropped. The exchanges are also dropped once the writer thread has failed. The
+ * number of dropped exchanges is provided by {@link #getDroppedFrameCount()}. The mapped content is
+ * forced to the storage device each time a new region of the file is mapped and when the sink is
+ * closed.
+ *
+ * <p>The file contains a sequence of frames, each exchange being written as a frame with the
+ * following big-endian layout:
+ *
+ * <ul>
+ *   <li>the length of the rest of the frame (4 bytes),
+ *   <li>the time of the exchange in milliseconds since the epoch (8 bytes),
+ *   <li>the length of the card serial number (1 byte, 0 if unknown) followed by the serial number,
+ *   <li>the length of the command APDU (4 bytes) followed by the command APDU,
+ *   <li>the length of the response APDU (4 bytes) followed by the response APDU.
+ * </ul>
+ *
+ * <p>A frame length of 0 marks the end of the frames: the file is extended by regions of a fixed
+ * size filled with zeros, and is truncated to the last frame when the sink is closed. When opening
+ * an existing file, the new frames are appended after its last complete frame.
+ *
+ * <p>The sink must be closed to write the pending frames and release the file.
+ *
+ * @since 3.3.0
+ */
+public final class MappedFileAuditSink implements AuditSinkSpi, Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedFileAuditSink.class);
+
+  private static final int DEFAULT_REGION_SIZE = 1 << 20;
+  private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+  private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+  private static final int FRAME_LENGTH_SIZE = 4;
+  private static final int FRAME_FIXED_SIZE = 8 + 1 + 4 + 4;
+  private static final Frame END_OF_FRAMES = new Frame(0, null, null, null);
+
+  private final FileChannel channel;
+  private final int regionSize;
+  private final BlockingQueue<Frame> queue;
+  private final Thread writerThread;
+  private final AtomicLong droppedFrameCount = new AtomicLong();
+  private volatile boolean isClosed;
+  private volatile boolean isFailed;
+
+  /* Writer thread state */
+  private MappedByteBuffer region;
+  private long regionPosition;
+  private long position;
+
+  /**
+   * Opens or creates the provided file with the default region size (1 MiB) and queue capacity
+   * (4096 exchanges).
+   *
+   * @param file The file path.
+   * @throws IOException If the file cannot be opened.
+   * @since 3.3.0
+   */
+  public MappedFileAuditSink(Path file) throws IOException {
+    this(file, DEFAULT_REGION_SIZE, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Opens or creates the provided file.
+   *
+   * @param file The file path.
+   * @param regionSize The size of the regions mapped in memory (should be {@code >=} 1024).
+   * @param queueCapacity The maximum number of exchanges waiting to be written (should be {@code
+   *     >=} 1).
+   * @throws IllegalArgumentException If an argument is null or out of range.
+   * @throws IOException If the file cannot be opened.
+   * @since 3.3.0
+   */
+  public MappedFileAuditSink(Path file, int regionSize, int queueCapacity) throws IOException {
+    Assert.getInstance()
+        .notNull(file, "file")
+        .greaterOrEqual(regionSize, 1024, "regionSize")
+        .greaterOrEqual(queueCapacity, 1, "queueCapacity");
+    this.regionSize = regionSize;
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      position = findEndOfFrames();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    writerThread = new Thread(this::writeFrames, "keyple-calypso-audit-sink");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * Returns the position following the last complete frame of the file.
+   *
+   * @return A positive or zero value.
+   * @throws IOException If the file cannot be read.
+   */
+  private long findEndOfFrames() throws IOException {
+    long size = channel.size();
+    long endPosition = 0;
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(FRAME_LENGTH_SIZE);
+    while (endPosition + FRAME_LENGTH_SIZE <= size) {
+      lengthBuffer.clear();
+      channel.read(lengthBuffer, endPosition);
+      int length = lengthBuffer.getInt(0);
+      if (length <= 0 || endPosition + FRAME_LENGTH_SIZE + length > size) {
+        break;
+      }
+      endPosition += FRAME_LENGTH_SIZE + length;
+    }
+    return endPosition;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Waits at most 100 milliseconds if the queue of the exchanges waiting to be written is full,
+   * the exchange being dropped when the delay expires. The exchange is also dropped if the writer
+   * thread has failed.
+   *
+   * @throws IllegalStateException If the sink is closed.
+   * @since 3.3.0
+   */
+  @Override
+  public void onApduExchanged(byte[] cardSerialNumber, byte[] apduRequest, byte[] apduResponse) {
+    if (isClosed) {
+      throw new IllegalStateException("The audit sink is closed");
+    }
+    if (isFailed) {
+      droppedFrameCount.incrementAndGet();
+      return;
+    }
+    try {
+      if (!queue.offer(
+          new Frame(System.currentTimeMillis(), cardSerialNumber, apduRequest, apduResponse),
+          OFFER_TIMEOUT_MILLIS,
+          TimeUnit.MILLISECONDS)) {
+        droppedFrameCount.incrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while queuing an audit frame, the frame is lost");
+      droppedFrameCount.incrementAndGet();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the number of exchanges dropped because the queue was full, the writer thread had
+   * failed or the file could not be mapped.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public long getDroppedFrameCount() {
+    return droppedFrameCount.get();
+  }
+
+  /**
+   * Writes the queued frames until the end marker is taken.
+   *
+   * <p>If the writing fails, the sink is marked as failed and the queued frames are dropped.
+   */
+  private void writeFrames() {
+    try {
+      Frame frame = queue.take();
+      while (frame != END_OF_FRAMES) {
+        writeFrame(frame);
+        frame = queue.take();
+      }
+      return;
+    } catch (InterruptedException e) {
+      logger.warn("Audit sink writer thread interrupted, the pending frames are lost");
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) { // NOSONAR the callers must never wait for a failed writer thread
+      logger.error(
+          "Audit sink writer thread failed, the next frames are lost: {}", t.getMessage(), t);
+      droppedFrameCount.incrementAndGet();
+    }
+    isFailed = true;
+    dropQueuedFrames();
+  }
+
+  /**
+   * Removes the frames from the queue, counting them as dropped.
+   *
+   * @return The number of dropped frames.
+   */
+  private int dropQueuedFrames() {
+    int nbFrames = 0;
+    Frame frame;
+    while ((frame = queue.poll()) != null) {
+      if (frame != END_OF_FRAMES) {
+        nbFrames++;
+      }
+    }
+    droppedFrameCount.addAndGet(nbFrames);
+    return nbFrames;
+  }
+
+  /**
+   * Writes a frame at the end of the file, mapping a new region if needed.
+   *
+   * @param frame The frame.
+   */
+  private void writeFrame(Frame frame) {
+    int serialNumberLength = frame.cardSerialNumber != null ? frame.cardSerialNumber.length : 0;
+    int length =
+        FRAME_FIXED_SIZE
+            + serialNumberLength
+            + frame.apduRequest.length
+            + frame.apduResponse.length;
+    try {
+      if (region == null || region.remaining() < FRAME_LENGTH_SIZE + length) {
+        if (region != null) {
+          region.force();
+        }
+        regionPosition = position;
+        region =
+            channel.map(
+                FileChannel.MapMode.READ_WRITE,
+                regionPosition,
+                Math.max(regionSize, FRAME_LENGTH_SIZE + length));
+      }
+    } catch (IOException e) {
+      logger.error("Unable to map the audit file, the frame is lost: {}", e.getMessage(), e);
+      region = null;
+      droppedFrameCount.incrementAndGet();
+      return;
+    }
+    region.putInt(length).putLong(frame.timestamp).put((byte) serialNumberLength);
+    if (serialNumberLength != 0) {
+      region.put(frame.cardSerialNumber);
+    }
+    region.putInt(frame.apduRequest.length).put(frame.apduRequest);
+    region.putInt(frame.apduResponse.length).put(frame.apduResponse);
+    position = regionPosition + region.position();
+  }
+
+  /**
+   * Writes the pending frames, truncates the file after the last frame and closes it.
+   *
+   * <p>Waits at most 5 seconds for the writing of the pending frames: the writer thread is then
+   * interrupted and the frames not written yet are lost.
+   *
+   * <p>Has no effect if the sink is already closed.
+   *
+   * @throws IOException If the file cannot be truncated or closed, or if the writer thread does
+   *     not terminate.
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+    try {
+      if (!queue.offer(END_OF_FRAMES, CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        writerThread.interrupt();
+      }
+      writerThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+      if (writerThread.isAlive()) {
+        writerThread.interrupt();
+        writerThread.join(CLOSE_TIMEOUT_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing the pending audit frames", e);
+    }
+    if (writerThread.isAlive()) {
+      channel.close();
+      throw new IOException("The audit sink writer thread did not terminate");
+    }
+    // Frames queued concurrently with the closing or after a failure of the writer thread
+    int nbLostFrames = dropQueuedFrames();
+    if (nbLostFrames != 0) {
+      logger.warn("{} audit frame(s) received while closing the sink are lost", nbLostFrames);
+    }
+    if (droppedFrameCount.get() != 0) {
+      logger.warn("{} audit frame(s) dropped", droppedFrameCount.get());
+    }
+    try {
+      if (region != null) {
+        region.force();
+      }
+      channel.truncate(position);
+    } finally {
+      channel.close();
+    }
+  }
+
+  /** An exchange waiting to be written. */
+  private static final class Frame {
+
+    private final long timestamp;
+    private final byte[] cardSerialNumber;
+    private final byte[] apduRequest;
+    private final byte[] apduResponse;
+
+    private Frame(
+        long timestamp, byte[] cardSerialNumber, byte[] apduRequest, byte[] apduResponse) {
+      this.timestamp = timestamp;
+      this.cardSerialNumber = cardSerialNumber;
+      this.apduRequest = apduRequest;
+      this.apduResponse = apduResponse;
+    }
+  }
+}
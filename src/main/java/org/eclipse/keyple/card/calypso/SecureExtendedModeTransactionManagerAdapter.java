@@ -50,6 +50,7 @@
    */
   @Override
   public SecureExtendedModeTransactionManager prepareEarlyMutualAuthentication() {
+    checkNoAsyncProcessingPending();
     try {
       if (!isExtendedMode) {
         throw new UnsupportedOperationException(MSG_MSS_COMMAND_NOT_SUPPORTED);
@@ -81,6 +82,7 @@ public SecureExtendedModeTransactionManager prepareEarlyMutualAuthentication() {
    */
   @Override
   public SecureExtendedModeTransactionManager prepareActivateEncryption() {
+    checkNoAsyncProcessingPending();
     try {
       if (!isExtendedMode) {
         throw new UnsupportedOperationException(MSG_MSS_COMMAND_NOT_SUPPORTED);
@@ -114,6 +116,7 @@ public SecureExtendedModeTransactionManager prepareActivateEncryption() {
    */
   @Override
   public SecureExtendedModeTransactionManager prepareDeactivateEncryption() {
+    checkNoAsyncProcessingPending();
     try {
       if (!isExtendedMode) {
         throw new UnsupportedOperationException(MSG_MSS_COMMAND_NOT_SUPPORTED);
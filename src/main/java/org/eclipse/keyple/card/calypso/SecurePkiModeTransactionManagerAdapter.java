@@ -154,6 +154,7 @@ void resetTransaction() {
         logger.warn("Failed to abort secure session: {}", e.getMessage());
       } finally {
         card.restoreFiles();
+        transactionContext.discardPendingSessionApdus();
         transactionContext.setSecureSessionOpen(false);
       }
     }
@@ -189,6 +190,7 @@ boolean canConfigureReadOnOpenSecureSession() {
    */
   @Override
   public SecurePkiModeTransactionManager prepareVerifyPin(byte[] pin) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .notNull(pin, "pin")
@@ -211,6 +213,7 @@ public SecurePkiModeTransactionManager prepareVerifyPin(byte[] pin) {
    */
   @Override
   public SecurePkiModeTransactionManager prepareChangePin(byte[] newPin) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .notNull(newPin, "newPin")
@@ -271,10 +274,13 @@ public SecurePkiModeTransactionManager processCommands(
    */
   @Override
   public SecurePkiModeTransactionManager processCommands(ChannelControl channelControl) {
+    checkNoAsyncProcessingPending();
     if (commands.isEmpty()) {
       return this;
     }
+    startCommandsProcessing();
     try {
+      optimizeCommandsIfEnabled();
       // In the case that the CA certificate is missing before the parsing of the response to
       // the "open secure session" command, we seamlessly trigger the execution of Get Data commands
       // to fetch it. Depending on the current status of the session, these commands might also be
@@ -287,10 +293,13 @@ public SecurePkiModeTransactionManager processCommands(ChannelControl channelCon
         executeCardCommands(commands, channelControl);
       }
     } catch (RuntimeException e) {
-      resetTransaction();
+      if (!isRecoveryPossible(e)) {
+        resetTransaction();
+      }
       throw e;
     } finally {
-      commands.clear();
+      removeProcessedCommands();
+      endCommandsProcessing();
     }
     return this;
   }
@@ -438,6 +447,7 @@ public <E extends CardTransactionCryptoExtension> E getCryptoExtension(
    */
   @Override
   public SecurePkiModeTransactionManager prepareOpenSecureSession() {
+    checkNoAsyncProcessingPending();
     checkNoSecureSession();
     if (card.getCardCertificate().length == 0 && !isGetDataCardCertificatePrepared) {
       prepareGetData(GetDataTag.CARD_CERTIFICATE);
@@ -457,6 +467,7 @@ public SecurePkiModeTransactionManager prepareOpenSecureSession() {
    */
   @Override
   public SecurePkiModeTransactionManager prepareCloseSecureSession() {
+    checkNoAsyncProcessingPending();
     try {
       checkSecureSession();
       commands.add(new CommandCloseSecureSession(transactionContext, getCommandContext(), false));
@@ -15,6 +15,10 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import org.eclipse.keyple.core.util.Assert;
 import org.eclipse.keypop.calypso.card.WriteAccessLevel;
 import org.eclipse.keypop.calypso.card.card.CalypsoCard;
@@ -56,6 +60,9 @@
   private final SymmetricCryptoSecuritySettingAdapter symmetricCryptoSecuritySetting;
   private final SymmetricCryptoCardTransactionManagerSpi symmetricCryptoCardTransactionManagerSpi;
   private final CardTransactionCryptoExtension cryptoExtension;
+  private FutureTask<Void> concurrentCryptoProcessing;
+  // modifications counters remaining in the sessions closed to open a new one
+  private final List<Integer> closedSessionsModificationsCounters = new ArrayList<>();
   private WriteAccessLevel writeAccessLevel;
   private final int payloadCapacity;
   private int modificationsCounter;
@@ -101,7 +108,7 @@
     // CL-SAM-CSN.1
     symmetricCryptoCardTransactionManagerSpi =
         cryptoFactory.createCardTransactionManager(
-            card.getCalypsoSerialNumberFull(), isExtendedMode, getTransactionAuditData());
+            card.getCalypsoSerialNumberFull(), isExtendedMode, transactionAuditData);
     cryptoExtension = (CardTransactionCryptoExtension) symmetricCryptoCardTransactionManagerSpi;
 
     transactionContext = new TransactionContextDto(card, symmetricCryptoCardTransactionManagerSpi);
@@ -158,6 +165,7 @@ final int getPayloadCapacity() {
   final void resetTransaction() {
     resetCommandContext();
     modificationsCounter = card.getModificationsCounter();
+    closedSessionsModificationsCounters.clear();
     nbPostponedData = 0;
     svPostponedDataIndex = -1;
     isSvGet = false;
@@ -177,6 +185,7 @@ final void resetTransaction() {
         logger.warn("Failed to abort secure session: {}", e.getMessage());
       } finally {
         card.restoreFiles();
+        transactionContext.discardPendingSessionApdus();
         transactionContext.setSecureSessionOpen(false);
       }
     }
@@ -192,9 +201,13 @@ final void prepareNewSecureSessionIfNeeded(Command command) {
     if (!isSecureSessionOpen) {
       return;
     }
-    modificationsCounter -= computeCommandSessionBufferSize(command);
+    int commandSessionBufferSize = computeCommandSessionBufferSize(command);
+    modificationsCounter -= commandSessionBufferSize;
     if (modificationsCounter < 0) {
       checkMultipleSessionEnabled(command);
+      if (options.isSessionBufferPackingEnabled()) {
+        closedSessionsModificationsCounters.add(modificationsCounter + commandSessionBufferSize);
+      }
       commands.add(
           new CommandCloseSecureSession(
               transactionContext, getCommandContext(), true, svPostponedDataIndex));
@@ -212,13 +225,115 @@ final void prepareNewSecureSessionIfNeeded(Command command) {
                 .setEncryptionRequested(true));
       }
       modificationsCounter = card.getModificationsCounter();
-      modificationsCounter -= computeCommandSessionBufferSize(command);
+      modificationsCounter -= commandSessionBufferSize;
       nbPostponedData = 0;
       svPostponedDataIndex = -1;
       isSvOperationInSecureSession = false;
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If the packing of the session buffer is enabled and the command would overflow the
+   * modifications buffer of the current session, the command is inserted in a previous session of
+   * the prepared commands when possible.
+   *
+   * @since 3.3.0
+   */
+  @Override
+  final void addFileModificationCommand(Command command) {
+    if (options.isSessionBufferPackingEnabled()
+        && isSecureSessionOpen
+        && !closedSessionsModificationsCounters.isEmpty()
+        && computeCommandSessionBufferSize(command) > modificationsCounter
+        && insertInPreviousSession(command)) {
+      return;
+    }
+    super.addFileModificationCommand(command);
+  }
+
+  /**
+   * Inserts the provided command at the end of the first previous session of the prepared commands
+   * having enough room in its modifications buffer, provided that none of the commands following
+   * the insertion point accesses the same file or has an unknown target.
+   *
+   * @param command The command modifying a file.
+   * @return True if the command has been inserted, false if no previous session is eligible.
+   */
+  private boolean insertInPreviousSession(Command command) {
+    int sfi = getTargetedSfi(command);
+    if (sfi == 0) {
+      return false;
+    }
+    int commandSessionBufferSize = computeCommandSessionBufferSize(command);
+    int sessionIndex = closedSessionsModificationsCounters.size();
+    int selectedSessionIndex = -1;
+    int insertionIndex = -1;
+    int index = commands.size() - 1;
+    while (index > 0) {
+      Command previousCommand = commands.get(index);
+      if (previousCommand instanceof CommandOpenSecureSession) {
+        // Only the sessions opened to replace a closed session can receive the command
+        if (sessionIndex == 0
+            || ((CommandOpenSecureSession) previousCommand).isReadModeConfigured()
+            || !(commands.get(index - 1) instanceof CommandCloseSecureSession)) {
+          break;
+        }
+        sessionIndex--;
+        index--; // closing of the previous session
+        if (closedSessionsModificationsCounters.get(sessionIndex) >= commandSessionBufferSize) {
+          selectedSessionIndex = sessionIndex;
+          insertionIndex = index;
+        }
+      } else {
+        int previousSfi = getTargetedSfi(previousCommand);
+        if (previousSfi == 0 || previousSfi == sfi) {
+          break;
+        }
+      }
+      index--;
+    }
+    if (insertionIndex == -1) {
+      return false;
+    }
+    commands.add(insertionIndex, command);
+    closedSessionsModificationsCounters.set(
+        selectedSessionIndex,
+        closedSessionsModificationsCounters.get(selectedSessionIndex) - commandSessionBufferSize);
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          "Command [{}] inserted in a previous secure session to save a session",
+          command.getName());
+    }
+    return true;
+  }
+
+  /**
+   * Returns the SFI of the file accessed by the provided command.
+   *
+   * @param command The command.
+   * @return 0 if the command does not target a single file identified by its SFI.
+   */
+  private static int getTargetedSfi(Command command) {
+    if (command instanceof CommandAppendRecord) {
+      return ((CommandAppendRecord) command).getSfi();
+    } else if (command instanceof CommandUpdateRecord) {
+      return ((CommandUpdateRecord) command).getSfi();
+    } else if (command instanceof CommandWriteRecord) {
+      return ((CommandWriteRecord) command).getSfi();
+    } else if (command instanceof CommandUpdateOrWriteBinary) {
+      return ((CommandUpdateOrWriteBinary) command).getSfi();
+    } else if (command instanceof CommandReadRecords) {
+      return ((CommandReadRecords) command).getSfi();
+    } else if (command instanceof CommandReadBinary) {
+      return ((CommandReadBinary) command).getSfi();
+    } else if (command instanceof CommandIncreaseOrDecrease) {
+      return ((CommandIncreaseOrDecrease) command).getSfi();
+    }
+    return 0;
+  }
+
   /**
    * Computes the session buffer size of the provided command.<br>
    * The size may be a number of bytes or 1 depending on the card specificities.
@@ -245,10 +360,11 @@ private void checkMultipleSessionEnabled(Command command) {
     // CL-CSS-SMEXCEED.1
     // CL-CSS-INFOCSS.1
     if (!symmetricCryptoSecuritySetting.isMultipleSessionEnabled()) {
-      throw new SessionBufferOverflowException(
-          "ATOMIC mode error! This command would overflow the card modifications buffer: "
-              + command.getName()
-              + getTransactionAuditDataAsString());
+      throw withTransactionAuditData(
+          new SessionBufferOverflowException(
+              "ATOMIC mode error! This command would overflow the card modifications buffer: "
+                  + command.getName()
+                  + getTransactionAuditDataAsString()));
     }
   }
 
@@ -311,11 +427,14 @@ public final T processCommands(
    */
   @Override
   public final T processCommands(ChannelControl channelControl) {
+    checkNoAsyncProcessingPending();
     if (commands.isEmpty()) {
       processCryptoPreparedCommands();
       return currentInstance;
     }
+    startCommandsProcessing();
     try {
+      optimizeCommandsIfEnabled();
       List<Command> cardRequestCommands = new ArrayList<>();
       for (Command command : commands) {
         if (command.isCryptoServiceRequiredToFinalizeRequest()
@@ -323,19 +442,22 @@ public final T processCommands(ChannelControl channelControl) {
           executeCardCommands(cardRequestCommands, ChannelControl.KEEP_OPEN);
           cardRequestCommands.clear();
         }
-        command.finalizeRequest();
+        finalizeCommandRequest(command);
         cardRequestCommands.add(command);
       }
       executeCardCommands(cardRequestCommands, channelControl);
       processCryptoPreparedCommands();
     } catch (RuntimeException e) {
-      resetTransaction();
+      if (!isRecoveryPossible(e)) {
+        resetTransaction();
+      }
       throw e;
     } finally {
-      commands.clear();
+      removeProcessedCommands();
       if (isExtendedMode && !card.isExtendedModeSupported()) {
         isExtendedMode = false;
       }
+      endCommandsProcessing();
     }
     return currentInstance;
   }
@@ -399,15 +521,83 @@ private boolean synchronizeCryptoServiceBeforeCardProcessing(List<Command> comma
     return true;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Synchronizes the crypto service on a thread of the pipelining executor, if enabled. If the
+   * executor rejects the task, the synchronization is left to the current thread.
+   *
+   * @since 3.3.0
+   */
+  @Override
+  final void startConcurrentCryptoProcessing() {
+    Executor cryptoPipeliningExecutor = options.getCryptoPipeliningExecutor();
+    if (cryptoPipeliningExecutor == null) {
+      return;
+    }
+    FutureTask<Void> task = new FutureTask<>(this::processCryptoPreparedCommands, null);
+    try {
+      cryptoPipeliningExecutor.execute(task);
+    } catch (RejectedExecutionException e) {
+      logger.warn("Crypto pipelining task rejected by the executor: {}", e.getMessage());
+      return;
+    }
+    concurrentCryptoProcessing = task;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The wait is not interruptible, because the crypto service must not be used concurrently by
+   * the current thread. The interrupted status is restored afterwards.
+   *
+   * @throws CryptoException If the crypto service failed.
+   * @throws CryptoIOException If the communication with the crypto service failed.
+   * @since 3.3.0
+   */
+  @Override
+  final void awaitConcurrentCryptoProcessing() {
+    FutureTask<Void> task = concurrentCryptoProcessing;
+    if (task == null) {
+      return;
+    }
+    concurrentCryptoProcessing = null;
+    boolean isInterrupted = false;
+    try {
+      while (true) {
+        try {
+          task.get();
+          return;
+        } catch (InterruptedException e) {
+          isInterrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw (RuntimeException) cause;
+        }
+      }
+    } finally {
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   /** Process any prepared crypto commands. */
   private void processCryptoPreparedCommands() {
     if (symmetricCryptoCardTransactionManagerSpi != null) {
+      transactionContext.flushPendingSessionApdus();
+      Object event = FlightRecorderEvents.beginCryptoServiceCall("synchronize");
       try {
         symmetricCryptoCardTransactionManagerSpi.synchronize();
       } catch (SymmetricCryptoException e) {
         throw new CryptoException(e.getMessage(), e);
       } catch (SymmetricCryptoIOException e) {
         throw new CryptoIOException(e.getMessage(), e);
+      } finally {
+        FlightRecorderEvents.endCryptoServiceCall(event);
       }
     }
   }
@@ -419,6 +609,7 @@ private void processCryptoPreparedCommands() {
    */
   @Override
   public final T prepareVerifyPin(byte[] pin) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .notNull(pin, "pin")
@@ -455,6 +646,7 @@ public final T prepareVerifyPin(byte[] pin) {
    */
   @Override
   public final T prepareChangePin(byte[] newPin) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .notNull(newPin, "newPin")
@@ -503,6 +695,7 @@ public final <E extends CardTransactionCryptoExtension> E getCryptoExtension(
    */
   @Override
   public final T prepareOpenSecureSession(WriteAccessLevel writeAccessLevel) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance().notNull(writeAccessLevel, "writeAccessLevel");
       checkNoSecureSession();
@@ -526,6 +719,7 @@ public final T prepareOpenSecureSession(WriteAccessLevel writeAccessLevel) {
       isSecureSessionOpen = true;
       isEncryptionActive = false;
       modificationsCounter = card.getModificationsCounter();
+      closedSessionsModificationsCounters.clear();
       nbPostponedData = 0;
       svPostponedDataIndex = -1;
       isSvOperationInSecureSession = false;
@@ -543,6 +737,7 @@ public final T prepareOpenSecureSession(WriteAccessLevel writeAccessLevel) {
    */
   @Override
   public final T prepareCloseSecureSession() {
+    checkNoAsyncProcessingPending();
     try {
       checkSecureSession();
       if (symmetricCryptoSecuritySetting.isRatificationMechanismEnabled()
@@ -576,6 +771,7 @@ public final T prepareCloseSecureSession() {
    */
   @Override
   public final T prepareSvGet(SvOperation svOperation, SvAction svAction) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance().notNull(svOperation, "svOperation").notNull(svAction, "svAction");
 
@@ -583,16 +779,24 @@ public final T prepareSvGet(SvOperation svOperation, SvAction svAction) {
         throw new UnsupportedOperationException("Stored Value not available for this card");
       }
 
-      if (symmetricCryptoSecuritySetting.isSvLoadAndDebitLogEnabled() && (!isExtendedMode)) {
-        // @see Calypso Layer ID 8.09/8.10 (200108): both reload and debit logs are requested
-        // for a non rev3.2 card add two SvGet commands (for RELOAD then for DEBIT).
-        // CL-SV-GETNUMBER.1
-        SvOperation operation1 =
-            svOperation == SvOperation.RELOAD ? SvOperation.DEBIT : SvOperation.RELOAD;
-        commands.add(new CommandSvGet(transactionContext, getCommandContext(), operation1, false));
+      if (isSvGetDataFromSelectionUsable(svOperation)) {
+        // The SV Get command performed during the card selection is used by the SV operation
+        card.setSvGetDataFromSelection(false);
+        logger.debug("SV Get data obtained during the card selection used for the SV operation");
+      } else {
+        if (symmetricCryptoSecuritySetting.isSvLoadAndDebitLogEnabled() && (!isExtendedMode)) {
+          // @see Calypso Layer ID 8.09/8.10 (200108): both reload and debit logs are requested
+          // for a non rev3.2 card add two SvGet commands (for RELOAD then for DEBIT).
+          // CL-SV-GETNUMBER.1
+          SvOperation operation1 =
+              svOperation == SvOperation.RELOAD ? SvOperation.DEBIT : SvOperation.RELOAD;
+          commands.add(
+              new CommandSvGet(transactionContext, getCommandContext(), operation1, false));
+        }
+        commands.add(
+            new CommandSvGet(
+                transactionContext, getCommandContext(), svOperation, isExtendedMode));
       }
-      commands.add(
-          new CommandSvGet(transactionContext, getCommandContext(), svOperation, isExtendedMode));
       isSvGet = true;
       this.svOperation = svOperation;
       this.svAction = svAction;
@@ -610,6 +814,7 @@ public final T prepareSvGet(SvOperation svOperation, SvAction svAction) {
    */
   @Override
   public final T prepareSvReload(int amount, byte[] date, byte[] time, byte[] free) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .isInRange(
@@ -639,6 +844,34 @@ public final T prepareSvReload(int amount, byte[] date, byte[] time, byte[] free
     return currentInstance;
   }
 
+  /**
+   * Indicates if the SV Get data obtained during the card selection can be used for the provided SV
+   * operation instead of a new "SV Get" command.
+   *
+   * <p>The Calypso specification requires the "SV Get" command to immediately precede the "SV
+   * Reload" or "SV Debit" command, the only command allowed in between being "Open Secure Session"
+   * (CL-SV-GETDEBIT.1, CL-SV-GETRLOAD.1). The data must therefore have been obtained in the current
+   * mode for the same operation, no command other than "Open Secure Session" must have been sent
+   * to the card since (see {@link CalypsoCardAdapter#isSvGetDataFromSelection()}), and no such
+   * command must be prepared before the SV operation.
+   *
+   * @param svOperation The SV operation.
+   * @return true if the data can be used.
+   */
+  private boolean isSvGetDataFromSelectionUsable(SvOperation svOperation) {
+    if (!card.isSvGetDataFromSelection()) {
+      return false;
+    }
+    for (Command command : commands) {
+      if (command.getCommandRef() != CardCommandRef.OPEN_SECURE_SESSION) {
+        return false;
+      }
+    }
+    byte[] svGetHeader = card.getSvGetHeader();
+    return svGetHeader[1] == (isExtendedMode ? (byte) 0x01 : (byte) 0x00)
+        && svGetHeader[2] == (svOperation == SvOperation.RELOAD ? (byte) 0x07 : (byte) 0x09);
+  }
+
   /**
    * Checks if the preconditions of an SV modifying command are satisfied and updates the
    * corresponding flags.
@@ -686,6 +919,7 @@ public final T prepareSvReload(int amount) {
    */
   @Override
   public final T prepareSvDebit(int amount, byte[] date, byte[] time) {
+    checkNoAsyncProcessingPending();
     try {
       /* @see Calypso Layer ID 8.02 (200108) */
       // CL-SV-DEBITVAL.1
@@ -741,6 +975,7 @@ public final T prepareSvDebit(int amount) {
    */
   @Override
   public final T prepareInvalidate() {
+    checkNoAsyncProcessingPending();
     try {
       if (card.isDfInvalidated()) {
         throw new IllegalStateException("Card already invalidated");
@@ -762,6 +997,7 @@ public final T prepareInvalidate() {
    */
   @Override
   public final T prepareRehabilitate() {
+    checkNoAsyncProcessingPending();
     try {
       if (!card.isDfInvalidated()) {
         throw new IllegalStateException("Card not invalidated");
@@ -785,6 +1021,7 @@ public final T prepareRehabilitate() {
   @Override
   public final T prepareChangeKey(
       int keyIndex, byte newKif, byte newKvc, byte issuerKif, byte issuerKvc) {
+    checkNoAsyncProcessingPending();
     try {
       if (card.getProductType() == CalypsoCard.ProductType.BASIC) {
         throw new UnsupportedOperationException("'Change Key' command not available for this card");
@@ -86,6 +86,7 @@ final void disablePreOpenMode() {
    */
   @Override
   public final T prepareCancelSecureSession() {
+    checkNoAsyncProcessingPending();
     try {
       commands.add(
           new CommandCloseSecureSession(getTransactionContext(), getCommandContext(), true));
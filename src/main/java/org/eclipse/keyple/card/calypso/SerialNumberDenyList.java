@@ -0,0 +1,203 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import org.eclipse.keyple.core.util.Assert;
+
+/**
+ * Set of denied Calypso serial numbers, stored outside the Java heap.
+ *
+ * <p>The 8-byte serial numbers are stored as long values in an open addressing hash table allocated
+ * in a direct buffer, i.e. 16 bytes per serial number at most: a list of several millions of
+ * serial numbers does not burden the garbage collector. Unlike a Bloom filter, the lookups are
+ * exact: a serial number not added is never reported as denied.
+ *
+ * <p>The table grows as needed. The methods are thread-safe.
+ *
+ * @since 3.3.0
+ */
+public final class SerialNumberDenyList {
+
+  private static final int SERIAL_NUMBER_LENGTH = 8;
+  private static final int MIN_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 27; // 1 GiB
+
+  private LongBuffer table; // 0 marks an empty slot
+  private int mask;
+  private int size;
+  private boolean isZeroDenied;
+
+  /**
+   * Constructor.
+   *
+   * @param expectedSize The expected number of serial numbers (should be {@code >=} 0), used to
+   *     size the table.
+   * @throws IllegalArgumentException If the expected size is out of range.
+   * @since 3.3.0
+   */
+  public SerialNumberDenyList(int expectedSize) {
+    Assert.getInstance().isInRange(expectedSize, 0, MAX_CAPACITY / 2, "expectedSize");
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  /**
+   * Allocates an empty table.
+   *
+   * @param capacity The number of slots, a power of 2.
+   */
+  private void allocate(int capacity) {
+    table = ByteBuffer.allocateDirect(capacity * 8).asLongBuffer();
+    mask = capacity - 1;
+  }
+
+  /**
+   * Adds a serial number.
+   *
+   * @param serialNumber The full 8-byte Calypso serial number.
+   * @return false if the serial number was already denied.
+   * @throws IllegalArgumentException If the serial number is null or not 8 bytes long.
+   * @throws IllegalStateException If the maximum capacity is reached.
+   * @since 3.3.0
+   */
+  public synchronized boolean add(byte[] serialNumber) {
+    Assert.getInstance().notNull(serialNumber, "serialNumber");
+    Assert.getInstance().isEqual(serialNumber.length, SERIAL_NUMBER_LENGTH, "serialNumber length");
+    long value = toLong(serialNumber, 0);
+    if (value == 0) {
+      boolean isAdded = !isZeroDenied;
+      isZeroDenied = true;
+      return isAdded;
+    }
+    if ((size + 1) * 2 > mask + 1) {
+      grow();
+    }
+    if (!insert(value)) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  /**
+   * Indicates if the provided serial number is denied.
+   *
+   * @param serialNumber The full 8-byte Calypso serial number.
+   * @return false if the serial number is null or not 8 bytes long.
+   * @since 3.3.0
+   */
+  public boolean contains(byte[] serialNumber) {
+    return serialNumber != null
+        && serialNumber.length == SERIAL_NUMBER_LENGTH
+        && contains(serialNumber, 0);
+  }
+
+  /**
+   * Indicates if the 8-byte serial number at the provided offset is denied.
+   *
+   * @param data The data containing the serial number.
+   * @param offset The offset of the serial number.
+   * @return true if the serial number is denied.
+   * @since 3.3.0
+   */
+  synchronized boolean contains(byte[] data, int offset) {
+    long value = toLong(data, offset);
+    if (value == 0) {
+      return isZeroDenied;
+    }
+    int index = hash(value) & mask;
+    long slot;
+    while ((slot = table.get(index)) != 0) {
+      if (slot == value) {
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of denied serial numbers.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public synchronized int size() {
+    return isZeroDenied ? size + 1 : size;
+  }
+
+  /**
+   * Inserts a not null value in the table, which must have a free slot.
+   *
+   * @param value The value.
+   * @return false if the value was already present.
+   */
+  private boolean insert(long value) {
+    int index = hash(value) & mask;
+    long slot;
+    while ((slot = table.get(index)) != 0) {
+      if (slot == value) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+    table.put(index, value);
+    return true;
+  }
+
+  /** Doubles the capacity of the table. */
+  private void grow() {
+    int capacity = mask + 1;
+    if (capacity >= MAX_CAPACITY) {
+      throw new IllegalStateException("The maximum capacity of the deny list is reached");
+    }
+    LongBuffer oldTable = table;
+    allocate(capacity << 1);
+    for (int i = 0; i < capacity; i++) {
+      long value = oldTable.get(i);
+      if (value != 0) {
+        insert(value);
+      }
+    }
+  }
+
+  /**
+   * Spreads the bits of the value, the low-order bits of the serial numbers being often sequential.
+   *
+   * @param value The value.
+   * @return The hash.
+   */
+  private static int hash(long value) {
+    long h = value * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Converts 8 bytes to a long value (big-endian).
+   *
+   * @param data The data.
+   * @param offset The offset.
+   * @return The value.
+   */
+  private static long toLong(byte[] data, int offset) {
+    long value = 0;
+    for (int i = 0; i < SERIAL_NUMBER_LENGTH; i++) {
+      value = (value << 8) | (data[offset + i] & 0xFF);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,173 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Bounded list of the APDUs exchanged during a transaction, in chronological order.
+ *
+ * <p>When the capacity is reached, adding an APDU discards the oldest one, so that the memory used
+ * by a long-lived transaction manager remains bounded. The storage grows on demand up to the
+ * capacity. The capacity is even, so that the command/response pairs are discarded together.
+ *
+ * <p>Only the additions at the end of the list and the clearing are supported.
+ *
+ * <p>The access methods are synchronized on the instance, since the crypto service may add its
+ * APDUs from another thread when the pipelining of the crypto service and card I/O is enabled.
+ *
+ * @since 3.3.0
+ */
+final class TransactionAuditBuffer extends AbstractList<byte[]> implements RandomAccess {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int capacity;
+  private byte[][] elements;
+  private int head; // index of the oldest element
+  private int size;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity The maximum number of APDUs kept (should be {@code >=} 2), rounded down to an
+   *     even number.
+   * @since 3.3.0
+   */
+  TransactionAuditBuffer(int capacity) {
+    this.capacity = toEven(capacity);
+    elements = new byte[Math.min(this.capacity, INITIAL_CAPACITY)][];
+  }
+
+  private static int toEven(int capacity) {
+    return Math.max(2, capacity & ~1);
+  }
+
+  /**
+   * Returns the maximum number of APDUs kept.
+   *
+   * @return A positive even value.
+   * @since 3.3.0
+   */
+  synchronized int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Changes the maximum number of APDUs kept, discarding the oldest ones if the new capacity is
+   * lower than the current size.
+   *
+   * @param capacity The maximum number of APDUs kept (should be {@code >=} 2), rounded down to an
+   *     even number.
+   * @since 3.3.0
+   */
+  synchronized void setCapacity(int capacity) {
+    capacity = toEven(capacity);
+    byte[][] kept = toArray(new byte[size][]);
+    int from = Math.max(0, size - capacity);
+    size -= from;
+    elements =
+        Arrays.copyOfRange(kept, from, from + Math.max(size, Math.min(capacity, INITIAL_CAPACITY)));
+    head = 0;
+    this.capacity = capacity;
+    modCount++;
+  }
+
+  /**
+   * Adds an APDU at the end of the list, discarding the oldest one if the capacity is reached.
+   *
+   * @param apdu The APDU.
+   * @return true
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized boolean add(byte[] apdu) {
+    if (size == elements.length && size < capacity) {
+      elements = toArray(new byte[Math.min(capacity, size << 1)][]);
+      head = 0;
+    }
+    if (size == capacity) {
+      elements[head] = apdu;
+      head = (head + 1) % elements.length;
+    } else {
+      elements[(head + size) % elements.length] = apdu;
+      size++;
+    }
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Adds the provided APDUs at the end of the list, discarding the oldest ones if the capacity is
+   * reached.
+   *
+   * @param apdus The APDUs.
+   * @return True if the list changed.
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized boolean addAll(Collection<? extends byte[]> apdus) {
+    for (byte[] apdu : apdus) {
+      add(apdu);
+    }
+    return !apdus.isEmpty();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized byte[] get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return elements[(head + index) % elements.length];
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized <T> T[] toArray(T[] a) {
+    return super.toArray(a);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized void clear() {
+    Arrays.fill(elements, null);
+    head = 0;
+    size = 0;
+    modCount++;
+  }
+}
@@ -0,0 +1,72 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.keyple.core.util.json.JsonUtil;
+
+/**
+ * Transaction audit data attached as a suppressed exception to the exceptions thrown by the
+ * transaction managers when its deferred rendering is enabled (see {@link
+ * TransactionOptions.Builder#enableDeferredTransactionAuditData()}).
+ *
+ * <p>The message, containing the card image and the exchanged APDUs in JSON format, is only
+ * rendered when it is read (e.g. when the stack trace of the exception is printed), and then
+ * cached. The APDUs, whose number is bounded by the capacity of the transaction audit data, are
+ * copied when the exception is thrown, while the card image is rendered from the card at the time
+ * the message is read.
+ *
+ * <p>No stack trace is captured.
+ *
+ * @since 3.3.0
+ */
+final class TransactionAuditTrace extends RuntimeException {
+
+  private final transient CalypsoCardAdapter card; // NOSONAR
+  private final transient List<byte[]> apdus; // NOSONAR
+  private String message;
+
+  /**
+   * Constructor.
+   *
+   * @param card The card, whose image is rendered when the message is read.
+   * @param apdus The exchanged APDUs, copied.
+   * @since 3.3.0
+   */
+  TransactionAuditTrace(CalypsoCardAdapter card, List<byte[]> apdus) {
+    super(null, null, false, false);
+    this.card = card;
+    this.apdus = Arrays.asList(apdus.toArray(new byte[0][]));
+  }
+
+  /**
+   * Renders the transaction audit data in JSON format on the first call.
+   *
+   * @return A not empty string.
+   * @since 3.3.0
+   */
+  @Override
+  public synchronized String getMessage() {
+    if (message == null) {
+      message =
+          "Transaction audit JSON data: {"
+              + "\"targetSmartCard\":"
+              + card.toString()
+              + ","
+              + "\"apdus\":"
+              + JsonUtil.toJson(apdus)
+              + "}";
+    }
+    return message;
+  }
+}
@@ -14,6 +14,12 @@
 import static org.eclipse.keyple.card.calypso.DtoAdapters.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.keyple.card.calypso.spi.AuditSinkSpi;
+import org.eclipse.keyple.card.calypso.spi.MetricsListenerSpi;
 import org.eclipse.keyple.core.util.Assert;
 import org.eclipse.keyple.core.util.HexUtil;
 import org.eclipse.keyple.core.util.json.JsonUtil;
@@ -92,14 +98,53 @@
       "PKI mode not available for this card";
   private static final String MSG_DATA_LENGTH = "data length";
 
+  /* Commands leaving the content of the card files unchanged */
+  private static final Set<CardCommandRef> NON_MODIFYING_COMMAND_REFS =
+      EnumSet.of(
+          CardCommandRef.GET_DATA,
+          CardCommandRef.READ_RECORDS,
+          CardCommandRef.READ_BINARY,
+          CardCommandRef.READ_RECORD_MULTIPLE,
+          CardCommandRef.SEARCH_RECORD_MULTIPLE,
+          CardCommandRef.GET_CHALLENGE,
+          CardCommandRef.SELECT_FILE,
+          CardCommandRef.VERIFY_PIN,
+          CardCommandRef.SV_GET);
+
+  // commands having the same effect when executed twice, which can be resumed after a
+  // communication failure
+  private static final Set<CardCommandRef> REPLAYABLE_COMMAND_REFS =
+      EnumSet.of(
+          CardCommandRef.GET_DATA,
+          CardCommandRef.READ_RECORDS,
+          CardCommandRef.READ_BINARY,
+          CardCommandRef.READ_RECORD_MULTIPLE,
+          CardCommandRef.SEARCH_RECORD_MULTIPLE,
+          CardCommandRef.SELECT_FILE,
+          CardCommandRef.UPDATE_RECORD,
+          CardCommandRef.WRITE_RECORD,
+          CardCommandRef.UPDATE_BINARY,
+          CardCommandRef.WRITE_BINARY);
+
   /* Final fields */
   T currentInstance = (T) this;
   final ProxyReaderApi cardReader;
   final CalypsoCardAdapter card;
-  private final List<byte[]> transactionAuditData = new ArrayList<>();
+  final TransactionAuditBuffer transactionAuditData =
+      new TransactionAuditBuffer(TransactionOptions.DEFAULT.getTransactionAuditDataCapacity());
+  private final AtomicBoolean isAsyncProcessingPending = new AtomicBoolean();
+  private volatile Thread asyncProcessingThread;
 
   /* Dynamic fields */
+  TransactionOptions options = TransactionOptions.DEFAULT;
+  private AuditSinkSpi auditSink;
+  private MetricsListenerSpi metricsListener;
   final List<Command> commands = new ArrayList<>();
+  private int cardRequestCount;
+  private long processingStartTime;
+  private Object processCommandsEvent;
+  private int nbExecutedCommands;
+  private boolean isRecoveryPending;
 
   /**
    * Builds a new instance.
@@ -160,6 +205,20 @@
    */
   abstract void prepareNewSecureSessionIfNeeded(Command command);
 
+  /**
+   * Adds a command modifying the content of a file to the prepared commands, after closing and
+   * opening a new secure session if needed.
+   *
+   * @param command The command.
+   * @throws SessionBufferOverflowException If the command will overflow the modifications buffer
+   *     size and the multiple session is not allowed.
+   * @since 3.3.0
+   */
+  void addFileModificationCommand(Command command) {
+    prepareNewSecureSessionIfNeeded(command);
+    commands.add(command);
+  }
+
   /**
    * @return True if it is possible to configure the auto read record into the open secure session
    *     command.
@@ -167,6 +226,169 @@
    */
   abstract boolean canConfigureReadOnOpenSecureSession();
 
+  /**
+   * Applies the provided options to the transaction manager.
+   *
+   * @param options The options.
+   * @see CalypsoExtensionService#setTransactionOptions
+   * @since 3.3.0
+   */
+  final void setOptions(TransactionOptions options) {
+    this.options = options;
+    auditSink = options.getAuditSink();
+    metricsListener = options.getMetricsListener();
+    if (transactionAuditData.getCapacity() != options.getTransactionAuditDataCapacity()) {
+      transactionAuditData.setCapacity(options.getTransactionAuditDataCapacity());
+    }
+  }
+
+  /**
+   * Coalesces the prepared commands if the optimization is enabled in the {@link
+   * TransactionOptions}.
+   *
+   * <p>Must be invoked before the finalization of the prepared commands.
+   *
+   * @since 3.3.0
+   */
+  final void optimizeCommandsIfEnabled() {
+    if (options.isCommandsOptimizationEnabled()) {
+      CommandPlanOptimizer.optimize(commands, card, getPayloadCapacity());
+    }
+  }
+
+  /**
+   * Indicates if a read of the file having the provided SFI may be skipped because the requested
+   * data is already available in the card image, as enabled in the {@link TransactionOptions}.
+   *
+   * <p>The read may only be skipped outside a secure session, when the SFI is specified, and when
+   * no pending command could modify the content of the card files.
+   *
+   * @param sfi The SFI.
+   * @return True if the caller may check the freshness of the data in the card image.
+   * @since 3.3.0
+   */
+  private boolean isReadElisionAllowed(byte sfi) {
+    if (sfi == 0
+        || !options.isRedundantReadsElisionEnabled()
+        || getCommandContext().isSecureSessionOpen()) {
+      return false;
+    }
+    for (Command command : commands) {
+      if (!NON_MODIFYING_COMMAND_REFS.contains(command.getCommandRef())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Processes the prepared commands on a thread of the provided executor.
+   *
+   * <p>The returned future is completed with the result of {@code processCommands}, or
+   * exceptionally with the exception it has thrown, after the pending state has been released.
+   * While the processing is pending, the preparation and the processing of commands from another
+   * thread are rejected with an {@link IllegalStateException}.
+   *
+   * @param channelControl The channel control directive.
+   * @param executor The executor.
+   * @return A new future.
+   * @throws IllegalStateException If an asynchronous processing is already pending.
+   * @throws RejectedExecutionException If the executor rejects the task.
+   * @since 3.3.0
+   */
+  final CompletableFuture<T> processCommandsAsync(
+      ChannelControl channelControl, Executor executor) {
+    if (!isAsyncProcessingPending.compareAndSet(false, true)) {
+      throw new IllegalStateException(
+          "An asynchronous processing of the commands is already pending");
+    }
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      executor.execute(
+          () -> {
+            T result;
+            asyncProcessingThread = Thread.currentThread();
+            try {
+              result = processCommands(channelControl);
+            } catch (RuntimeException | Error e) {
+              asyncProcessingThread = null;
+              isAsyncProcessingPending.set(false);
+              future.completeExceptionally(e);
+              return;
+            }
+            asyncProcessingThread = null;
+            isAsyncProcessingPending.set(false);
+            future.complete(result);
+          });
+    } catch (RuntimeException e) {
+      isAsyncProcessingPending.set(false);
+      throw e;
+    }
+    return future;
+  }
+
+  /**
+   * Checks that no asynchronous processing of the commands is pending, unless invoked from the
+   * thread performing it.
+   *
+   * @throws IllegalStateException If an asynchronous processing of the commands is pending.
+   * @since 3.3.0
+   */
+  final void checkNoAsyncProcessingPending() {
+    if (isAsyncProcessingPending.get() && asyncProcessingThread != Thread.currentThread()) {
+      throw new IllegalStateException("An asynchronous processing of the commands is pending");
+    }
+  }
+
+  /**
+   * Starts the measurement of a call to {@code processCommands} for the metrics listener if any and
+   * the flight recorder.
+   *
+   * <p>Must be followed by a call to {@link #endCommandsProcessing()}.
+   *
+   * @since 3.3.0
+   */
+  final void startCommandsProcessing() {
+    cardRequestCount = 0;
+    nbExecutedCommands = 0;
+    processCommandsEvent = FlightRecorderEvents.beginProcessCommands(getClass(), commands.size());
+    if (metricsListener != null) {
+      processingStartTime = System.nanoTime();
+    }
+  }
+
+  /**
+   * Ends the measurement of a call to {@code processCommands}.
+   *
+   * @since 3.3.0
+   */
+  final void endCommandsProcessing() {
+    FlightRecorderEvents.endProcessCommands(processCommandsEvent, cardRequestCount);
+    processCommandsEvent = null;
+    if (metricsListener != null) {
+      metricsListener.onCommandsProcessed(
+          cardRequestCount, System.nanoTime() - processingStartTime);
+    }
+  }
+
+  /**
+   * Finalizes the request of the provided command, measuring its duration if a metrics listener is
+   * set.
+   *
+   * @param command The command.
+   * @since 3.3.0
+   */
+  final void finalizeCommandRequest(Command command) {
+    if (metricsListener == null) {
+      command.finalizeRequest();
+      return;
+    }
+    long startTime = System.nanoTime();
+    command.finalizeRequest();
+    metricsListener.onCommandFinalized(
+        command.getCommandRef().name(), System.nanoTime() - startTime);
+  }
+
   /**
    * Executes the provided commands.
    *
@@ -182,8 +404,37 @@ final void executeCardCommands(List<Command> commands, ChannelControl channelCon
     // Wrap the list of C-APDUs into a card request
     CardRequestSpi cardRequest = new CardRequestAdapter(apduRequests, true);
 
-    // Transmit the commands to the card
-    CardResponseApi cardResponse = transmitCardRequest(cardRequest, channelControl);
+    // The card no longer accepts an SV operation based on an SV Get performed at selection once it
+    // has received a command other than "Open Secure Session"
+    if (card.isSvGetDataFromSelection()) {
+      for (Command command : commands) {
+        if (command.getCommandRef() != CardCommandRef.OPEN_SECURE_SESSION) {
+          card.setSvGetDataFromSelection(false);
+          break;
+        }
+      }
+    }
+
+    // Transmit the commands to the card, while the crypto service processes the operations that do
+    // not depend on their responses if the pipelining is enabled
+    startConcurrentCryptoProcessing();
+    CardResponseApi cardResponse;
+    try {
+      cardResponse = transmitCardRequest(cardRequest, channelControl);
+    } catch (RuntimeException e) {
+      try {
+        awaitConcurrentCryptoProcessing();
+      } catch (RuntimeException cryptoException) {
+        e.addSuppressed(cryptoException);
+      }
+      // The partial response is only taken into account if the processing may be resumed, so that
+      // the card image is not modified by a transaction which will be reset
+      if (isRecoveryApplicable(e)) {
+        parsePartialCardResponse(commands, e);
+      }
+      throw e;
+    }
+    awaitConcurrentCryptoProcessing();
 
     // Retrieve the list of R-APDUs
     List<ApduResponseApi> apduResponses = cardResponse.getApduResponses(); // NOSONAR
@@ -192,12 +443,13 @@ final void executeCardCommands(List<Command> commands, ChannelControl channelCon
     // case we stop processing immediately because it may be a case of fraud, and we throw a
     // desynchronized exception.
     if (apduResponses.size() > commands.size()) {
-      throw new InconsistentDataException(
-          MSG_THE_NUMBER_OF_COMMANDS_RESPONSES_DOES_NOT_MATCH_NB_COMMANDS
-              + commands.size()
-              + MSG_NB_RESPONSES
-              + apduResponses.size()
-              + getTransactionAuditDataAsString());
+      throw withTransactionAuditData(
+          new InconsistentDataException(
+              MSG_THE_NUMBER_OF_COMMANDS_RESPONSES_DOES_NOT_MATCH_NB_COMMANDS
+                  + commands.size()
+                  + MSG_NB_RESPONSES
+                  + apduResponses.size()
+                  + getTransactionAuditDataAsString()));
     }
 
     // We go through all the responses (and not the requests) because there may be fewer in the
@@ -205,29 +457,149 @@ final void executeCardCommands(List<Command> commands, ChannelControl channelCon
     // exception.
     for (int i = 0; i < apduResponses.size(); i++) {
       Command command = commands.get(i);
+      long startTime = metricsListener != null ? System.nanoTime() : 0;
       try {
         parseCommandResponse(command, apduResponses.get(i));
         handleCommandPostProcessing(i, commands);
+        nbExecutedCommands++;
       } catch (CardCommandException e) {
-        throw new InvalidCardResponseException(
-            MSG_CARD_COMMAND_ERROR
-                + "while processing responses to card commands: "
-                + command.getCommandRef()
-                + getTransactionAuditDataAsString(),
-            e);
+        throw withTransactionAuditData(
+            new InvalidCardResponseException(
+                MSG_CARD_COMMAND_ERROR
+                    + "while processing responses to card commands: "
+                    + command.getCommandRef()
+                    + getTransactionAuditDataAsString(),
+                e));
+      } finally {
+        if (metricsListener != null) {
+          metricsListener.onCommandParsed(
+              command.getCommandRef().name(), System.nanoTime() - startTime);
+        }
       }
     }
 
+    // Provide the crypto service with the session APDUs collected while parsing the responses, if
+    // it supports the batch update
+    getTransactionContext().flushPendingSessionApdus();
+
     // Finally, if no error has occurred and there are fewer responses than requests, then we
     // throw a desynchronized exception.
     if (apduResponses.size() < commands.size()) {
-      throw new InconsistentDataException(
-          MSG_THE_NUMBER_OF_COMMANDS_RESPONSES_DOES_NOT_MATCH_NB_COMMANDS
-              + commands.size()
-              + MSG_NB_RESPONSES
-              + apduResponses.size()
-              + getTransactionAuditDataAsString());
+      throw withTransactionAuditData(
+          new InconsistentDataException(
+              MSG_THE_NUMBER_OF_COMMANDS_RESPONSES_DOES_NOT_MATCH_NB_COMMANDS
+                  + commands.size()
+                  + MSG_NB_RESPONSES
+                  + apduResponses.size()
+                  + getTransactionAuditDataAsString()));
+    }
+  }
+
+  /**
+   * Parses the responses received before the communication failure that caused the provided
+   * exception, if any, so that the executed commands are taken into account when the processing is
+   * resumed.
+   *
+   * <p>The parsing stops at the first response indicating an error, the corresponding command being
+   * then considered as not executed.
+   *
+   * @param commands The transmitted commands.
+   * @param e The exception thrown by the transmission.
+   */
+  private void parsePartialCardResponse(List<Command> commands, RuntimeException e) {
+    CardResponseApi cardResponse;
+    if (e.getCause() instanceof ReaderBrokenCommunicationException) {
+      cardResponse = ((ReaderBrokenCommunicationException) e.getCause()).getCardResponse();
+    } else if (e.getCause() instanceof CardBrokenCommunicationException) {
+      cardResponse = ((CardBrokenCommunicationException) e.getCause()).getCardResponse();
+    } else {
+      return;
+    }
+    if (cardResponse == null) {
+      return;
     }
+    List<ApduResponseApi> apduResponses = cardResponse.getApduResponses();
+    int nbResponses = Math.min(apduResponses.size(), commands.size());
+    try {
+      for (int i = 0; i < nbResponses; i++) {
+        parseCommandResponse(commands.get(i), apduResponses.get(i));
+        handleCommandPostProcessing(i, commands);
+        nbExecutedCommands++;
+      }
+      getTransactionContext().flushPendingSessionApdus();
+    } catch (CardCommandException | RuntimeException parsingException) {
+      logger.debug(
+          "Unable to parse a response received before the communication failure: {}",
+          parsingException.getMessage());
+    }
+  }
+
+  /**
+   * Indicates if the processing of the prepared commands can be resumed after the provided
+   * exception, and if so keeps the commands not executed yet until the next call to {@link
+   * #removeProcessedCommands()}.
+   *
+   * <p>The processing can be resumed if the recovery is enabled in the {@link
+   * TransactionOptions}, if the exception is caused by a communication failure, if no secure
+   * session and no crypto service operation are involved, and if the first command not executed
+   * can be executed twice.
+   *
+   * @param e The exception thrown by the processing.
+   * @return False if the transaction must be reset.
+   * @since 3.3.0
+   */
+  final boolean isRecoveryPossible(RuntimeException e) {
+    isRecoveryPending = false;
+    if (!isRecoveryApplicable(e)
+        || nbExecutedCommands >= commands.size()
+        || !REPLAYABLE_COMMAND_REFS.contains(commands.get(nbExecutedCommands).getCommandRef())) {
+      return false;
+    }
+    isRecoveryPending = true;
+    return true;
+  }
+
+  /**
+   * Indicates if the recovery of the processing applies to the provided exception and to the
+   * prepared commands, regardless of the commands already executed.
+   *
+   * @param e The exception thrown by the processing.
+   * @return False if the recovery is disabled, if the exception is not caused by a communication
+   *     failure, or if a secure session or a crypto service operation is involved.
+   */
+  private boolean isRecoveryApplicable(RuntimeException e) {
+    if (!options.isCommunicationFailureRecoveryEnabled()
+        || !(e instanceof CardCommunicationException || e instanceof ReaderCommunicationException)
+        || getTransactionContext().isSecureSessionOpen()) {
+      return false;
+    }
+    for (Command command : commands) {
+      if (command.getCommandContext().isSecureSessionOpen()
+          || command.getCommandRef() == CardCommandRef.OPEN_SECURE_SESSION
+          || command.isCryptoServiceRequiredToFinalizeRequest()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes the processed commands from the prepared commands, i.e. all of them unless the
+   * processing can be resumed after a communication failure.
+   *
+   * @since 3.3.0
+   */
+  final void removeProcessedCommands() {
+    if (!isRecoveryPending) {
+      commands.clear();
+      return;
+    }
+    isRecoveryPending = false;
+    commands.subList(0, nbExecutedCommands).clear();
+    logger.warn(
+        "Communication failure: {} command(s) kept to resume the processing from command [{}]",
+        commands.size(),
+        commands.get(0).getName());
   }
 
   /**
@@ -252,6 +624,26 @@ void parseCommandResponse(Command command, ApduResponseApi apduResponse)
    */
   void handleCommandPostProcessing(int commandIndex, List<Command> commands) {}
 
+  /**
+   * Starts the processing by the crypto service, on another thread, of the operations already
+   * submitted to it, concurrently with the transmission of the next card request.
+   *
+   * <p>Does nothing by default.
+   *
+   * @since 3.3.0
+   */
+  void startConcurrentCryptoProcessing() {}
+
+  /**
+   * Waits for the end of the processing started by {@link #startConcurrentCryptoProcessing()}, if
+   * any.
+   *
+   * <p>Does nothing by default.
+   *
+   * @since 3.3.0
+   */
+  void awaitConcurrentCryptoProcessing() {}
+
   /**
    * Creates a list of {@link ApduRequestSpi} from a list of {@link Command}.
    *
@@ -278,31 +670,72 @@ private static List<ApduRequestSpi> getApduRequests(List<Command> commands) {
    */
   private CardResponseApi transmitCardRequest(
       CardRequestSpi cardRequest, ChannelControl channelControl) {
+    cardRequestCount++;
+    Object event = FlightRecorderEvents.beginCardRequest(cardRequest.getApduRequests().size());
+    long startTime = metricsListener != null ? System.nanoTime() : 0;
     CardResponseApi cardResponse;
     try {
       cardResponse =
           cardReader.transmitCardRequest(cardRequest, mapToInternalChannelControl(channelControl));
     } catch (ReaderBrokenCommunicationException e) {
+      endCardRequest(cardRequest, e.getCardResponse(), event, startTime);
       saveTransactionAuditData(cardRequest, e.getCardResponse());
-      throw new ReaderCommunicationException(
-          MSG_CARD_READER_COMMUNICATION_ERROR
-              + MSG_WHILE_TRANSMITTING_COMMANDS
-              + getTransactionAuditDataAsString(),
-          e);
+      throw withTransactionAuditData(
+          new ReaderCommunicationException(
+              MSG_CARD_READER_COMMUNICATION_ERROR
+                  + MSG_WHILE_TRANSMITTING_COMMANDS
+                  + getTransactionAuditDataAsString(),
+              e));
     } catch (CardBrokenCommunicationException e) {
+      endCardRequest(cardRequest, e.getCardResponse(), event, startTime);
       saveTransactionAuditData(cardRequest, e.getCardResponse());
-      throw new CardCommunicationException(
-          MSG_CARD_COMMUNICATION_ERROR
-              + MSG_WHILE_TRANSMITTING_COMMANDS
-              + getTransactionAuditDataAsString(),
-          e);
+      throw withTransactionAuditData(
+          new CardCommunicationException(
+              MSG_CARD_COMMUNICATION_ERROR
+                  + MSG_WHILE_TRANSMITTING_COMMANDS
+                  + getTransactionAuditDataAsString(),
+              e));
     } catch (UnexpectedStatusWordException e) {
       cardResponse = e.getCardResponse();
     }
+    endCardRequest(cardRequest, cardResponse, event, startTime);
     saveTransactionAuditData(cardRequest, cardResponse);
     return cardResponse;
   }
 
+  /**
+   * Ends the measurement of the exchange of a card request for the flight recorder and the metrics
+   * listener if any.
+   *
+   * @param cardRequest The card request.
+   * @param cardResponse The associated card response, null if not available.
+   * @param event The flight recorder event, may be null.
+   * @param startTime The time at which the exchange started, in nanoseconds.
+   */
+  private void endCardRequest(
+      CardRequestSpi cardRequest, CardResponseApi cardResponse, Object event, long startTime) {
+    FlightRecorderEvents.endCardRequest(
+        event, cardResponse != null ? cardResponse.getApduResponses().size() : 0);
+    if (metricsListener == null) {
+      return;
+    }
+    long duration = System.nanoTime() - startTime;
+    List<ApduRequestSpi> requests = cardRequest.getApduRequests();
+    int requestBytes = 0;
+    for (int i = 0; i < requests.size(); i++) {
+      requestBytes += requests.get(i).getApdu().length;
+    }
+    int responseBytes = 0;
+    if (cardResponse != null) {
+      List<ApduResponseApi> responses = cardResponse.getApduResponses();
+      for (int i = 0; i < responses.size(); i++) {
+        responseBytes += responses.get(i).getApdu().length;
+      }
+    }
+    metricsListener.onCardRequestTransmitted(
+        requests.size(), requestBytes, responseBytes, duration);
+  }
+
   /**
    * Maps a ChannelControl provided by the Calypso layer to a ChannelControl provided by the Card
    * layer.
@@ -316,7 +749,8 @@ private org.eclipse.keypop.card.ChannelControl mapToInternalChannelControl(
   }
 
   /**
-   * Saves the provided exchanged APDU commands in the list of transaction audit data.
+   * Saves the provided exchanged APDU commands in the list of transaction audit data, and pushes
+   * them to the audit sink if any.
    *
    * @param cardRequest The card request.
    * @param cardResponse The associated card response.
@@ -326,8 +760,15 @@ private void saveTransactionAuditData(CardRequestSpi cardRequest, CardResponseAp
       List<ApduRequestSpi> requests = cardRequest.getApduRequests();
       List<ApduResponseApi> responses = cardResponse.getApduResponses();
       for (int i = 0; i < responses.size(); i++) {
-        transactionAuditData.add(requests.get(i).getApdu());
-        transactionAuditData.add(responses.get(i).getApdu());
+        byte[] apduRequest = requests.get(i).getApdu();
+        byte[] apduResponse = responses.get(i).getApdu();
+        synchronized (transactionAuditData) {
+          transactionAuditData.add(apduRequest);
+          transactionAuditData.add(apduResponse);
+        }
+        if (auditSink != null) {
+          auditSink.onApduExchanged(card.getCalypsoSerialNumberFull(), apduRequest, apduResponse);
+        }
       }
     }
   }
@@ -335,10 +776,14 @@ private void saveTransactionAuditData(CardRequestSpi cardRequest, CardResponseAp
   /**
    * Returns a string representation of the transaction audit data.
    *
-   * @return A non-empty string.
+   * @return A non-empty string, or an empty string if the deferred rendering of the transaction
+   *     audit data is enabled.
    * @since 3.0.0
    */
   final String getTransactionAuditDataAsString() {
+    if (options.isTransactionAuditDataDeferred()) {
+      return "";
+    }
     return "\nTransaction audit JSON data: {"
         + "\"targetSmartCard\":"
         + card.toString()
@@ -348,6 +793,23 @@ final String getTransactionAuditDataAsString() {
         + "}";
   }
 
+  /**
+   * Attaches the transaction audit data to the provided exception, as a suppressed {@link
+   * TransactionAuditTrace} whose JSON message is only rendered when read, if the deferred
+   * rendering of the transaction audit data is enabled.
+   *
+   * @param exception The exception to be thrown.
+   * @param <E> The type of the exception.
+   * @return The provided exception.
+   * @since 3.3.0
+   */
+  final <E extends RuntimeException> E withTransactionAuditData(E exception) {
+    if (options.isTransactionAuditDataDeferred()) {
+      exception.addSuppressed(new TransactionAuditTrace(card, transactionAuditData));
+    }
+    return exception;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -355,6 +817,7 @@ final String getTransactionAuditDataAsString() {
    */
   @Override
   public final T prepareSelectFile(short lid) {
+    checkNoAsyncProcessingPending();
     try {
       commands.add(new CommandSelectFile(getTransactionContext(), getCommandContext(), lid));
     } catch (RuntimeException e) {
@@ -371,6 +834,7 @@ public final T prepareSelectFile(short lid) {
    */
   @Override
   public final T prepareSelectFile(SelectFileControl selectFileControl) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance().notNull(selectFileControl, "selectFileControl");
       commands.add(
@@ -389,6 +853,7 @@ public final T prepareSelectFile(SelectFileControl selectFileControl) {
    */
   @Override
   public T prepareGetData(GetDataTag tag) {
+    checkNoAsyncProcessingPending();
     try {
       if (getCommandContext().isSecureSessionOpen()) {
         throw new IllegalStateException(MSG_SECURE_SESSION_OPEN);
@@ -446,6 +911,7 @@ public T prepareGetData(GetDataTag tag) {
    */
   @Override
   public T preparePutData(PutDataTag putDataTag, byte[] data) {
+    checkNoAsyncProcessingPending();
     if (getCommandContext().isSecureSessionOpen()) {
       throw new IllegalStateException(MSG_SECURE_SESSION_OPEN);
     }
@@ -518,6 +984,7 @@ private void preparePutDataCertificate(PutDataTag putDataTag, byte[] data, int c
    */
   @Override
   public final T prepareReadRecord(byte sfi, int recordNumber) {
+    checkNoAsyncProcessingPending();
     try {
       if (getCommandContext().isSecureSessionOpen()) {
         throw new IllegalStateException(MSG_SECURE_SESSION_OPEN);
@@ -535,6 +1002,20 @@ public final T prepareReadRecord(byte sfi, int recordNumber) {
       // However, "legacy case 1" cards require a non-zero value.
       Integer recordSize = card.isLegacyCase1() ? CalypsoCardConstant.LEGACY_REC_LENGTH : null;
 
+      if (isReadElisionAllowed(sfi)
+          && card.isRecordReadFromCard(sfi, recordNumber, recordSize != null ? recordSize : 0)) {
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "Read of record #{} of SFI {}h skipped: already read from the card",
+              recordNumber,
+              HexUtil.toHex(sfi));
+        }
+        if (options.getSkippedReadListener() != null) {
+          options.getSkippedReadListener().onRecordsReadSkipped(sfi, recordNumber, recordNumber);
+        }
+        return currentInstance;
+      }
+
       commands.add(
           new CommandReadRecords(
               getTransactionContext(),
@@ -560,6 +1041,7 @@ public final T prepareReadRecord(byte sfi, int recordNumber) {
   @Override
   public final T prepareReadRecords(
       byte sfi, int fromRecordNumber, int toRecordNumber, int recordSize) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .isInRange((int) sfi, CalypsoCardConstant.SFI_MIN, CalypsoCardConstant.SFI_MAX, "sfi")
@@ -572,6 +1054,23 @@ public final T prepareReadRecords(
               toRecordNumber, fromRecordNumber, CalypsoCardConstant.NB_REC_MAX, "toRecordNumber")
           .isInRange(recordSize, 0, getPayloadCapacity(), "recordSize");
 
+      if (isReadElisionAllowed(sfi)
+          && areRecordsReadFromCard(sfi, fromRecordNumber, toRecordNumber, recordSize)) {
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "Read of records #{} to #{} of SFI {}h skipped: already read from the card",
+              fromRecordNumber,
+              toRecordNumber,
+              HexUtil.toHex(sfi));
+        }
+        if (options.getSkippedReadListener() != null) {
+          options
+              .getSkippedReadListener()
+              .onRecordsReadSkipped(sfi, fromRecordNumber, toRecordNumber);
+        }
+        return currentInstance;
+      }
+
       if (toRecordNumber == fromRecordNumber
           || (card.getProductType() != CalypsoCard.ProductType.PRIME_REVISION_3
               && card.getProductType() != CalypsoCard.ProductType.LIGHT)) {
@@ -646,6 +1145,25 @@ public final T prepareReadRecords(
     return currentInstance;
   }
 
+  /**
+   * Indicates if all the records of the provided range have already been read from the card.
+   *
+   * @param sfi The SFI.
+   * @param fromRecordNumber The number of the first record.
+   * @param toRecordNumber The number of the last record.
+   * @param recordSize The expected record size.
+   * @return True if no record needs to be read.
+   */
+  private boolean areRecordsReadFromCard(
+      byte sfi, int fromRecordNumber, int toRecordNumber, int recordSize) {
+    for (int i = fromRecordNumber; i <= toRecordNumber; i++) {
+      if (!card.isRecordReadFromCard(sfi, i, recordSize)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -654,13 +1172,15 @@ public final T prepareReadRecords(
   @Override
   public final T prepareReadRecordsPartially(
       byte sfi, int fromRecordNumber, int toRecordNumber, int offset, int nbBytesToRead) {
+    checkNoAsyncProcessingPending();
     try {
       if (card.getProductType() != CalypsoCard.ProductType.PRIME_REVISION_3
           && card.getProductType() != CalypsoCard.ProductType.LIGHT) {
         throw new UnsupportedOperationException(
             "'Read Record Multiple' command not available for this card");
       }
-      if (getCommandContext().isSecureSessionOpen()) {
+      // Inside a secure session, the response can only be anticipated in pre-open mode
+      if (getCommandContext().isSecureSessionOpen() && card.getPreOpenWriteAccessLevel() == null) {
         throw new IllegalStateException(MSG_SECURE_SESSION_OPEN);
       }
 
@@ -711,6 +1231,7 @@ public final T prepareReadRecordsPartially(
    */
   @Override
   public final T prepareReadBinary(byte sfi, int offset, int nbBytesToRead) {
+    checkNoAsyncProcessingPending();
     try {
       if (card.getProductType() != CalypsoCard.ProductType.PRIME_REVISION_3) {
         if (card.getProductType() == CalypsoCard.ProductType.PRIME_REVISION_2) {
@@ -730,6 +1251,20 @@ public final T prepareReadBinary(byte sfi, int offset, int nbBytesToRead) {
               MSG_OFFSET)
           .greaterOrEqual(nbBytesToRead, 1, "nbBytesToRead");
 
+      if (isReadElisionAllowed(sfi) && card.isBinaryReadFromCard(sfi, offset, nbBytesToRead)) {
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              "Read of {} bytes at offset {} of SFI {}h skipped: already read from the card",
+              nbBytesToRead,
+              offset,
+              HexUtil.toHex(sfi));
+        }
+        if (options.getSkippedReadListener() != null) {
+          options.getSkippedReadListener().onBinaryReadSkipped(sfi, offset, nbBytesToRead);
+        }
+        return currentInstance;
+      }
+
       if (sfi > 0 && offset > 255) { // FFh
         // Tips to select the file: add a "Read Binary" command (read one byte at offset 0).
         commands.add(
@@ -774,6 +1309,7 @@ public final T prepareReadCounter(byte sfi, int nbCountersToRead) {
    */
   @Override
   public final T prepareSearchRecords(SearchCommandData data) {
+    checkNoAsyncProcessingPending();
     try {
       if (card.getProductType() != CalypsoCard.ProductType.PRIME_REVISION_3) {
         throw new UnsupportedOperationException(
@@ -839,6 +1375,7 @@ public final T prepareSearchRecords(SearchCommandData data) {
    */
   @Override
   public final T prepareCheckPinStatus() {
+    checkNoAsyncProcessingPending();
     try {
       if (!card.isPinFeatureAvailable()) {
         throw new UnsupportedOperationException(MSG_PIN_NOT_AVAILABLE);
@@ -858,6 +1395,7 @@ public final T prepareCheckPinStatus() {
    */
   @Override
   public final T prepareAppendRecord(byte sfi, byte[] recordData) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .isInRange((int) sfi, CalypsoCardConstant.SFI_MIN, CalypsoCardConstant.SFI_MAX, "sfi")
@@ -865,8 +1403,7 @@ public final T prepareAppendRecord(byte sfi, byte[] recordData) {
           .isInRange(recordData.length, 0, getPayloadCapacity(), MSG_RECORD_DATA_LENGTH);
       CommandAppendRecord command =
           new CommandAppendRecord(getTransactionContext(), getCommandContext(), sfi, recordData);
-      prepareNewSecureSessionIfNeeded(command);
-      commands.add(command);
+      addFileModificationCommand(command);
     } catch (RuntimeException e) {
       resetTransaction();
       throw e;
@@ -881,6 +1418,7 @@ public final T prepareAppendRecord(byte sfi, byte[] recordData) {
    */
   @Override
   public final T prepareUpdateRecord(byte sfi, int recordNumber, byte[] recordData) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .isInRange((int) sfi, CalypsoCardConstant.SFI_MIN, CalypsoCardConstant.SFI_MAX, "sfi")
@@ -894,8 +1432,7 @@ public final T prepareUpdateRecord(byte sfi, int recordNumber, byte[] recordData
       CommandUpdateRecord command =
           new CommandUpdateRecord(
               getTransactionContext(), getCommandContext(), sfi, recordNumber, recordData);
-      prepareNewSecureSessionIfNeeded(command);
-      commands.add(command);
+      addFileModificationCommand(command);
     } catch (RuntimeException e) {
       resetTransaction();
       throw e;
@@ -910,6 +1447,7 @@ public final T prepareUpdateRecord(byte sfi, int recordNumber, byte[] recordData
    */
   @Override
   public final T prepareWriteRecord(byte sfi, int recordNumber, byte[] recordData) {
+    checkNoAsyncProcessingPending();
     try {
       Assert.getInstance()
           .isInRange((int) sfi, CalypsoCardConstant.SFI_MIN, CalypsoCardConstant.SFI_MAX, "sfi")
@@ -923,8 +1461,7 @@ public final T prepareWriteRecord(byte sfi, int recordNumber, byte[] recordData)
       CommandWriteRecord command =
           new CommandWriteRecord(
               getTransactionContext(), getCommandContext(), sfi, recordNumber, recordData);
-      prepareNewSecureSessionIfNeeded(command);
-      commands.add(command);
+      addFileModificationCommand(command);
     } catch (RuntimeException e) {
       resetTransaction();
       throw e;
@@ -939,6 +1476,7 @@ public final T prepareWriteRecord(byte sfi, int recordNumber, byte[] recordData)
    */
   @Override
   public final T prepareUpdateBinary(byte sfi, int offset, byte[] data) {
+    checkNoAsyncProcessingPending();
     return prepareUpdateOrWriteBinary(true, sfi, offset, data);
   }
 
@@ -949,6 +1487,7 @@ public final T prepareUpdateBinary(byte sfi, int offset, byte[] data) {
    */
   @Override
   public final T prepareWriteBinary(byte sfi, int offset, byte[] data) {
+    checkNoAsyncProcessingPending();
     return prepareUpdateOrWriteBinary(false, sfi, offset, data);
   }
 
@@ -1005,8 +1544,7 @@ private T prepareUpdateOrWriteBinary(boolean isUpdateCommand, byte sfi, int offs
                 sfi,
                 currentOffset,
                 Arrays.copyOfRange(data, currentIndex, currentIndex + currentLength));
-        prepareNewSecureSessionIfNeeded(command);
-        commands.add(command);
+        addFileModificationCommand(command);
 
         currentOffset += currentLength;
         currentIndex += currentLength;
@@ -1026,6 +1564,7 @@ private T prepareUpdateOrWriteBinary(boolean isUpdateCommand, byte sfi, int offs
    */
   @Override
   public final T prepareIncreaseCounter(byte sfi, int counterNumber, int incValue) {
+    checkNoAsyncProcessingPending();
     return prepareIncreaseOrDecreaseCounter(false, sfi, counterNumber, incValue);
   }
 
@@ -1037,6 +1576,7 @@ public final T prepareIncreaseCounter(byte sfi, int counterNumber, int incValue)
   @Override
   public final T prepareIncreaseCounters(
       byte sfi, Map<Integer, Integer> counterNumberToIncValueMap) {
+    checkNoAsyncProcessingPending();
     return prepareIncreaseOrDecreaseCounters(false, sfi, counterNumberToIncValueMap);
   }
 
@@ -1047,6 +1587,7 @@ public final T prepareIncreaseCounters(
    */
   @Override
   public final T prepareDecreaseCounter(byte sfi, int counterNumber, int decValue) {
+    checkNoAsyncProcessingPending();
     return prepareIncreaseOrDecreaseCounter(true, sfi, counterNumber, decValue);
   }
 
@@ -1058,6 +1599,7 @@ public final T prepareDecreaseCounter(byte sfi, int counterNumber, int decValue)
   @Override
   public final T prepareDecreaseCounters(
       byte sfi, Map<Integer, Integer> counterNumberToDecValueMap) {
+    checkNoAsyncProcessingPending();
     return prepareIncreaseOrDecreaseCounters(true, sfi, counterNumberToDecValueMap);
   }
 
@@ -1068,6 +1610,7 @@ public final T prepareDecreaseCounters(
    */
   @Override
   public final T prepareSetCounter(byte sfi, int counterNumber, int newValue) {
+    checkNoAsyncProcessingPending();
     try {
       Integer oldValue = null;
       ElementaryFile ef = card.getFileBySfi(sfi);
@@ -1257,6 +1800,7 @@ private T prepareIncreaseOrDecreaseCounters(
    */
   @Override
   public final T prepareSvReadAllLogs() {
+    checkNoAsyncProcessingPending();
     try {
       if (!card.isSvFeatureAvailable()) {
         throw new UnsupportedOperationException("Stored Value not available for this card");
@@ -1292,6 +1836,7 @@ public final T prepareSvReadAllLogs() {
    */
   @Override
   public T prepareGenerateAsymmetricKeyPair() {
+    checkNoAsyncProcessingPending();
     if (!card.isPkiModeSupported()) {
       throw new UnsupportedOperationException(MSG_PKI_MODE_IS_NOT_AVAILABLE_FOR_THIS_CARD);
     }
@@ -1306,6 +1851,10 @@ public T prepareGenerateAsymmetricKeyPair() {
   /**
    * {@inheritDoc}
    *
+   * <p>Since version 3.3.0, the returned list contains at most the number of APDUs set with {@link
+   * TransactionOptions.Builder#setTransactionAuditDataCapacity(int)}, the oldest ones being
+   * discarded.
+   *
    * @since 2.2.0
    */
   @Override
@@ -0,0 +1,357 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.keyple.card.calypso.spi.MetricsListenerSpi;
+
+/**
+ * {@link MetricsListenerSpi} aggregating the performance metrics of the transaction managers.
+ *
+ * <p>The metrics are aggregated with lock-free counters, and the durations in histograms with
+ * fixed power-of-two buckets, so that recording a measure does not allocate once each card command
+ * has been seen. A single instance can therefore be shared by all the transaction managers and
+ * stay enabled in production.
+ *
+ * <p>The time spent in a call to {@code processCommands} that is not spent in the card requests,
+ * nor in the finalization and the parsing of the card commands, is mainly spent in the crypto
+ * services.
+ *
+ * <p>The values read while measures are being recorded are not an atomic snapshot.
+ *
+ * @since 3.3.0
+ */
+public final class TransactionMetrics implements MetricsListenerSpi {
+
+  private final ConcurrentMap<String, CommandMetrics> commandMetricsByName =
+      new ConcurrentHashMap<>();
+  private final Histogram cardRequestTimes = new Histogram();
+  private final Histogram processingTimes = new Histogram();
+  private final LongAdder apduCount = new LongAdder();
+  private final LongAdder requestBytes = new LongAdder();
+  private final LongAdder responseBytes = new LongAdder();
+  private final LongAdder processedCardRequestCount = new LongAdder();
+  private final LongAccumulator maxCardRequestsPerProcessing = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Returns the metrics of the card command having the provided name, creating them if needed.
+   *
+   * @param commandName The name of the card command.
+   * @return A not null reference.
+   */
+  private CommandMetrics getOrCreateCommandMetrics(String commandName) {
+    CommandMetrics commandMetrics = commandMetricsByName.get(commandName);
+    if (commandMetrics == null) {
+      commandMetrics = new CommandMetrics();
+      CommandMetrics previous = commandMetricsByName.putIfAbsent(commandName, commandMetrics);
+      if (previous != null) {
+        commandMetrics = previous;
+      }
+    }
+    return commandMetrics;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public void onCommandFinalized(String commandName, long durationNanos) {
+    getOrCreateCommandMetrics(commandName).finalizationTimes.record(durationNanos);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public void onCommandParsed(String commandName, long durationNanos) {
+    getOrCreateCommandMetrics(commandName).parsingTimes.record(durationNanos);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public void onCardRequestTransmitted(
+      int apduCount, int requestBytes, int responseBytes, long durationNanos) {
+    this.apduCount.add(apduCount);
+    this.requestBytes.add(requestBytes);
+    this.responseBytes.add(responseBytes);
+    cardRequestTimes.record(durationNanos);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.3.0
+   */
+  @Override
+  public void onCommandsProcessed(int cardRequestCount, long durationNanos) {
+    processedCardRequestCount.add(cardRequestCount);
+    maxCardRequestsPerProcessing.accumulate(cardRequestCount);
+    processingTimes.record(durationNanos);
+  }
+
+  /**
+   * Returns the names of the card commands for which metrics have been recorded.
+   *
+   * @return An unmodifiable view, empty if no command has been recorded.
+   * @since 3.3.0
+   */
+  public Set<String> getCommandNames() {
+    return Collections.unmodifiableSet(commandMetricsByName.keySet());
+  }
+
+  /**
+   * Returns the histogram of the durations of the finalization of the requests of the card command
+   * having the provided name.
+   *
+   * @param commandName The name of the card command.
+   * @return null if no measure has been recorded for this command.
+   * @since 3.3.0
+   */
+  public Histogram getFinalizationTimes(String commandName) {
+    CommandMetrics commandMetrics = commandMetricsByName.get(commandName);
+    return commandMetrics != null ? commandMetrics.finalizationTimes : null;
+  }
+
+  /**
+   * Returns the histogram of the durations of the parsing of the responses of the card command
+   * having the provided name.
+   *
+   * @param commandName The name of the card command.
+   * @return null if no measure has been recorded for this command.
+   * @since 3.3.0
+   */
+  public Histogram getParsingTimes(String commandName) {
+    CommandMetrics commandMetrics = commandMetricsByName.get(commandName);
+    return commandMetrics != null ? commandMetrics.parsingTimes : null;
+  }
+
+  /**
+   * Returns the histogram of the durations of the card requests exchanged with the card readers.
+   *
+   * @return A not null reference.
+   * @since 3.3.0
+   */
+  public Histogram getCardRequestTimes() {
+    return cardRequestTimes;
+  }
+
+  /**
+   * Returns the histogram of the durations of the calls to {@code processCommands}.
+   *
+   * @return A not null reference.
+   * @since 3.3.0
+   */
+  public Histogram getProcessingTimes() {
+    return processingTimes;
+  }
+
+  /**
+   * Returns the total number of APDUs of the card requests.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public long getApduCount() {
+    return apduCount.sum();
+  }
+
+  /**
+   * Returns the total length of the command APDUs.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public long getRequestBytes() {
+    return requestBytes.sum();
+  }
+
+  /**
+   * Returns the total length of the response APDUs, status words included.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public long getResponseBytes() {
+    return responseBytes.sum();
+  }
+
+  /**
+   * Returns the total number of card requests exchanged by the calls to {@code processCommands}.
+   *
+   * <p>Divided by the count of {@link #getProcessingTimes()}, it gives the average number of card
+   * requests per call.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public long getProcessedCardRequestCount() {
+    return processedCardRequestCount.sum();
+  }
+
+  /**
+   * Returns the maximum number of card requests exchanged by a single call to {@code
+   * processCommands}.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  public long getMaxCardRequestsPerProcessing() {
+    return maxCardRequestsPerProcessing.get();
+  }
+
+  /**
+   * Resets all the metrics.
+   *
+   * <p>Measures recorded concurrently may be partially lost.
+   *
+   * @since 3.3.0
+   */
+  public void reset() {
+    commandMetricsByName.clear();
+    cardRequestTimes.reset();
+    processingTimes.reset();
+    apduCount.reset();
+    requestBytes.reset();
+    responseBytes.reset();
+    processedCardRequestCount.reset();
+    maxCardRequestsPerProcessing.reset();
+  }
+
+  /** The metrics of a card command. */
+  private static final class CommandMetrics {
+    private final Histogram finalizationTimes = new Histogram();
+    private final Histogram parsingTimes = new Histogram();
+  }
+
+  /**
+   * Lock-free histogram of durations.
+   *
+   * <p>The durations are counted in {@value #BUCKET_COUNT} buckets: the bucket 0 counts the
+   * durations lower than 1 microsecond, the bucket {@code i} the durations from 2<sup>i-1</sup>
+   * (included) to 2<sup>i</sup> (excluded) microseconds, and the last bucket the longer durations.
+   *
+   * @since 3.3.0
+   */
+  public static final class Histogram {
+
+    /**
+     * The number of buckets.
+     *
+     * @since 3.3.0
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    private Histogram() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param durationNanos The duration in nanoseconds, negative values being counted as 0.
+     */
+    private void record(long durationNanos) {
+      long duration = Math.max(durationNanos, 0);
+      int index = 64 - Long.numberOfLeadingZeros(duration / 1000);
+      buckets[Math.min(index, BUCKET_COUNT - 1)].increment();
+      totalNanos.add(duration);
+      maxNanos.accumulate(duration);
+    }
+
+    /** Resets the histogram. */
+    private void reset() {
+      for (LongAdder bucket : buckets) {
+        bucket.reset();
+      }
+      totalNanos.reset();
+      maxNanos.reset();
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return A positive or zero value.
+     * @since 3.3.0
+     */
+    public long getCount() {
+      long count = 0;
+      for (LongAdder bucket : buckets) {
+        count += bucket.sum();
+      }
+      return count;
+    }
+
+    /**
+     * Returns the sum of the recorded durations.
+     *
+     * @return A value in nanoseconds.
+     * @since 3.3.0
+     */
+    public long getTotalNanos() {
+      return totalNanos.sum();
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return A value in nanoseconds, 0 if no duration has been recorded.
+     * @since 3.3.0
+     */
+    public long getMaxNanos() {
+      return maxNanos.get();
+    }
+
+    /**
+     * Returns the number of recorded durations of each bucket.
+     *
+     * @return A new array of {@value #BUCKET_COUNT} elements.
+     * @since 3.3.0
+     */
+    public long[] getBucketCounts() {
+      long[] counts = new long[BUCKET_COUNT];
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        counts[i] = buckets[i].sum();
+      }
+      return counts;
+    }
+
+    /**
+     * Returns the exclusive upper bound of the durations counted in the provided bucket.
+     *
+     * @param index The index of the bucket (in range [0..{@value #BUCKET_COUNT} - 1]).
+     * @return A value in microseconds, {@link Long#MAX_VALUE} for the last bucket.
+     * @since 3.3.0
+     */
+    public static long getBucketUpperBoundMicros(int index) {
+      return index < BUCKET_COUNT - 1 ? 1L << index : Long.MAX_VALUE;
+    }
+  }
+}
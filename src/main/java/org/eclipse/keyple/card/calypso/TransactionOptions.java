@@ -0,0 +1,426 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.concurrent.Executor;
+import org.eclipse.keyple.card.calypso.spi.AuditSinkSpi;
+import org.eclipse.keyple.card.calypso.spi.MetricsListenerSpi;
+import org.eclipse.keyple.card.calypso.spi.SkippedReadListenerSpi;
+import org.eclipse.keyple.core.util.Assert;
+
+/**
+ * Optional features of a transaction manager, not covered by the Calypso card API.
+ *
+ * <p>The options are applied to a transaction manager with {@link
+ * CalypsoExtensionService#setTransactionOptions}. They are taken into account from the next command
+ * preparation or processing, and remain unchanged until new options are applied to the same
+ * transaction manager. The transaction managers to which no options are applied use the default
+ * options, all the features being disabled.
+ *
+ * <p>Options are immutable and can be shared by several transaction managers.
+ *
+ * @since 3.3.0
+ */
+public final class TransactionOptions {
+
+  static final int DEFAULT_TRANSACTION_AUDIT_DATA_CAPACITY = 1024;
+
+  /** Options applied to the transaction managers by default. */
+  static final TransactionOptions DEFAULT = builder().build();
+
+  private final boolean isCommandsOptimizationEnabled;
+  private final boolean isRedundantReadsElisionEnabled;
+  private final boolean isSessionBufferPackingEnabled;
+  private final boolean isCommunicationFailureRecoveryEnabled;
+  private final int transactionAuditDataCapacity;
+  private final boolean isTransactionAuditDataDeferred;
+  private final AuditSinkSpi auditSink;
+  private final MetricsListenerSpi metricsListener;
+  private final SkippedReadListenerSpi skippedReadListener;
+  private final Executor cryptoPipeliningExecutor;
+
+  private TransactionOptions(Builder builder) {
+    isCommandsOptimizationEnabled = builder.isCommandsOptimizationEnabled;
+    isRedundantReadsElisionEnabled = builder.isRedundantReadsElisionEnabled;
+    isSessionBufferPackingEnabled = builder.isSessionBufferPackingEnabled;
+    isCommunicationFailureRecoveryEnabled = builder.isCommunicationFailureRecoveryEnabled;
+    transactionAuditDataCapacity = builder.transactionAuditDataCapacity;
+    isTransactionAuditDataDeferred = builder.isTransactionAuditDataDeferred;
+    auditSink = builder.auditSink;
+    metricsListener = builder.metricsListener;
+    skippedReadListener = builder.skippedReadListener;
+    cryptoPipeliningExecutor = builder.cryptoPipeliningExecutor;
+  }
+
+  /**
+   * Returns a new builder of options, all the features being disabled.
+   *
+   * @return A not null reference.
+   * @since 3.3.0
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return True if the optimization of the prepared card commands is enabled.
+   * @since 3.3.0
+   */
+  boolean isCommandsOptimizationEnabled() {
+    return isCommandsOptimizationEnabled;
+  }
+
+  /**
+   * @return True if the elision of the redundant read commands is enabled.
+   * @since 3.3.0
+   */
+  boolean isRedundantReadsElisionEnabled() {
+    return isRedundantReadsElisionEnabled;
+  }
+
+  /**
+   * @return True if the packing of the card modifications in the secure sessions is enabled.
+   * @since 3.3.0
+   */
+  boolean isSessionBufferPackingEnabled() {
+    return isSessionBufferPackingEnabled;
+  }
+
+  /**
+   * @return True if the recovery after a communication failure is enabled.
+   * @since 3.3.0
+   */
+  boolean isCommunicationFailureRecoveryEnabled() {
+    return isCommunicationFailureRecoveryEnabled;
+  }
+
+  /**
+   * @return The maximum number of APDUs kept in the transaction audit data ({@code >=} 2).
+   * @since 3.3.0
+   */
+  int getTransactionAuditDataCapacity() {
+    return transactionAuditDataCapacity;
+  }
+
+  /**
+   * @return True if the transaction audit data is attached to the exceptions instead of being
+   *     appended to their message.
+   * @since 3.3.0
+   */
+  boolean isTransactionAuditDataDeferred() {
+    return isTransactionAuditDataDeferred;
+  }
+
+  /**
+   * @return The sink receiving the exchanged APDUs, null if no sink is set.
+   * @since 3.3.0
+   */
+  AuditSinkSpi getAuditSink() {
+    return auditSink;
+  }
+
+  /**
+   * @return The listener receiving the performance metrics, null if no listener is set.
+   * @since 3.3.0
+   */
+  MetricsListenerSpi getMetricsListener() {
+    return metricsListener;
+  }
+
+  /**
+   * @return The listener receiving the skipped reads, null if no listener is set.
+   * @since 3.3.0
+   */
+  SkippedReadListenerSpi getSkippedReadListener() {
+    return skippedReadListener;
+  }
+
+  /**
+   * @return The executor used to pipeline the crypto service and card I/O, null if the pipelining
+   *     is disabled.
+   * @since 3.3.0
+   */
+  Executor getCryptoPipeliningExecutor() {
+    return cryptoPipeliningExecutor;
+  }
+
+  /**
+   * Builder of {@link TransactionOptions}.
+   *
+   * @since 3.3.0
+   */
+  public static final class Builder {
+
+    private boolean isCommandsOptimizationEnabled;
+    private boolean isRedundantReadsElisionEnabled;
+    private boolean isSessionBufferPackingEnabled;
+    private boolean isCommunicationFailureRecoveryEnabled;
+    private int transactionAuditDataCapacity = DEFAULT_TRANSACTION_AUDIT_DATA_CAPACITY;
+    private boolean isTransactionAuditDataDeferred;
+    private AuditSinkSpi auditSink;
+    private MetricsListenerSpi metricsListener;
+    private SkippedReadListenerSpi skippedReadListener;
+    private Executor cryptoPipeliningExecutor;
+
+    private Builder() {}
+
+    /**
+     * Enables the optimization of the prepared card commands, applied when processing the
+     * commands.
+     *
+     * <p>Adjacent commands are then coalesced to reduce the number of APDUs exchanged with the
+     * card:
+     *
+     * <ul>
+     *   <li>"Read Records" commands targeting consecutive records of the same file are merged into
+     *       a single "Read Records" command in "multiple records" mode (Calypso Prime revision 3
+     *       and Light cards), provided that the records exist according to the file header already
+     *       present in the card image,
+     *   <li>a "Select File" command selecting the same LID as the previous one is dropped,
+     *   <li>"Increase" or "Decrease" commands targeting distinct counters of the same file are
+     *       folded into a single "Increase Multiple" or "Decrease Multiple" command (Calypso Prime
+     *       revision 2 and 3 cards).
+     * </ul>
+     *
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder enableCommandsOptimization() {
+      isCommandsOptimizationEnabled = true;
+      return this;
+    }
+
+    /**
+     * Enables the elision of the redundant read commands, applied when preparing the commands.
+     *
+     * <p>A "Read Record", "Read Records" or "Read Binary" command is then not prepared if all the
+     * requested data has already been read from the card during the current selection (e.g. by
+     * the card selection extension) and has not been modified since. The data is then directly
+     * available in the {@link org.eclipse.keypop.calypso.card.card.CalypsoCard} image and each
+     * skipped read is reported in the debug logs and to the listener set with {@link
+     * #setSkippedReadListener(SkippedReadListenerSpi)}, if any.
+     *
+     * <p>The read commands are always prepared when the freshness of the data cannot be
+     * guaranteed: inside a secure session, when the SFI is not specified, when a command
+     * modifying the card content is pending, or when the data has been modified or restored since
+     * it was read.
+     *
+     * <p>Note that a skipped read does not select the file in the card: applications relying on
+     * the implicit selection of the current file (SFI 0) by a previous read should not enable this
+     * option.
+     *
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder enableRedundantReadsElision() {
+      isRedundantReadsElisionEnabled = true;
+      return this;
+    }
+
+    /**
+     * Enables the packing of the card modifications in the secure sessions, applied by the
+     * transaction managers using a symmetric crypto service when the multiple session mode is
+     * enabled.
+     *
+     * <p>By default, when a command would overflow the modifications buffer of the card, the
+     * current secure session is closed and a new one is opened, even if the command would fit in a
+     * previous session of the same processing. When enabled, such a command is instead inserted at
+     * the end of the first previous session having enough room in its buffer, saving a closing and
+     * an opening of session (two card APDUs and their crypto service operations).
+     *
+     * <p>Only the "Append Record", "Update Record", "Write Record", "Update Binary" and "Write
+     * Binary" commands targeting an SFI are moved, and only when all the commands prepared after
+     * the insertion point are "Read Records", "Read Binary", "Increase", "Decrease" or such
+     * modification commands targeting another SFI, so that the order of the accesses to each file
+     * is preserved.
+     *
+     * <p><b>Caution:</b> this changes the atomicity of the modifications. A moved command is
+     * committed with the earlier session into which it is inserted, and no longer with the session
+     * in which it has been prepared: if the processing is interrupted after the closing of the
+     * earlier session, the moved modification is applied to the card while the modifications
+     * prepared with it in the same session are not. This option must therefore only be enabled
+     * when the modifications of the different files are independent of each other.
+     *
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder enableSessionBufferPacking() {
+      isSessionBufferPackingEnabled = true;
+      return this;
+    }
+
+    /**
+     * Enables the recovery after a communication failure with the card or the reader occurring
+     * outside a secure session.
+     *
+     * <p>By default, a {@link org.eclipse.keypop.reader.CardCommunicationException} or a {@link
+     * org.eclipse.keypop.reader.ReaderCommunicationException} thrown by {@code processCommands}
+     * resets the transaction: all the prepared commands are discarded, and the transaction must be
+     * restarted from the card selection.
+     *
+     * <p>When enabled, the responses received before the failure are taken into account in the
+     * card image, and the commands not executed yet remain prepared, so that the next call to
+     * {@code processCommands} resumes the processing from the first command whose response was not
+     * received. The recovery only applies when:
+     *
+     * <ul>
+     *   <li>no secure session is open, opened or involved in the processed commands,
+     *   <li>no processed command requires the crypto service,
+     *   <li>the first command whose response was not received has the same effect when executed
+     *       twice (read, select, "Get Data", "Update Record", "Write Record", "Update Binary" or
+     *       "Write Binary" command), since the card may have executed it before the failure.
+     * </ul>
+     *
+     * <p>Otherwise, the transaction is reset as usual. The application is responsible for
+     * resuming the processing with the same card, and for selecting the application again if the
+     * card has been reset in the meantime.
+     *
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder enableCommunicationFailureRecovery() {
+      isCommunicationFailureRecoveryEnabled = true;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of APDUs kept in the transaction audit data.
+     *
+     * <p>When the capacity is reached, the oldest APDUs are discarded, so that the memory used by
+     * a long-lived transaction manager remains bounded. An odd capacity is rounded down to the
+     * previous even number, so that the command/response pairs are discarded together.
+     *
+     * <p>Default value: 1024.
+     *
+     * @param capacity The number of APDUs, commands and responses included (should be {@code >=}
+     *     2).
+     * @return The current instance.
+     * @throws IllegalArgumentException If the capacity is out of range.
+     * @since 3.3.0
+     */
+    public Builder setTransactionAuditDataCapacity(int capacity) {
+      Assert.getInstance().greaterOrEqual(capacity, 2, "capacity");
+      transactionAuditDataCapacity = capacity & ~1;
+      return this;
+    }
+
+    /**
+     * Enables the deferred rendering of the transaction audit data in the exceptions thrown by the
+     * transaction managers.
+     *
+     * <p>By default, the transaction audit data (card image and exchanged APDUs) is rendered in
+     * JSON format and appended to the message of the exceptions when they are thrown, even if the
+     * message is never read.
+     *
+     * <p>When enabled, the transaction audit data is instead attached to the exceptions as a
+     * suppressed exception, whose message is only rendered in JSON format when read (e.g. when the
+     * stack trace is printed). The exchanged APDUs are then those at the time the exception is
+     * thrown, while the card image is the one at the time the message is read.
+     *
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder enableDeferredTransactionAuditData() {
+      isTransactionAuditDataDeferred = true;
+      return this;
+    }
+
+    /**
+     * Sets the sink receiving the APDUs exchanged with the card, in addition to the transaction
+     * audit data.
+     *
+     * <p>The sink is invoked on the thread processing the card commands. {@link
+     * MappedFileAuditSink} is a reference implementation writing the exchanges to a file from a
+     * background thread.
+     *
+     * @param auditSink The sink, null to set no sink (default).
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder setAuditSink(AuditSinkSpi auditSink) {
+      this.auditSink = auditSink;
+      return this;
+    }
+
+    /**
+     * Sets the listener receiving the performance metrics: the durations of the finalization and of
+     * the parsing of each card command, the durations and sizes of the card requests, and the
+     * number of card requests of each call to {@code processCommands}.
+     *
+     * <p>The listener is invoked on the thread processing the card commands. {@link
+     * TransactionMetrics} is a reference implementation aggregating the metrics with lock-free
+     * counters and histograms.
+     *
+     * <p>No measurement is made when no listener is set (default).
+     *
+     * @param metricsListener The listener, null to set no listener.
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder setMetricsListener(MetricsListenerSpi metricsListener) {
+      this.metricsListener = metricsListener;
+      return this;
+    }
+
+    /**
+     * Sets the listener receiving the read commands skipped when the elision of the redundant reads
+     * is enabled (see {@link #enableRedundantReadsElision()}).
+     *
+     * <p>The listener is invoked on the thread preparing the card commands.
+     *
+     * @param skippedReadListener The listener, null to set no listener (default).
+     * @return The current instance.
+     * @since 3.3.0
+     */
+    public Builder setSkippedReadListener(SkippedReadListenerSpi skippedReadListener) {
+      this.skippedReadListener = skippedReadListener;
+      return this;
+    }
+
+    /**
+     * Enables the pipelining of the crypto service and card I/O, applied by the transaction
+     * managers using a symmetric crypto service, using the provided executor.
+     *
+     * <p>When enabled, the operations already submitted to the crypto service, which do not depend
+     * on the pending card responses (e.g. the session MAC updates with the anticipated responses),
+     * are processed on a thread of the executor while the card request is transmitted, instead of
+     * after it. The transmission is awaited before the card responses are parsed.
+     *
+     * <p>This is only useful when the crypto service (e.g. a SAM) and the card are accessed through
+     * different readers, which must support being used concurrently.
+     *
+     * <p>The crypto service is then invoked from the threads of the executor, but never
+     * concurrently for the same transaction. The APDUs exchanged with the card and with the crypto
+     * service may be interleaved differently in the transaction audit data.
+     *
+     * @param executor The executor.
+     * @return The current instance.
+     * @throws IllegalArgumentException If the executor is null.
+     * @since 3.3.0
+     */
+    public Builder enableCryptoPipelining(Executor executor) {
+      Assert.getInstance().notNull(executor, "executor");
+      cryptoPipeliningExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Builds the options.
+     *
+     * @return A new instance.
+     * @since 3.3.0
+     */
+    public TransactionOptions build() {
+      return new TransactionOptions(this);
+    }
+  }
+}
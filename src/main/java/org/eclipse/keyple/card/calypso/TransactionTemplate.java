@@ -0,0 +1,269 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import org.eclipse.keyple.core.util.Assert;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.calypso.card.transaction.TransactionManager;
+
+/**
+ * Sequence of command preparations recorded once and applied to the transaction managers of
+ * successive cards.
+ *
+ * <p>A template is made of steps, each step invoking some {@code prepareXxx} methods on the
+ * transaction manager to which the template is applied:
+ *
+ * <ul>
+ *   <li>A <b>static</b> step only depends on its own parameters and on the characteristics of the
+ *       card (product type, class, payload capacity). The first time it is applied for a given kind
+ *       of card and of transaction manager, it is executed normally and the prepared commands are
+ *       recorded without their context, i.e. only as their APDU bytes and parameters. The following
+ *       applications add copies of the recorded commands bound to the context of the transaction
+ *       manager, reusing their APDU bytes, without executing the step again (i.e. without the
+ *       validation of the parameters and the building of the APDUs).
+ *   <li>A <b>variable</b> step depends on data only known at the time of the transaction (e.g. the
+ *       data to write, the content previously read from the card) or opens/closes a secure session.
+ *       It is executed each time the template is applied.
+ * </ul>
+ *
+ * <p>The commands of a static step are only recorded when they are all "Select File", "Read
+ * Records", "Read Binary" or "Get Data" commands prepared outside a secure session, and when the
+ * elision of the redundant reads is disabled. Otherwise, or if the step prepares no command, the
+ * step is executed each time the template is applied, like a variable step.
+ *
+ * <p>A template is immutable and can be applied concurrently by several threads.
+ *
+ * @param <T> The type of the transaction managers to which the template is applied.
+ * @since 3.3.0
+ */
+public final class TransactionTemplate<T extends TransactionManager<T>> {
+
+  private static final Command[] NOT_COMPILABLE = new Command[0];
+
+  private final List<Step<T>> steps;
+
+  private TransactionTemplate(Builder<T> builder) {
+    steps = new ArrayList<>(builder.steps);
+  }
+
+  /**
+   * Returns a new builder of template.
+   *
+   * @param <T> The type of the transaction managers to which the template is applied.
+   * @return A not null reference.
+   * @since 3.3.0
+   */
+  public static <T extends TransactionManager<T>> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Prepares the commands of the template in the provided transaction manager, after the already
+   * prepared commands.
+   *
+   * <p>The commands are processed by the usual {@code processCommands} method of the transaction
+   * manager.
+   *
+   * @param transactionManager The transaction manager.
+   * @return The provided transaction manager.
+   * @throws IllegalArgumentException If the transaction manager is null or has not been created by
+   *     this extension.
+   * @throws RuntimeException Any exception thrown by the execution of a step (the prepared commands
+   *     of the transaction manager are then reset).
+   * @since 3.3.0
+   */
+  @SuppressWarnings("unchecked")
+  public T applyTo(T transactionManager) {
+    Assert.getInstance().notNull(transactionManager, "transactionManager");
+    if (!(transactionManager instanceof TransactionManagerAdapter)) {
+      throw new IllegalArgumentException(
+          "The provided 'transactionManager' must be an instance of 'TransactionManagerAdapter'");
+    }
+    TransactionManagerAdapter<T> adapter = (TransactionManagerAdapter<T>) transactionManager;
+    CompilationKey key = null;
+    for (Step<T> step : steps) {
+      if (step.compiledCommands == null || !isCompilationAllowed(adapter)) {
+        step.action.accept(transactionManager);
+        continue;
+      }
+      if (key == null) {
+        key = new CompilationKey(adapter);
+      }
+      Command[] compiledCommands = step.compiledCommands.get(key);
+      if (compiledCommands == null) {
+        step.compiledCommands.putIfAbsent(key, compileStep(step, transactionManager, adapter));
+      } else if (compiledCommands == NOT_COMPILABLE) {
+        step.action.accept(transactionManager);
+      } else {
+        for (Command command : compiledCommands) {
+          adapter.commands.add(
+              command.copy(adapter.getTransactionContext(), adapter.getCommandContext()));
+        }
+      }
+    }
+    return transactionManager;
+  }
+
+  /**
+   * Indicates if the commands prepared by a static step in the current state of the transaction
+   * manager can be recorded or replayed.
+   *
+   * @param adapter The transaction manager.
+   * @return False if a secure session is open or if the redundant reads may be elided.
+   */
+  private static boolean isCompilationAllowed(TransactionManagerAdapter<?> adapter) {
+    return !adapter.getCommandContext().isSecureSessionOpen()
+        && !adapter.options.isRedundantReadsElisionEnabled();
+  }
+
+  /**
+   * Executes a static step and records context-free copies of the commands it prepared.
+   *
+   * @param step The step.
+   * @param transactionManager The transaction manager.
+   * @param adapter The transaction manager as an adapter.
+   * @return The recorded commands or {@link #NOT_COMPILABLE} if no command has been prepared or
+   *     if a command cannot be copied.
+   */
+  private static <T extends TransactionManager<T>> Command[] compileStep(
+      Step<T> step, T transactionManager, TransactionManagerAdapter<T> adapter) {
+    int firstIndex = adapter.commands.size();
+    step.action.accept(transactionManager);
+    if (adapter.commands.size() == firstIndex) {
+      // The step may only have changed the state of the transaction manager (e.g. an "SV Get"
+      // command replaced by the data obtained during the card selection)
+      return NOT_COMPILABLE;
+    }
+    Command[] compiledCommands = new Command[adapter.commands.size() - firstIndex];
+    for (int i = 0; i < compiledCommands.length; i++) {
+      // Copies without context are kept, since the prepared commands are modified during their
+      // processing and would retain the card and the transaction manager of the first application
+      compiledCommands[i] = adapter.commands.get(firstIndex + i).copy(null, null);
+      if (compiledCommands[i] == null) {
+        return NOT_COMPILABLE;
+      }
+    }
+    return compiledCommands;
+  }
+
+  /**
+   * Builder of {@link TransactionTemplate}.
+   *
+   * @param <T> The type of the transaction managers to which the template is applied.
+   * @since 3.3.0
+   */
+  public static final class Builder<T extends TransactionManager<T>> {
+
+    private final List<Step<T>> steps = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * Adds a static step, whose prepared commands only depend on the characteristics of the card.
+     *
+     * @param step The step, e.g. {@code m -> m.prepareReadRecords(sfi, 1, 4, 29)}.
+     * @return The current instance.
+     * @throws IllegalArgumentException If the step is null.
+     * @since 3.3.0
+     */
+    public Builder<T> addStep(Consumer<T> step) {
+      Assert.getInstance().notNull(step, "step");
+      steps.add(new Step<>(step, true));
+      return this;
+    }
+
+    /**
+     * Adds a variable step, executed each time the template is applied.
+     *
+     * @param step The step, e.g. {@code m -> m.prepareUpdateRecord(sfi, 1, currentData())}.
+     * @return The current instance.
+     * @throws IllegalArgumentException If the step is null.
+     * @since 3.3.0
+     */
+    public Builder<T> addVariableStep(Consumer<T> step) {
+      Assert.getInstance().notNull(step, "step");
+      steps.add(new Step<>(step, false));
+      return this;
+    }
+
+    /**
+     * Builds the template.
+     *
+     * @return A new instance.
+     * @since 3.3.0
+     */
+    public TransactionTemplate<T> build() {
+      return new TransactionTemplate<>(this);
+    }
+  }
+
+  /** A step of the template. */
+  private static final class Step<T extends TransactionManager<T>> {
+
+    private final Consumer<T> action;
+    private final ConcurrentMap<CompilationKey, Command[]> compiledCommands;
+
+    private Step(Consumer<T> action, boolean isStatic) {
+      this.action = action;
+      compiledCommands = isStatic ? new ConcurrentHashMap<>() : null;
+    }
+  }
+
+  /** The characteristics of the card and of the transaction manager the commands depend on. */
+  private static final class CompilationKey {
+
+    private final Class<?> transactionManagerClass;
+    private final CalypsoCardClass cardClass;
+    private final CalypsoCard.ProductType productType;
+    private final boolean isLegacyCase1;
+    private final int payloadCapacity;
+
+    private CompilationKey(TransactionManagerAdapter<?> adapter) {
+      transactionManagerClass = adapter.getClass();
+      cardClass = adapter.card.getCardClass();
+      productType = adapter.card.getProductType();
+      isLegacyCase1 = adapter.card.isLegacyCase1();
+      payloadCapacity = adapter.getPayloadCapacity();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CompilationKey that = (CompilationKey) o;
+      return isLegacyCase1 == that.isLegacyCase1
+          && payloadCapacity == that.payloadCapacity
+          && transactionManagerClass == that.transactionManagerClass
+          && cardClass == that.cardClass
+          && productType == that.productType;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = transactionManagerClass.hashCode();
+      result = 31 * result + cardClass.hashCode();
+      result = 31 * result + productType.hashCode();
+      result = 31 * result + (isLegacyCase1 ? 1 : 0);
+      result = 31 * result + payloadCapacity;
+      return result;
+    }
+  }
+}
@@ -1,2 +1,33 @@
-/** Contains the service that offers the public entry points to the library. */
+/**
+ * Contains the service that offers the public entry points to the library.
+ *
+ * <p>{@link org.eclipse.keyple.card.calypso.CalypsoExtensionService} is the single entry point
+ * of the library: it provides the factory of the Keypop Calypso card API and the features not
+ * covered by this API, applied to the objects created by this factory (transaction managers, card
+ * selection extensions, card images).
+ *
+ * <p>The other public classes of the package are the parameters of these features, created by the
+ * application:
+ *
+ * <ul>
+ *   <li>{@link org.eclipse.keyple.card.calypso.TransactionOptions}: the options of a transaction
+ *       manager.
+ *   <li>{@link org.eclipse.keyple.card.calypso.MappedFileAuditSink}: an audit sink writing the
+ *       APDUs exchanged with the cards to a memory-mapped file.
+ *   <li>{@link org.eclipse.keyple.card.calypso.TransactionMetrics}: a metrics listener aggregating
+ *       the durations of the processing of the commands.
+ *   <li>{@link org.eclipse.keyple.card.calypso.TransactionTemplate}: a sequence of command
+ *       preparations applied to the transaction managers of successive cards.
+ *   <li>{@link org.eclipse.keyple.card.calypso.CardImageCache}: a cache of the card images used by
+ *       the card selection extensions.
+ *   <li>{@link org.eclipse.keyple.card.calypso.CardSelectionFilter} and {@link
+ *       org.eclipse.keyple.card.calypso.SerialNumberDenyList}: the filter of the cards evaluated by
+ *       the card selection extensions.
+ * </ul>
+ *
+ * <p>Unlike the objects created by the factory, whose interfaces are defined by the Keypop Calypso
+ * card API, these parameters have no equivalent in this API: they are therefore final classes of
+ * the library, which only depend on the Keypop types and on the SPIs of the {@code spi}
+ * subpackage, and whose implementation details remain package-private.
+ */
 package org.eclipse.keyple.card.calypso;
@@ -0,0 +1,38 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso.spi;
+
+/**
+ * Receiver of the APDUs exchanged with the cards by the transaction managers, for audit purposes.
+ *
+ * <p>The sink is invoked synchronously on the thread processing the card commands, once for each
+ * command/response pair, in the order of the exchanges. Implementations should therefore return
+ * quickly, deferring any I/O to another thread.
+ *
+ * <p>The provided arrays are not copied: they must not be modified, but can be kept without
+ * copying them.
+ *
+ * @see org.eclipse.keyple.card.calypso.TransactionOptions.Builder#setAuditSink(AuditSinkSpi)
+ * @since 3.3.0
+ */
+public interface AuditSinkSpi {
+
+  /**
+   * Invoked when a command/response pair has been exchanged with a card.
+   *
+   * @param cardSerialNumber The full Calypso serial number of the card (8 bytes), null if unknown.
+   * @param apduRequest The command APDU.
+   * @param apduResponse The response APDU, including the status word.
+   * @since 3.3.0
+   */
+  void onApduExchanged(byte[] cardSerialNumber, byte[] apduRequest, byte[] apduResponse);
+}
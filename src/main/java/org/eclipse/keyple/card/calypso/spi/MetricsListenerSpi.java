@@ -0,0 +1,74 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso.spi;
+
+/**
+ * Receiver of the performance metrics of the transaction managers.
+ *
+ * <p>The listener is invoked synchronously on the thread processing the card commands, and
+ * possibly concurrently from the threads of several transaction managers. Implementations should
+ * therefore be thread-safe, return quickly and avoid allocating.
+ *
+ * <p>The command names are the names of the card commands as listed in the documentation of the
+ * library (e.g. {@code "READ_RECORDS"}, {@code "OPEN_SECURE_SESSION"}).
+ *
+ * <p>The durations are measured with {@link System#nanoTime()}.
+ *
+ * @see org.eclipse.keyple.card.calypso.TransactionOptions.Builder#setMetricsListener
+ * @since 3.3.0
+ */
+public interface MetricsListenerSpi {
+
+  /**
+   * Invoked when the request of a card command has been finalized, just before its transmission.
+   *
+   * <p>The finalization includes the computations that depend on the previous commands, such as
+   * the encryption of the data or the interactions with the symmetric crypto service.
+   *
+   * @param commandName The name of the card command.
+   * @param durationNanos The duration of the finalization, in nanoseconds.
+   * @since 3.3.0
+   */
+  void onCommandFinalized(String commandName, long durationNanos);
+
+  /**
+   * Invoked when the response of a card command has been parsed and the card image updated,
+   * whether the parsing succeeded or not.
+   *
+   * @param commandName The name of the card command.
+   * @param durationNanos The duration of the parsing, in nanoseconds.
+   * @since 3.3.0
+   */
+  void onCommandParsed(String commandName, long durationNanos);
+
+  /**
+   * Invoked when a card request has been exchanged with the card reader, whether the exchange
+   * succeeded or not.
+   *
+   * @param apduCount The number of APDUs of the card request.
+   * @param requestBytes The total length of the command APDUs.
+   * @param responseBytes The total length of the response APDUs received, status words included.
+   * @param durationNanos The duration of the exchange, in nanoseconds.
+   * @since 3.3.0
+   */
+  void onCardRequestTransmitted(
+      int apduCount, int requestBytes, int responseBytes, long durationNanos);
+
+  /**
+   * Invoked at the end of a call to {@code processCommands}, whether it succeeded or not.
+   *
+   * @param cardRequestCount The number of card requests exchanged with the card reader.
+   * @param durationNanos The duration of the processing, in nanoseconds.
+   * @since 3.3.0
+   */
+  void onCommandsProcessed(int cardRequestCount, long durationNanos);
+}
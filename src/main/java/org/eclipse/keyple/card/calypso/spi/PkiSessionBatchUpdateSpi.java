@@ -0,0 +1,45 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso.spi;
+
+import java.util.List;
+import org.eclipse.keypop.calypso.crypto.asymmetric.AsymmetricCryptoException;
+
+/**
+ * Optional extension of an asymmetric crypto card transaction manager, updating the terminal PKI
+ * session with several APDUs at once.
+ *
+ * <p>When the {@code AsymmetricCryptoCardTransactionManagerSpi} created by the crypto service also
+ * implements this interface, the secure PKI mode transaction managers collect the APDUs exchanged
+ * within the secure session, and provide them in a single call instead of calling {@code
+ * updateTerminalPkiSession(byte[])} for each of them. The collected APDUs are provided before any
+ * other call to the crypto service, and at the latest once the responses of a card request have
+ * been parsed, so that the order of the operations is preserved.
+ *
+ * @see SessionMacBatchUpdateSpi
+ * @since 3.3.0
+ */
+public interface PkiSessionBatchUpdateSpi {
+
+  /**
+   * Updates the terminal PKI session with the provided APDUs, as would successive calls to {@code
+   * updateTerminalPkiSession(byte[])} do.
+   *
+   * <p>The list and the arrays must not be modified nor kept after the call.
+   *
+   * @param apdus The command and response APDUs in the order of the exchanges (a command APDU
+   *     followed by its response, including the status word), not empty.
+   * @throws AsymmetricCryptoException If the crypto service is in an inconsistent state.
+   * @since 3.3.0
+   */
+  void updateTerminalPkiSession(List<byte[]> apdus) throws AsymmetricCryptoException;
+}
@@ -0,0 +1,51 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso.spi;
+
+import java.util.List;
+import org.eclipse.keypop.calypso.crypto.symmetric.SymmetricCryptoException;
+import org.eclipse.keypop.calypso.crypto.symmetric.SymmetricCryptoIOException;
+
+/**
+ * Optional extension of a symmetric crypto card transaction manager, updating the terminal session
+ * MAC with several APDUs at once.
+ *
+ * <p>When the {@code SymmetricCryptoCardTransactionManagerSpi} created by the crypto service also
+ * implements this interface, the secure symmetric crypto transaction managers collect the APDUs
+ * included in the session MAC without encryption, and provide them in a single call instead of
+ * calling {@code updateTerminalSessionMac(byte[])} for each of them. The collected APDUs are
+ * provided before any other call to the crypto service, and at the latest once the responses of a
+ * card request have been parsed, so that the order of the operations is preserved.
+ *
+ * <p>The APDUs of the encrypted exchanges are still provided one by one, since the crypto service
+ * has to return them encrypted or decrypted.
+ *
+ * @see PkiSessionBatchUpdateSpi
+ * @since 3.3.0
+ */
+public interface SessionMacBatchUpdateSpi {
+
+  /**
+   * Updates the terminal session MAC with the provided APDUs, as would successive calls to {@code
+   * updateTerminalSessionMac(byte[])} do.
+   *
+   * <p>The list and the arrays must not be modified nor kept after the call.
+   *
+   * @param apdus The command and response APDUs in the order of the exchanges (a command APDU
+   *     followed by its response, including the status word), not empty.
+   * @throws SymmetricCryptoException If the crypto service is in an inconsistent state.
+   * @throws SymmetricCryptoIOException If the communication with the crypto service failed.
+   * @since 3.3.0
+   */
+  void updateTerminalSessionMac(List<byte[]> apdus)
+      throws SymmetricCryptoException, SymmetricCryptoIOException;
+}
@@ -0,0 +1,45 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso.spi;
+
+/**
+ * Receiver of the read commands skipped by the transaction managers when the elision of the
+ * redundant reads is enabled, the requested data being already available in the card image.
+ *
+ * <p>The listener is invoked synchronously on the thread preparing the card commands, once for each
+ * skipped read, in the order of the preparations. Implementations should therefore return quickly.
+ *
+ * @see org.eclipse.keyple.card.calypso.TransactionOptions.Builder#setSkippedReadListener
+ * @since 3.3.0
+ */
+public interface SkippedReadListenerSpi {
+
+  /**
+   * Invoked when a "Read Record" or "Read Records" command has not been prepared.
+   *
+   * @param sfi The SFI of the file.
+   * @param fromRecordNumber The number of the first record requested.
+   * @param toRecordNumber The number of the last record requested.
+   * @since 3.3.0
+   */
+  void onRecordsReadSkipped(byte sfi, int fromRecordNumber, int toRecordNumber);
+
+  /**
+   * Invoked when a "Read Binary" command has not been prepared.
+   *
+   * @param sfi The SFI of the file.
+   * @param offset The offset of the first byte requested.
+   * @param nbBytes The number of bytes requested.
+   * @since 3.3.0
+   */
+  void onBinaryReadSkipped(byte sfi, int offset, int nbBytes);
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains the SPIs that can be implemented by the applications or the crypto services to extend
+ * the library.
+ */
+package org.eclipse.keyple.card.calypso.spi;
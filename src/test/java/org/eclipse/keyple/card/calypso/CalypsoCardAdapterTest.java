@@ -16,6 +16,7 @@
 
 import org.eclipse.keyple.core.util.HexUtil;
 import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.calypso.card.card.ElementaryFile;
 import org.eclipse.keypop.card.ApduResponseApi;
 import org.junit.Test;
 
@@ -654,4 +655,124 @@ public void setIsCounterValuePostponed_shouldUpdateValueCorrectly() throws Excep
     calypsoCardAdapter.setIsCounterValuePostponed(false);
     assertThat(calypsoCardAdapter.getIsCounterValuePostponed()).isFalse();
   }
+
+  @Test
+  public void getFileBySfiAndLid_whenFileHeaderIsSet_shouldReturnSameFile() throws Exception {
+    calypsoCardAdapter = buildCalypsoCard(POWER_ON_DATA);
+    calypsoCardAdapter.setFileHeader((byte) 0x07, buildFileHeader((short) 0x2001));
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("1122"));
+
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07))
+        .isSameAs(calypsoCardAdapter.getFileByLid((short) 0x2001));
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07).getData().getContent(1))
+        .isEqualTo(HexUtil.toByteArray("1122"));
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x08)).isNull();
+    assertThat(calypsoCardAdapter.getFileByLid((short) 0x2002)).isNull();
+  }
+
+  @Test
+  public void getFileBySfiAndLid_whenFilesAreRestored_shouldReturnRestoredFile() throws Exception {
+    calypsoCardAdapter = buildCalypsoCard(POWER_ON_DATA);
+    calypsoCardAdapter.setFileHeader((byte) 0x07, buildFileHeader((short) 0x2001));
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("1122"));
+    calypsoCardAdapter.backupFiles();
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("3344"));
+    calypsoCardAdapter.setFileHeader((byte) 0x08, buildFileHeader((short) 0x2002));
+
+    calypsoCardAdapter.restoreFiles();
+
+    assertThat(calypsoCardAdapter.getFiles()).hasSize(1);
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07))
+        .isSameAs(calypsoCardAdapter.getFileByLid((short) 0x2001))
+        .isIn(calypsoCardAdapter.getFiles());
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07).getData().getContent(1))
+        .isEqualTo(HexUtil.toByteArray("1122"));
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x08)).isNull();
+    assertThat(calypsoCardAdapter.getFileByLid((short) 0x2002)).isNull();
+  }
+
+  @Test
+  public void restoreFiles_shouldUndoAllModificationsMadeSinceBackup() throws Exception {
+    calypsoCardAdapter = buildCalypsoCard(POWER_ON_DATA);
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("1122"));
+    calypsoCardAdapter.setContent((byte) 0x08, 1, HexUtil.toByteArray("A1"));
+    calypsoCardAdapter.setContent((byte) 0x08, 2, HexUtil.toByteArray("A2"));
+    calypsoCardAdapter.setCounter((byte) 0x19, 1, HexUtil.toByteArray("000010"));
+    calypsoCardAdapter.backupFiles();
+
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("33"), 1);
+    calypsoCardAdapter.fillContent((byte) 0x07, 2, HexUtil.toByteArray("44"), 0);
+    calypsoCardAdapter.addCyclicContent((byte) 0x08, HexUtil.toByteArray("A0"));
+    calypsoCardAdapter.setContent((byte) 0x08, 1, HexUtil.toByteArray("B0"));
+    calypsoCardAdapter.setCounter((byte) 0x19, 2, HexUtil.toByteArray("000020"));
+    calypsoCardAdapter.setContent((byte) 0x1A, 1, HexUtil.toByteArray("55"));
+
+    calypsoCardAdapter.restoreFiles();
+
+    assertThat(calypsoCardAdapter.getFiles()).hasSize(3);
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07).getData().getAllRecordsContent())
+        .containsOnlyKeys(1)
+        .containsEntry(1, HexUtil.toByteArray("1122"));
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x08).getData().getAllRecordsContent())
+        .containsOnlyKeys(1, 2)
+        .containsEntry(1, HexUtil.toByteArray("A1"))
+        .containsEntry(2, HexUtil.toByteArray("A2"));
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x19).getData().getContent(1))
+        .isEqualTo(HexUtil.toByteArray("000010"));
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x1A)).isNull();
+  }
+
+  @Test
+  public void restoreFiles_whenHeaderSetSinceBackup_shouldRestorePreviousHeader() throws Exception {
+    calypsoCardAdapter = buildCalypsoCard(POWER_ON_DATA);
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("1122"));
+    calypsoCardAdapter.backupFiles();
+    calypsoCardAdapter.setFileHeader((byte) 0x07, buildFileHeader((short) 0x2001));
+
+    calypsoCardAdapter.restoreFiles();
+
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07).getHeader()).isNull();
+    assertThat(calypsoCardAdapter.getFileByLid((short) 0x2001)).isNull();
+  }
+
+  @Test
+  public void restoreFiles_whenCalledTwice_shouldRestoreLastBackupAgain() throws Exception {
+    calypsoCardAdapter = buildCalypsoCard(POWER_ON_DATA);
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("1122"));
+    calypsoCardAdapter.backupFiles();
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("3344"));
+    calypsoCardAdapter.restoreFiles();
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("5566"));
+
+    calypsoCardAdapter.restoreFiles();
+
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07).getData().getContent(1))
+        .isEqualTo(HexUtil.toByteArray("1122"));
+  }
+
+  @Test
+  public void discardFilesBackup_shouldStopJournalingTheModifications() throws Exception {
+    calypsoCardAdapter = buildCalypsoCard(POWER_ON_DATA);
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("1122"));
+    calypsoCardAdapter.backupFiles();
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("3344"));
+    calypsoCardAdapter.discardFilesBackup();
+    calypsoCardAdapter.setContent((byte) 0x07, 1, HexUtil.toByteArray("5566"));
+
+    calypsoCardAdapter.restoreFiles();
+
+    assertThat(calypsoCardAdapter.getFileBySfi((byte) 0x07).getData().getContent(1))
+        .isEqualTo(HexUtil.toByteArray("5566"));
+  }
+
+  private static FileHeaderAdapter buildFileHeader(short lid) {
+    return FileHeaderAdapter.builder()
+        .lid(lid)
+        .recordsNumber(1)
+        .recordSize(29)
+        .type(ElementaryFile.Type.LINEAR)
+        .accessConditions(new byte[4])
+        .keyIndexes(new byte[4])
+        .build();
+  }
 }
@@ -15,6 +15,12 @@
 import static org.assertj.core.api.Assertions.shouldHaveThrown;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.eclipse.keyple.core.util.HexUtil;
 import org.eclipse.keypop.calypso.card.GetDataTag;
 import org.eclipse.keypop.calypso.card.SelectFileControl;
@@ -183,4 +189,51 @@ public void parse_whenCommandsResponsesMismatch_shouldThrowParseException() thro
     cardSelectionExtension.prepareGetData(GetDataTag.FCI_FOR_CURRENT_DF);
     cardSelectionExtension.parse(cardSelectionResponseApi);
   }
+
+  @Test
+  public void getCardSelectionRequest_whenNoNewCommandIsPrepared_shouldReturnTheSameRequest() {
+    cardSelectionExtension.prepareReadRecord((byte) 0x07, 1);
+    CardSelectionRequestSpi cardSelectionRequest = cardSelectionExtension.getCardSelectionRequest();
+    assertThat(cardSelectionExtension.getCardSelectionRequest()).isSameAs(cardSelectionRequest);
+
+    cardSelectionExtension.prepareReadRecord((byte) 0x08, 1);
+    assertThat(cardSelectionExtension.getCardSelectionRequest().getCardRequest().getApduRequests())
+        .hasSize(2);
+  }
+
+  @Test
+  public void parse_whenInvokedConcurrently_shouldCreateIndependentCardImages() throws Exception {
+    cardSelectionExtension
+        .prepareReadRecord((byte) 0x07, 1)
+        .preparePreOpenSecureSession(WriteAccessLevel.DEBIT);
+    final List<CardSelectionResponseApi> cardSelectionResponses = new ArrayList<>();
+    for (int i = 1; i <= 4; i++) {
+      byte[] record = new byte[29];
+      Arrays.fill(record, (byte) i);
+      cardSelectionResponses.add(
+          new CalypsoCardSimulator("00000000112233" + HexUtil.toHex((byte) i), true, false)
+              .addFile((byte) 0x07, (short) 0x2001, CalypsoCardSimulator.EF_TYPE_LINEAR, 1, 29)
+              .setRecord((byte) 0x07, 1, record)
+              .setTransactionCounter(100 * i)
+              .select(cardSelectionExtension.getCardSelectionRequest()));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<CalypsoCardAdapter>> cards = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        final CardSelectionResponseApi cardSelectionResponse = cardSelectionResponses.get(i % 4);
+        cards.add(
+            executor.submit(
+                () -> (CalypsoCardAdapter) cardSelectionExtension.parse(cardSelectionResponse)));
+      }
+      for (int i = 0; i < 200; i++) {
+        CalypsoCardAdapter card = cards.get(i).get();
+        int n = i % 4 + 1;
+        assertThat(card.getTransactionCounter()).isEqualTo(100 * n - 1);
+        assertThat(card.getFileBySfi((byte) 0x07).getData().getContent(1)[0]).isEqualTo((byte) n);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -0,0 +1,1220 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.card.ApduResponseApi;
+import org.eclipse.keypop.card.CardBrokenCommunicationException;
+import org.eclipse.keypop.card.CardResponseApi;
+import org.eclipse.keypop.card.CardSelectionResponseApi;
+import org.eclipse.keypop.card.ChannelControl;
+import org.eclipse.keypop.card.ProxyReaderApi;
+import org.eclipse.keypop.card.UnexpectedStatusWordException;
+import org.eclipse.keypop.card.spi.ApduRequestSpi;
+import org.eclipse.keypop.card.spi.CardRequestSpi;
+import org.eclipse.keypop.card.spi.CardSelectionRequestSpi;
+import org.eclipse.keypop.reader.CardReader;
+
+/**
+ * Deterministic in-memory Calypso Prime revision 3 card, exposed as a contactless reader.
+ *
+ * <p>The simulator answers the APDUs produced by the {@link Command} subclasses and maintains a
+ * consistent card state: elementary files (linear, cyclic, counters and binary) addressed by SFI
+ * or LID, stored value, transaction counter, secure session with modifications buffer,
+ * ratification, pre-open and extended modes. Modifications made in a secure session are committed
+ * when the session is closed and rolled back when it is aborted or when the card is removed.
+ *
+ * <p>No cryptographic computation is performed: the card challenges are produced by a seeded
+ * pseudo-random generator, the signatures have constant values and the terminal signatures are not
+ * checked, so that the simulator has to be used with a stubbed or mocked crypto service. When the
+ * encryption is activated in extended mode, the APDUs are still processed as plain data.
+ *
+ * <p>The commands not emulated are rejected with SW 6D00.
+ *
+ * @since 3.2.1
+ */
+final class CalypsoCardSimulator implements CardReader, ProxyReaderApi {
+
+  static final byte EF_TYPE_BINARY = 1;
+  static final byte EF_TYPE_LINEAR = 2;
+  static final byte EF_TYPE_CYCLIC = 4;
+  static final byte EF_TYPE_COUNTERS = 9;
+
+  private static final int PAYLOAD_CAPACITY = 250;
+  private static final int SESSION_BUFFER_CMD_ADDITIONAL_COST = 6;
+  private static final short DF_LID = 0x3F00;
+  private static final byte[] KIFS = {0x21, 0x27, 0x30};
+  private static final byte[] KVCS = {0x79, 0x79, 0x79};
+  private static final byte[] FCI_HEADER =
+      HexUtil.toByteArray("6F238409315449432E49434131A516BF0C13C708");
+
+  private static final byte APP_TYPE_BASE = 0x20;
+  private static final byte APP_TYPE_WITH_CALYPSO_SV = 0x02;
+  private static final byte APP_TYPE_CALYPSO_REV_32_MODE = 0x08;
+  private static final byte BUFFER_SIZE_INDICATOR = 0x0A;
+  private static final int SESSION_BUFFER_SIZE = 430;
+
+  private static final int SW_SUCCESS = 0x9000;
+  private static final int SW_POSTPONED_DATA = 0x6200;
+  private static final int SW_INVALIDATED = 0x6283;
+  private static final int SW_MODIFICATIONS_OVERFLOW = 0x6400;
+  private static final int SW_WRONG_LENGTH = 0x6700;
+  private static final int SW_TRANSACTION_COUNTER_EXHAUSTED = 0x6900;
+  private static final int SW_INCOMPATIBLE_FILE_STRUCTURE = 0x6981;
+  private static final int SW_PRECONDITIONS_NOT_SATISFIED = 0x6985;
+  private static final int SW_FILE_NOT_FOUND = 0x6A82;
+  private static final int SW_RECORD_NOT_FOUND = 0x6A83;
+  private static final int SW_WRONG_P1_P2 = 0x6B00;
+  private static final int SW_INS_NOT_SUPPORTED = 0x6D00;
+
+  private final byte[] serialNumber;
+  private final boolean isExtendedModeSupported;
+  private final boolean isSvFeatureAvailable;
+  private final int[] apduCounters = new int[256];
+  private int cardRequestCounter;
+
+  private CardState state = new CardState();
+  private CardState sessionBackup;
+  private Ef currentEf;
+  private int transactionCounter = 0xFFFFFF;
+  private int challengeSeed;
+  private boolean isSessionOpen;
+  private boolean isExtendedSession;
+  private int remainingSessionBuffer;
+  private final List<byte[]> postponedData = new ArrayList<>();
+  private boolean isRatified = true;
+  private boolean isRatificationPending;
+  private byte[] preOpenDataOut;
+  private int preOpenKeyIndex;
+  private Integer svGetOperationP2;
+  private boolean isSvGetExtended;
+  private int nbApdusBeforeCommunicationFailure = -1;
+
+  /**
+   * Builds a new simulator with an empty file system.
+   *
+   * @param serialNumber The 8-byte serial number, in hexadecimal.
+   * @param isExtendedModeSupported True if the card supports the Calypso revision 3.2 mode.
+   * @param isSvFeatureAvailable True if the card has the stored value feature.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator(
+      String serialNumber, boolean isExtendedModeSupported, boolean isSvFeatureAvailable) {
+    this.serialNumber = HexUtil.toByteArray(serialNumber);
+    this.isExtendedModeSupported = isExtendedModeSupported;
+    this.isSvFeatureAvailable = isSvFeatureAvailable;
+    challengeSeed = Arrays.hashCode(this.serialNumber);
+  }
+
+  /**
+   * Creates an elementary file.
+   *
+   * <p>A binary file has a single "record" of {@code recordSize} bytes, a counters file has a
+   * single record of {@code 3 * nbRecords} bytes.
+   *
+   * @param sfi The SFI (1..30).
+   * @param lid The LID.
+   * @param efType One of the EF_TYPE_XXX constants.
+   * @param nbRecords The number of records (or of counters for a counters file).
+   * @param recordSize The record size (ignored for a counters file).
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator addFile(byte sfi, short lid, byte efType, int nbRecords, int recordSize) {
+    Ef ef;
+    switch (efType) {
+      case EF_TYPE_BINARY:
+        ef = new Ef(sfi, lid, efType, 1, recordSize);
+        break;
+      case EF_TYPE_COUNTERS:
+        ef = new Ef(sfi, lid, efType, 1, nbRecords * 3);
+        break;
+      default:
+        ef = new Ef(sfi, lid, efType, nbRecords, recordSize);
+    }
+    state.files.put(lid, ef);
+    return this;
+  }
+
+  /**
+   * Sets the content of a record (or of the binary file) starting at offset 0.
+   *
+   * @param sfi The SFI.
+   * @param recordNumber The record number (1 for binary and counters files).
+   * @param content The content.
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator setRecord(byte sfi, int recordNumber, byte[] content) {
+    byte[] record = state.getEfBySfi(sfi).records[recordNumber];
+    System.arraycopy(content, 0, record, 0, content.length);
+    return this;
+  }
+
+  /**
+   * Sets the value of a counter.
+   *
+   * @param sfi The SFI of the counters file.
+   * @param counterNumber The counter number (1..N).
+   * @param value The 3-byte value.
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator setCounter(byte sfi, int counterNumber, int value) {
+    writeInt(value, state.getEfBySfi(sfi).records[1], (counterNumber - 1) * 3, 3);
+    return this;
+  }
+
+  /**
+   * Sets the stored value data.
+   *
+   * @param balance The balance.
+   * @param svTNum The SV transaction number.
+   * @param kvc The KVC of the SV key.
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator setSvData(int balance, int svTNum, byte kvc) {
+    state.svBalance = balance;
+    state.svTNum = svTNum;
+    state.svKvc = kvc;
+    return this;
+  }
+
+  /**
+   * Sets the transaction counter.
+   *
+   * @param transactionCounter The 3-byte value.
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator setTransactionCounter(int transactionCounter) {
+    this.transactionCounter = transactionCounter;
+    return this;
+  }
+
+  /**
+   * Makes the next card requests fail with a {@link CardBrokenCommunicationException} after the
+   * provided number of APDUs; the card is then considered removed from the field.
+   *
+   * @param nbApdus The number of APDUs to process before the failure.
+   * @return The current instance.
+   * @since 3.2.1
+   */
+  CalypsoCardSimulator setCommunicationFailureAfter(int nbApdus) {
+    nbApdusBeforeCommunicationFailure = nbApdus;
+    return this;
+  }
+
+  /**
+   * Returns a copy of a record content (or of the binary file content).
+   *
+   * @param sfi The SFI.
+   * @param recordNumber The record number.
+   * @return A not null array.
+   * @since 3.2.1
+   */
+  byte[] getRecord(byte sfi, int recordNumber) {
+    return state.getEfBySfi(sfi).records[recordNumber].clone();
+  }
+
+  /**
+   * Returns the value of a counter.
+   *
+   * @param sfi The SFI of the counters file.
+   * @param counterNumber The counter number (1..N).
+   * @return The counter value.
+   * @since 3.2.1
+   */
+  int getCounter(byte sfi, int counterNumber) {
+    return readInt(state.getEfBySfi(sfi).records[1], (counterNumber - 1) * 3, 3);
+  }
+
+  /**
+   * @return The SV balance.
+   * @since 3.2.1
+   */
+  int getSvBalance() {
+    return state.svBalance;
+  }
+
+  /**
+   * @return The SV transaction number.
+   * @since 3.2.1
+   */
+  int getSvTNum() {
+    return state.svTNum;
+  }
+
+  /**
+   * @return The transaction counter.
+   * @since 3.2.1
+   */
+  int getTransactionCounter() {
+    return transactionCounter;
+  }
+
+  /**
+   * @return True if a secure session is open.
+   * @since 3.2.1
+   */
+  boolean isSessionOpen() {
+    return isSessionOpen;
+  }
+
+  /**
+   * @return True if the last secure session has been ratified.
+   * @since 3.2.1
+   */
+  boolean isRatified() {
+    return isRatified;
+  }
+
+  /**
+   * Returns the number of APDUs processed since the creation of the simulator.
+   *
+   * @param ins The instruction byte.
+   * @return The number of APDUs processed with the provided instruction byte.
+   * @since 3.2.1
+   */
+  int getApduCount(byte ins) {
+    return apduCounters[ins & 0xFF];
+  }
+
+  /**
+   * Returns the number of card requests transmitted since the creation of the simulator, including
+   * the ones of the card selections.
+   *
+   * @return A positive or zero value.
+   * @since 3.3.0
+   */
+  int getCardRequestCount() {
+    return cardRequestCounter;
+  }
+
+  /**
+   * Returns the response to the select application command (FCI and status word).
+   *
+   * @return A not null response.
+   * @since 3.2.1
+   */
+  ApduResponseApi getSelectApplicationResponse() {
+    byte[] fci = buildFci();
+    return new TestDtoAdapters.ApduResponseAdapter(
+        buildResponse(fci, 0, fci.length, state.isInvalidated ? SW_INVALIDATED : SW_SUCCESS));
+  }
+
+  /**
+   * Emulates the card selection: any session in progress is aborted, the FCI is returned and the
+   * optional APDUs of the selection request are processed.
+   *
+   * @param cardSelectionRequest The card selection request.
+   * @return A not null response.
+   * @throws CardBrokenCommunicationException If a communication failure is simulated.
+   * @since 3.2.1
+   */
+  CardSelectionResponseApi select(CardSelectionRequestSpi cardSelectionRequest)
+      throws CardBrokenCommunicationException {
+    removeCard();
+    ApduResponseApi selectApplicationResponse = getSelectApplicationResponse();
+    CardResponseApi cardResponse = null;
+    if (cardSelectionRequest.getCardRequest() != null) {
+      try {
+        cardResponse =
+            transmitCardRequest(cardSelectionRequest.getCardRequest(), ChannelControl.KEEP_OPEN);
+      } catch (UnexpectedStatusWordException e) {
+        cardResponse = e.getCardResponse();
+      }
+    }
+    return new TestDtoAdapters.CardSelectionResponseAdapter(
+        selectApplicationResponse, cardResponse);
+  }
+
+  /**
+   * Emulates the removal of the card from the field: any session in progress is aborted.
+   *
+   * @since 3.2.1
+   */
+  void removeCard() {
+    abortSecureSession();
+    preOpenDataOut = null;
+    isRatificationPending = false;
+    svGetOperationP2 = null;
+    currentEf = null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public String getName() {
+    return "CALYPSO_CARD_SIMULATOR";
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public boolean isContactless() {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public boolean isCardPresent() {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public CardResponseApi transmitCardRequest(
+      CardRequestSpi cardRequest, ChannelControl channelControl)
+      throws CardBrokenCommunicationException, UnexpectedStatusWordException {
+    cardRequestCounter++;
+    List<ApduRequestSpi> apduRequests = cardRequest.getApduRequests();
+    List<ApduResponseApi> apduResponses = new ArrayList<>(apduRequests.size());
+    for (ApduRequestSpi apduRequest : apduRequests) {
+      if (nbApdusBeforeCommunicationFailure == 0) {
+        nbApdusBeforeCommunicationFailure = -1;
+        removeCard();
+        throw new CardBrokenCommunicationException(
+            new TestDtoAdapters.CardResponseAdapter(apduResponses, false),
+            false,
+            "Simulated card communication failure");
+      }
+      if (nbApdusBeforeCommunicationFailure > 0) {
+        nbApdusBeforeCommunicationFailure--;
+      }
+      ApduResponseApi apduResponse =
+          new TestDtoAdapters.ApduResponseAdapter(processApdu(apduRequest.getApdu()));
+      apduResponses.add(apduResponse);
+      if (cardRequest.stopOnUnsuccessfulStatusWord()
+          && !apduRequest.getSuccessfulStatusWords().contains(apduResponse.getStatusWord())) {
+        throw new UnexpectedStatusWordException(
+            new TestDtoAdapters.CardResponseAdapter(apduResponses, true),
+            apduResponses.size() == apduRequests.size(),
+            "Unexpected status word");
+      }
+    }
+    return new TestDtoAdapters.CardResponseAdapter(
+        apduResponses, channelControl == ChannelControl.KEEP_OPEN);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @since 3.2.1
+   */
+  @Override
+  public void releaseChannel() {
+    // NOP
+  }
+
+  /**
+   * Processes an APDU.
+   *
+   * @param apdu The command APDU.
+   * @return The response APDU including the status word.
+   */
+  private byte[] processApdu(byte[] apdu) {
+    apduCounters[apdu[1] & 0xFF]++;
+    if (isRatificationPending) {
+      // Any command received after the closing of the session ratifies it.
+      isRatified = true;
+      isRatificationPending = false;
+    }
+    int p1 = apdu[2] & 0xFF;
+    int p2 = apdu[3] & 0xFF;
+    int lc = apdu.length > 5 ? apdu[4] & 0xFF : 0;
+    byte[] data = Arrays.copyOfRange(apdu, 5, 5 + lc);
+    int le = apdu.length == 5 ? apdu[4] & 0xFF : (apdu.length > 5 + lc ? apdu[5 + lc] & 0xFF : -1);
+    switch (apdu[1]) {
+      case (byte) 0xA4:
+        return selectFile(p1, p2, data);
+      case (byte) 0xCA:
+        return getData(p1, p2);
+      case (byte) 0x84:
+        return buildResponse(nextChallenge(8), 0, 8, SW_SUCCESS);
+      case (byte) 0x8A:
+        return openSecureSession(p1, p2, data);
+      case (byte) 0x82:
+        return manageSecureSession(p2, data);
+      case (byte) 0x8E:
+        return closeSecureSession(p1, data);
+      case (byte) 0xB2:
+        return readRecords(p1, p2, le);
+      case (byte) 0xB3:
+        return readRecordMultiple(p1, p2, data);
+      case (byte) 0xB0:
+        return readBinary(p1, p2, le);
+      case (byte) 0xD6:
+      case (byte) 0xD0:
+        return updateOrWriteBinary(apdu[1] == (byte) 0xD0, p1, p2, data);
+      case (byte) 0xDC:
+      case (byte) 0xD2:
+        return updateOrWriteRecord(apdu[1] == (byte) 0xD2, p1, p2, data);
+      case (byte) 0xE2:
+        return appendRecord(p2, data);
+      case (byte) 0x32:
+      case (byte) 0x30:
+        return increaseOrDecrease(apdu[1] == (byte) 0x30, p1, p2, data, le);
+      case (byte) 0x3A:
+      case (byte) 0x38:
+        return increaseOrDecreaseMultiple(apdu[1] == (byte) 0x38, p2, data);
+      case (byte) 0x7C:
+        return svGet(p1, p2);
+      case (byte) 0xB8:
+        return svReload(data);
+      case (byte) 0xBA:
+      case (byte) 0xBC:
+        return svDebitOrUndebit(apdu[1] == (byte) 0xBC, data);
+      case (byte) 0x04:
+      case (byte) 0x44:
+        return invalidateOrRehabilitate(apdu[1] == (byte) 0x04);
+      default:
+        return sw(SW_INS_NOT_SUPPORTED);
+    }
+  }
+
+  private byte[] selectFile(int p1, int p2, byte[] data) {
+    if (data.length != 2) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    short lid = (short) readInt(data, 0, 2);
+    if (p1 == 0x02 && lid == 0) {
+      // First or next EF of the current DF
+      Ef selectedEf = null;
+      boolean isCurrentFound = p2 == 0x00;
+      for (Ef ef : state.files.values()) {
+        if (isCurrentFound) {
+          selectedEf = ef;
+          break;
+        }
+        isCurrentFound = ef == currentEf;
+      }
+      if (selectedEf == null) {
+        return sw(SW_FILE_NOT_FOUND);
+      }
+      currentEf = selectedEf;
+      return buildFcp(selectedEf);
+    }
+    if (lid == 0 || lid == DF_LID) {
+      currentEf = null;
+      return buildFcp(null);
+    }
+    Ef ef = state.files.get(lid);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    currentEf = ef;
+    return buildFcp(ef);
+  }
+
+  private byte[] getData(int p1, int p2) {
+    switch ((p1 << 8) | p2) {
+      case 0x006F:
+        byte[] fci = buildFci();
+        return buildResponse(fci, 0, fci.length, SW_SUCCESS);
+      case 0x0062:
+        return buildFcp(currentEf);
+      case 0x00C0:
+        ByteArrayOutputStream efList = new ByteArrayOutputStream();
+        efList.write(0xC0);
+        efList.write(state.files.size() * 8);
+        for (Ef ef : state.files.values()) {
+          efList.write(0xC1);
+          efList.write(6);
+          efList.write(ef.lid >> 8);
+          efList.write(ef.lid);
+          efList.write(ef.sfi);
+          efList.write(ef.type);
+          efList.write(ef.recordSize);
+          efList.write(ef.records.length - 1);
+        }
+        byte[] efListData = efList.toByteArray();
+        return buildResponse(efListData, 0, efListData.length, SW_SUCCESS);
+      case 0x0185:
+        byte[] traceability = new byte[10];
+        System.arraycopy(serialNumber, 0, traceability, 2, 8);
+        return buildResponse(traceability, 0, traceability.length, SW_SUCCESS);
+      default:
+        return sw(SW_FILE_NOT_FOUND);
+    }
+  }
+
+  private byte[] openSecureSession(int p1, int p2, byte[] data) {
+    int keyIndex = p1 & 0x07;
+    int mode = p2 & 0x07;
+    boolean isExtended = mode == 2;
+    if (keyIndex < 1
+        || keyIndex > 3
+        || (mode != 1 && mode != 2)
+        || (isExtended && !isExtendedModeSupported)) {
+      return sw(SW_WRONG_P1_P2);
+    }
+    abortSecureSession();
+    boolean isPreOpenVariant = isExtended && data.length == 1;
+    byte[] dataOut;
+    if (preOpenDataOut != null && !isPreOpenVariant && preOpenKeyIndex == keyIndex) {
+      dataOut = preOpenDataOut;
+    } else {
+      if (transactionCounter == 0) {
+        return sw(SW_TRANSACTION_COUNTER_EXHAUSTED);
+      }
+      byte[] recordData = new byte[0];
+      if ((p2 >> 3) != 0) {
+        Ef ef = state.getEfBySfi(p2 >> 3);
+        if (ef == null) {
+          return sw(SW_FILE_NOT_FOUND);
+        }
+        if ((p1 >> 3) >= ef.records.length) {
+          return sw(SW_RECORD_NOT_FOUND);
+        }
+        recordData = ef.records[p1 >> 3];
+      }
+      transactionCounter--;
+      dataOut = buildOpenSecureSessionDataOut(isExtended, keyIndex, recordData);
+    }
+    preOpenDataOut = null;
+    if (isPreOpenVariant) {
+      preOpenDataOut = dataOut;
+      preOpenKeyIndex = keyIndex;
+      return buildResponse(dataOut, 0, dataOut.length, SW_POSTPONED_DATA);
+    }
+    sessionBackup = state.copy();
+    isSessionOpen = true;
+    isExtendedSession = isExtended;
+    remainingSessionBuffer = SESSION_BUFFER_SIZE;
+    postponedData.clear();
+    return buildResponse(dataOut, 0, dataOut.length, SW_SUCCESS);
+  }
+
+  private byte[] buildOpenSecureSessionDataOut(
+      boolean isExtended, int keyIndex, byte[] recordData) {
+    int headerLength = isExtended ? 12 : 8;
+    byte[] dataOut = new byte[headerLength + recordData.length];
+    writeInt(transactionCounter, dataOut, 0, 3);
+    byte[] random = nextChallenge(isExtended ? 5 : 1);
+    System.arraycopy(random, 0, dataOut, 3, random.length);
+    if (isExtended) {
+      // b0: previous session not ratified, b1: manage secure session authorized
+      dataOut[8] = (byte) ((isRatified ? 0x00 : 0x01) | 0x02);
+    } else {
+      dataOut[4] = isRatified ? (byte) 0x00 : (byte) 0x01;
+    }
+    dataOut[headerLength - 3] = KIFS[keyIndex - 1];
+    dataOut[headerLength - 2] = KVCS[keyIndex - 1];
+    dataOut[headerLength - 1] = (byte) recordData.length;
+    System.arraycopy(recordData, 0, dataOut, headerLength, recordData.length);
+    return dataOut;
+  }
+
+  private byte[] manageSecureSession(int p2, byte[] data) {
+    if (!isSessionOpen || !isExtendedSession) {
+      return sw(SW_PRECONDITIONS_NOT_SATISFIED);
+    }
+    if ((p2 & 0x01) != 0) {
+      // Mutual authentication: returns the card session MAC
+      if (data.length != 8) {
+        return sw(SW_WRONG_LENGTH);
+      }
+      byte[] mac = nextChallenge(8);
+      return buildResponse(mac, 0, mac.length, SW_SUCCESS);
+    }
+    return sw(SW_SUCCESS);
+  }
+
+  private byte[] closeSecureSession(int p1, byte[] data) {
+    if (!isSessionOpen) {
+      return sw(SW_PRECONDITIONS_NOT_SATISFIED);
+    }
+    if (data.length == 0) {
+      abortSecureSession();
+      return sw(SW_SUCCESS);
+    }
+    int macLength = isExtendedSession ? 8 : 4;
+    if (data.length != macLength) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    isSessionOpen = false;
+    sessionBackup = null;
+    svGetOperationP2 = null;
+    isRatified = p1 == 0x80;
+    isRatificationPending = !isRatified;
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    for (byte[] postponed : postponedData) {
+      response.write(postponed.length + 1);
+      response.write(postponed, 0, postponed.length);
+    }
+    postponedData.clear();
+    byte[] mac = new byte[macLength];
+    Arrays.fill(mac, (byte) 0xC5);
+    response.write(mac, 0, mac.length);
+    byte[] responseData = response.toByteArray();
+    return buildResponse(responseData, 0, responseData.length, SW_SUCCESS);
+  }
+
+  private void abortSecureSession() {
+    if (isSessionOpen) {
+      state = sessionBackup;
+      sessionBackup = null;
+      isSessionOpen = false;
+      postponedData.clear();
+      currentEf = null;
+    }
+  }
+
+  /**
+   * Consumes the session buffer for a modifying command.
+   *
+   * @return false if the buffer capacity is exceeded.
+   */
+  private boolean consumeSessionBuffer(int lc) {
+    if (!isSessionOpen) {
+      return true;
+    }
+    int cost = lc + SESSION_BUFFER_CMD_ADDITIONAL_COST;
+    if (cost > remainingSessionBuffer) {
+      return false;
+    }
+    remainingSessionBuffer -= cost;
+    return true;
+  }
+
+  /**
+   * Resolves the EF targeted by a record command (SFI in the 5 MSB of P2, 0 for the current EF).
+   *
+   * @return null if not found.
+   */
+  private Ef resolveEf(int sfi) {
+    Ef ef = sfi != 0 ? state.getEfBySfi(sfi) : currentEf;
+    if (ef != null) {
+      currentEf = ef;
+    }
+    return ef;
+  }
+
+  private byte[] readRecords(int p1, int p2, int le) {
+    Ef ef = resolveEf(p2 >> 3);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    if (ef.type == EF_TYPE_BINARY) {
+      return sw(SW_INCOMPATIBLE_FILE_STRUCTURE);
+    }
+    if (p1 == 0 || p1 >= ef.records.length) {
+      return sw(SW_RECORD_NOT_FOUND);
+    }
+    int mode = p2 & 0x07;
+    if (mode == 0x04) {
+      byte[] record = ef.records[p1];
+      return buildResponse(
+          record, 0, le > 0 ? Math.min(le, record.length) : record.length, SW_SUCCESS);
+    }
+    if (mode != 0x05) {
+      return sw(SW_WRONG_P1_P2);
+    }
+    int maxLength = le > 0 ? le : PAYLOAD_CAPACITY;
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    for (int i = p1; i < ef.records.length; i++) {
+      if (response.size() + 2 + ef.recordSize > maxLength) {
+        break;
+      }
+      response.write(i);
+      response.write(ef.recordSize);
+      response.write(ef.records[i], 0, ef.recordSize);
+    }
+    byte[] responseData = response.toByteArray();
+    return buildResponse(responseData, 0, responseData.length, SW_SUCCESS);
+  }
+
+  private byte[] readRecordMultiple(int p1, int p2, byte[] data) {
+    Ef ef = resolveEf(p2 >> 3);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    if (data.length != 4 || data[0] != 0x54 || data[1] != 0x02) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    int offset = data[2] & 0xFF;
+    int length = data[3] & 0xFF;
+    if (p1 == 0 || p1 >= ef.records.length) {
+      return sw(SW_RECORD_NOT_FOUND);
+    }
+    if (offset + length > ef.recordSize) {
+      return sw(SW_WRONG_P1_P2);
+    }
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    int i = p1;
+    while (i < ef.records.length && response.size() + length <= PAYLOAD_CAPACITY) {
+      response.write(ef.records[i], offset, length);
+      i++;
+    }
+    byte[] responseData = response.toByteArray();
+    return buildResponse(
+        responseData,
+        0,
+        responseData.length,
+        i < ef.records.length ? SW_POSTPONED_DATA : SW_SUCCESS);
+  }
+
+  /**
+   * Resolves the binary EF addressed by P1/P2 and returns the offset, or a negative status word.
+   */
+  private int resolveBinaryOffset(int p1, int p2) {
+    Ef ef;
+    int offset;
+    if ((p1 & 0x80) != 0) {
+      ef = resolveEf(p1 & 0x1F);
+      offset = p2;
+    } else {
+      ef = currentEf;
+      offset = (p1 << 8) | p2;
+    }
+    if (ef == null) {
+      return -SW_FILE_NOT_FOUND;
+    }
+    if (ef.type != EF_TYPE_BINARY) {
+      return -SW_INCOMPATIBLE_FILE_STRUCTURE;
+    }
+    if (offset >= ef.recordSize) {
+      return -SW_WRONG_P1_P2;
+    }
+    return offset;
+  }
+
+  private byte[] readBinary(int p1, int p2, int le) {
+    int offset = resolveBinaryOffset(p1, p2);
+    if (offset < 0) {
+      return sw(-offset);
+    }
+    byte[] content = currentEf.records[1];
+    int length = Math.min(le > 0 ? le : PAYLOAD_CAPACITY, content.length - offset);
+    return buildResponse(content, offset, length, SW_SUCCESS);
+  }
+
+  private byte[] updateOrWriteBinary(boolean isWrite, int p1, int p2, byte[] data) {
+    int offset = resolveBinaryOffset(p1, p2);
+    if (offset < 0) {
+      return sw(-offset);
+    }
+    byte[] content = currentEf.records[1];
+    if (offset + data.length > content.length) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    if (!consumeSessionBuffer(data.length)) {
+      return sw(SW_MODIFICATIONS_OVERFLOW);
+    }
+    writeData(isWrite, data, content, offset);
+    return sw(SW_SUCCESS);
+  }
+
+  private byte[] updateOrWriteRecord(boolean isWrite, int p1, int p2, byte[] data) {
+    Ef ef = resolveEf(p2 >> 3);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    if (ef.type == EF_TYPE_BINARY) {
+      return sw(SW_INCOMPATIBLE_FILE_STRUCTURE);
+    }
+    if (p1 == 0 || p1 >= ef.records.length) {
+      return sw(SW_RECORD_NOT_FOUND);
+    }
+    if (data.length > ef.recordSize) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    if (!consumeSessionBuffer(data.length)) {
+      return sw(SW_MODIFICATIONS_OVERFLOW);
+    }
+    writeData(isWrite, data, ef.records[p1], 0);
+    return sw(SW_SUCCESS);
+  }
+
+  private byte[] appendRecord(int p2, byte[] data) {
+    Ef ef = resolveEf(p2 >> 3);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    if (ef.type != EF_TYPE_CYCLIC) {
+      return sw(SW_INCOMPATIBLE_FILE_STRUCTURE);
+    }
+    if (data.length > ef.recordSize) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    if (!consumeSessionBuffer(data.length)) {
+      return sw(SW_MODIFICATIONS_OVERFLOW);
+    }
+    byte[] oldest = ef.records[ef.records.length - 1];
+    System.arraycopy(ef.records, 1, ef.records, 2, ef.records.length - 2);
+    Arrays.fill(oldest, (byte) 0);
+    System.arraycopy(data, 0, oldest, 0, data.length);
+    ef.records[1] = oldest;
+    return sw(SW_SUCCESS);
+  }
+
+  private byte[] increaseOrDecrease(boolean isDecrease, int p1, int p2, byte[] data, int le) {
+    Ef ef = resolveEf(p2 >> 3);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    if (ef.type != EF_TYPE_COUNTERS) {
+      return sw(SW_INCOMPATIBLE_FILE_STRUCTURE);
+    }
+    if (data.length != 3) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    int counterNumber = p1 != 0 ? p1 : 1;
+    if (counterNumber * 3 > ef.recordSize) {
+      return sw(SW_RECORD_NOT_FOUND);
+    }
+    int newValue = computeCounterValue(ef, counterNumber, isDecrease, readInt(data, 0, 3));
+    if (newValue < 0 || !consumeSessionBuffer(data.length)) {
+      return sw(SW_MODIFICATIONS_OVERFLOW);
+    }
+    writeInt(newValue, ef.records[1], (counterNumber - 1) * 3, 3);
+    return le >= 0
+        ? buildResponse(ef.records[1], (counterNumber - 1) * 3, 3, SW_SUCCESS)
+        : sw(SW_SUCCESS);
+  }
+
+  private byte[] increaseOrDecreaseMultiple(boolean isDecrease, int p2, byte[] data) {
+    Ef ef = resolveEf(p2 >> 3);
+    if (ef == null) {
+      return sw(SW_FILE_NOT_FOUND);
+    }
+    if (ef.type != EF_TYPE_COUNTERS) {
+      return sw(SW_INCOMPATIBLE_FILE_STRUCTURE);
+    }
+    if (data.length == 0 || data.length % 4 != 0) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    int[] newValues = new int[data.length / 4];
+    for (int i = 0; i < newValues.length; i++) {
+      int counterNumber = data[i * 4] & 0xFF;
+      if (counterNumber == 0 || counterNumber * 3 > ef.recordSize) {
+        return sw(SW_RECORD_NOT_FOUND);
+      }
+      newValues[i] =
+          computeCounterValue(ef, counterNumber, isDecrease, readInt(data, i * 4 + 1, 3));
+      if (newValues[i] < 0) {
+        return sw(SW_MODIFICATIONS_OVERFLOW);
+      }
+    }
+    if (!consumeSessionBuffer(data.length)) {
+      return sw(SW_MODIFICATIONS_OVERFLOW);
+    }
+    byte[] response = new byte[data.length];
+    for (int i = 0; i < newValues.length; i++) {
+      int counterNumber = data[i * 4] & 0xFF;
+      writeInt(newValues[i], ef.records[1], (counterNumber - 1) * 3, 3);
+      response[i * 4] = (byte) counterNumber;
+      writeInt(newValues[i], response, i * 4 + 1, 3);
+    }
+    return buildResponse(response, 0, response.length, SW_SUCCESS);
+  }
+
+  /** Returns the new counter value or -1 in case of overflow/underflow. */
+  private static int computeCounterValue(Ef ef, int counterNumber, boolean isDecrease, int value) {
+    int oldValue = readInt(ef.records[1], (counterNumber - 1) * 3, 3);
+    int newValue = isDecrease ? oldValue - value : oldValue + value;
+    return newValue > 0xFFFFFF ? -1 : newValue;
+  }
+
+  private byte[] svGet(int p1, int p2) {
+    if (!isSvFeatureAvailable) {
+      return sw(SW_INS_NOT_SUPPORTED);
+    }
+    boolean isExtended = p1 == 0x01;
+    if ((p1 != 0x00 && !isExtended)
+        || (isExtended && !isExtendedModeSupported)
+        || (p2 != 0x07 && p2 != 0x09)) {
+      return sw(SW_WRONG_P1_P2);
+    }
+    svGetOperationP2 = p2;
+    isSvGetExtended = isExtended;
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    if (isExtended) {
+      response.write(nextChallenge(8), 0, 8);
+    }
+    response.write(state.svKvc);
+    writeTo(response, state.svTNum, 2);
+    response.write(state.svLastSignature, isExtended ? 0 : 3, isExtended ? 6 : 3);
+    if (!isExtended) {
+      response.write(nextChallenge(2), 0, 2);
+    }
+    writeTo(response, state.svBalance, 3);
+    if (isExtended || p2 == 0x07) {
+      response.write(state.svLoadLog, 0, state.svLoadLog.length);
+    }
+    if (isExtended || p2 == 0x09) {
+      response.write(state.svDebitLog, 0, state.svDebitLog.length);
+    }
+    byte[] responseData = response.toByteArray();
+    return buildResponse(responseData, 0, responseData.length, SW_SUCCESS);
+  }
+
+  private byte[] svReload(byte[] data) {
+    if (svGetOperationP2 == null || svGetOperationP2 != 0x07) {
+      return sw(SW_PRECONDITIONS_NOT_SATISFIED);
+    }
+    if (data.length != (isSvGetExtended ? 28 : 23)) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    if (state.svTNum >= 0xFFFE) {
+      return sw(SW_TRANSACTION_COUNTER_EXHAUSTED);
+    }
+    int amount = readInt(data, 6, 3);
+    if ((amount & 0x800000) != 0) {
+      amount |= 0xFF000000;
+    }
+    state.svBalance += amount;
+    state.svTNum++;
+    byte[] loadLog = state.svLoadLog;
+    System.arraycopy(data, 1, loadLog, 0, 5); // date, free1, kvc, free2
+    writeInt(state.svBalance, loadLog, 5, 3);
+    writeInt(amount, loadLog, 8, 3);
+    System.arraycopy(data, 9, loadLog, 11, 9); // time, SAM ID, SAM TNum
+    writeInt(state.svTNum, loadLog, 20, 2);
+    return completeSvOperation();
+  }
+
+  private byte[] svDebitOrUndebit(boolean isUndebit, byte[] data) {
+    if (svGetOperationP2 == null || svGetOperationP2 != 0x09) {
+      return sw(SW_PRECONDITIONS_NOT_SATISFIED);
+    }
+    if (data.length != (isSvGetExtended ? 25 : 20)) {
+      return sw(SW_WRONG_LENGTH);
+    }
+    if (state.svTNum >= 0xFFFE) {
+      return sw(SW_TRANSACTION_COUNTER_EXHAUSTED);
+    }
+    int amount = readInt(data, 1, 2);
+    int newBalance = isUndebit ? state.svBalance + amount : state.svBalance - amount;
+    if (newBalance < 0) {
+      return sw(SW_MODIFICATIONS_OVERFLOW);
+    }
+    state.svBalance = newBalance;
+    state.svTNum++;
+    byte[] debitLog = state.svDebitLog;
+    System.arraycopy(data, 1, debitLog, 0, 14); // amount, date, time, kvc, SAM ID, SAM TNum
+    writeInt(state.svBalance, debitLog, 14, 3);
+    writeInt(state.svTNum, debitLog, 17, 2);
+    return completeSvOperation();
+  }
+
+  /** Builds the SV signature and returns it, or postpones it if a session is open. */
+  private byte[] completeSvOperation() {
+    svGetOperationP2 = null;
+    byte[] signature = nextChallenge(isSvGetExtended ? 6 : 3);
+    Arrays.fill(state.svLastSignature, (byte) 0);
+    System.arraycopy(
+        signature, 0, state.svLastSignature, 6 - signature.length, signature.length);
+    if (isSessionOpen) {
+      postponedData.add(signature);
+      return sw(SW_POSTPONED_DATA);
+    }
+    return buildResponse(signature, 0, signature.length, SW_SUCCESS);
+  }
+
+  private byte[] invalidateOrRehabilitate(boolean isInvalidate) {
+    if (state.isInvalidated == isInvalidate) {
+      return sw(SW_PRECONDITIONS_NOT_SATISFIED);
+    }
+    state.isInvalidated = isInvalidate;
+    return sw(SW_SUCCESS);
+  }
+
+  private byte[] buildFci() {
+    byte[] fci = new byte[37];
+    System.arraycopy(FCI_HEADER, 0, fci, 0, FCI_HEADER.length);
+    System.arraycopy(serialNumber, 0, fci, 20, 8);
+    fci[28] = 0x53; // discretionary data tag
+    fci[29] = 0x07;
+    fci[30] = BUFFER_SIZE_INDICATOR;
+    fci[31] = 0x3C; // platform
+    fci[32] =
+        (byte)
+            (APP_TYPE_BASE
+                | (isExtendedModeSupported ? APP_TYPE_CALYPSO_REV_32_MODE : 0)
+                | (isSvFeatureAvailable ? APP_TYPE_WITH_CALYPSO_SV : 0));
+    fci[33] = 0x05; // application subtype
+    fci[34] = 0x14; // software issuer
+    fci[35] = 0x10; // software version
+    fci[36] = 0x01; // software revision
+    return fci;
+  }
+
+  /** Builds the response to Select File / Get Data FCP (EF or current DF if null). */
+  private byte[] buildFcp(Ef ef) {
+    byte[] fcp = new byte[25];
+    fcp[0] = (byte) 0x85;
+    fcp[1] = 0x17;
+    if (ef == null) {
+      fcp[3] = CalypsoCardConstant.FILE_TYPE_DF;
+      for (int i = 0; i < 3; i++) {
+        fcp[16 + i] = KVCS[i];
+        fcp[19 + i] = KIFS[i];
+      }
+      writeInt(DF_LID, fcp, 23, 2);
+    } else {
+      fcp[2] = ef.sfi;
+      fcp[3] = CalypsoCardConstant.FILE_TYPE_EF;
+      fcp[4] = ef.type;
+      if (ef.type == EF_TYPE_BINARY) {
+        writeInt(ef.recordSize, fcp, 5, 2);
+      } else {
+        fcp[5] = (byte) ef.recordSize;
+        fcp[6] = (byte) (ef.records.length - 1);
+      }
+      Arrays.fill(fcp, 7, 11, (byte) 0x1F); // access conditions
+      Arrays.fill(fcp, 11, 15, (byte) 0x01); // key indexes
+      writeInt(ef.lid, fcp, 23, 2);
+    }
+    return buildResponse(fcp, 0, fcp.length, SW_SUCCESS);
+  }
+
+  /** Generates deterministic pseudo-random bytes. */
+  private byte[] nextChallenge(int length) {
+    byte[] challenge = new byte[length];
+    for (int i = 0; i < length; i++) {
+      challengeSeed = challengeSeed * 1103515245 + 12345;
+      challenge[i] = (byte) (challengeSeed >>> 16);
+    }
+    return challenge;
+  }
+
+  private static void writeData(boolean isWrite, byte[] data, byte[] target, int offset) {
+    for (int i = 0; i < data.length; i++) {
+      target[offset + i] = isWrite ? (byte) (target[offset + i] | data[i]) : data[i];
+    }
+  }
+
+  private static byte[] sw(int statusWord) {
+    return new byte[] {(byte) (statusWord >> 8), (byte) statusWord};
+  }
+
+  private static byte[] buildResponse(byte[] data, int offset, int length, int statusWord) {
+    byte[] response = new byte[length + 2];
+    System.arraycopy(data, offset, response, 0, length);
+    response[length] = (byte) (statusWord >> 8);
+    response[length + 1] = (byte) statusWord;
+    return response;
+  }
+
+  private static int readInt(byte[] src, int offset, int length) {
+    int value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | (src[offset + i] & 0xFF);
+    }
+    return value;
+  }
+
+  private static void writeInt(int value, byte[] dest, int offset, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      dest[offset + i] = (byte) value;
+      value >>= 8;
+    }
+  }
+
+  private static void writeTo(ByteArrayOutputStream out, int value, int length) {
+    byte[] bytes = new byte[length];
+    writeInt(value, bytes, 0, length);
+    out.write(bytes, 0, length);
+  }
+
+  /** Persistent card state, copied when a secure session is opened. */
+  private static final class CardState {
+
+    private final Map<Short, Ef> files = new LinkedHashMap<>();
+    private int svBalance;
+    private int svTNum;
+    private byte svKvc;
+    private byte[] svLoadLog = new byte[22];
+    private byte[] svDebitLog = new byte[19];
+    private byte[] svLastSignature = new byte[6];
+    private boolean isInvalidated;
+
+    private Ef getEfBySfi(int sfi) {
+      for (Ef ef : files.values()) {
+        if (ef.sfi == sfi) {
+          return ef;
+        }
+      }
+      return null;
+    }
+
+    private CardState copy() {
+      CardState copy = new CardState();
+      for (Map.Entry<Short, Ef> entry : files.entrySet()) {
+        copy.files.put(entry.getKey(), new Ef(entry.getValue()));
+      }
+      copy.svBalance = svBalance;
+      copy.svTNum = svTNum;
+      copy.svKvc = svKvc;
+      copy.svLoadLog = svLoadLog.clone();
+      copy.svDebitLog = svDebitLog.clone();
+      copy.svLastSignature = svLastSignature.clone();
+      copy.isInvalidated = isInvalidated;
+      return copy;
+    }
+  }
+
+  /** Elementary file; the records are indexed from 1. */
+  private static final class Ef {
+
+    private final byte sfi;
+    private final short lid;
+    private final byte type;
+    private final int recordSize;
+    private final byte[][] records;
+
+    private Ef(byte sfi, short lid, byte type, int nbRecords, int recordSize) {
+      this.sfi = sfi;
+      this.lid = lid;
+      this.type = type;
+      this.recordSize = recordSize;
+      records = new byte[nbRecords + 1][];
+      for (int i = 1; i <= nbRecords; i++) {
+        records[i] = new byte[recordSize];
+      }
+    }
+
+    private Ef(Ef source) {
+      sfi = source.sfi;
+      lid = source.lid;
+      type = source.type;
+      recordSize = source.recordSize;
+      records = new byte[source.records.length][];
+      for (int i = 1; i < records.length; i++) {
+        records[i] = source.records[i].clone();
+      }
+    }
+  }
+}
@@ -0,0 +1,507 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.keyple.card.calypso.spi.SessionMacBatchUpdateSpi;
+import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.calypso.card.CalypsoCardApiFactory;
+import org.eclipse.keypop.calypso.card.GetDataTag;
+import org.eclipse.keypop.calypso.card.WriteAccessLevel;
+import org.eclipse.keypop.calypso.card.card.CalypsoCardSelectionExtension;
+import org.eclipse.keypop.calypso.card.transaction.SvAction;
+import org.eclipse.keypop.calypso.card.transaction.SvOperation;
+import org.eclipse.keypop.calypso.card.transaction.SymmetricCryptoSecuritySetting;
+import org.eclipse.keypop.calypso.card.transaction.spi.CardTransactionCryptoExtension;
+import org.eclipse.keypop.calypso.card.transaction.spi.SymmetricCryptoCardTransactionManagerFactory;
+import org.eclipse.keypop.calypso.crypto.symmetric.SvCommandSecurityDataApi;
+import org.eclipse.keypop.calypso.crypto.symmetric.spi.SymmetricCryptoCardTransactionManagerFactorySpi;
+import org.eclipse.keypop.calypso.crypto.symmetric.spi.SymmetricCryptoCardTransactionManagerSpi;
+import org.eclipse.keypop.reader.CardCommunicationException;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+
+public class CalypsoCardSimulatorTest {
+
+  private static final String CARD_SERIAL_NUMBER = "0000000011223344";
+  private static final byte SFI_ENVIRONMENT = 0x07;
+  private static final byte SFI_EVENTS = 0x08;
+  private static final byte SFI_COUNTERS = 0x19;
+  private static final int RECORD_SIZE = 29;
+
+  private CalypsoCardApiFactory calypsoCardApiFactory;
+
+  interface SymmetricCryptoCardTransactionManagerFactoryMock
+      extends SymmetricCryptoCardTransactionManagerFactory,
+          SymmetricCryptoCardTransactionManagerFactorySpi {}
+
+  interface SymmetricCryptoCardTransactionManagerMock
+      extends SymmetricCryptoCardTransactionManagerSpi, CardTransactionCryptoExtension {}
+
+  interface BatchSymmetricCryptoCardTransactionManagerMock
+      extends SymmetricCryptoCardTransactionManagerMock, SessionMacBatchUpdateSpi {}
+
+  @Before
+  public void setUp() {
+    calypsoCardApiFactory = CalypsoExtensionService.getInstance().getCalypsoCardApiFactory();
+  }
+
+  private static CalypsoCardSimulator createSimulator(boolean isExtendedModeSupported) {
+    return new CalypsoCardSimulator(CARD_SERIAL_NUMBER, isExtendedModeSupported, true)
+        .addFile(
+            SFI_ENVIRONMENT, (short) 0x2001, CalypsoCardSimulator.EF_TYPE_LINEAR, 1, RECORD_SIZE)
+        .addFile(SFI_EVENTS, (short) 0x2010, CalypsoCardSimulator.EF_TYPE_CYCLIC, 3, RECORD_SIZE)
+        .addFile(SFI_COUNTERS, (short) 0x2069, CalypsoCardSimulator.EF_TYPE_COUNTERS, 9, 0)
+        .setRecord(SFI_ENVIRONMENT, 1, buildRecord(0x11))
+        .setCounter(SFI_COUNTERS, 1, 100)
+        .setSvData(500, 10, (byte) 0x79)
+        .setTransactionCounter(1000);
+  }
+
+  private static CalypsoCardAdapter createCard(CalypsoCardSimulator simulator) throws Exception {
+    return new CalypsoCardAdapter(
+        new TestDtoAdapters.CardSelectionResponseAdapter(
+            simulator.getSelectApplicationResponse()));
+  }
+
+  private SymmetricCryptoSecuritySetting createSecuritySetting(boolean isExtendedMode)
+      throws Exception {
+    return createSecuritySetting(
+        isExtendedMode, mock(SymmetricCryptoCardTransactionManagerMock.class));
+  }
+
+  private SymmetricCryptoSecuritySetting createSecuritySetting(
+      boolean isExtendedMode,
+      SymmetricCryptoCardTransactionManagerMock symmetricCryptoCardTransactionManager)
+      throws Exception {
+    byte[] challenge = new byte[isExtendedMode ? 8 : 4];
+    when(symmetricCryptoCardTransactionManager.initTerminalSecureSessionContext())
+        .thenReturn(challenge);
+    when(symmetricCryptoCardTransactionManager.finalizeTerminalSessionMac()).thenReturn(challenge);
+    when(symmetricCryptoCardTransactionManager.generateTerminalSessionMac())
+        .thenReturn(new byte[8]);
+    when(symmetricCryptoCardTransactionManager.isCardSessionMacValid(
+            ArgumentMatchers.<byte[]>any()))
+        .thenReturn(true);
+    when(symmetricCryptoCardTransactionManager.isCardSvMacValid(ArgumentMatchers.<byte[]>any()))
+        .thenReturn(true);
+    doAnswer(
+            invocation -> {
+              SvCommandSecurityDataApi svCommandSecurityData = invocation.getArgument(0);
+              svCommandSecurityData.setSerialNumber(new byte[4]);
+              svCommandSecurityData.setTransactionNumber(new byte[3]);
+              svCommandSecurityData.setTerminalChallenge(new byte[3]);
+              svCommandSecurityData.setTerminalSvMac(new byte[isExtendedMode ? 10 : 5]);
+              return null;
+            })
+        .when(symmetricCryptoCardTransactionManager)
+        .computeSvCommandSecurityData(any(SvCommandSecurityDataApi.class));
+    SymmetricCryptoCardTransactionManagerFactoryMock symmetricCryptoCardTransactionManagerFactory =
+        mock(SymmetricCryptoCardTransactionManagerFactoryMock.class);
+    when(symmetricCryptoCardTransactionManagerFactory.getMaxCardApduLengthSupported())
+        .thenReturn(250);
+    when(symmetricCryptoCardTransactionManagerFactory.isExtendedModeSupported()).thenReturn(true);
+    when(symmetricCryptoCardTransactionManagerFactory.createCardTransactionManager(
+            eq(HexUtil.toByteArray(CARD_SERIAL_NUMBER)),
+            any(Boolean.class),
+            ArgumentMatchers.<byte[]>anyList()))
+        .thenReturn(symmetricCryptoCardTransactionManager);
+    return calypsoCardApiFactory.createSymmetricCryptoSecuritySetting(
+        symmetricCryptoCardTransactionManagerFactory);
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  @Test
+  public void freeTransaction_shouldUpdateSimulatorAndCardImage() throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+
+    calypsoCardApiFactory
+        .createFreeTransactionManager(simulator, card)
+        .prepareReadRecords(SFI_ENVIRONMENT, 1, 1, RECORD_SIZE)
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 5)
+        .prepareAppendRecord(SFI_EVENTS, buildRecord(0x22))
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(card.getFileBySfi(SFI_ENVIRONMENT).getData().getContent(1))
+        .isEqualTo(buildRecord(0x11));
+    assertThat(card.getFileBySfi(SFI_COUNTERS).getData().getContentAsCounterValue(1))
+        .isEqualTo(105);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 1)).isEqualTo(105);
+    assertThat(simulator.getRecord(SFI_EVENTS, 1)).isEqualTo(buildRecord(0x22));
+    assertThat(simulator.getTransactionCounter()).isEqualTo(1000);
+  }
+
+  @Test
+  public void secureRegularModeTransaction_whenBatchUpdateIsSupported_shouldBatchSessionMacUpdates()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+    BatchSymmetricCryptoCardTransactionManagerMock symmetricCryptoCardTransactionManager =
+        mock(BatchSymmetricCryptoCardTransactionManagerMock.class);
+    List<byte[]> sessionApdus = new ArrayList<>();
+    AtomicInteger nbBatchUpdates = new AtomicInteger();
+    doAnswer(
+            invocation -> {
+              // The list is cleared after the call
+              sessionApdus.addAll(invocation.<List<byte[]>>getArgument(0));
+              nbBatchUpdates.incrementAndGet();
+              return null;
+            })
+        .when(symmetricCryptoCardTransactionManager)
+        .updateTerminalSessionMac(ArgumentMatchers.<List<byte[]>>any());
+
+    calypsoCardApiFactory
+        .createSecureRegularModeTransactionManager(
+            simulator, card, createSecuritySetting(false, symmetricCryptoCardTransactionManager))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareDecreaseCounter(SFI_COUNTERS, 1, 30)
+        .prepareIncreaseCounter(SFI_COUNTERS, 2, 5)
+        .prepareUpdateRecord(SFI_ENVIRONMENT, 1, buildRecord(0x33))
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    verify(symmetricCryptoCardTransactionManager, never())
+        .updateTerminalSessionMac(ArgumentMatchers.<byte[]>any());
+    assertThat(nbBatchUpdates.get()).isEqualTo(1);
+    assertThat(sessionApdus).hasSize(6);
+    assertThat(sessionApdus.get(0)[1]).isEqualTo((byte) 0x30);
+    assertThat(sessionApdus.get(2)[1]).isEqualTo((byte) 0x32);
+    assertThat(sessionApdus.get(4)[1]).isEqualTo((byte) 0xDC);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 1)).isEqualTo(70);
+    assertThat(simulator.getTransactionCounter()).isEqualTo(999);
+  }
+
+  @Test
+  public void secureRegularModeTransaction_whenClosed_shouldCommitModifications()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+
+    calypsoCardApiFactory
+        .createSecureRegularModeTransactionManager(simulator, card, createSecuritySetting(false))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareReadRecords(SFI_ENVIRONMENT, 1, 1, RECORD_SIZE)
+        .prepareReadCounter(SFI_COUNTERS, 1)
+        .prepareDecreaseCounter(SFI_COUNTERS, 1, 30)
+        .prepareUpdateRecord(SFI_ENVIRONMENT, 1, buildRecord(0x33))
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.isSessionOpen()).isFalse();
+    assertThat(simulator.isRatified()).isTrue();
+    assertThat(simulator.getTransactionCounter()).isEqualTo(999);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 1)).isEqualTo(70);
+    assertThat(simulator.getRecord(SFI_ENVIRONMENT, 1)).isEqualTo(buildRecord(0x33));
+    assertThat(card.getFileBySfi(SFI_COUNTERS).getData().getContentAsCounterValue(1))
+        .isEqualTo(70);
+  }
+
+  @Test
+  public void secureRegularModeTransaction_whenCancelled_shouldRestoreFiles() throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+
+    calypsoCardApiFactory
+        .createSecureRegularModeTransactionManager(simulator, card, createSecuritySetting(false))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareUpdateRecord(SFI_ENVIRONMENT, 1, buildRecord(0x33))
+        .processCommands(ChannelControl.KEEP_OPEN)
+        .prepareCancelSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.isSessionOpen()).isFalse();
+    assertThat(simulator.getTransactionCounter()).isEqualTo(999);
+    assertThat(simulator.getRecord(SFI_ENVIRONMENT, 1)).isEqualTo(buildRecord(0x11));
+  }
+
+  @Test
+  public void secureRegularModeTransaction_whenCommunicationFails_shouldAbortSession()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+    simulator.setCommunicationFailureAfter(4);
+
+    assertThatThrownBy(
+            () ->
+                calypsoCardApiFactory
+                    .createSecureRegularModeTransactionManager(
+                        simulator, card, createSecuritySetting(false))
+                    .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+                    .prepareReadCounter(SFI_COUNTERS, 1)
+                    .prepareUpdateRecord(SFI_ENVIRONMENT, 1, buildRecord(0x33))
+                    .prepareIncreaseCounter(SFI_COUNTERS, 1, 1)
+                    .prepareCloseSecureSession()
+                    .processCommands(ChannelControl.CLOSE_AFTER))
+        .isInstanceOf(CardCommunicationException.class);
+
+    assertThat(simulator.isSessionOpen()).isFalse();
+    assertThat(simulator.getRecord(SFI_ENVIRONMENT, 1)).isEqualTo(buildRecord(0x11));
+    assertThat(simulator.getCounter(SFI_COUNTERS, 1)).isEqualTo(100);
+  }
+
+  @Test
+  public void secureRegularModeTransaction_whenRecoveryIsEnabled_shouldNotParseTheSessionResponses()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+    simulator.setCommunicationFailureAfter(1);
+
+    assertThatThrownBy(
+            () ->
+                CalypsoExtensionService.getInstance()
+                    .setTransactionOptions(
+                        calypsoCardApiFactory.createSecureRegularModeTransactionManager(
+                            simulator, card, createSecuritySetting(false)),
+                        TransactionOptions.builder().enableCommunicationFailureRecovery().build())
+                    .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+                    .prepareReadCounter(SFI_COUNTERS, 1)
+                    .processCommands(ChannelControl.KEEP_OPEN))
+        .isInstanceOf(CardCommunicationException.class);
+
+    // The response to the "Open Secure Session" command has been received but not parsed
+    assertThatThrownBy(card::getTransactionCounter).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void secureExtendedModeTransaction_whenPreOpenAtSelection_shouldOpenOnlyOnce()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    CalypsoCardSelectionExtension cardSelectionExtension =
+        calypsoCardApiFactory
+            .createCalypsoCardSelectionExtension()
+            .prepareReadCounter(SFI_COUNTERS, 2)
+            .preparePreOpenSecureSession(WriteAccessLevel.DEBIT);
+    CalypsoCardAdapter card =
+        (CalypsoCardAdapter)
+            ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+                .parse(
+                    simulator.select(
+                        ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+                            .getCardSelectionRequest()));
+
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(simulator, card, createSecuritySetting(true))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareIncreaseCounter(SFI_COUNTERS, 2, 7)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.getTransactionCounter()).isEqualTo(999);
+    assertThat(simulator.getApduCount((byte) 0x8A)).isEqualTo(2);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 2)).isEqualTo(7);
+    assertThat(simulator.isSessionOpen()).isFalse();
+  }
+
+  private static CalypsoCardAdapter selectWithPreOpenSecureSession(
+      CalypsoCardSimulator simulator, CalypsoCardSelectionExtension cardSelectionExtension)
+      throws Exception {
+    cardSelectionExtension
+        .prepareReadRecord(SFI_ENVIRONMENT, 1)
+        .preparePreOpenSecureSession(WriteAccessLevel.DEBIT);
+    return (CalypsoCardAdapter)
+        ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+            .parse(
+                simulator.select(
+                    ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+                        .getCardSelectionRequest()));
+  }
+
+  /** Selects the card with the "SV Get" command as last command before the pre-opening. */
+  private CalypsoCardAdapter selectWithSvGetAndPreOpenSecureSession(
+      CalypsoCardSimulator simulator, SvOperation svOperation) throws Exception {
+    CalypsoCardSelectionExtension cardSelectionExtension =
+        calypsoCardApiFactory
+            .createCalypsoCardSelectionExtension()
+            .prepareReadRecord(SFI_ENVIRONMENT, 1);
+    CalypsoExtensionService.getInstance().prepareSvGet(cardSelectionExtension, svOperation);
+    cardSelectionExtension.preparePreOpenSecureSession(WriteAccessLevel.DEBIT);
+    return (CalypsoCardAdapter)
+        ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+            .parse(
+                simulator.select(
+                    ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+                        .getCardSelectionRequest()));
+  }
+
+  @Test
+  public void
+      secureExtendedModeTransaction_whenPreOpenAndPartialReadOfKnownRecords_shouldUseOneCardRequest()
+          throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    CalypsoCardAdapter card =
+        selectWithPreOpenSecureSession(
+            simulator,
+            calypsoCardApiFactory
+                .createCalypsoCardSelectionExtension()
+                .prepareGetData(GetDataTag.EF_LIST));
+    int cardRequestCount = simulator.getCardRequestCount();
+
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(simulator, card, createSecuritySetting(true))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareReadRecordsPartially(SFI_ENVIRONMENT, 1, 1, 2, 4)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.getCardRequestCount() - cardRequestCount).isEqualTo(1);
+    assertThat(simulator.getApduCount((byte) 0xB3)).isEqualTo(1);
+    assertThat(card.getFileBySfi(SFI_ENVIRONMENT).getData().getContent(1, 2, 4))
+        .containsOnly(0x11);
+    assertThat(simulator.isSessionOpen()).isFalse();
+  }
+
+  @Test
+  public void
+      secureExtendedModeTransaction_whenPreOpenAndPartialReadOfUnknownFileHeader_shouldSplitTheCardRequest()
+          throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    CalypsoCardAdapter card =
+        selectWithPreOpenSecureSession(
+            simulator, calypsoCardApiFactory.createCalypsoCardSelectionExtension());
+    int cardRequestCount = simulator.getCardRequestCount();
+
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(simulator, card, createSecuritySetting(true))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareReadRecordsPartially(SFI_ENVIRONMENT, 1, 1, 2, 4)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.getCardRequestCount() - cardRequestCount).isEqualTo(2);
+    assertThat(card.getFileBySfi(SFI_ENVIRONMENT).getData().getContent(1, 2, 4))
+        .containsOnly(0x11);
+    assertThat(simulator.isSessionOpen()).isFalse();
+  }
+
+  @Test
+  public void secureExtendedModeTransaction_whenNotPreOpenAndPartialRead_shouldThrowISE()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    CalypsoCardAdapter card = createCard(simulator);
+
+    assertThatThrownBy(
+            () ->
+                calypsoCardApiFactory
+                    .createSecureExtendedModeTransactionManager(
+                        simulator, card, createSecuritySetting(true))
+                    .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+                    .prepareReadRecordsPartially(SFI_ENVIRONMENT, 1, 1, 2, 4))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void svGet_shouldReturnSimulatorSvData() throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(false);
+    CalypsoCardAdapter card = createCard(simulator);
+
+    calypsoCardApiFactory
+        .createSecureRegularModeTransactionManager(simulator, card, createSecuritySetting(false))
+        .prepareSvGet(SvOperation.RELOAD, SvAction.DO)
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(card.getSvBalance()).isEqualTo(500);
+    assertThat(card.getSvLastTNum()).isEqualTo(10);
+  }
+
+  @Test
+  public void svDebit_whenSvGetPreparedAtSelection_shouldNotSendAnotherSvGet() throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    CalypsoCardAdapter card = selectWithSvGetAndPreOpenSecureSession(simulator, SvOperation.DEBIT);
+    assertThat(card.getSvBalance()).isEqualTo(500);
+    int cardRequestCount = simulator.getCardRequestCount();
+
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(simulator, card, createSecuritySetting(true))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareSvGet(SvOperation.DEBIT, SvAction.DO)
+        .prepareSvDebit(20)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.getApduCount((byte) 0x7C)).isEqualTo(1);
+    assertThat(simulator.getCardRequestCount() - cardRequestCount).isEqualTo(2);
+    assertThat(simulator.getSvBalance()).isEqualTo(480);
+    assertThat(simulator.isSessionOpen()).isFalse();
+    assertThat(card.isSvGetDataFromSelection()).isFalse();
+  }
+
+  @Test
+  public void svDebit_whenSessionClosedAfterSelectionSvGet_shouldSendAnotherSvGet()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    CalypsoCardAdapter card = selectWithSvGetAndPreOpenSecureSession(simulator, SvOperation.DEBIT);
+
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(simulator, card, createSecuritySetting(true))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareCloseSecureSession()
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareSvGet(SvOperation.DEBIT, SvAction.DO)
+        .prepareSvDebit(20)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.getApduCount((byte) 0x7C)).isEqualTo(2);
+    assertThat(simulator.getSvBalance()).isEqualTo(480);
+  }
+
+  @Test
+  public void svDebit_whenACommandFollowsTheSelectionSvGet_shouldSendAnotherSvGet()
+      throws Exception {
+    CalypsoCardSimulator simulator = createSimulator(true);
+    // The "Read Record" command is sent after the "SV Get" command in the selection request
+    CalypsoCardAdapter card =
+        selectWithPreOpenSecureSession(
+            simulator,
+            CalypsoExtensionService.getInstance()
+                .prepareSvGet(
+                    calypsoCardApiFactory.createCalypsoCardSelectionExtension(),
+                    SvOperation.DEBIT));
+    assertThat(card.isSvGetDataFromSelection()).isFalse();
+
+    calypsoCardApiFactory
+        .createSecureExtendedModeTransactionManager(simulator, card, createSecuritySetting(true))
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareSvGet(SvOperation.DEBIT, SvAction.DO)
+        .prepareSvDebit(20)
+        .prepareCloseSecureSession()
+        .processCommands(ChannelControl.CLOSE_AFTER);
+
+    assertThat(simulator.getApduCount((byte) 0x7C)).isEqualTo(2);
+    assertThat(simulator.getSvBalance()).isEqualTo(480);
+  }
+
+  @Test
+  public void prepareSvGet_whenSelectionExtensionIsNotAnAdapter_shouldThrowIAE() {
+    assertThatThrownBy(
+            () ->
+                CalypsoExtensionService.getInstance()
+                    .prepareSvGet(
+                        mock(CalypsoCardSelectionExtension.class), SvOperation.RELOAD))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -12,10 +12,19 @@
 package org.eclipse.keyple.card.calypso;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.eclipse.keyple.card.calypso.TestDtoAdapters.*;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.eclipse.keyple.core.common.CommonApiProperties;
+import org.eclipse.keypop.calypso.card.card.CalypsoCardSelectionExtension;
 import org.eclipse.keypop.calypso.card.transaction.FreeTransactionManager;
 import org.eclipse.keypop.calypso.card.transaction.SymmetricCryptoSecuritySetting;
 import org.eclipse.keypop.calypso.card.transaction.spi.CardTransactionCryptoExtension;
@@ -25,7 +34,9 @@
 import org.eclipse.keypop.card.CardApiProperties;
 import org.eclipse.keypop.card.ProxyReaderApi;
 import org.eclipse.keypop.card.spi.CardSelectionExtensionSpi;
+import org.eclipse.keypop.reader.CardCommunicationException;
 import org.eclipse.keypop.reader.CardReader;
+import org.eclipse.keypop.reader.ChannelControl;
 import org.eclipse.keypop.reader.ReaderApiProperties;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -33,6 +44,8 @@
 
 public class CalypsoExtensionServiceTest {
 
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
   public static final String POWER_ON_DATA = "3B8F8001805A0A010320031124B77FE7829000F7";
   private static final String SAM_C1_POWER_ON_DATA = "3B3F9600805A4880C120501711223344829000";
   private static CalypsoExtensionService service;
@@ -219,4 +232,99 @@ public void createSecureRegularModeTransactionManager_whenInvokedWithNullReader_
         .getCalypsoCardApiFactory()
         .createSecureExtendedModeTransactionManager(reader, calypsoCard, cardSecuritySetting);
   }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void processCommandsAsync_whenTransactionManagerIsNotAnAdapter_shouldThrowIAE() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      service.processCommandsAsync(
+          mock(FreeTransactionManager.class), ChannelControl.KEEP_OPEN, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setTransactionOptions_whenTransactionManagerIsNotAnAdapter_shouldThrowIAE() {
+    service.setTransactionOptions(
+        mock(FreeTransactionManager.class), TransactionOptions.builder().build());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setCardSelectionFilter_whenExtensionIsNotAnAdapter_shouldThrowIAE() {
+    service.setCardSelectionFilter(
+        mock(CalypsoCardSelectionExtension.class), CardSelectionFilter.builder().build());
+  }
+
+  @Test
+  public void processCommandsAsync_whilePending_shouldRejectThePreparationAndTheProcessing()
+      throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new CardSelectionResponseAdapter(simulator.getSelectApplicationResponse()));
+    FreeTransactionManager cardTransactionManager =
+        service.getCalypsoCardApiFactory().createFreeTransactionManager(simulator, card);
+    List<Runnable> tasks = new ArrayList<>();
+    cardTransactionManager.prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE);
+    CompletableFuture<FreeTransactionManager> future =
+        service.processCommandsAsync(cardTransactionManager, ChannelControl.KEEP_OPEN, tasks::add);
+
+    assertThatThrownBy(() -> cardTransactionManager.prepareReadRecord(SFI_CONTRACTS, 2))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> cardTransactionManager.processCommands(ChannelControl.KEEP_OPEN))
+        .isInstanceOf(IllegalStateException.class);
+
+    tasks.get(0).run();
+
+    assertThat(future.get()).isSameAs(cardTransactionManager);
+    cardTransactionManager
+        .prepareReadRecord(SFI_CONTRACTS, 2)
+        .processCommands(ChannelControl.KEEP_OPEN);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getAllRecordsContent())
+        .containsOnlyKeys(1, 2);
+  }
+
+  @Test
+  public void processCommandsAsync_shouldProcessTheCommandsOnTheExecutor() throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new CardSelectionResponseAdapter(simulator.getSelectApplicationResponse()));
+    FreeTransactionManager cardTransactionManager =
+        service.getCalypsoCardApiFactory().createFreeTransactionManager(simulator, card);
+    ExecutorService executor =
+        Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "async-processing"));
+    try {
+      cardTransactionManager.prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE);
+      CompletableFuture<FreeTransactionManager> future =
+          service.processCommandsAsync(cardTransactionManager, ChannelControl.KEEP_OPEN, executor);
+
+      assertThat(future.get()).isSameAs(cardTransactionManager);
+      assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(1)).hasSize(RECORD_SIZE);
+
+      simulator.setCommunicationFailureAfter(0);
+      cardTransactionManager.prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE);
+      Throwable thrown =
+          catchThrowable(
+              () ->
+                  service
+                      .processCommandsAsync(
+                          cardTransactionManager, ChannelControl.KEEP_OPEN, executor)
+                      .get());
+
+      assertThat(thrown).isInstanceOf(ExecutionException.class);
+      assertThat(thrown.getCause()).isInstanceOf(CardCommunicationException.class);
+      assertThat(thrown.getCause().getMessage()).contains("Transaction audit JSON data");
+      assertThat(cardTransactionManager.getTransactionAuditData()).hasSize(2);
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -0,0 +1,129 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import org.eclipse.keypop.calypso.card.CalypsoCardApiFactory;
+import org.eclipse.keypop.calypso.card.WriteAccessLevel;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CardImageCacheTest {
+
+  private static final byte SFI_ENVIRONMENT = 0x07;
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+
+  private CalypsoCardApiFactory calypsoCardApiFactory;
+  private CalypsoCardSimulator simulator;
+  private CardImageCache cache;
+
+  @Before
+  public void setUp() {
+    calypsoCardApiFactory = CalypsoExtensionService.getInstance().getCalypsoCardApiFactory();
+    simulator = createSimulator("0000000011223344");
+    cache = new CardImageCache(2);
+  }
+
+  private static CalypsoCardSimulator createSimulator(String serialNumber) {
+    return new CalypsoCardSimulator(serialNumber, true, false)
+        .addFile(
+            SFI_ENVIRONMENT, (short) 0x2001, CalypsoCardSimulator.EF_TYPE_LINEAR, 1, RECORD_SIZE)
+        .addFile(SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE)
+        .setRecord(SFI_ENVIRONMENT, 1, buildRecord(0x11))
+        .setRecord(SFI_CONTRACTS, 1, buildRecord(0x21))
+        .setTransactionCounter(1000);
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  /** Selects the card with a pre-opening of a secure session and a read of the environment. */
+  private CalypsoCardAdapter selectCard() throws Exception {
+    CalypsoCardSelectionExtensionAdapter cardSelectionExtension =
+        (CalypsoCardSelectionExtensionAdapter)
+            CalypsoExtensionService.getInstance()
+                .setCardImageCache(
+                    calypsoCardApiFactory
+                        .createCalypsoCardSelectionExtension()
+                        .prepareReadRecord(SFI_ENVIRONMENT, 1)
+                        .preparePreOpenSecureSession(WriteAccessLevel.DEBIT),
+                    cache);
+    return (CalypsoCardAdapter)
+        cardSelectionExtension.parse(
+            simulator.select(cardSelectionExtension.getCardSelectionRequest()));
+  }
+
+  private void readContracts(CalypsoCardAdapter card) throws Exception {
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            calypsoCardApiFactory.createFreeTransactionManager(simulator, card),
+            TransactionOptions.builder().enableRedundantReadsElision().build())
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+  }
+
+  @Test
+  public void parse_whenTransactionCounterIsTheExpectedOne_shouldRestoreTheCachedFiles()
+      throws Exception {
+    CalypsoCardAdapter card = selectCard();
+    readContracts(card);
+    cache.put(card);
+
+    CalypsoCardAdapter nextCard = selectCard();
+    int nbReads = simulator.getApduCount((byte) 0xB2);
+    readContracts(nextCard);
+
+    assertThat(nextCard.getTransactionCounter()).isEqualTo(card.getTransactionCounter() - 1);
+    assertThat(nextCard.getFileBySfi(SFI_CONTRACTS).getData().getContent(1))
+        .isEqualTo(buildRecord(0x21));
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(nbReads);
+  }
+
+  @Test
+  public void parse_whenASessionWasOpenedByAnotherTerminal_shouldDiscardTheEntry()
+      throws Exception {
+    CalypsoCardAdapter card = selectCard();
+    readContracts(card);
+    cache.put(card);
+    simulator.setTransactionCounter(900);
+
+    CalypsoCardAdapter nextCard = selectCard();
+
+    assertThat(cache.size()).isZero();
+    assertThat(nextCard.getFileBySfi(SFI_CONTRACTS)).isNull();
+  }
+
+  @Test
+  public void put_whenMaxEntriesIsReached_shouldDiscardTheLeastRecentlyUsedEntry()
+      throws Exception {
+    CalypsoCardAdapter card = selectCard();
+    cache.put(card);
+    simulator = createSimulator("0000000055667788");
+    cache.put(selectCard());
+    simulator = createSimulator("00000000AABBCCDD");
+    CalypsoCardAdapter lastCard = selectCard();
+    cache.put(lastCard);
+
+    assertThat(cache.size()).isEqualTo(2);
+    cache.remove(card); // already discarded
+    assertThat(cache.size()).isEqualTo(2);
+    cache.remove(lastCard);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,193 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.calypso.card.card.ElementaryFile;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CardImageCodecTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final byte SFI_COUNTERS = 0x19;
+  private static final short LID_CONTRACTS = 0x2020;
+  private static final int RECORD_SIZE = 29;
+
+  private CalypsoCardAdapter card;
+
+  @Before
+  public void setUp() throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, LID_CONTRACTS, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE)
+            .addFile(SFI_COUNTERS, (short) 0x2069, CalypsoCardSimulator.EF_TYPE_COUNTERS, 4, 0)
+            .setRecord(SFI_CONTRACTS, 1, buildRecord(0x11))
+            .setRecord(SFI_CONTRACTS, 2, buildRecord(0x22))
+            .setCounter(SFI_COUNTERS, 1, 10)
+            .setCounter(SFI_COUNTERS, 2, 20);
+    card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    CalypsoExtensionService.getInstance()
+        .getCalypsoCardApiFactory()
+        .createFreeTransactionManager(simulator, card)
+        .prepareSelectFile(LID_CONTRACTS)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 2, RECORD_SIZE)
+        .prepareReadCounter(SFI_COUNTERS, 2)
+        .processCommands(ChannelControl.KEEP_OPEN);
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  @Test
+  public void decode_whenEncoded_shouldRestoreTheCardImage() {
+    CalypsoCardAdapter decodedCard = CardImageCodec.decode(CardImageCodec.encode(card));
+
+    assertThat(decodedCard.getSelectApplicationResponse())
+        .isEqualTo(card.getSelectApplicationResponse());
+    assertThat(decodedCard.getProductType()).isEqualTo(card.getProductType());
+    assertThat(decodedCard.getApplicationSerialNumber())
+        .isEqualTo(card.getApplicationSerialNumber());
+    assertThat(decodedCard.getStartupInfoRawData()).isEqualTo(card.getStartupInfoRawData());
+    assertThat(decodedCard.getPayloadCapacity()).isEqualTo(card.getPayloadCapacity());
+    assertThat(decodedCard.isExtendedModeSupported()).isEqualTo(card.isExtendedModeSupported());
+    assertThat(decodedCard.getFiles()).hasSameSizeAs(card.getFiles());
+    for (ElementaryFile ef : card.getFiles()) {
+      ElementaryFile decodedEf = decodedCard.getFileBySfi(ef.getSfi());
+      assertThat(decodedEf.getHeader()).isEqualTo(ef.getHeader());
+      assertThat(decodedEf.getData().getAllRecordsContent())
+          .containsExactlyEntriesOf(ef.getData().getAllRecordsContent());
+    }
+    assertThat(decodedCard.getFileByLid(LID_CONTRACTS).getSfi()).isEqualTo(SFI_CONTRACTS);
+    assertThat(decodedCard.getFileBySfi(SFI_COUNTERS).getData().getContentAsCounterValue(2))
+        .isEqualTo(20);
+  }
+
+  @Test
+  public void encode_shouldBeStableAndSmallerThanJson() {
+    byte[] image = CardImageCodec.encode(card);
+
+    assertThat(CardImageCodec.encode(CardImageCodec.decode(image))).isEqualTo(image);
+    assertThat(image.length)
+        .isLessThan(card.toString().getBytes(StandardCharsets.UTF_8).length / 4);
+  }
+
+  @Test
+  public void decode_whenVersionIsUnknown_shouldThrowIAE() {
+    byte[] image = CardImageCodec.encode(card);
+    image[1] = (byte) 0x7F;
+
+    assertThatThrownBy(() -> CardImageCodec.decode(image))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("version");
+  }
+
+  @Test
+  public void decode_whenTruncated_shouldThrowIAE() {
+    byte[] image = CardImageCodec.encode(card);
+
+    assertThatThrownBy(() -> CardImageCodec.decode(Arrays.copyOf(image, image.length - 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void decode_whenStartupInfoIsTruncated_shouldThrowIAE() {
+    byte[] image = CardImageCodec.encode(card);
+    byte[] startupInfo = card.getStartupInfoRawData();
+    // Encoded startup info: length + 1, then the 7 bytes
+    byte[] encodedStartupInfo = new byte[startupInfo.length + 1];
+    encodedStartupInfo[0] = (byte) (startupInfo.length + 1);
+    System.arraycopy(startupInfo, 0, encodedStartupInfo, 1, startupInfo.length);
+    int index = indexOf(image, encodedStartupInfo);
+    assertThat(index).isPositive();
+    ByteArrayOutputStream truncatedImage = new ByteArrayOutputStream();
+    truncatedImage.write(image, 0, index);
+    truncatedImage.write(4); // 3 bytes
+    truncatedImage.write(startupInfo, 0, 3);
+    int end = index + encodedStartupInfo.length;
+    truncatedImage.write(image, end, image.length - end);
+
+    assertThatThrownBy(() -> CardImageCodec.decode(truncatedImage.toByteArray()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("Malformed card image");
+  }
+
+  @Test
+  public void decode_whenRecordNumberIsOutOfRange_shouldThrowIAE() {
+    byte[] image = CardImageCodec.encode(card);
+    // Encoded record #2: record number, length + 1, then the content
+    byte[] encodedRecord = new byte[RECORD_SIZE + 1];
+    encodedRecord[0] = (byte) (RECORD_SIZE + 1);
+    System.arraycopy(buildRecord(0x22), 0, encodedRecord, 1, RECORD_SIZE);
+    int index = indexOf(image, encodedRecord) - 1;
+    assertThat(image[index]).isEqualTo((byte) 2);
+    ByteArrayOutputStream malformedImage = new ByteArrayOutputStream();
+    malformedImage.write(image, 0, index);
+    byte[] encodedMaxValue = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+    malformedImage.write(encodedMaxValue, 0, encodedMaxValue.length);
+    malformedImage.write(image, index + 1, image.length - index - 1);
+
+    assertThatThrownBy(() -> CardImageCodec.decode(malformedImage.toByteArray()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Malformed card image: invalid record number " + Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void decode_whenNumberOfRecordsIsTooLarge_shouldThrowIAE() {
+    byte[] image = CardImageCodec.encode(card);
+    // Encoded record #1 of the contracts: number of records, record number, length + 1, content
+    byte[] encodedRecord = new byte[RECORD_SIZE + 2];
+    encodedRecord[0] = 1;
+    encodedRecord[1] = (byte) (RECORD_SIZE + 1);
+    System.arraycopy(buildRecord(0x11), 0, encodedRecord, 2, RECORD_SIZE);
+    int index = indexOf(image, encodedRecord) - 1;
+    assertThat(image[index]).isEqualTo((byte) 2);
+    image[index] = 100;
+
+    assertThatThrownBy(() -> CardImageCodec.decode(image))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Malformed card image: invalid count 100");
+  }
+
+  private static int indexOf(byte[] array, byte[] subArray) {
+    for (int i = 0; i <= array.length - subArray.length; i++) {
+      if (Arrays.equals(Arrays.copyOfRange(array, i, i + subArray.length), subArray)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void decodeCardImage_shouldReturnACardUsableByTheService() {
+    CalypsoExtensionService service = CalypsoExtensionService.getInstance();
+
+    CalypsoCard decodedCard = service.decodeCardImage(service.encodeCardImage(card));
+
+    assertThat(decodedCard.getFileBySfi(SFI_CONTRACTS).getData().getContent(2))
+        .isEqualTo(buildRecord(0x22));
+  }
+}
@@ -0,0 +1,120 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.calypso.card.card.CalypsoCard;
+import org.eclipse.keypop.card.ParseException;
+import org.junit.Test;
+
+public class CardSelectionFilterTest {
+
+  private static final String CARD_SERIAL_NUMBER = "0000000011223344";
+
+  private final CalypsoCardSimulator simulator =
+      new CalypsoCardSimulator(CARD_SERIAL_NUMBER, false, false)
+          .addFile((byte) 0x07, (short) 0x2001, CalypsoCardSimulator.EF_TYPE_LINEAR, 1, 29);
+  private final byte[] fci = simulator.getSelectApplicationResponse().getDataOut();
+
+  @Test
+  public void getRejectionReason_whenNoCriterionIsDefined_shouldAcceptTheCard() {
+    assertThat(CardSelectionFilter.builder().build().getRejectionReason(fci)).isNull();
+  }
+
+  @Test
+  public void getRejectionReason_whenFciIsEmptyOrMalformed_shouldAcceptTheCard() {
+    CardSelectionFilter filter =
+        CardSelectionFilter.builder()
+            .acceptProductTypes(CalypsoCard.ProductType.LIGHT)
+            .acceptApplicationSubtypes((byte) 0x01)
+            .build();
+    assertThat(filter.getRejectionReason(new byte[0])).isNull();
+    assertThat(filter.getRejectionReason(HexUtil.toByteArray("6F20840A"))).isNull();
+  }
+
+  @Test
+  public void getRejectionReason_whenProductTypeIsNotAccepted_shouldRejectTheCard() {
+    assertThat(
+            CardSelectionFilter.builder()
+                .acceptProductTypes(CalypsoCard.ProductType.LIGHT, CalypsoCard.ProductType.BASIC)
+                .build()
+                .getRejectionReason(fci))
+        .startsWith("product type not accepted");
+    assertThat(
+            CardSelectionFilter.builder()
+                .acceptProductTypes(CalypsoCard.ProductType.PRIME_REVISION_3)
+                .build()
+                .getRejectionReason(fci))
+        .isNull();
+  }
+
+  @Test
+  public void getRejectionReason_whenApplicationSubtypeIsNotAccepted_shouldRejectTheCard() {
+    assertThat(
+            CardSelectionFilter.builder()
+                .acceptApplicationSubtypes((byte) 0x01, (byte) 0x02)
+                .build()
+                .getRejectionReason(fci))
+        .isEqualTo("application subtype not accepted (05h)");
+    assertThat(
+            CardSelectionFilter.builder()
+                .acceptApplicationSubtypes((byte) 0x05)
+                .build()
+                .getRejectionReason(fci))
+        .isNull();
+  }
+
+  @Test
+  public void getRejectionReason_whenNoStartupInfoPatternMatches_shouldRejectTheCard() {
+    CardSelectionFilter.Builder builder =
+        CardSelectionFilter.builder()
+            .acceptStartupInfo(HexUtil.toByteArray("00FF"), HexUtil.toByteArray("0011"));
+    assertThat(builder.build().getRejectionReason(fci))
+        .isEqualTo("startup information not accepted");
+    builder.acceptStartupInfo(HexUtil.toByteArray("00FF"), HexUtil.toByteArray("003C"));
+    assertThat(builder.build().getRejectionReason(fci)).isNull();
+  }
+
+  @Test
+  public void getRejectionReason_whenSerialNumberIsDenied_shouldRejectTheCard() {
+    SerialNumberDenyList denyList = new SerialNumberDenyList(10);
+    CardSelectionFilter filter = CardSelectionFilter.builder().denySerialNumbers(denyList).build();
+    assertThat(filter.getRejectionReason(fci)).isNull();
+    denyList.add(HexUtil.toByteArray(CARD_SERIAL_NUMBER));
+    assertThat(filter.getRejectionReason(fci)).isEqualTo("serial number denied");
+  }
+
+  @Test
+  public void parse_whenCardIsRejected_shouldThrowParseException() throws Exception {
+    SerialNumberDenyList denyList = new SerialNumberDenyList(10);
+    denyList.add(HexUtil.toByteArray(CARD_SERIAL_NUMBER));
+    CalypsoCardSelectionExtensionAdapter cardSelectionExtension =
+        (CalypsoCardSelectionExtensionAdapter)
+            CalypsoExtensionService.getInstance()
+                .setCardSelectionFilter(
+                    CalypsoExtensionService.getInstance()
+                        .getCalypsoCardApiFactory()
+                        .createCalypsoCardSelectionExtension()
+                        .prepareReadRecord((byte) 0x07, 1),
+                    CardSelectionFilter.builder().denySerialNumbers(denyList).build());
+
+    assertThatThrownBy(
+            () ->
+                cardSelectionExtension.parse(
+                    simulator.select(cardSelectionExtension.getCardSelectionRequest())))
+        .isInstanceOf(ParseException.class)
+        .hasMessageContaining("serial number denied");
+  }
+}
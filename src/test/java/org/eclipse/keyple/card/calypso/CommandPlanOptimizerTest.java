@@ -0,0 +1,177 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import org.eclipse.keypop.calypso.card.transaction.FreeTransactionManager;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandPlanOptimizerTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final byte SFI_COUNTERS = 0x19;
+  private static final short LID_CONTRACTS = 0x2020;
+  private static final int RECORD_SIZE = 29;
+
+  private CalypsoCardSimulator simulator;
+  private CalypsoCardAdapter card;
+  private FreeTransactionManager cardTransactionManager;
+
+  @Before
+  public void setUp() throws Exception {
+    simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, LID_CONTRACTS, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE)
+            .addFile(SFI_COUNTERS, (short) 0x2069, CalypsoCardSimulator.EF_TYPE_COUNTERS, 4, 0)
+            .setRecord(SFI_CONTRACTS, 1, buildRecord(0x11))
+            .setRecord(SFI_CONTRACTS, 2, buildRecord(0x22))
+            .setRecord(SFI_CONTRACTS, 3, buildRecord(0x33))
+            .setCounter(SFI_COUNTERS, 1, 10)
+            .setCounter(SFI_COUNTERS, 2, 20);
+    card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    cardTransactionManager =
+        CalypsoExtensionService.getInstance()
+            .getCalypsoCardApiFactory()
+            .createFreeTransactionManager(simulator, card);
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            cardTransactionManager,
+            TransactionOptions.builder().enableCommandsOptimization().build());
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  @Test
+  public void optimize_whenConsecutiveRecordsOfSameFile_shouldMergeReadRecords() {
+    cardTransactionManager
+        .prepareSelectFile(LID_CONTRACTS)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 3, 3, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(1);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(1))
+        .isEqualTo(buildRecord(0x11));
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(2))
+        .isEqualTo(buildRecord(0x22));
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(3))
+        .isEqualTo(buildRecord(0x33));
+  }
+
+  @Test
+  public void optimize_whenFileHeaderIsUnknown_shouldNotMergeReadRecords() {
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(2))
+        .isEqualTo(buildRecord(0x22));
+  }
+
+  @Test
+  public void optimize_whenRecordIsBeyondTheRecordsNumber_shouldNotMergeIt() {
+    cardTransactionManager
+        .prepareSelectFile(LID_CONTRACTS)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 3, 3, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 4, 4, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 5, 5, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(3))
+        .isEqualTo(buildRecord(0x33));
+  }
+
+  @Test
+  public void optimize_whenRecordsAreNotConsecutive_shouldNotMergeReadRecords() {
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 3, 3, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+  }
+
+  @Test
+  public void optimize_whenDisabled_shouldNotModifyCommands() {
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(cardTransactionManager, TransactionOptions.builder().build());
+
+    cardTransactionManager
+        .prepareSelectFile(LID_CONTRACTS)
+        .prepareSelectFile(LID_CONTRACTS)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xA4)).isEqualTo(2);
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+  }
+
+  @Test
+  public void optimize_whenSameLidIsSelectedTwice_shouldDropDuplicateSelectFile() {
+    cardTransactionManager
+        .prepareSelectFile(LID_CONTRACTS)
+        .prepareSelectFile(LID_CONTRACTS)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xA4)).isEqualTo(1);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getHeader().getLid()).isEqualTo(LID_CONTRACTS);
+  }
+
+  @Test
+  public void optimize_whenIncreasesOfDistinctCountersOfSameFile_shouldFoldIntoIncreaseMultiple() {
+    cardTransactionManager
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 5)
+        .prepareIncreaseCounter(SFI_COUNTERS, 2, 7)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0x32)).isZero();
+    assertThat(simulator.getApduCount((byte) 0x3A)).isEqualTo(1);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 1)).isEqualTo(15);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 2)).isEqualTo(27);
+    assertThat(card.getFileBySfi(SFI_COUNTERS).getData().getContentAsCounterValue(2))
+        .isEqualTo(27);
+  }
+
+  @Test
+  public void optimize_whenSameCounterIsIncreasedTwice_shouldNotFoldCommands() {
+    cardTransactionManager
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 5)
+        .prepareIncreaseCounter(SFI_COUNTERS, 1, 7)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0x32)).isEqualTo(2);
+    assertThat(simulator.getCounter(SFI_COUNTERS, 1)).isEqualTo(22);
+  }
+}
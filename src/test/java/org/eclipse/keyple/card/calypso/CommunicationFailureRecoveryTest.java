@@ -0,0 +1,127 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Arrays;
+import org.eclipse.keypop.calypso.card.transaction.FreeTransactionManager;
+import org.eclipse.keypop.reader.CardCommunicationException;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommunicationFailureRecoveryTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+
+  private CalypsoCardSimulator simulator;
+  private CalypsoCardAdapter card;
+
+  @Before
+  public void setUp() throws Exception {
+    simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE)
+            .setRecord(SFI_CONTRACTS, 1, buildRecord(0x11))
+            .setRecord(SFI_CONTRACTS, 3, buildRecord(0x33));
+    card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  private FreeTransactionManager createTransactionManager() {
+    return CalypsoExtensionService.getInstance()
+        .getCalypsoCardApiFactory()
+        .createFreeTransactionManager(simulator, card);
+  }
+
+  private FreeTransactionManager createTransactionManagerWithRecovery() {
+    return CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            createTransactionManager(),
+            TransactionOptions.builder().enableCommunicationFailureRecovery().build());
+  }
+
+  private byte[] getRecordFromCardImage(int recordNumber) {
+    return card.getFileBySfi(SFI_CONTRACTS).getData().getContent(recordNumber);
+  }
+
+  @Test
+  public void processCommands_whenRecoveryIsEnabled_shouldResumeFromTheFirstUnexecutedCommand() {
+    FreeTransactionManager transactionManager =
+        createTransactionManagerWithRecovery()
+            .prepareReadRecord(SFI_CONTRACTS, 1)
+            .prepareUpdateRecord(SFI_CONTRACTS, 2, buildRecord(0x22))
+            .prepareReadRecord(SFI_CONTRACTS, 3);
+    simulator.setCommunicationFailureAfter(1);
+
+    Throwable thrown =
+        catchThrowable(() -> transactionManager.processCommands(ChannelControl.KEEP_OPEN));
+
+    assertThat(thrown).isInstanceOf(CardCommunicationException.class);
+    assertThat(getRecordFromCardImage(1)).isEqualTo(buildRecord(0x11));
+    assertThat(simulator.getApduCount(CardCommandRef.UPDATE_RECORD.getInstructionByte()))
+        .isZero();
+
+    transactionManager.processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount(CardCommandRef.READ_RECORDS.getInstructionByte()))
+        .isEqualTo(2);
+    assertThat(simulator.getRecord(SFI_CONTRACTS, 2)).isEqualTo(buildRecord(0x22));
+    assertThat(getRecordFromCardImage(3)).isEqualTo(buildRecord(0x33));
+  }
+
+  @Test
+  public void processCommands_whenRecoveryIsDisabled_shouldResetTheTransaction() {
+    FreeTransactionManager transactionManager =
+        createTransactionManager()
+            .prepareReadRecord(SFI_CONTRACTS, 1)
+            .prepareUpdateRecord(SFI_CONTRACTS, 2, buildRecord(0x22));
+    simulator.setCommunicationFailureAfter(1);
+
+    Throwable thrown =
+        catchThrowable(() -> transactionManager.processCommands(ChannelControl.KEEP_OPEN));
+    transactionManager.processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(thrown).isInstanceOf(CardCommunicationException.class);
+    assertThat(simulator.getApduCount(CardCommandRef.UPDATE_RECORD.getInstructionByte()))
+        .isZero();
+  }
+
+  @Test
+  public void processCommands_whenNextCommandIsNotReplayable_shouldResetTheTransaction() {
+    FreeTransactionManager transactionManager =
+        createTransactionManagerWithRecovery()
+            .prepareReadRecord(SFI_CONTRACTS, 1)
+            .prepareAppendRecord(SFI_CONTRACTS, buildRecord(0x44));
+    simulator.setCommunicationFailureAfter(1);
+
+    Throwable thrown =
+        catchThrowable(() -> transactionManager.processCommands(ChannelControl.KEEP_OPEN));
+    transactionManager.processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(thrown).isInstanceOf(CardCommunicationException.class);
+    assertThat(simulator.getApduCount(CardCommandRef.APPEND_RECORD.getInstructionByte()))
+        .isZero();
+  }
+}
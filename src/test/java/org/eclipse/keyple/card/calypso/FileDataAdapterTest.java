@@ -12,10 +12,15 @@
 package org.eclipse.keyple.card.calypso;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.entry;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.SortedMap;
 import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keyple.core.util.json.JsonUtil;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -125,6 +130,61 @@ public void getContentP3_shouldReturnASubset() {
     assertThat(copy).isEqualTo(HexUtil.toByteArray("22"));
   }
 
+  @Test
+  public void getContentView_whenRecordIsNotSet_shouldReturnAnEmptyBuffer() {
+    assertThat(file.getContentView(1, 0, 1).remaining()).isZero();
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void getContentView_whenOffsetLengthGtSize_shouldThrowIOOBE() {
+    file.setContent(2, data2);
+    file.getContentView(2, 1, 2);
+  }
+
+  @Test
+  public void getContentView_shouldReturnAReadOnlySubsetBackedByTheRecord() {
+    file.setContent(4, data4);
+    ByteBuffer view = file.getContentView(4, 1, 2);
+    assertThat(view.isReadOnly()).isTrue();
+    assertThat(view.position()).isZero();
+    assertThat(view.remaining()).isEqualTo(2);
+    file.fillContent(4, HexUtil.toByteArray("0001"), 1);
+    assertThat(view.get(0)).isEqualTo((byte) 0x44);
+    assertThat(view.get(1)).isEqualTo((byte) 0x45);
+  }
+
+  @Test
+  public void getCountersValue_whenRecordIsNotSet_shouldReturnAnEmptyArray() {
+    assertThat(file.getCountersValue()).isEmpty();
+  }
+
+  @Test
+  public void getCountersValue_shouldBeCachedUntilRecord1Changes() {
+    file.setContent(1, HexUtil.toByteArray("00000100000211"));
+    int[] counters = file.getCountersValue();
+    assertThat(counters).containsExactly(1, 2);
+    assertThat(file.getCountersValue()).isSameAs(counters);
+    file.setCounter(2, HexUtil.toByteArray("000003"));
+    assertThat(file.getCountersValue()).containsExactly(1, 3);
+    file.fillContent(1, HexUtil.toByteArray("04"), 2);
+    assertThat(file.getCountersValue()).containsExactly(5, 3);
+    file.addCyclicContent(HexUtil.toByteArray("000006"));
+    assertThat(file.getCountersValue()).containsExactly(6);
+  }
+
+  @Test
+  public void getCountersValueView_shouldReturnAReadOnlyViewOfTheCachedValues() {
+    file.setContent(1, HexUtil.toByteArray("00000100000211"));
+    IntBuffer view = file.getCountersValueView();
+    assertThat(view.isReadOnly()).isTrue();
+    assertThat(view.position()).isZero();
+    assertThat(view.remaining()).isEqualTo(2);
+    assertThat(view.get(0)).isEqualTo(1);
+    assertThat(view.get(1)).isEqualTo(2);
+    assertThatThrownBy(() -> view.put(0, 3)).isInstanceOf(ReadOnlyBufferException.class);
+    assertThat(file.getCountersValue()).containsExactly(1, 2);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void getContentAsCounterValue_whenNumRecordLt1_shouldThrowIAE() {
     file.getContentAsCounterValue(0);
@@ -283,6 +343,47 @@ public void addCyclicContent_shouldShiftAllRecordsAndSetContentToRecord1() {
             entry(3, HexUtil.toByteArray("2222")));
   }
 
+  @Test
+  public void addCyclicContent_whenCalledManyTimes_shouldKeepRecordsOrdered() {
+    file.setContent(1, data1);
+    for (int i = 0; i < 20; i++) {
+      file.addCyclicContent(new byte[] {(byte) i});
+    }
+    file.setContent(22, data2);
+    assertThat(file.getAllRecordsContent()).hasSize(22);
+    assertThat(file.getContent(1)).containsExactly(19);
+    assertThat(file.getContent(20)).containsExactly(0);
+    assertThat(file.getContent(21)).isSameAs(data1);
+    assertThat(file.getContent(22)).isSameAs(data2);
+  }
+
+  @Test
+  public void addCyclicContent_whenRecordsNumberIsKnown_shouldLoseTheLastRecord() {
+    file.setContent(1, data1);
+    file.setContent(2, data2);
+    file.setContent(3, data3);
+    file.addCyclicContent(data4, 3);
+    assertThat(file.getAllRecordsContent())
+        .containsExactly(entry(1, data4), entry(2, data1), entry(3, data2));
+  }
+
+  @Test
+  public void addCyclicContent_whenRingIsFilledManyTimes_shouldKeepRecordsOrdered() {
+    for (int i = 0; i < 20; i++) {
+      file.addCyclicContent(new byte[] {(byte) i}, 3);
+    }
+    assertThat(file.getAllRecordsContent()).hasSize(3);
+    assertThat(file.getContent(1)).containsExactly(19);
+    assertThat(file.getContent(2)).containsExactly(18);
+    assertThat(file.getContent(3)).containsExactly(17);
+    file.setContent(5, data1);
+    assertThat(file.getAllRecordsContent()).containsOnlyKeys(1, 2, 3, 5);
+    assertThat(file.getContent(1)).containsExactly(19);
+    file.addCyclicContent(data2);
+    assertThat(file.getAllRecordsContent()).containsOnlyKeys(1, 2, 3, 4, 6);
+    assertThat(file.getContent(4)).containsExactly(17);
+  }
+
   @Test
   public void cloningConstructor_shouldReturnACopy() {
     file.setContent(1, data1);
@@ -290,4 +391,68 @@ public void cloningConstructor_shouldReturnACopy() {
     assertThat(clone).isNotSameAs(file);
     assertThat(clone.getContent(1)).isNotSameAs(file.getContent(1));
   }
+
+  @Test
+  public void getAllRecordsContent_shouldReflectSubsequentChanges() {
+    SortedMap<Integer, byte[]> records = file.getAllRecordsContent();
+    file.setContent(3, data3);
+    file.setContent(1, data1);
+    assertThat(records).containsOnlyKeys(1, 3);
+    assertThat(records.firstKey()).isEqualTo(1);
+    assertThat(records.lastKey()).isEqualTo(3);
+    assertThat(records.tailMap(2)).containsOnlyKeys(3);
+    file.removeContent(1);
+    assertThat(records).containsOnlyKeys(3);
+  }
+
+  @Test
+  public void getAllRecordsContent_whenModified_shouldUpdateTheRecords() {
+    file.setContent(1, data1);
+    SortedMap<Integer, byte[]> records = file.getAllRecordsContent();
+    records.put(3, data3);
+    assertThat(file.getContent(3)).isSameAs(data3);
+    records.remove(1);
+    assertThat(file.getContent(1)).isEmpty();
+    records.tailMap(2).clear();
+    assertThat(records).isEmpty();
+    assertThat(file.getContent(3)).isEmpty();
+  }
+
+  @Test
+  public void getAllRecordsContent_shouldKeepTheSizeUpToDate() {
+    SortedMap<Integer, byte[]> records = file.getAllRecordsContent();
+    file.setContent(1, data1);
+    file.setContent(3, data3);
+    file.setContent(3, data2);
+    file.addCyclicContent(data4);
+    assertThat(records).hasSize(3);
+    file.removeContent(2);
+    file.removeContent(2);
+    assertThat(records).hasSize(2);
+    assertThat(records.headMap(3)).hasSize(1);
+    records.put(1, data1);
+    assertThat(records).hasSize(2).containsOnlyKeys(1, 4);
+  }
+
+  @Test
+  public void getAllCountersValue_shouldReturnASnapshot() {
+    file.setContent(1, HexUtil.toByteArray("000001"));
+    SortedMap<Integer, Integer> counters = file.getAllCountersValue();
+    file.setCounter(2, HexUtil.toByteArray("000002"));
+    counters.put(3, 3);
+    assertThat(counters).containsExactly(entry(1, 1), entry(3, 3));
+    assertThat(file.getAllCountersValue()).containsExactly(entry(1, 1), entry(2, 2));
+  }
+
+  @Test
+  public void json_shouldRestoreAllRecords() {
+    CalypsoExtensionService.getInstance();
+    file.setContent(1, data1);
+    file.setContent(3, data3);
+    String json = JsonUtil.toJson(file);
+    FileDataAdapter copy = JsonUtil.getParser().fromJson(json, FileDataAdapter.class);
+    assertThat(json).contains("\"records\"");
+    assertThat(copy.getAllRecordsContent()).containsOnlyKeys(1, 3);
+    assertThat(copy.getContent(3)).isEqualTo(data3);
+  }
 }
@@ -0,0 +1,86 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlightRecorderEventsTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+  private static final String PROCESS_COMMANDS = "org.eclipse.keyple.card.calypso.ProcessCommands";
+  private static final String CARD_REQUEST = "org.eclipse.keyple.card.calypso.CardRequest";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void beginCardRequest_whenNotRecording_shouldReturnNull() {
+    assertThat(FlightRecorderEvents.beginCardRequest(1)).isNull();
+  }
+
+  @Test
+  public void processCommands_whenRecording_shouldEmitTheEvents() throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    Path file = temporaryFolder.getRoot().toPath().resolve("recording.jfr");
+
+    try (Recording recording = new Recording()) {
+      recording.enable(PROCESS_COMMANDS);
+      recording.enable(CARD_REQUEST);
+      recording.start();
+      CalypsoExtensionService.getInstance()
+          .getCalypsoCardApiFactory()
+          .createFreeTransactionManager(simulator, card)
+          .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+          .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+          .processCommands(ChannelControl.KEEP_OPEN);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> processCommandsEvents = new ArrayList<>();
+    List<RecordedEvent> cardRequestEvents = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      String name = event.getEventType().getName();
+      if (name.equals(PROCESS_COMMANDS)) {
+        processCommandsEvents.add(event);
+      } else if (name.equals(CARD_REQUEST)) {
+        cardRequestEvents.add(event);
+      }
+    }
+    assertThat(processCommandsEvents).hasSize(1);
+    assertThat(processCommandsEvents.get(0).getString("transactionManager"))
+        .isEqualTo("FreeTransactionManagerAdapter");
+    assertThat(processCommandsEvents.get(0).getInt("commandCount")).isEqualTo(2);
+    assertThat(processCommandsEvents.get(0).getInt("cardRequestCount")).isEqualTo(1);
+    assertThat(cardRequestEvents).hasSize(1);
+    assertThat(cardRequestEvents.get(0).getInt("apduCount")).isEqualTo(2);
+    assertThat(cardRequestEvents.get(0).getInt("responseCount")).isEqualTo(2);
+  }
+}
@@ -0,0 +1,151 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.keyple.core.util.HexUtil;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileAuditSinkTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+  private static final byte[] SERIAL_NUMBER = HexUtil.toByteArray("0000000011223344");
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = temporaryFolder.getRoot().toPath().resolve("audit.bin");
+  }
+
+  /** Reads the frames of the file as [serial number, request, response] arrays. */
+  private List<byte[][]> readFrames() throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    List<byte[][]> frames = new ArrayList<>();
+    while (buffer.remaining() >= 4) {
+      int length = buffer.getInt();
+      assertThat(length).isPositive();
+      int end = buffer.position() + length;
+      buffer.getLong();
+      byte[] serialNumber = new byte[buffer.get()];
+      buffer.get(serialNumber);
+      byte[] request = new byte[buffer.getInt()];
+      buffer.get(request);
+      byte[] response = new byte[buffer.getInt()];
+      buffer.get(response);
+      assertThat(buffer.position()).isEqualTo(end);
+      frames.add(new byte[][] {serialNumber, request, response});
+    }
+    assertThat(buffer.remaining()).isZero();
+    return frames;
+  }
+
+  @Test
+  public void close_shouldWriteAllFramesAndTruncateTheFile() throws Exception {
+    MappedFileAuditSink sink = new MappedFileAuditSink(file, 1024, 4);
+    for (int i = 0; i < 100; i++) {
+      sink.onApduExchanged(SERIAL_NUMBER, new byte[] {0x00, (byte) i}, new byte[] {(byte) 0x90, 0});
+    }
+    sink.close();
+
+    assertThat(sink.getDroppedFrameCount()).isZero();
+    List<byte[][]> frames = readFrames();
+    assertThat(frames).hasSize(100);
+    assertThat(frames.get(0)[0]).isEqualTo(SERIAL_NUMBER);
+    assertThat(frames.get(99)[1]).containsExactly(0x00, 99);
+    assertThat(frames.get(99)[2]).containsExactly(0x90, 0x00);
+  }
+
+  @Test
+  public void constructor_whenFileExists_shouldAppendAfterTheLastFrame() throws Exception {
+    MappedFileAuditSink sink = new MappedFileAuditSink(file);
+    sink.onApduExchanged(null, new byte[] {0x01}, new byte[] {(byte) 0x90, 0});
+    sink.close();
+    sink = new MappedFileAuditSink(file);
+    sink.onApduExchanged(null, new byte[] {0x02}, new byte[] {(byte) 0x90, 0});
+    sink.close();
+
+    List<byte[][]> frames = readFrames();
+    assertThat(frames).hasSize(2);
+    assertThat(frames.get(0)[0]).isEmpty();
+    assertThat(frames.get(1)[1]).containsExactly(0x02);
+  }
+
+  @Test
+  public void onApduExchanged_whenClosed_shouldThrowISE() throws Exception {
+    MappedFileAuditSink sink = new MappedFileAuditSink(file);
+    sink.close();
+
+    assertThatThrownBy(() -> sink.onApduExchanged(null, new byte[1], new byte[2]))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void onApduExchanged_whenWriterThreadHasFailed_shouldDropTheFrames() throws Exception {
+    MappedFileAuditSink sink = new MappedFileAuditSink(file, 1024, 2);
+    sink.onApduExchanged(null, new byte[] {0x01}, new byte[] {(byte) 0x90, 0});
+    // A null response makes the writer thread fail
+    sink.onApduExchanged(null, new byte[] {0x02}, null);
+    for (int i = 0; i < 10; i++) {
+      sink.onApduExchanged(null, new byte[] {0x03}, new byte[] {(byte) 0x90, 0});
+    }
+    sink.close();
+
+    assertThat(sink.getDroppedFrameCount()).isEqualTo(11);
+    List<byte[][]> frames = readFrames();
+    assertThat(frames).hasSize(1);
+    assertThat(frames.get(0)[1]).containsExactly(0x01);
+  }
+
+  @Test
+  public void processCommands_whenSinkIsSet_shouldPushTheExchangedApdus() throws Exception {
+    MappedFileAuditSink sink = new MappedFileAuditSink(file);
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            CalypsoExtensionService.getInstance()
+                .getCalypsoCardApiFactory()
+                .createFreeTransactionManager(simulator, card),
+            TransactionOptions.builder().setAuditSink(sink).build())
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+    sink.close();
+
+    List<byte[][]> frames = readFrames();
+    assertThat(frames).hasSize(2);
+    assertThat(frames.get(0)[0]).isEqualTo(card.getCalypsoSerialNumberFull());
+    assertThat(frames.get(1)[1][1]).isEqualTo((byte) 0xB2);
+  }
+}
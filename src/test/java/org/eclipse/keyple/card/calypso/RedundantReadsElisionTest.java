@@ -0,0 +1,232 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.keyple.card.calypso.spi.SkippedReadListenerSpi;
+import org.eclipse.keypop.calypso.card.card.CalypsoCardSelectionExtension;
+import org.eclipse.keypop.calypso.card.transaction.FreeTransactionManager;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RedundantReadsElisionTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final byte SFI_COUNTERS = 0x19;
+  private static final byte SFI_BINARY = 0x1A;
+  private static final int RECORD_SIZE = 29;
+  private static final int BINARY_SIZE = 64;
+
+  private CalypsoCardSimulator simulator;
+  private TransactionOptions options;
+
+  @Before
+  public void setUp() {
+    options = TransactionOptions.builder().enableRedundantReadsElision().build();
+    simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE)
+            .addFile(SFI_COUNTERS, (short) 0x2069, CalypsoCardSimulator.EF_TYPE_COUNTERS, 4, 0)
+            .addFile(
+                SFI_BINARY, (short) 0x20F0, CalypsoCardSimulator.EF_TYPE_BINARY, 1, BINARY_SIZE)
+            .setRecord(SFI_CONTRACTS, 1, buildRecord(0x11))
+            .setRecord(SFI_CONTRACTS, 2, buildRecord(0x22))
+            .setCounter(SFI_COUNTERS, 1, 10);
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  private CalypsoCardAdapter selectCard(CalypsoCardSelectionExtension cardSelectionExtension)
+      throws Exception {
+    return (CalypsoCardAdapter)
+        ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+            .parse(
+                simulator.select(
+                    ((CalypsoCardSelectionExtensionAdapter) cardSelectionExtension)
+                        .getCardSelectionRequest()));
+  }
+
+  private FreeTransactionManager createTransactionManager(CalypsoCardAdapter card) {
+    return CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            CalypsoExtensionService.getInstance()
+                .getCalypsoCardApiFactory()
+                .createFreeTransactionManager(simulator, card),
+            options);
+  }
+
+  private CalypsoCardAdapter selectCardAndReadContracts() throws Exception {
+    CalypsoCardSelectionExtension cardSelectionExtension =
+        CalypsoExtensionService.getInstance()
+            .getCalypsoCardApiFactory()
+            .createCalypsoCardSelectionExtension()
+            .prepareReadRecords(SFI_CONTRACTS, 1, 2, RECORD_SIZE);
+    CalypsoCardAdapter card = selectCard(cardSelectionExtension);
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(1);
+    return card;
+  }
+
+  @Test
+  public void prepareReadRecords_whenAlreadyReadAtSelection_shouldNotReadAgain() throws Exception {
+    CalypsoCardAdapter card = selectCardAndReadContracts();
+
+    createTransactionManager(card)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(1);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(2))
+        .isEqualTo(buildRecord(0x22));
+  }
+
+  @Test
+  public void prepareReadRecords_whenDisabled_shouldReadAgain() throws Exception {
+    options = TransactionOptions.builder().build();
+    CalypsoCardAdapter card = selectCardAndReadContracts();
+
+    createTransactionManager(card)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+  }
+
+  @Test
+  public void prepareReadRecords_whenRecordNotReadYet_shouldRead() throws Exception {
+    CalypsoCardAdapter card = selectCardAndReadContracts();
+
+    createTransactionManager(card)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 3, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+  }
+
+  @Test
+  public void prepareReadRecords_whenModifyingCommandIsPending_shouldRead() throws Exception {
+    CalypsoCardAdapter card = selectCardAndReadContracts();
+
+    createTransactionManager(card)
+        .prepareUpdateRecord(SFI_CONTRACTS, 1, buildRecord(0x33))
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+    assertThat(card.getFileBySfi(SFI_CONTRACTS).getData().getContent(1))
+        .isEqualTo(buildRecord(0x33));
+  }
+
+  @Test
+  public void prepareReadRecords_whenFileModifiedSinceRead_shouldRead() throws Exception {
+    CalypsoCardAdapter card = selectCardAndReadContracts();
+    FreeTransactionManager cardTransactionManager = createTransactionManager(card);
+    cardTransactionManager
+        .prepareUpdateRecord(SFI_CONTRACTS, 1, buildRecord(0x33))
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+  }
+
+  @Test
+  public void prepareReadRecords_whenOnlyPartiallyRead_shouldRead() throws Exception {
+    CalypsoCardSelectionExtension cardSelectionExtension =
+        CalypsoExtensionService.getInstance()
+            .getCalypsoCardApiFactory()
+            .createCalypsoCardSelectionExtension()
+            .prepareReadCounter(SFI_COUNTERS, 1);
+    CalypsoCardAdapter card = selectCard(cardSelectionExtension);
+
+    createTransactionManager(card)
+        .prepareReadCounter(SFI_COUNTERS, 1)
+        .prepareReadCounter(SFI_COUNTERS, 4)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(simulator.getApduCount((byte) 0xB2)).isEqualTo(2);
+    assertThat(card.getFileBySfi(SFI_COUNTERS).getData().getContentAsCounterValue(1))
+        .isEqualTo(10);
+  }
+
+  @Test
+  public void prepareReadBinary_whenRangeAlreadyRead_shouldNotReadAgain() throws Exception {
+    CalypsoCardAdapter card =
+        selectCard(
+            CalypsoExtensionService.getInstance()
+                .getCalypsoCardApiFactory()
+                .createCalypsoCardSelectionExtension());
+    FreeTransactionManager cardTransactionManager = createTransactionManager(card);
+    cardTransactionManager
+        .prepareReadBinary(SFI_BINARY, 0, 32)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    cardTransactionManager
+        .prepareReadBinary(SFI_BINARY, 8, 16)
+        .processCommands(ChannelControl.KEEP_OPEN);
+    assertThat(simulator.getApduCount((byte) 0xB0)).isEqualTo(1);
+
+    cardTransactionManager
+        .prepareReadBinary(SFI_BINARY, 16, 32)
+        .processCommands(ChannelControl.KEEP_OPEN);
+    assertThat(simulator.getApduCount((byte) 0xB0)).isEqualTo(2);
+  }
+
+  @Test
+  public void prepareReads_whenSkipped_shouldNotifyTheSkippedReadListener() throws Exception {
+    List<String> skippedReads = new ArrayList<>();
+    options =
+        TransactionOptions.builder()
+            .enableRedundantReadsElision()
+            .setSkippedReadListener(
+                new SkippedReadListenerSpi() {
+                  @Override
+                  public void onRecordsReadSkipped(
+                      byte sfi, int fromRecordNumber, int toRecordNumber) {
+                    skippedReads.add(
+                        "records " + sfi + " " + fromRecordNumber + "-" + toRecordNumber);
+                  }
+
+                  @Override
+                  public void onBinaryReadSkipped(byte sfi, int offset, int nbBytes) {
+                    skippedReads.add("binary " + sfi + " " + offset + "/" + nbBytes);
+                  }
+                })
+            .build();
+    CalypsoCardAdapter card = selectCardAndReadContracts();
+    FreeTransactionManager cardTransactionManager = createTransactionManager(card);
+    cardTransactionManager
+        .prepareReadBinary(SFI_BINARY, 0, 32)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    cardTransactionManager
+        .prepareReadRecord(SFI_CONTRACTS, 2)
+        .prepareReadRecords(SFI_CONTRACTS, 1, 2, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 3, RECORD_SIZE)
+        .prepareReadBinary(SFI_BINARY, 8, 16)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(skippedReads).containsExactly("records 9 1-2", "binary 26 8/16");
+  }
+}
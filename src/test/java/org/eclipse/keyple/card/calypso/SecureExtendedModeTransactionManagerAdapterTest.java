@@ -2923,4 +2923,48 @@ public void prepareDeactivateEncryption_whenProcessedOutsideSession_shouldThrowI
     inOrder.verify(symmetricCryptoCardTransactionManager).synchronize();
     verifyNoMoreInteractions(symmetricCryptoCardTransactionManager, cardReader);
   }
+
+  @Test
+  public void prepareSvGet_whenSvGetDataFromSelectionIsUsable_shouldNotPrepareSvGet()
+      throws Exception {
+    initCalypsoCardAndTransactionManager(
+        SELECT_APPLICATION_RESPONSE_PRIME_REVISION_3_EXTENDED_WITH_STORED_VALUE);
+    doReturn(true).when(calypsoCard).isSvGetDataFromSelection();
+    doReturn(new byte[] {0x7C, 0x01, 0x07, 0x3D}).when(calypsoCard).getSvGetHeader();
+
+    cardTransactionManager.prepareSvGet(SvOperation.RELOAD, SvAction.DO);
+
+    assertThat(((TransactionManagerAdapter<?>) cardTransactionManager).commands).isEmpty();
+    verify(calypsoCard).setSvGetDataFromSelection(false);
+  }
+
+  @Test
+  public void prepareSvGet_whenACommandIsPreparedAfterTheSelection_shouldPrepareSvGet()
+      throws Exception {
+    initCalypsoCardAndTransactionManager(
+        SELECT_APPLICATION_RESPONSE_PRIME_REVISION_3_EXTENDED_WITH_STORED_VALUE);
+    doReturn(true).when(calypsoCard).isSvGetDataFromSelection();
+    doReturn(new byte[] {0x7C, 0x01, 0x07, 0x3D}).when(calypsoCard).getSvGetHeader();
+
+    cardTransactionManager
+        .prepareReadRecord(FILE7, 1)
+        .prepareSvGet(SvOperation.RELOAD, SvAction.DO);
+
+    assertThat(((TransactionManagerAdapter<?>) cardTransactionManager).commands)
+        .extracting(Command::getCommandRef)
+        .containsExactly(CardCommandRef.READ_RECORDS, CardCommandRef.SV_GET);
+  }
+
+  @Test
+  public void processCommands_whenACommandIsSentAfterTheSelection_shouldInvalidateTheSvGetData()
+      throws Exception {
+    calypsoCard.setSvGetDataFromSelection(true);
+    mockTransmitCardRequest(CARD_READ_REC_SFI7_REC1_CMD, CARD_READ_REC_SFI7_REC1_RSP);
+
+    cardTransactionManager
+        .prepareReadRecord(FILE7, 1)
+        .processCommands(CHANNEL_CONTROL_KEEP_OPEN);
+
+    assertThat(calypsoCard.isSvGetDataFromSelection()).isFalse();
+  }
 }
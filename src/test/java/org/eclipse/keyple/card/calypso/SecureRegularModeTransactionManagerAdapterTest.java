@@ -16,6 +16,8 @@
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.eclipse.keyple.core.util.HexUtil;
 import org.eclipse.keypop.calypso.card.GetDataTag;
 import org.eclipse.keypop.calypso.card.SelectFileControl;
@@ -1579,6 +1581,43 @@ public void processCommands_whenOutOfSession_shouldInteractWithCardOnly() throws
     verifyInteractionsForSingleCardCommand(cardRequest);
   }
 
+  @Test
+  public void
+      processCommands_whenCryptoPipeliningIsEnabled_shouldSynchronizeDuringCardTransmission()
+          throws Exception {
+    ExecutorService executor =
+        Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "crypto-pipelining"));
+    List<String> synchronizationThreads = Collections.synchronizedList(new ArrayList<String>());
+    doAnswer(
+            invocation -> {
+              synchronizationThreads.add(Thread.currentThread().getName());
+              return null;
+            })
+        .when(symmetricCryptoCardTransactionManager)
+        .synchronize();
+    try {
+      initTransactionManager();
+      CalypsoExtensionService.getInstance()
+          .setTransactionOptions(
+              cardTransactionManager,
+              TransactionOptions.builder().enableCryptoPipelining(executor).build());
+      CardRequestSpi cardRequest =
+          mockTransmitCardRequest(CARD_READ_REC_SFI7_REC1_L29_CMD, CARD_READ_REC_SFI7_REC1_RSP);
+
+      cardTransactionManager.prepareReadRecords(FILE7, 1, 1, RECORD_SIZE);
+      cardTransactionManager.processCommands(CHANNEL_CONTROL_KEEP_OPEN);
+
+      verify(cardReader)
+          .transmitCardRequest(
+              argThat(new CardRequestMatcher(cardRequest)), any(ChannelControl.class));
+      verify(symmetricCryptoCardTransactionManager, times(2)).synchronize();
+      assertThat(synchronizationThreads)
+          .containsExactly("crypto-pipelining", Thread.currentThread().getName());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void getCryptoExtension_shouldReturnANonNullReference() {
     SymmetricCryptoCardTransactionManagerMock cryptoExtension =
@@ -2518,4 +2557,110 @@ public void prepareChangeKey_shouldSendApdusToTheCardAndTheSAM() throws Exceptio
     inOrder.verify(symmetricCryptoCardTransactionManager).synchronize();
     verifyNoMoreInteractions(symmetricCryptoCardTransactionManager, cardReader);
   }
+
+  @Test
+  public void prepareUpdateRecord_whenSessionBufferPackingIsEnabled_shouldFillPreviousSessions()
+      throws Exception {
+    cardSecuritySetting.enableMultipleSession();
+    when(calypsoCard.getModificationsCounter()).thenReturn(40);
+    initTransactionManager();
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            cardTransactionManager,
+            TransactionOptions.builder().enableSessionBufferPacking().build());
+
+    // Session buffer costs: data length + 6 bytes
+    cardTransactionManager
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareUpdateRecord(FILE7, 1, new byte[10]) // 24 bytes remaining
+        .prepareUpdateRecord(FILE8, 1, new byte[30]) // new session, 4 bytes remaining
+        .prepareUpdateRecord(FILE10, 1, new byte[10]) // moved to the first session
+        .prepareUpdateRecord(FILE8, 2, new byte[2]); // same file: new session
+
+    List<Command> commands = ((TransactionManagerAdapter<?>) cardTransactionManager).commands;
+    assertThat(commands)
+        .extracting(Command::getCommandRef)
+        .containsExactly(
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.CLOSE_SECURE_SESSION,
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.CLOSE_SECURE_SESSION,
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD);
+    assertThat(((CommandUpdateRecord) commands.get(2)).getSfi()).isEqualTo(FILE10);
+    assertThat(((CommandUpdateRecord) commands.get(5)).getSfi()).isEqualTo(FILE8);
+    assertThat(((CommandUpdateRecord) commands.get(8)).getSfi()).isEqualTo(FILE8);
+  }
+
+  @Test
+  public void prepareUpdateRecord_whenALaterCommandTargetsTheSameSfi_shouldNotInsertTheCommand()
+      throws Exception {
+    cardSecuritySetting.enableMultipleSession();
+    when(calypsoCard.getModificationsCounter()).thenReturn(40);
+    initTransactionManager();
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            cardTransactionManager,
+            TransactionOptions.builder().enableSessionBufferPacking().build());
+
+    // Session buffer costs: data length + 6 bytes
+    cardTransactionManager
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareUpdateRecord(FILE8, 1, new byte[10]) // 24 bytes remaining
+        .prepareUpdateRecord(FILE7, 1, new byte[30]) // new session, 4 bytes remaining
+        .prepareUpdateRecord(FILE7, 2, new byte[10]); // FILE7 modified after the first session
+
+    List<Command> commands = ((TransactionManagerAdapter<?>) cardTransactionManager).commands;
+    assertThat(commands)
+        .extracting(Command::getCommandRef)
+        .containsExactly(
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.CLOSE_SECURE_SESSION,
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.CLOSE_SECURE_SESSION,
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD);
+    assertThat(commands.get(4).getApduRequest().getApdu()[2]).isEqualTo((byte) 1);
+    assertThat(commands.get(7).getApduRequest().getApdu()[2]).isEqualTo((byte) 2);
+  }
+
+  @Test
+  public void prepareUpdateRecord_whenALaterCommandTargetsALidOnlyFile_shouldNotInsertTheCommand()
+      throws Exception {
+    cardSecuritySetting.enableMultipleSession();
+    when(calypsoCard.getModificationsCounter()).thenReturn(40);
+    initTransactionManager();
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            cardTransactionManager,
+            TransactionOptions.builder().enableSessionBufferPacking().build());
+
+    // Session buffer costs: data length + 6 bytes
+    cardTransactionManager
+        .prepareOpenSecureSession(WriteAccessLevel.DEBIT)
+        .prepareUpdateRecord(FILE7, 1, new byte[10]) // 24 bytes remaining
+        .prepareSelectFile((short) 0x1234)
+        .prepareUpdateRecord((byte) 0, 1, new byte[30]) // current file, new session
+        .prepareUpdateRecord(FILE10, 1, new byte[10]); // unknown file modified after
+
+    List<Command> commands = ((TransactionManagerAdapter<?>) cardTransactionManager).commands;
+    assertThat(commands)
+        .extracting(Command::getCommandRef)
+        .containsExactly(
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.SELECT_FILE,
+            CardCommandRef.CLOSE_SECURE_SESSION,
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD,
+            CardCommandRef.CLOSE_SECURE_SESSION,
+            CardCommandRef.OPEN_SECURE_SESSION,
+            CardCommandRef.UPDATE_RECORD);
+    assertThat(((CommandUpdateRecord) commands.get(8)).getSfi()).isEqualTo(FILE10);
+  }
 }
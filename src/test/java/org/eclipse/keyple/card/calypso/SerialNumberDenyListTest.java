@@ -0,0 +1,61 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import org.eclipse.keyple.core.util.HexUtil;
+import org.junit.Test;
+
+public class SerialNumberDenyListTest {
+
+  private static byte[] serialNumber(long value) {
+    return ByteBuffer.allocate(8).putLong(value).array();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void add_whenSerialNumberIsNull_shouldThrowIAE() {
+    new SerialNumberDenyList(0).add(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void add_whenSerialNumberLengthIsNot8_shouldThrowIAE() {
+    new SerialNumberDenyList(0).add(new byte[4]);
+  }
+
+  @Test
+  public void add_whenSerialNumberIsAlreadyDenied_shouldReturnFalse() {
+    SerialNumberDenyList denyList = new SerialNumberDenyList(0);
+    assertThat(denyList.add(HexUtil.toByteArray("0000000011223344"))).isTrue();
+    assertThat(denyList.add(HexUtil.toByteArray("0000000011223344"))).isFalse();
+    assertThat(denyList.add(serialNumber(0))).isTrue();
+    assertThat(denyList.add(serialNumber(0))).isFalse();
+    assertThat(denyList.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void contains_whenTheTableHasGrown_shouldFindAllTheSerialNumbers() {
+    SerialNumberDenyList denyList = new SerialNumberDenyList(0);
+    for (long i = 1; i <= 100000; i++) {
+      denyList.add(serialNumber(i));
+    }
+    assertThat(denyList.size()).isEqualTo(100000);
+    for (long i = 1; i <= 100000; i++) {
+      assertThat(denyList.contains(serialNumber(i))).isTrue();
+    }
+    assertThat(denyList.contains(serialNumber(0))).isFalse();
+    assertThat(denyList.contains(serialNumber(100001))).isFalse();
+    assertThat(denyList.contains(serialNumber(-1))).isFalse();
+    assertThat(denyList.contains(new byte[7])).isFalse();
+  }
+}
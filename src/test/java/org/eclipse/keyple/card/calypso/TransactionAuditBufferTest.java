@@ -0,0 +1,230 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.keypop.calypso.card.transaction.FreeTransactionManager;
+import org.eclipse.keypop.reader.CardCommunicationException;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Test;
+
+public class TransactionAuditBufferTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+
+  private static byte[] apdu(int value) {
+    return new byte[] {(byte) value};
+  }
+
+  @Test
+  public void add_whenCapacityIsNotReached_shouldKeepAllApdusInOrder() {
+    TransactionAuditBuffer buffer = new TransactionAuditBuffer(64);
+    for (int i = 0; i < 40; i++) {
+      buffer.add(apdu(i));
+    }
+    assertThat(buffer).hasSize(40);
+    assertThat(buffer.get(0)).containsExactly(0);
+    assertThat(buffer.get(39)).containsExactly(39);
+  }
+
+  @Test
+  public void add_whenCapacityIsReached_shouldDiscardTheOldestApdus() {
+    TransactionAuditBuffer buffer = new TransactionAuditBuffer(20);
+    for (int i = 0; i < 50; i++) {
+      buffer.add(apdu(i));
+    }
+    assertThat(buffer).hasSize(20);
+    for (int i = 0; i < 20; i++) {
+      assertThat(buffer.get(i)).containsExactly(30 + i);
+    }
+  }
+
+  @Test
+  public void setCapacity_whenLowerThanSize_shouldKeepTheNewestApdus() {
+    TransactionAuditBuffer buffer = new TransactionAuditBuffer(8);
+    for (int i = 0; i < 10; i++) {
+      buffer.add(apdu(i));
+    }
+    buffer.setCapacity(4);
+    buffer.add(apdu(10));
+    assertThat(buffer.getCapacity()).isEqualTo(4);
+    assertThat(buffer).hasSize(4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.get(i)).containsExactly(7 + i);
+    }
+  }
+
+  @Test
+  public void constructor_whenCapacityIsOdd_shouldRoundItDownToAnEvenValue() {
+    TransactionAuditBuffer buffer = new TransactionAuditBuffer(5);
+    for (int i = 0; i < 7; i++) {
+      buffer.add(apdu(i));
+    }
+    assertThat(buffer.getCapacity()).isEqualTo(4);
+    assertThat(buffer).hasSize(4);
+    assertThat(buffer.get(0)).containsExactly(3);
+  }
+
+  @Test
+  public void setTransactionAuditDataCapacity_whenCapacityIsOdd_shouldRoundItDownToAnEvenValue() {
+    TransactionOptions options =
+        TransactionOptions.builder().setTransactionAuditDataCapacity(7).build();
+    assertThat(options.getTransactionAuditDataCapacity()).isEqualTo(6);
+  }
+
+  @Test
+  public void addAll_whenCapacityIsReached_shouldDiscardTheOldestApdus() {
+    TransactionAuditBuffer buffer = new TransactionAuditBuffer(4);
+    buffer.add(apdu(0));
+    buffer.addAll(Arrays.asList(apdu(1), apdu(2), apdu(3), apdu(4), apdu(5)));
+    assertThat(buffer).hasSize(4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.get(i)).containsExactly(2 + i);
+    }
+  }
+
+  @Test
+  public void clear_shouldRemoveAllApdus() {
+    TransactionAuditBuffer buffer = new TransactionAuditBuffer(4);
+    for (int i = 0; i < 6; i++) {
+      buffer.add(apdu(i));
+    }
+    buffer.clear();
+    buffer.add(apdu(6));
+    assertThat(buffer).hasSize(1);
+    assertThat(buffer.get(0)).containsExactly(6);
+  }
+
+  @Test
+  public void processCommands_whenCommunicationFails_shouldAttachTheAuditDataLazily()
+      throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    FreeTransactionManager cardTransactionManager =
+        CalypsoExtensionService.getInstance()
+            .getCalypsoCardApiFactory()
+            .createFreeTransactionManager(simulator, card);
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            cardTransactionManager,
+            TransactionOptions.builder()
+                .setTransactionAuditDataCapacity(2)
+                .enableDeferredTransactionAuditData()
+                .build());
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+    simulator.setCommunicationFailureAfter(0);
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                cardTransactionManager
+                    .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+                    .processCommands(ChannelControl.KEEP_OPEN));
+
+    assertThat(thrown).isInstanceOf(CardCommunicationException.class);
+    assertThat(thrown.getMessage()).doesNotContain("Transaction audit");
+    assertThat(cardTransactionManager.getTransactionAuditData()).hasSize(2);
+    assertThat(thrown.getSuppressed()).hasSize(1);
+    assertThat(thrown.getSuppressed()[0]).isInstanceOf(TransactionAuditTrace.class);
+    assertThat(thrown.getSuppressed()[0].getMessage())
+        .contains("Transaction audit JSON data")
+        .contains("\"apdus\"");
+  }
+
+  @Test
+  public void processCommands_whenCommunicationFails_shouldAppendTheAuditDataToTheMessage()
+      throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    FreeTransactionManager cardTransactionManager =
+        CalypsoExtensionService.getInstance()
+            .getCalypsoCardApiFactory()
+            .createFreeTransactionManager(simulator, card);
+    simulator.setCommunicationFailureAfter(0);
+
+    Throwable thrown =
+        catchThrowable(
+            () ->
+                cardTransactionManager
+                    .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+                    .processCommands(ChannelControl.KEEP_OPEN));
+
+    assertThat(thrown).isInstanceOf(CardCommunicationException.class);
+    assertThat(thrown.getMessage()).contains("Transaction audit JSON data").contains("\"apdus\"");
+    assertThat(thrown.getSuppressed()).isEmpty();
+  }
+
+  @Test
+  public void getTransactionAuditData_shouldReflectTheSubsequentExchanges() throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    FreeTransactionManager cardTransactionManager =
+        CalypsoExtensionService.getInstance()
+            .getCalypsoCardApiFactory()
+            .createFreeTransactionManager(simulator, card);
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    List<byte[]> auditData = cardTransactionManager.getTransactionAuditData();
+    cardTransactionManager
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(auditData).hasSize(4).isSameAs(cardTransactionManager.getTransactionAuditData());
+  }
+
+  @Test
+  public void getMessage_shouldContainTheApdusAtTheTimeOfTheCreation() {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    TransactionAuditBuffer apdus = new TransactionAuditBuffer(4);
+    apdus.add(apdu(0x11));
+    TransactionAuditTrace trace = new TransactionAuditTrace(card, apdus);
+    String expectedMessage = new TransactionAuditTrace(card, apdus).getMessage();
+
+    apdus.add(apdu(0x22));
+
+    assertThat(trace.getMessage()).isEqualTo(expectedMessage);
+  }
+}
@@ -0,0 +1,93 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Test;
+
+public class TransactionMetricsTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+
+  @Test
+  public void onCardRequestTransmitted_shouldCountDurationsInPowerOfTwoBuckets() {
+    TransactionMetrics metrics = new TransactionMetrics();
+    metrics.onCardRequestTransmitted(1, 5, 2, 999L);
+    metrics.onCardRequestTransmitted(1, 5, 2, 1000L);
+    metrics.onCardRequestTransmitted(1, 5, 2, 3999L);
+    metrics.onCardRequestTransmitted(1, 5, 2, Long.MAX_VALUE / 2);
+
+    TransactionMetrics.Histogram histogram = metrics.getCardRequestTimes();
+    long[] bucketCounts = histogram.getBucketCounts();
+    assertThat(histogram.getCount()).isEqualTo(4);
+    assertThat(histogram.getMaxNanos()).isEqualTo(Long.MAX_VALUE / 2);
+    assertThat(bucketCounts[0]).isEqualTo(1);
+    assertThat(bucketCounts[1]).isEqualTo(1);
+    assertThat(bucketCounts[2]).isEqualTo(1);
+    assertThat(bucketCounts[TransactionMetrics.Histogram.BUCKET_COUNT - 1]).isEqualTo(1);
+    assertThat(TransactionMetrics.Histogram.getBucketUpperBoundMicros(2)).isEqualTo(4);
+    assertThat(metrics.getApduCount()).isEqualTo(4);
+    assertThat(metrics.getRequestBytes()).isEqualTo(20);
+    assertThat(metrics.getResponseBytes()).isEqualTo(8);
+  }
+
+  @Test
+  public void reset_shouldClearAllMetrics() {
+    TransactionMetrics metrics = new TransactionMetrics();
+    metrics.onCommandParsed("READ_RECORDS", 1000L);
+    metrics.onCommandsProcessed(2, 1000L);
+    metrics.reset();
+
+    assertThat(metrics.getCommandNames()).isEmpty();
+    assertThat(metrics.getProcessingTimes().getCount()).isZero();
+    assertThat(metrics.getProcessedCardRequestCount()).isZero();
+    assertThat(metrics.getMaxCardRequestsPerProcessing()).isZero();
+  }
+
+  @Test
+  public void processCommands_whenListenerIsSet_shouldReportTheMetrics() throws Exception {
+    TransactionMetrics metrics = new TransactionMetrics();
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE);
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+
+    CalypsoExtensionService.getInstance()
+        .setTransactionOptions(
+            CalypsoExtensionService.getInstance()
+                .getCalypsoCardApiFactory()
+                .createFreeTransactionManager(simulator, card),
+            TransactionOptions.builder().setMetricsListener(metrics).build())
+        .prepareReadRecords(SFI_CONTRACTS, 1, 1, RECORD_SIZE)
+        .prepareReadRecords(SFI_CONTRACTS, 2, 2, RECORD_SIZE)
+        .processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(metrics.getCommandNames()).containsExactly("READ_RECORDS");
+    assertThat(metrics.getFinalizationTimes("READ_RECORDS").getCount()).isEqualTo(2);
+    assertThat(metrics.getParsingTimes("READ_RECORDS").getCount()).isEqualTo(2);
+    assertThat(metrics.getParsingTimes("SV_GET")).isNull();
+    assertThat(metrics.getCardRequestTimes().getCount()).isEqualTo(1);
+    assertThat(metrics.getApduCount()).isEqualTo(2);
+    assertThat(metrics.getRequestBytes()).isEqualTo(10);
+    assertThat(metrics.getResponseBytes()).isEqualTo(2 * (RECORD_SIZE + 2));
+    assertThat(metrics.getProcessingTimes().getCount()).isEqualTo(1);
+    assertThat(metrics.getProcessedCardRequestCount()).isEqualTo(1);
+    assertThat(metrics.getMaxCardRequestsPerProcessing()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,154 @@
+/* **************************************************************************************
+ * Copyright (c) 2026 Calypso Networks Association https://calypsonet.org/
+ *
+ * See the NOTICE file(s) distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License 2.0 which is available at http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ************************************************************************************** */
+package org.eclipse.keyple.card.calypso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.keypop.calypso.card.transaction.FreeTransactionManager;
+import org.eclipse.keypop.reader.ChannelControl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransactionTemplateTest {
+
+  private static final byte SFI_CONTRACTS = 0x09;
+  private static final int RECORD_SIZE = 29;
+
+  private AtomicInteger staticStepCount;
+  private AtomicInteger variableStepCount;
+  private TransactionTemplate<FreeTransactionManager> template;
+
+  @Before
+  public void setUp() {
+    staticStepCount = new AtomicInteger();
+    variableStepCount = new AtomicInteger();
+    template =
+        TransactionTemplate.<FreeTransactionManager>builder()
+            .addStep(
+                m -> {
+                  staticStepCount.incrementAndGet();
+                  m.prepareReadRecords(SFI_CONTRACTS, 1, 2, RECORD_SIZE);
+                })
+            .addVariableStep(
+                m -> {
+                  variableStepCount.incrementAndGet();
+                  m.prepareReadRecord(SFI_CONTRACTS, 3);
+                })
+            .build();
+  }
+
+  private static byte[] buildRecord(int value) {
+    byte[] record = new byte[RECORD_SIZE];
+    Arrays.fill(record, (byte) value);
+    return record;
+  }
+
+  private static FreeTransactionManager createTransactionManager(int recordValue)
+      throws Exception {
+    CalypsoCardSimulator simulator =
+        new CalypsoCardSimulator("0000000011223344", false, false)
+            .addFile(
+                SFI_CONTRACTS, (short) 0x2020, CalypsoCardSimulator.EF_TYPE_LINEAR, 4, RECORD_SIZE)
+            .setRecord(SFI_CONTRACTS, 1, buildRecord(recordValue))
+            .setRecord(SFI_CONTRACTS, 2, buildRecord(recordValue + 1))
+            .setRecord(SFI_CONTRACTS, 3, buildRecord(recordValue + 2));
+    CalypsoCardAdapter card =
+        new CalypsoCardAdapter(
+            new TestDtoAdapters.CardSelectionResponseAdapter(
+                simulator.getSelectApplicationResponse()));
+    return CalypsoExtensionService.getInstance()
+        .getCalypsoCardApiFactory()
+        .createFreeTransactionManager(simulator, card);
+  }
+
+  private static byte[] getRecord(FreeTransactionManager transactionManager, int recordNumber) {
+    return ((FreeTransactionManagerAdapter) transactionManager)
+        .card
+        .getFileBySfi(SFI_CONTRACTS)
+        .getData()
+        .getContent(recordNumber);
+  }
+
+  @Test
+  public void applyTo_whenTransactionManagerIsNotAnAdapter_shouldThrowIAE() {
+    assertThatThrownBy(() -> template.applyTo(mock(FreeTransactionManager.class)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void applyTo_whenAppliedTwice_shouldExecuteTheStaticStepsOnceAndReuseTheApdus()
+      throws Exception {
+    FreeTransactionManager transactionManager1 = createTransactionManager(0x11);
+    FreeTransactionManager transactionManager2 = createTransactionManager(0x21);
+
+    template.applyTo(transactionManager1);
+    template.applyTo(transactionManager2);
+
+    assertThat(staticStepCount).hasValue(1);
+    assertThat(variableStepCount).hasValue(2);
+    Command command1 = ((FreeTransactionManagerAdapter) transactionManager1).commands.get(0);
+    Command command2 = ((FreeTransactionManagerAdapter) transactionManager2).commands.get(0);
+    assertThat(command2).isNotSameAs(command1);
+    assertThat(command2.getApduRequest().getApdu())
+        .isSameAs(command1.getApduRequest().getApdu());
+    assertThat(((FreeTransactionManagerAdapter) transactionManager2).commands)
+        .hasSameSizeAs(((FreeTransactionManagerAdapter) transactionManager1).commands);
+
+    transactionManager1.processCommands(ChannelControl.KEEP_OPEN);
+    transactionManager2.processCommands(ChannelControl.KEEP_OPEN);
+
+    assertThat(getRecord(transactionManager1, 1)).isEqualTo(buildRecord(0x11));
+    assertThat(getRecord(transactionManager1, 3)).isEqualTo(buildRecord(0x13));
+    assertThat(getRecord(transactionManager2, 1)).isEqualTo(buildRecord(0x21));
+    assertThat(getRecord(transactionManager2, 2)).isEqualTo(buildRecord(0x22));
+    assertThat(getRecord(transactionManager2, 3)).isEqualTo(buildRecord(0x23));
+  }
+
+  @Test
+  public void applyTo_whenAppliedTwice_shouldBindTheReusedCommandsToTheNewTransactionManager()
+      throws Exception {
+    FreeTransactionManagerAdapter transactionManager1 =
+        (FreeTransactionManagerAdapter) createTransactionManager(0x11);
+    FreeTransactionManagerAdapter transactionManager2 =
+        (FreeTransactionManagerAdapter) createTransactionManager(0x21);
+
+    template.applyTo(transactionManager1);
+    template.applyTo(transactionManager2);
+
+    Command command2 = transactionManager2.commands.get(0);
+    assertThat(command2.getTransactionContext())
+        .isSameAs(transactionManager2.getTransactionContext())
+        .isNotSameAs(transactionManager1.getTransactionContext());
+    assertThat(command2.getTransactionContext().getCard()).isSameAs(transactionManager2.card);
+    assertThat(command2.getCommandContext()).isSameAs(transactionManager2.getCommandContext());
+  }
+
+  @Test
+  public void applyTo_whenRedundantReadsElisionIsEnabled_shouldExecuteTheStaticStepsEachTime()
+      throws Exception {
+    TransactionOptions options =
+        TransactionOptions.builder().enableRedundantReadsElision().build();
+
+    template.applyTo(
+        CalypsoExtensionService.getInstance()
+            .setTransactionOptions(createTransactionManager(0x11), options));
+    template.applyTo(
+        CalypsoExtensionService.getInstance()
+            .setTransactionOptions(createTransactionManager(0x21), options));
+
+    assertThat(staticStepCount).hasValue(2);
+  }
+}